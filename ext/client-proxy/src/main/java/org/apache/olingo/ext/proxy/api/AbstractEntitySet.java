@@ -106,4 +106,15 @@ public interface AbstractEntitySet<
    * @return the new search instance
    */
   <S extends T, SEC extends EntityCollection<S, ?, ?>> Search<S, SEC> createSearch(Class<SEC> reference);
+
+  /**
+   * Returns a view of the current query on this entity set, whose iterators prefetch navigation properties.
+   * <br/>
+   * A navigation property accessed on any entity of a fetched page gets retrieved for the whole page via a single
+   * batch request; navigation properties accessed so far are moreover expanded when fetching the subsequent pages.
+   * Prefetch is scoped to each iterator: neither this entity set nor other queries on it are affected.
+   *
+   * @return entities of the current query, with navigation prefetch
+   */
+  Iterable<T> withNavigationPrefetch();
 }
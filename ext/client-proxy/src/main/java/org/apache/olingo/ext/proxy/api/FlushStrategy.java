@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.api;
+
+import java.io.Serializable;
+
+/**
+ * Defines how a transactional {@link PersistenceManager} packs pending changes into OData batch requests.
+ * <br/>
+ * By default ({@link #atomic()}) all changes are sent as a single changeset of a single batch request, i.e. they are
+ * applied all-or-nothing. For big flushes, changes can be split into changesets of bounded size; requests referring
+ * to each other via Content-ID are always kept within the same changeset. Each changeset is applied atomically on its
+ * own; errors are reported per changeset via {@link ODataResponseError#getChangeset()}. If a flush fails, the changes
+ * of committed changesets are not sent again by the next flush.
+ */
+public final class FlushStrategy implements Serializable {
+
+  private static final long serialVersionUID = -1384256011736329473L;
+
+  private static final FlushStrategy ATOMIC = new FlushStrategy(0, 0, 1);
+
+  private final int changesetSize;
+
+  private final int changesetsPerBatch;
+
+  private final int parallelism;
+
+  private FlushStrategy(final int changesetSize, final int changesetsPerBatch, final int parallelism) {
+    this.changesetSize = changesetSize;
+    this.changesetsPerBatch = changesetsPerBatch;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * All changes are sent in a single changeset of a single batch request.
+   *
+   * @return all-or-nothing strategy
+   */
+  public static FlushStrategy atomic() {
+    return ATOMIC;
+  }
+
+  /**
+   * All changes are sent in a single batch request, split into changesets of at most the given number of requests.
+   *
+   * @param changesetSize maximum number of requests per changeset
+   * @return chunked strategy
+   */
+  public static FlushStrategy chunked(final int changesetSize) {
+    return pipelined(changesetSize, 0, 1);
+  }
+
+  /**
+   * Changes are split into changesets of at most the given number of requests, which are sent in several batch
+   * requests; up to <tt>parallelism</tt> batch requests are sent concurrently via the client's executor.
+   *
+   * @param changesetSize maximum number of requests per changeset
+   * @param changesetsPerBatch maximum number of changesets per batch request
+   * @param parallelism maximum number of batch requests sent concurrently
+   * @return pipelined strategy
+   */
+  public static FlushStrategy pipelined(final int changesetSize, final int changesetsPerBatch, final int parallelism) {
+    if (changesetSize <= 0) {
+      throw new IllegalArgumentException("Invalid changeset size " + changesetSize);
+    }
+    if (changesetsPerBatch < 0) {
+      throw new IllegalArgumentException("Invalid number of changesets per batch " + changesetsPerBatch);
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+    }
+    return new FlushStrategy(changesetSize, changesetsPerBatch, parallelism);
+  }
+
+  /**
+   * @return <tt>true</tt> if all changes are sent in a single changeset
+   */
+  public boolean isAtomic() {
+    return changesetSize == 0;
+  }
+
+  /**
+   * @return maximum number of requests per changeset, 0 if unbounded
+   */
+  public int getChangesetSize() {
+    return changesetSize;
+  }
+
+  /**
+   * @return maximum number of changesets per batch request, 0 if unbounded
+   */
+  public int getChangesetsPerBatch() {
+    return changesetsPerBatch;
+  }
+
+  /**
+   * @return maximum number of batch requests sent concurrently
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  @Override
+  public String toString() {
+    return isAtomic()
+        ? "FlushStrategy[atomic]"
+        : "FlushStrategy[changesetSize=" + changesetSize + ", changesetsPerBatch=" + changesetsPerBatch
+            + ", parallelism=" + parallelism + "]";
+  }
+}
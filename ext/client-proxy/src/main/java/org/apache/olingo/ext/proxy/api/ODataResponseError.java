@@ -29,10 +29,19 @@ public class ODataResponseError {
 
   private final ODataRequest request;
 
+  private final int changeset;
+
   public ODataResponseError(final ODataRuntimeException exception, final int index, final ODataRequest request) {
+    this(exception, index, request, 0);
+  }
+
+  public ODataResponseError(
+      final ODataRuntimeException exception, final int index, final ODataRequest request, final int changeset) {
+
     this.exception = exception;
     this.index = index;
     this.request = request;
+    this.changeset = changeset;
   }
 
   public ODataRuntimeException getException() {
@@ -47,4 +56,16 @@ public class ODataResponseError {
     return request;
   }
 
+  /**
+   * Gets the index of the changeset the failed request was sent in. When changes are flushed in several changesets,
+   * each changeset not committed is reported with at least one error; changesets without errors have been committed
+   * and their entities are no longer pending, so that flushing again sends only the changes not committed yet.
+   *
+   * @return index of the changeset; always 0 unless changes are flushed in several changesets
+   * @see FlushStrategy
+   */
+  public int getChangeset() {
+    return changeset;
+  }
+
 }
@@ -40,4 +40,16 @@ public interface PersistenceManager extends Serializable {
    * @throws ODataFlushException in case of errors
    */
   Future<Void> flushAsync();
+
+  /**
+   * Sets how pending changes are packed into batch requests; only considered by transactional services.
+   *
+   * @param strategy flush strategy, {@link FlushStrategy#atomic()} by default
+   */
+  void setFlushStrategy(FlushStrategy strategy);
+
+  /**
+   * @return current flush strategy
+   */
+  FlushStrategy getFlushStrategy();
 }
@@ -25,7 +25,6 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.lang.reflect.UndeclaredThrowableException;
 import java.net.URI;
-import java.util.Arrays;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
@@ -40,12 +39,13 @@ import org.apache.olingo.ext.proxy.AbstractService;
 import org.apache.olingo.ext.proxy.api.ComplexType;
 import org.apache.olingo.ext.proxy.api.EntityType;
 import org.apache.olingo.ext.proxy.api.annotations.EntitySet;
-import org.apache.olingo.ext.proxy.api.annotations.Namespace;
 import org.apache.olingo.ext.proxy.api.annotations.Singleton;
 import org.apache.olingo.ext.proxy.context.AttachedEntityStatus;
 import org.apache.olingo.ext.proxy.context.Context;
 import org.apache.olingo.ext.proxy.context.EntityContext;
+import org.apache.olingo.ext.proxy.utils.ClassUtils;
 import org.apache.olingo.ext.proxy.utils.CoreUtils;
+import org.apache.olingo.ext.proxy.utils.TypeDescriptor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -71,23 +71,18 @@ abstract class AbstractInvocationHandler implements InvocationHandler {
   }
 
   protected boolean isSelfMethod(final Method method) {
-    final Method[] selfMethods = getClass().getMethods();
-
-    boolean result = false;
-
-    for (int i = 0; i < selfMethods.length && !result; i++) {
-      result = method.getName().equals(selfMethods[i].getName())
-          && Arrays.equals(method.getParameterTypes(), selfMethods[i].getParameterTypes());
-    }
-
-    return result;
+    return TypeDescriptor.of(getClass()).getMethod(method.getName(), method.getParameterTypes()) != null;
   }
 
   protected Object invokeSelfMethod(final Method method, final Object[] args)
       throws Throwable {
     //Try as per https://amitstechblog.wordpress.com/2011/07/24/java-proxies-and-undeclaredthrowableexception/
+    final Method selfMethod = TypeDescriptor.of(getClass()).getMethod(method.getName(), method.getParameterTypes());
+    if (selfMethod == null) {
+      throw new NoSuchMethodException(getClass().getName() + "." + method.getName());
+    }
     try {
-      return getClass().getMethod(method.getName(), method.getParameterTypes()).invoke(this, args);
+      return selfMethod.invoke(this, args);
     } catch (UndeclaredThrowableException e) {
       throw e.getCause();
     } catch(InvocationTargetException e) {
@@ -151,10 +146,9 @@ abstract class AbstractInvocationHandler implements InvocationHandler {
       throw new IllegalStateException("Entity base URI not available");
     }
 
-    final String name = handler.getUUID().getType().
-        getAnnotation(org.apache.olingo.ext.proxy.api.annotations.EntityType.class).name();
+    final String name = ClassUtils.getEntityTypeName(handler.getUUID().getType());
 
-    final String namespace = handler.getUUID().getType().getAnnotation(Namespace.class).value();
+    final String namespace = ClassUtils.getNamespace(handler.getUUID().getType());
 
     final ClientEntity template;
 
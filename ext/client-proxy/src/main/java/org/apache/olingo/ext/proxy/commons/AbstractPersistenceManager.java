@@ -45,6 +45,7 @@ import org.apache.olingo.client.api.domain.ClientLink;
 import org.apache.olingo.client.api.domain.ClientLinkType;
 import org.apache.olingo.ext.proxy.AbstractService;
 import org.apache.olingo.ext.proxy.api.EdmStreamValue;
+import org.apache.olingo.ext.proxy.api.FlushStrategy;
 import org.apache.olingo.ext.proxy.api.PersistenceManager;
 import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
 import org.apache.olingo.ext.proxy.context.AttachedEntity;
@@ -66,10 +67,22 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
 
   protected final AbstractService<?> service;
 
+  private volatile FlushStrategy flushStrategy = FlushStrategy.atomic();
+
   AbstractPersistenceManager(final AbstractService<?> factory) {
     this.service = factory;
   }
 
+  @Override
+  public void setFlushStrategy(final FlushStrategy strategy) {
+    this.flushStrategy = strategy == null ? FlushStrategy.atomic() : strategy;
+  }
+
+  @Override
+  public FlushStrategy getFlushStrategy() {
+    return flushStrategy;
+  }
+
   @Override
   public Future<Void> flushAsync() {
     return service.getClient().getConfiguration().getExecutor().submit(new Callable<Void>() {
@@ -396,7 +409,7 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
     LOG.debug("Create '{}'", handler);
 
     changeset.addChange(service.getClient().getCUDRequestFactory().
-        getEntityCreateRequest(handler.getEntitySetURI(), entity), handler);
+        getEntityCreateRequest(handler.getEntitySetURI(), entity), handler, entity);
   }
 
   private void queueUpdateMediaEntity(
@@ -461,7 +474,7 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
       req.setIfMatch(handler.getETag());
     }
 
-    changeset.addChange(req, handler);
+    changeset.addChange(req, handler, changes);
   }
 
   private boolean queueUpdateLinkViaRef(
@@ -506,7 +519,7 @@ abstract class AbstractPersistenceManager implements PersistenceManager {
       req.setIfMatch(handler.getETag());
     }
 
-    changeset.addChange(req, handler);
+    changeset.addChange(req, handler, changes);
   }
 
   private void queueDelete(
@@ -19,7 +19,6 @@
 package org.apache.olingo.ext.proxy.commons;
 
 import java.io.InputStream;
-import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
@@ -57,7 +56,6 @@ import org.apache.olingo.ext.proxy.api.EdmStreamValue;
 import org.apache.olingo.ext.proxy.api.EntityCollection;
 import org.apache.olingo.ext.proxy.api.PrimitiveCollection;
 import org.apache.olingo.ext.proxy.api.annotations.ComplexType;
-import org.apache.olingo.ext.proxy.api.annotations.Namespace;
 import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
 import org.apache.olingo.ext.proxy.api.annotations.Property;
 import org.apache.olingo.ext.proxy.context.AttachedEntityStatus;
@@ -66,6 +64,7 @@ import org.apache.olingo.ext.proxy.context.EntityUUID;
 import org.apache.olingo.ext.proxy.utils.ClassUtils;
 import org.apache.olingo.ext.proxy.utils.CoreUtils;
 import org.apache.olingo.ext.proxy.utils.ProxyUtils;
+import org.apache.olingo.ext.proxy.utils.TypeDescriptor;
 
 public abstract class AbstractStructuredInvocationHandler extends AbstractInvocationHandler {
 
@@ -75,6 +74,8 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
 
   protected final Class<?> typeRef;
 
+  protected final TypeDescriptor typeDescriptor;
+
   protected EntityInvocationHandler entityHandler;
 
   protected Object internal;
@@ -104,6 +105,7 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
     super(service);
     this.internal = null;
     this.typeRef = typeRef;
+    this.typeDescriptor = TypeDescriptor.of(typeRef);
     this.entityHandler = null;
   }
 
@@ -115,6 +117,7 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
     super(service);
     this.internal = internal;
     this.typeRef = typeRef;
+    this.typeDescriptor = TypeDescriptor.of(typeRef);
     this.entityHandler = null;
   }
 
@@ -126,6 +129,7 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
     super(entityHandler == null ? null : entityHandler.service);
     this.internal = internal;
     this.typeRef = typeRef;
+    this.typeDescriptor = TypeDescriptor.of(typeRef);
     // prevent memory leak
     this.entityHandler = entityHandler == this ? null : entityHandler;
   }
@@ -151,6 +155,14 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
     return typeRef;
   }
 
+  private TypeDescriptor.Accessor getGetter(final String name) throws NoSuchMethodException {
+    final TypeDescriptor.Accessor getter = typeDescriptor.getAccessor(name);
+    if (getter == null) {
+      throw new NoSuchMethodException(typeRef.getName() + "." + name + "()");
+    }
+    return getter;
+  }
+
   @Override
   public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
   	if (method.getName().startsWith("get")) {  
@@ -161,31 +173,31 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
       // get method annotation and check if it exists as expected
 
       final Object res;
-      final Method getter = typeRef.getMethod(method.getName());
+      final TypeDescriptor.Accessor getter = getGetter(method.getName());
 
-      final Property property = ClassUtils.getAnnotation(Property.class, getter);
+      final Property property = getter.getProperty();
       if (property == null) {
-        final NavigationProperty navProp = ClassUtils.getAnnotation(NavigationProperty.class, getter);
+        final NavigationProperty navProp = getter.getNavigationProperty();
         if (navProp == null) {
           throw new UnsupportedOperationException("Unsupported method " + method.getName());
         } else {
           // if the getter refers to a navigation property ... navigate and follow link if necessary
-          res = getNavigationPropertyValue(navProp, getter);
+          res = getNavigationPropertyValue(navProp, getter.getMethod());
         }
       } else {
         // if the getter refers to a property .... get property from wrapped entity
-        res = getPropertyValue(property.name(), getter.getGenericReturnType());
+        res = getPropertyValue(property.name(), getter.getMethod().getGenericReturnType());
       }
 
       return res;
     } else if (method.getName().startsWith("set")) {
       // get the corresponding getter method (see assumption above)
       final String getterName = method.getName().replaceFirst("set", "get");
-      final Method getter = typeRef.getMethod(getterName);
+      final TypeDescriptor.Accessor getter = getGetter(getterName);
 
-      final Property property = ClassUtils.getAnnotation(Property.class, getter);
+      final Property property = getter.getProperty();
       if (property == null) {
-        final NavigationProperty navProp = ClassUtils.getAnnotation(NavigationProperty.class, getter);
+        final NavigationProperty navProp = getter.getNavigationProperty();
         if (navProp == null) {
           throw new UnsupportedOperationException("Unsupported method " + method.getName());
         } else {
@@ -496,7 +508,7 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
 
         if (handler == null) {
           final ClientEntity entity = getClient().getObjectFactory().newEntity(new FullQualifiedName(
-                  collItemType.getAnnotation(Namespace.class).value(), ClassUtils.getEntityTypeName(collItemType)));
+                  ClassUtils.getNamespace(collItemType), ClassUtils.getEntityTypeName(collItemType)));
 
           handler = EntityInvocationHandler.getInstance(
                   entity,
@@ -604,17 +616,9 @@ public abstract class AbstractStructuredInvocationHandler extends AbstractInvoca
 
   public Collection<String> readAdditionalPropertyNames() {
     final Set<String> res = new HashSet<String>(propertyChanges.keySet());
-    final Set<String> propertyNames = new HashSet<String>();
-    for (Method method : typeRef.getMethods()) {
-      final Annotation ann = method.getAnnotation(Property.class);
-      if (ann != null) {
-        final String property = ((Property) ann).name();
-        propertyNames.add(property);
-
-        // maybe someone could add a normal attribute to the additional set
-        res.remove(property);
-      }
-    }
+    final Set<String> propertyNames = typeDescriptor.getPropertyNames();
+    // maybe someone could add a normal attribute to the additional set
+    res.removeAll(propertyNames);
 
     for (ClientProperty property : getInternalProperties()) {
       if (!propertyNames.contains(property.getName())) {
@@ -37,7 +37,6 @@ import org.apache.olingo.ext.proxy.api.EntityType;
 import org.apache.olingo.ext.proxy.api.PrimitiveCollection;
 import org.apache.olingo.ext.proxy.api.annotations.EntityContainer;
 import org.apache.olingo.ext.proxy.api.annotations.EntitySet;
-import org.apache.olingo.ext.proxy.api.annotations.Namespace;
 import org.apache.olingo.ext.proxy.api.annotations.Singleton;
 import org.apache.olingo.ext.proxy.context.EntityUUID;
 import org.apache.olingo.ext.proxy.utils.ClassUtils;
@@ -122,7 +121,7 @@ public final class EntityContainerInvocationHandler extends AbstractInvocationHa
 
     if (handler == null) {
       final ClientEntity entity = getClient().getObjectFactory().newEntity(new FullQualifiedName(
-              typeRef.getAnnotation(Namespace.class).value(), ClassUtils.getEntityTypeName(typeRef)));
+              ClassUtils.getNamespace(typeRef), ClassUtils.getEntityTypeName(typeRef)));
 
       handler = EntityInvocationHandler.getInstance(entity, uri, uri, typeRef, service);
     } else if (isDeleted(handler)) {
@@ -40,10 +40,11 @@ import org.apache.olingo.client.api.uri.URIBuilder;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.ext.proxy.AbstractService;
+import org.apache.olingo.ext.proxy.api.AbstractEntitySet;
 import org.apache.olingo.ext.proxy.api.AbstractTerm;
 import org.apache.olingo.ext.proxy.api.Annotatable;
 import org.apache.olingo.ext.proxy.api.EdmStreamValue;
-import org.apache.olingo.ext.proxy.api.annotations.EntityType;
+import org.apache.olingo.ext.proxy.api.EntityCollection;
 import org.apache.olingo.ext.proxy.api.annotations.Namespace;
 import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
 import org.apache.olingo.ext.proxy.api.annotations.Term;
@@ -62,6 +63,8 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
 
   private EntityUUID uuid;
 
+  private transient NavigationPrefetch.Page prefetch;
+
   static EntityInvocationHandler getInstance(
       final ClientEntity entity,
       final EntitySetInvocationHandler<?, ?, ?> entitySet,
@@ -125,11 +128,11 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
 
     super(typeRef, service);
 
-    final String name = typeRef.getAnnotation(org.apache.olingo.ext.proxy.api.annotations.EntityType.class).name();
-    final String namespace = typeRef.getAnnotation(Namespace.class).value();
+    final String name = typeDescriptor.getEntityType().name();
+    final String namespace = typeDescriptor.getNamespace().value();
 
     this.internal = service.getClient().getObjectFactory().newEntity(new FullQualifiedName(namespace, name));
-    ClientEntity.class.cast(this.internal).setMediaEntity(typeRef.getAnnotation(EntityType.class).hasStream());
+    ClientEntity.class.cast(this.internal).setMediaEntity(typeDescriptor.hasStream());
 
     this.uuid = new EntityUUID(null, typeRef, null);
   }
@@ -141,11 +144,11 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
 
     super(typeRef, service);
 
-    final String name = typeRef.getAnnotation(org.apache.olingo.ext.proxy.api.annotations.EntityType.class).name();
-    final String namespace = typeRef.getAnnotation(Namespace.class).value();
+    final String name = typeDescriptor.getEntityType().name();
+    final String namespace = typeDescriptor.getNamespace().value();
 
     this.internal = service.getClient().getObjectFactory().newEntity(new FullQualifiedName(namespace, name));
-    ClientEntity.class.cast(this.internal).setMediaEntity(typeRef.getAnnotation(EntityType.class).hasStream());
+    ClientEntity.class.cast(this.internal).setMediaEntity(typeDescriptor.hasStream());
 
     this.baseURI = entityURI;
     this.uri = entityURI == null ? null : getClient().newURIBuilder(baseURI.toASCIIString());
@@ -170,7 +173,7 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
     }
 
     this.internal = entity;
-    getEntity().setMediaEntity(typeRef.getAnnotation(EntityType.class).hasStream());
+    getEntity().setMediaEntity(typeDescriptor.hasStream());
 
     this.uuid = new EntityUUID(entitySetURI, typeRef, null);
   }
@@ -202,14 +205,14 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
     }
 
     this.internal = entity;
-    getEntity().setMediaEntity(typeRef.getAnnotation(EntityType.class).hasStream());
+    getEntity().setMediaEntity(typeDescriptor.hasStream());
 
     this.uuid = new EntityUUID(entitySetURI, typeRef, key);
   }
 
   public void setEntity(final ClientEntity entity) {
     this.internal = entity;
-    getEntity().setMediaEntity(typeRef.getAnnotation(EntityType.class).hasStream());
+    getEntity().setMediaEntity(typeDescriptor.hasStream());
 
     final Object key = CoreUtils.getKey(getClient(), this, typeRef, entity);
 
@@ -307,7 +310,7 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
   }
 
   public void uploadStream(final EdmStreamValue stream) {
-    if (typeRef.getAnnotation(EntityType.class).hasStream()) {
+    if (typeDescriptor.hasStream()) {
       if (this.stream != null) {
         this.stream.close();
       }
@@ -326,7 +329,7 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
         : getEntity().getMediaContentSource();
 
     if (this.stream == null
-        && typeRef.getAnnotation(EntityType.class).hasStream()
+        && typeDescriptor.hasStream()
         && contentSource != null) {
 
       final ODataMediaRequest retrieveReq =
@@ -355,6 +358,10 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
     } else if (linkCache.containsKey(property)) {
       navPropValue = linkCache.get(property);
     } else {
+      if (prefetch != null) {
+        prefetch.load(property, EntityCollection.class.isAssignableFrom(getter.getReturnType())
+            || AbstractEntitySet.class.isAssignableFrom(getter.getReturnType()));
+      }
       navPropValue = retrieveNavigationProperty(property, getter);
     }
 
@@ -370,6 +377,10 @@ public class EntityInvocationHandler extends AbstractStructuredInvocationHandler
     linkCache.put(navProp, value);
   }
 
+  void setNavigationPrefetch(final NavigationPrefetch.Page prefetch) {
+    this.prefetch = prefetch;
+  }
+
   @Override
   public void addAnnotation(final Class<? extends AbstractTerm> term, final Object value) {
     this.annotations.put(term, value);
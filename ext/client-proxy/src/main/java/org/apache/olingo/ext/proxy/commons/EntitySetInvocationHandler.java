@@ -23,6 +23,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
@@ -41,7 +42,6 @@ import org.apache.olingo.ext.proxy.api.EntityCollection;
 import org.apache.olingo.ext.proxy.api.EntityType;
 import org.apache.olingo.ext.proxy.api.Search;
 import org.apache.olingo.ext.proxy.api.StructuredType;
-import org.apache.olingo.ext.proxy.api.annotations.Namespace;
 import org.apache.olingo.ext.proxy.context.AttachedEntityStatus;
 import org.apache.olingo.ext.proxy.context.EntityContext;
 import org.apache.olingo.ext.proxy.context.EntityUUID;
@@ -129,7 +129,7 @@ public class EntitySetInvocationHandler<
 
     if (handler == null) {
       final ClientEntity entity = getClient().getObjectFactory().newEntity(new FullQualifiedName(
-              typeRef.getAnnotation(Namespace.class).value(), ClassUtils.getEntityTypeName(typeRef)));
+              ClassUtils.getNamespace(typeRef), ClassUtils.getEntityTypeName(typeRef)));
 
       handler = EntityInvocationHandler.getInstance(key, entity, this.baseURI, typeRef, service);
     }
@@ -260,8 +260,22 @@ public class EntitySetInvocationHandler<
     }
   }
 
+  @Override
+  public Iterable<T> withNavigationPrefetch() {
+    final URI query = getClient().newURIBuilder(this.uri.build().toASCIIString()).build();
+    return new Iterable<T>() {
+
+      @Override
+      public Iterator<T> iterator() {
+        return new EntitySetIterator<T, KEY, EC>(
+            query, EntitySetInvocationHandler.this, new NavigationPrefetch(service));
+      }
+    };
+  }
+
   @Override
   public EntitySetIterator<T, KEY, EC> iterator() {
-    return new EntitySetIterator<T, KEY, EC>(getClient().newURIBuilder(this.uri.build().toASCIIString()).build(), this);
+    return new EntitySetIterator<T, KEY, EC>(getClient().newURIBuilder(this.uri.build().toASCIIString()).build(), this,
+        null);
   }
 }
@@ -39,10 +39,13 @@ class EntitySetIterator<T extends EntityType<?>, KEY extends Serializable, EC ex
 
   private Iterator<T> current;
 
-  EntitySetIterator(final URI uri, EntitySetInvocationHandler<T, KEY, EC> esi) {
+  private final NavigationPrefetch prefetch;
+
+  EntitySetIterator(final URI uri, EntitySetInvocationHandler<T, KEY, EC> esi, final NavigationPrefetch prefetch) {
     this.esi = esi;
     this.next = uri;
     this.current = Collections.<T>emptyList().iterator();
+    this.prefetch = prefetch;
   }
 
   @Override
@@ -81,8 +84,12 @@ class EntitySetIterator<T extends EntityType<?>, KEY extends Serializable, EC ex
   }
 
   private void goOn() {
-    final Triple<List<T>, URI, List<ClientAnnotation>> entitySet = esi.fetchPartial(this.next, this.esi.getTypeRef());
+    final Triple<List<T>, URI, List<ClientAnnotation>> entitySet = esi.fetchPartial(
+        prefetch == null ? this.next : prefetch.expand(this.next), this.esi.getTypeRef());
     this.current = entitySet.getLeft().iterator();
     this.next = entitySet.getMiddle();
+    if (prefetch != null) {
+      prefetch.addPage(entitySet.getLeft());
+    }
   }
 }
@@ -146,6 +146,11 @@ public class InlineEntitySetInvocationHandler<
     throw new UnsupportedOperationException("Search not supported on inline entity set");
   }
 
+  @Override
+  public Iterable<T> withNavigationPrefetch() {
+    throw new UnsupportedOperationException("Navigation prefetch not supported on inline entity set");
+  }
+
   @Override
   public void delete(final KEY key) throws IllegalArgumentException {
     throw new UnsupportedOperationException("Delete not supported on inline entity set");
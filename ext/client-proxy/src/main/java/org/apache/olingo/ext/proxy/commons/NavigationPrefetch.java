@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.commons;
+
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.olingo.client.api.communication.request.ODataRequest;
+import org.apache.olingo.client.api.communication.request.batch.BatchManager;
+import org.apache.olingo.client.api.communication.request.batch.ODataBatchRequest;
+import org.apache.olingo.client.api.communication.request.batch.ODataBatchResponseItem;
+import org.apache.olingo.client.api.communication.response.ODataBatchResponse;
+import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.domain.ClientEntitySet;
+import org.apache.olingo.client.api.domain.ClientInlineEntity;
+import org.apache.olingo.client.api.domain.ClientInlineEntitySet;
+import org.apache.olingo.client.api.domain.ClientLink;
+import org.apache.olingo.client.core.uri.URIUtils;
+import org.apache.olingo.ext.proxy.AbstractService;
+import org.apache.olingo.ext.proxy.api.AbstractEntitySet;
+import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Navigation prefetch for the pages fetched while iterating an entity set.
+ * <br/>
+ * The first time a navigation property is accessed on any entity of a page, it is retrieved for all entities of
+ * that page with a single batch request; navigation properties accessed so far are moreover added to the
+ * <tt>$expand</tt> of the subsequent page requests.
+ *
+ * @see AbstractEntitySet#withNavigationPrefetch()
+ */
+class NavigationPrefetch {
+
+  private static final Logger LOG = LoggerFactory.getLogger(NavigationPrefetch.class);
+
+  private final AbstractService<?> service;
+
+  private final Set<String> accessed = new LinkedHashSet<String>();
+
+  NavigationPrefetch(final AbstractService<?> service) {
+    this.service = service;
+  }
+
+  /**
+   * Adds navigation properties accessed so far to the <tt>$expand</tt> of the given (next page) URI.
+   *
+   * @param uri page URI.
+   * @return URI to be requested.
+   */
+  URI expand(final URI uri) {
+    final List<String> properties;
+    synchronized (accessed) {
+      properties = new ArrayList<String>(accessed);
+    }
+    if (properties.isEmpty()) {
+      return uri;
+    }
+
+    final String value = uri.toASCIIString();
+    final int queryIndex = value.indexOf('?');
+    final StringBuilder builder = new StringBuilder(value.length() + 16 * properties.size());
+    boolean expanded = false;
+    if (queryIndex != -1) {
+      builder.append(value, 0, queryIndex + 1);
+      String separator = "";
+      for (String param : value.substring(queryIndex + 1).split("&")) {
+        builder.append(separator).append(param);
+        separator = "&";
+
+        final int equalsIndex = param.indexOf('=');
+        if (!expanded && equalsIndex != -1 && "$expand".equals(decode(param.substring(0, equalsIndex)))) {
+          expanded = true;
+          final Set<String> current = getExpandedProperties(decode(param.substring(equalsIndex + 1)));
+          for (String property : properties) {
+            if (!current.contains(property)) {
+              builder.append(',').append(property);
+            }
+          }
+        }
+      }
+    } else {
+      builder.append(value);
+    }
+    if (!expanded) {
+      builder.append(queryIndex == -1 ? '?' : '&').append("$expand=").append(StringUtils.join(properties, ','));
+    }
+    return URI.create(builder.toString());
+  }
+
+  /**
+   * Registers the entities of a newly fetched page.
+   *
+   * @param entities entity proxies.
+   */
+  void addPage(final List<?> entities) {
+    final Page page = new Page();
+    for (Object entity : entities) {
+      if (entity instanceof Proxy && Proxy.getInvocationHandler(entity) instanceof EntityInvocationHandler) {
+        final EntityInvocationHandler handler = (EntityInvocationHandler) Proxy.getInvocationHandler(entity);
+        handler.setNavigationPrefetch(page);
+        page.handlers.add(handler);
+      }
+    }
+  }
+
+  private static String decode(final String value) {
+    try {
+      return URLDecoder.decode(value, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Set<String> getExpandedProperties(final String expand) {
+    final Set<String> properties = new HashSet<String>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i <= expand.length(); i++) {
+      final char current = i == expand.length() ? ',' : expand.charAt(i);
+      if (current == '(') {
+        depth++;
+      } else if (current == ')') {
+        depth--;
+      } else if (current == ',' && depth == 0) {
+        properties.add(StringUtils.substringBefore(expand.substring(start, i), "(").trim());
+        start = i + 1;
+      }
+    }
+    return properties;
+  }
+
+  /**
+   * Entities fetched with one page request.
+   */
+  final class Page {
+
+    private final List<EntityInvocationHandler> handlers = new ArrayList<EntityInvocationHandler>();
+
+    private final Set<String> loaded = new HashSet<String>();
+
+    /**
+     * Retrieves the given navigation property for all entities of this page, unless already done.
+     *
+     * @param property navigation property.
+     * @param collection whether the navigation property is collection-valued.
+     */
+    synchronized void load(final NavigationProperty property, final boolean collection) {
+      synchronized (accessed) {
+        accessed.add(property.name());
+      }
+      if (!loaded.add(property.name())) {
+        return;
+      }
+
+      final List<EntityInvocationHandler> targets = new ArrayList<EntityInvocationHandler>();
+      for (EntityInvocationHandler handler : handlers) {
+        final ClientLink link = handler.getEntity().getNavigationLink(property.name());
+        if (handler.getEntityURI() != null
+            && !(link instanceof ClientInlineEntity || link instanceof ClientInlineEntitySet)
+            && !handler.linkChanges.containsKey(property)
+            && !handler.linkCache.containsKey(property)) {
+
+          targets.add(handler);
+        }
+      }
+      if (targets.size() < 2) {
+        // nothing to gain in respect to plain navigation
+        return;
+      }
+      LOG.debug("Prefetching '{}' for {} entities", property.name(), targets.size());
+
+      final ODataBatchRequest request =
+          service.getClient().getBatchRequestFactory().getBatchRequest(service.getClient().getServiceRoot());
+      ((ODataRequest) request).setAccept(
+          service.getClient().getConfiguration().getDefaultBatchAcceptFormat().toContentTypeString());
+
+      final BatchManager batchManager = request.payloadManager();
+      for (EntityInvocationHandler handler : targets) {
+        final URI uri = URIUtils.getURI(handler.getEntityURI(), property.name());
+        batchManager.addRequest(collection
+            ? service.getClient().getRetrieveRequestFactory().getEntitySetRequest(uri)
+            : service.getClient().getRetrieveRequestFactory().getEntityRequest(uri));
+      }
+
+      final ODataBatchResponse response = batchManager.getResponse();
+      try {
+        if (response.getStatusCode() != 202 && response.getStatusCode() != 200) {
+          // entities will be navigated one by one
+          LOG.warn("Could not prefetch '{}': {}", property.name(), response.getStatusMessage());
+          return;
+        }
+
+        final Iterator<ODataBatchResponseItem> items = response.getBody();
+        for (EntityInvocationHandler handler : targets) {
+          if (!items.hasNext()) {
+            break;
+          }
+          final ODataBatchResponseItem item = items.next();
+          if (item.hasNext()) {
+            final ODataResponse res = item.next();
+            if (res.getStatusCode() == 200 && res instanceof ODataRetrieveResponse) {
+              setInline(handler.getEntity(), property.name(), ((ODataRetrieveResponse<?>) res).getBody());
+            }
+            res.close();
+          }
+        }
+      } finally {
+        response.close();
+      }
+    }
+
+    private void setInline(final ClientEntity entity, final String name, final Object body) {
+      final ClientLink inline;
+      if (body instanceof ClientEntitySet) {
+        // partial collections are left to plain navigation
+        inline = ((ClientEntitySet) body).getNext() == null
+            ? service.getClient().getObjectFactory().newDeepInsertEntitySet(name, (ClientEntitySet) body)
+            : null;
+      } else if (body instanceof ClientEntity) {
+        inline = service.getClient().getObjectFactory().newDeepInsertEntity(name, (ClientEntity) body);
+      } else {
+        inline = null;
+      }
+
+      if (inline != null) {
+        final ClientLink link = entity.getNavigationLink(name);
+        if (link != null) {
+          entity.removeLink(link);
+        }
+        entity.addLink(inline);
+      }
+    }
+  }
+}
@@ -20,8 +20,10 @@ package org.apache.olingo.ext.proxy.commons;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class TransactionItems {
@@ -77,6 +79,17 @@ public class TransactionItems {
     values.add(value);
   }
 
+  /**
+   * @return position to handler map, as per {@link #get(java.lang.Integer)}
+   */
+  public Map<Integer, EntityInvocationHandler> byValue() {
+    final Map<Integer, EntityInvocationHandler> byValue = new HashMap<Integer, EntityInvocationHandler>(values.size());
+    for (int i = values.size() - 1; i >= 0; i--) {
+      byValue.put(values.get(i), keys.get(i));
+    }
+    return byValue;
+  }
+
   public List<Integer> sortedValues() {
     final List<Integer> sortedValues = new ArrayList<Integer>(values);
     Collections.<Integer>sort(sortedValues);
@@ -30,22 +30,42 @@ import org.apache.olingo.client.api.communication.response.ODataBatchResponse;
 import org.apache.olingo.client.api.communication.response.ODataEntityCreateResponse;
 import org.apache.olingo.client.api.communication.response.ODataEntityUpdateResponse;
 import org.apache.olingo.client.api.communication.response.ODataResponse;
+import org.apache.olingo.client.api.domain.ClientEntity;
+import org.apache.olingo.client.api.domain.ClientLink;
+import org.apache.olingo.client.api.domain.ClientLinkType;
 import org.apache.olingo.client.core.communication.header.ODataErrorResponseChecker;
 import org.apache.olingo.client.core.communication.request.batch.ODataChangesetResponseItem;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.ext.proxy.AbstractService;
+import org.apache.olingo.ext.proxy.api.FlushStrategy;
 import org.apache.olingo.ext.proxy.api.ODataFlushException;
 import org.apache.olingo.ext.proxy.api.ODataResponseError;
 
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link org.apache.olingo.ext.proxy.api.PersistenceManager} implementation using OData batch requests to implement
  * high-level user transactions: all read-write operations will be packed in a batch request to the OData service when
  * calling <tt>flush()</tt>.
+ * <br/>
+ * By default all changes are sent in a single changeset; see {@link FlushStrategy} for splitting them into several
+ * changesets and batch requests.
  */
 public class TransactionalPersistenceManagerImpl extends AbstractPersistenceManager {
 
@@ -62,10 +82,28 @@ public class TransactionalPersistenceManagerImpl extends AbstractPersistenceMana
    */
   @Override
   protected void doFlush(final PersistenceChanges changes, final TransactionItems items) {
+    final FlushStrategy strategy = getFlushStrategy();
+    if (strategy.isAtomic()) {
+      flushAtomic(changes, items);
+    } else if (items.size() != changes.getChanges().size()) {
+      LOG.warn("Cannot split {} changes with {} transaction items, flushing atomically",
+          changes.getChanges().size(), items.size());
+      flushAtomic(changes, items);
+    } else {
+      flushChunked(changes, items, strategy);
+    }
+  }
+
+  private ODataBatchRequest newBatchRequest() {
     final ODataBatchRequest request =
             service.getClient().getBatchRequestFactory().getBatchRequest(service.getClient().getServiceRoot());
     ((ODataRequest) request).setAccept(
             service.getClient().getConfiguration().getDefaultBatchAcceptFormat().toContentTypeString());
+    return request;
+  }
+
+  private void flushAtomic(final PersistenceChanges changes, final TransactionItems items) {
+    final ODataBatchRequest request = newBatchRequest();
 
     final BatchManager batchManager = (BatchManager) ((ODataStreamedRequest<?,?>) request).payloadManager();
 
@@ -117,33 +155,447 @@ public class TransactionalPersistenceManagerImpl extends AbstractPersistenceMana
           }
         }
 
-        final EntityInvocationHandler handler = items.get(changesetItemId);
+        applyResponse(items.get(changesetItemId), res);
+      }
 
-        if (handler != null) {
-          if (res instanceof ODataEntityCreateResponse && (res.getStatusCode() == 201 || res
-              .getStatusCode() == 204)) {
-            if (res.getStatusCode() == 201) {
-              handler.setEntity(((ODataEntityCreateResponse<?>) res).getBody());
-              LOG.debug("Upgrade created object '{}'", handler);
-            } else {
-              handler.applyChanges();
+      if (!errors.isEmpty()) {
+        throw new ODataFlushException(response.getStatusCode(), errors);
+      }
+    }
+    response.close();
+  }
+
+  private void applyResponse(final EntityInvocationHandler handler, final ODataResponse res) {
+    final AppliedChange change = getAppliedChange(handler, res);
+    if (change != null) {
+      change.apply();
+    }
+  }
+
+  /**
+   * Gets the change confirmed by a create or update response, or <tt>null</tt> if there is none. The response body is
+   * read right away, so that the change can be applied after the response has been closed.
+   */
+  private static AppliedChange getAppliedChange(final EntityInvocationHandler handler, final ODataResponse res) {
+    if (handler != null) {
+      if (res instanceof ODataEntityCreateResponse && (res.getStatusCode() == 201 || res
+          .getStatusCode() == 204)) {
+        return new AppliedChange(handler,
+            res.getStatusCode() == 201 ? ((ODataEntityCreateResponse<?>) res).getBody() : null);
+      } else if (res instanceof ODataEntityUpdateResponse && (res.getStatusCode() == 200 || res
+          .getStatusCode() == 204)) {
+        return new AppliedChange(handler,
+            res.getStatusCode() == 201 ? ((ODataEntityUpdateResponse<?>) res).getBody() : null);
+      }
+    }
+    return null;
+  }
+
+  private static final class AppliedChange {
+
+    private final EntityInvocationHandler handler;
+
+    private final ClientEntity entity;
+
+    private AppliedChange(final EntityInvocationHandler handler, final ClientEntity entity) {
+      this.handler = handler;
+      this.entity = entity;
+    }
+
+    private void apply() {
+      if (entity == null) {
+        handler.applyChanges();
+      } else {
+        handler.setEntity(entity);
+        LOG.debug("Upgrade object '{}'", handler);
+      }
+    }
+  }
+
+  /**
+   * Sends changes in several changesets, possibly in several (concurrent) batch requests.
+   * <br/>
+   * Requests referring to each other via Content-ID are kept in the same changeset; since Content-IDs are assigned
+   * per batch request, such references are renumbered accordingly.
+   * <br/>
+   * Responses are applied to the entities on the calling thread only. If the flush fails, the entities of committed
+   * changesets are detached nevertheless, so that flushing again sends only the changes not committed yet; every
+   * changeset not committed is reported with at least one error.
+   */
+  private void flushChunked(final PersistenceChanges changes, final TransactionItems items,
+      final FlushStrategy strategy) {
+
+    final List<ODataBatchableRequest> requests =
+        new ArrayList<ODataBatchableRequest>(changes.getChanges().keySet());
+    final List<Integer> positions = items.sortedValues();
+    final Map<Integer, EntityInvocationHandler> handlers = items.byValue();
+
+    final Queue<Batch> batches = new ConcurrentLinkedQueue<Batch>();
+    int changesetIndex = 0;
+    for (List<List<Integer>> changesets : plan(changes, requests, strategy)) {
+      renumber(changes, requests, changesets);
+      batches.add(new Batch(changesets, changesetIndex));
+      changesetIndex += changesets.size();
+    }
+    LOG.debug("Flushing {} changes in {} changesets and {} batch requests",
+        requests.size(), changesetIndex, batches.size());
+
+    final ChunkedFlush flush = new ChunkedFlush(batches, requests, positions, handlers);
+
+    // the current thread takes part as well, so that flushAsync() cannot exhaust the executor
+    final List<Future<Void>> workers = new ArrayList<Future<Void>>();
+    for (int i = 1; i < strategy.getParallelism() && i < batches.size(); i++) {
+      workers.add(service.getClient().getConfiguration().getExecutor().submit(flush));
+    }
+    RuntimeException failure = null;
+    try {
+      flush.call();
+    } catch (RuntimeException e) {
+      failure = e;
+    }
+    for (Future<Void> worker : workers) {
+      if (!worker.cancel(false)) {
+        try {
+          worker.get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause() instanceof RuntimeException
+                ? (RuntimeException) e.getCause()
+                : new IllegalStateException(e.getCause());
+          }
+        }
+      }
+    }
+
+    for (AppliedChange change : flush.applied) {
+      change.apply();
+    }
+    if (failure == null && flush.errors.isEmpty()) {
+      return;
+    }
+
+    // committed changes must not be sent again
+    for (Integer index : flush.committed) {
+      final EntityInvocationHandler handler = handlers.get(positions.get(index));
+      if (handler == null) {
+        service.getContext().entityContext().getFurtherDeletes().remove(requests.get(index).getURI());
+      } else {
+        service.getContext().entityContext().detach(handler);
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+
+    Batch batch;
+    while ((batch = batches.poll()) != null) {
+      for (int i = 0; i < batch.changesets.size(); i++) {
+        final int index = batch.changesets.get(i).get(0);
+        flush.errors.add(new ODataResponseError(new ODataRuntimeException("Changeset not sent after previous errors"),
+            index, (ODataRequest) requests.get(index), batch.firstChangeset + i));
+      }
+    }
+    if (!flush.errors.isEmpty()) {
+      final List<ODataResponseError> errors = new ArrayList<ODataResponseError>(flush.errors);
+      Collections.sort(errors, new Comparator<ODataResponseError>() {
+        @Override
+        public int compare(final ODataResponseError error1, final ODataResponseError error2) {
+          return error1.getIndex() - error2.getIndex();
+        }
+      });
+      throw new ODataFlushException(flush.statusCode.get(), errors);
+    }
+  }
+
+  /**
+   * Groups the given requests into changesets (lists of request indexes) and batches (lists of changesets).
+   */
+  private List<List<List<Integer>>> plan(final PersistenceChanges changes,
+      final List<ODataBatchableRequest> requests, final FlushStrategy strategy) {
+
+    // requests referring to each other must end up in the same changeset
+    final int[] parents = new int[requests.size()];
+    for (int i = 0; i < parents.length; i++) {
+      parents[i] = i;
+    }
+    for (int i = 0; i < requests.size(); i++) {
+      for (Integer reference : getReferences(changes, requests.get(i))) {
+        if (reference > 0 && reference <= requests.size()) {
+          parents[find(parents, i)] = find(parents, reference - 1);
+        }
+      }
+    }
+    final Map<Integer, List<Integer>> groups = new LinkedHashMap<Integer, List<Integer>>();
+    for (int i = 0; i < requests.size(); i++) {
+      final int root = find(parents, i);
+      List<Integer> group = groups.get(root);
+      if (group == null) {
+        group = new ArrayList<Integer>();
+        groups.put(root, group);
+      }
+      group.add(i);
+    }
+
+    final List<List<Integer>> changesets = new ArrayList<List<Integer>>();
+    List<Integer> changeset = new ArrayList<Integer>();
+    for (List<Integer> group : groups.values()) {
+      if (!changeset.isEmpty() && changeset.size() + group.size() > strategy.getChangesetSize()) {
+        changesets.add(changeset);
+        changeset = new ArrayList<Integer>();
+      }
+      changeset.addAll(group);
+    }
+    if (!changeset.isEmpty()) {
+      changesets.add(changeset);
+    }
+
+    final List<List<List<Integer>>> batches = new ArrayList<List<List<Integer>>>();
+    final int batchSize = strategy.getChangesetsPerBatch() == 0 ? changesets.size() : strategy.getChangesetsPerBatch();
+    for (int i = 0; i < changesets.size(); i += batchSize) {
+      batches.add(changesets.subList(i, Math.min(i + batchSize, changesets.size())));
+    }
+    return batches;
+  }
+
+  private static int find(final int[] parents, final int index) {
+    int root = index;
+    while (parents[root] != root) {
+      parents[root] = parents[parents[root]];
+      root = parents[root];
+    }
+    return root;
+  }
+
+  private List<Integer> getReferences(final PersistenceChanges changes, final ODataBatchableRequest request) {
+    final List<Integer> references = new ArrayList<Integer>();
+    final Integer reference = getReference(request.getURI());
+    if (reference != null) {
+      references.add(reference);
+    }
+    final ClientEntity payload = changes.getPayload(request);
+    if (payload != null) {
+      for (ClientLink link : payload.getNavigationLinks()) {
+        final Integer linkReference = getReference(link.getLink());
+        if (linkReference != null) {
+          references.add(linkReference);
+        }
+      }
+    }
+    return references;
+  }
+
+  /**
+   * Gets the Content-ID referenced by the given URI, e.g. <tt>3</tt> for <tt>$3/$value</tt>.
+   */
+  private static Integer getReference(final URI uri) {
+    final String value = uri == null ? null : uri.toASCIIString();
+    if (value == null || !value.startsWith("$")) {
+      return null;
+    }
+    int end = 1;
+    while (end < value.length() && Character.isDigit(value.charAt(end))) {
+      end++;
+    }
+    return end == 1 ? null : Integer.valueOf(value.substring(1, end));
+  }
+
+  private static URI replaceReference(final URI uri, final Map<Integer, Integer> contentIds) {
+    final Integer reference = getReference(uri);
+    final Integer contentId = reference == null ? null : contentIds.get(reference);
+    if (contentId == null || contentId.equals(reference)) {
+      return uri;
+    }
+    final String value = uri.toASCIIString();
+    return URI.create("$" + contentId + value.substring(1 + String.valueOf(reference).length()));
+  }
+
+  /**
+   * Rewrites Content-ID references of the requests in the given batch as per their position in the batch.
+   */
+  private void renumber(final PersistenceChanges changes, final List<ODataBatchableRequest> requests,
+      final List<List<Integer>> changesets) {
+
+    final Map<Integer, Integer> contentIds = new HashMap<Integer, Integer>();
+    int contentId = 0;
+    for (List<Integer> changeset : changesets) {
+      for (Integer index : changeset) {
+        contentIds.put(index + 1, ++contentId);
+      }
+    }
+
+    for (List<Integer> changeset : changesets) {
+      for (Integer index : changeset) {
+        final ODataBatchableRequest request = requests.get(index);
+        final URI uri = replaceReference(request.getURI(), contentIds);
+        if (uri != request.getURI()) {
+          ((ODataRequest) request).setURI(uri);
+        }
+
+        final ClientEntity payload = changes.getPayload(request);
+        if (payload != null) {
+          for (ListIterator<ClientLink> itor = payload.getNavigationLinks().listIterator(); itor.hasNext();) {
+            final ClientLink link = itor.next();
+            final URI linkURI = replaceReference(link.getLink(), contentIds);
+            if (linkURI != link.getLink()) {
+              final ClientLink replacement = link.getType() == ClientLinkType.ENTITY_NAVIGATION
+                  ? service.getClient().getObjectFactory().newEntityNavigationLink(link.getName(), linkURI)
+                  : service.getClient().getObjectFactory().newEntitySetNavigationLink(link.getName(), linkURI);
+              replacement.getAnnotations().addAll(link.getAnnotations());
+              itor.set(replacement);
             }
-          } else if (res instanceof ODataEntityUpdateResponse && (res.getStatusCode() == 200 || res
-              .getStatusCode() == 204)) {
-            if (res.getStatusCode() == 201) {
-              handler.setEntity(((ODataEntityUpdateResponse<?>) res).getBody());
-              LOG.debug("Upgrade updated object '{}'", handler);
+          }
+        }
+      }
+    }
+  }
+
+  private static final class Batch {
+
+    private final List<List<Integer>> changesets;
+
+    private final int firstChangeset;
+
+    private Batch(final List<List<Integer>> changesets, final int firstChangeset) {
+      this.changesets = changesets;
+      this.firstChangeset = firstChangeset;
+    }
+  }
+
+  /**
+   * Sends queued batch requests until none is left or, unless continuing on error, some changeset failed.
+   */
+  private final class ChunkedFlush implements Callable<Void> {
+
+    private final Queue<Batch> batches;
+
+    private final List<ODataBatchableRequest> requests;
+
+    private final List<Integer> positions;
+
+    private final Map<Integer, EntityInvocationHandler> handlers;
+
+    private final List<ODataResponseError> errors =
+        Collections.synchronizedList(new ArrayList<ODataResponseError>());
+
+    /** Changes of committed changesets, to be applied by the flushing thread. */
+    private final Queue<AppliedChange> applied = new ConcurrentLinkedQueue<AppliedChange>();
+
+    /** Indexes of the requests in committed changesets. */
+    private final Queue<Integer> committed = new ConcurrentLinkedQueue<Integer>();
+
+    private final AtomicInteger statusCode = new AtomicInteger();
+
+    private ChunkedFlush(final Queue<Batch> batches, final List<ODataBatchableRequest> requests,
+        final List<Integer> positions, final Map<Integer, EntityInvocationHandler> handlers) {
+
+      this.batches = batches;
+      this.requests = requests;
+      this.positions = positions;
+      this.handlers = handlers;
+    }
+
+    @Override
+    public Void call() {
+      final boolean continueOnError = service.getClient().getConfiguration().isContinueOnError();
+      Batch batch;
+      while ((continueOnError || errors.isEmpty()) && (batch = batches.poll()) != null) {
+        send(batch);
+      }
+      return null;
+    }
+
+    private void send(final Batch batch) {
+      final ODataBatchRequest request = newBatchRequest();
+      final BatchManager batchManager = (BatchManager) ((ODataStreamedRequest<?, ?>) request).payloadManager();
+      for (List<Integer> changeset : batch.changesets) {
+        final ODataChangeset odataChangeset = batchManager.addChangeset();
+        for (Integer index : changeset) {
+          odataChangeset.addRequest(requests.get(index));
+        }
+      }
+
+      final ODataBatchResponse response = batchManager.getResponse();
+      try {
+        if (response.getStatusCode() != 202 && response.getStatusCode() != 200) {
+          final ODataServerErrorException exception =
+              new ODataServerErrorException(new ResponseStatusLine(response), response.getRawResponse());
+          for (int i = 0; i < batch.changesets.size(); i++) {
+            final int index = batch.changesets.get(i).get(0);
+            addError(response.getStatusCode(), new ODataResponseError(
+                exception, index, (ODataRequest) requests.get(index), batch.firstChangeset + i));
+          }
+          return;
+        }
+
+        final ContentType contentType = ContentType.fromAcceptHeader(request.getAccept());
+        final Iterator<ODataBatchResponseItem> batchResItor = response.getBody();
+        boolean batchFailed = false;
+        for (int i = 0; i < batch.changesets.size(); i++) {
+          if (!batchResItor.hasNext()) {
+            if (!batchFailed) {
+              throw new IllegalStateException("Unexpected operation result");
+            }
+            // the service stopped processing the batch request at the failed changeset
+            for (; i < batch.changesets.size(); i++) {
+              final int index = batch.changesets.get(i).get(0);
+              addError(response.getStatusCode(), new ODataResponseError(
+                  new ODataRuntimeException("Changeset not processed after previous errors"),
+                  index, (ODataRequest) requests.get(index), batch.firstChangeset + i));
+            }
+            break;
+          }
+          final ODataBatchResponseItem item = batchResItor.next();
+          if (!(item instanceof ODataChangesetResponseItem)) {
+            throw new IllegalStateException("Unexpected batch response item " + item.getClass().getSimpleName());
+          }
+
+          final ODataChangesetResponseItem chgres = (ODataChangesetResponseItem) item;
+          final List<AppliedChange> changes = new ArrayList<AppliedChange>();
+          boolean failed = false;
+          int responses = 0;
+          for (Integer index : batch.changesets.get(i)) {
+            if (!chgres.hasNext()) {
+              break;
+            }
+            final ODataResponse res = chgres.next();
+            responses++;
+            if (res.getStatusCode() >= 400) {
+              failed = true;
+              addError(response.getStatusCode(), new ODataResponseError(ODataErrorResponseChecker.checkResponse(
+                  service.getClient(),
+                  new ResponseStatusLine(res),
+                  res.getRawResponse(),
+                  contentType), index, (ODataRequest) requests.get(index), batch.firstChangeset + i));
             } else {
-              handler.applyChanges();
+              final AppliedChange change = getAppliedChange(handlers.get(positions.get(index)), res);
+              if (change != null) {
+                changes.add(change);
+              }
             }
           }
+
+          // a changeset is applied all-or-nothing
+          if (failed) {
+            batchFailed = true;
+          } else {
+            if (responses < batch.changesets.get(i).size()) {
+              throw new IllegalStateException("Unexpected operation result");
+            }
+            applied.addAll(changes);
+            committed.addAll(batch.changesets.get(i));
+          }
         }
+      } finally {
+        response.close();
       }
+    }
 
-      if (!errors.isEmpty()) {
-        throw new ODataFlushException(response.getStatusCode(), errors);
-      }
+    private void addError(final int status, final ODataResponseError error) {
+      statusCode.compareAndSet(0, status);
+      errors.add(error);
     }
-    response.close();
   }
 }
@@ -18,6 +18,9 @@
  */
 package org.apache.olingo.ext.proxy.context;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.URI;
 import org.apache.olingo.ext.proxy.commons.EntityInvocationHandler;
 
@@ -30,6 +33,11 @@ import java.util.Map;
 
 /**
  * Entity context.
+ * <br/>
+ * By default all attached entities are strongly held until {@link #detachAll()}. When setting a budget via
+ * {@link #setAttachedBudget(int)}, only the given number of unchanged (<tt>ATTACHED</tt>) entities is strongly held,
+ * in least-recently-used order; the others are only weakly referenced, so that they can still be found by key as long
+ * as they are in use. Entities with any other status stay attached until flush.
  */
 public class EntityContext implements Iterable<AttachedEntity> {
 
@@ -56,6 +64,80 @@ public class EntityContext implements Iterable<AttachedEntity> {
    */
   private final List<URI> furtherDeletes = new ArrayList<URI>();
 
+  /**
+   * Unchanged entities candidate for eviction, in access order.
+   */
+  private final Map<EntityInvocationHandler, Boolean> unchangedEntities =
+          new LinkedHashMap<EntityInvocationHandler, Boolean>(16, 0.75f, true);
+
+  /**
+   * Evicted entities, still available for search by key until garbage collected.
+   */
+  private final Map<EntityUUID, EvictedEntity> evictedEntities = new HashMap<EntityUUID, EvictedEntity>();
+
+  private final ReferenceQueue<EntityInvocationHandler> evictedQueue = new ReferenceQueue<EntityInvocationHandler>();
+
+  /**
+   * Maximum number of unchanged entities to be strongly held; negative for unbounded.
+   */
+  private int attachedBudget = -1;
+
+  private long evictions = 0;
+
+  /**
+   * Sets the maximum number of unchanged (<tt>ATTACHED</tt>) entities to be strongly held by this context.
+   *
+   * @param attachedBudget maximum number of unchanged entities; negative (default) for unbounded.
+   */
+  public void setAttachedBudget(final int attachedBudget) {
+    if (attachedBudget >= 0 && this.attachedBudget < 0) {
+      for (Map.Entry<EntityInvocationHandler, AttachedEntityStatus> entity : allAttachedEntities.entrySet()) {
+        if (entity.getValue() == AttachedEntityStatus.ATTACHED) {
+          unchangedEntities.put(entity.getKey(), Boolean.TRUE);
+        }
+      }
+    }
+    this.attachedBudget = attachedBudget;
+    evict();
+  }
+
+  /**
+   * Gets the maximum number of unchanged (<tt>ATTACHED</tt>) entities to be strongly held by this context.
+   *
+   * @return maximum number of unchanged entities; negative for unbounded.
+   */
+  public int getAttachedBudget() {
+    return attachedBudget;
+  }
+
+  /**
+   * Gets the number of entities strongly held by this context.
+   *
+   * @return number of attached entities.
+   */
+  public int getAttachedCount() {
+    return allAttachedEntities.size();
+  }
+
+  /**
+   * Gets the number of evicted entities not garbage collected yet.
+   *
+   * @return number of weakly held entities.
+   */
+  public int getEvictedCount() {
+    purge();
+    return evictedEntities.size();
+  }
+
+  /**
+   * Gets the number of evictions since creation of this context.
+   *
+   * @return number of evictions.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
   /**
    * Attaches an entity with status <tt>NEW</tt>.
    * <br/>
@@ -115,6 +197,12 @@ public class EntityContext implements Iterable<AttachedEntity> {
 
       if (entity.getUUID().getKey() != null) {
         searchableEntities.put(entity.getUUID(), entity);
+        evictedEntities.remove(entity.getUUID());
+      }
+
+      if (status == AttachedEntityStatus.ATTACHED && attachedBudget >= 0) {
+        unchangedEntities.put(entity, Boolean.TRUE);
+        evict();
       }
     }
   }
@@ -127,6 +215,8 @@ public class EntityContext implements Iterable<AttachedEntity> {
   public void detach(final EntityInvocationHandler entity) {
     searchableEntities.remove(entity.getUUID());
     allAttachedEntities.remove(entity);
+    unchangedEntities.remove(entity);
+    evictedEntities.remove(entity.getUUID());
   }
 
   /**
@@ -138,6 +228,9 @@ public class EntityContext implements Iterable<AttachedEntity> {
     allAttachedEntities.clear();
     searchableEntities.clear();
     furtherDeletes.clear();
+    unchangedEntities.clear();
+    evictedEntities.clear();
+    purge();
   }
 
   /**
@@ -147,7 +240,18 @@ public class EntityContext implements Iterable<AttachedEntity> {
    * @return retrieved entity.
    */
   public EntityInvocationHandler getEntity(final EntityUUID uuid) {
-    return searchableEntities.get(uuid);
+    EntityInvocationHandler entity = searchableEntities.get(uuid);
+    if (entity == null) {
+      final EvictedEntity evicted = evictedEntities.remove(uuid);
+      entity = evicted == null ? null : evicted.get();
+      if (entity != null) {
+        attach(entity);
+      }
+    } else if (attachedBudget >= 0) {
+      // update access order
+      unchangedEntities.get(entity);
+    }
+    return entity;
   }
 
   /**
@@ -191,6 +295,7 @@ public class EntityContext implements Iterable<AttachedEntity> {
             || (status == AttachedEntityStatus.CHANGED && current == AttachedEntityStatus.LINKED)
             || (status == AttachedEntityStatus.DELETED)) {
       allAttachedEntities.put(entity, status);
+      unchangedEntities.remove(entity);
     }
   }
 
@@ -220,6 +325,41 @@ public class EntityContext implements Iterable<AttachedEntity> {
     return res.iterator();
   }
 
+  private void evict() {
+    if (attachedBudget < 0) {
+      unchangedEntities.clear();
+      return;
+    }
+
+    for (Iterator<EntityInvocationHandler> itor = unchangedEntities.keySet().iterator();
+        unchangedEntities.size() > attachedBudget && itor.hasNext();) {
+
+      final EntityInvocationHandler entity = itor.next();
+      itor.remove();
+
+      // entities changed without status update (e.g. via collection properties) must not get lost
+      if (!entity.isChanged() && allAttachedEntities.get(entity) == AttachedEntityStatus.ATTACHED) {
+        allAttachedEntities.remove(entity);
+        if (entity.getUUID().getKey() != null && searchableEntities.remove(entity.getUUID()) != null) {
+          evictedEntities.put(entity.getUUID(), new EvictedEntity(entity, evictedQueue));
+        }
+        evictions++;
+      }
+    }
+    purge();
+  }
+
+  private void purge() {
+    for (Reference<? extends EntityInvocationHandler> ref = evictedQueue.poll(); ref != null;
+        ref = evictedQueue.poll()) {
+
+      final EvictedEntity evicted = (EvictedEntity) ref;
+      if (evictedEntities.get(evicted.uuid) == evicted) {
+        evictedEntities.remove(evicted.uuid);
+      }
+    }
+  }
+
   public List<URI> getFurtherDeletes() {
     return furtherDeletes;
   }
@@ -227,4 +367,14 @@ public class EntityContext implements Iterable<AttachedEntity> {
   public void addFurtherDeletes(final URI uri) {
     furtherDeletes.add(uri);
   }
+
+  private static final class EvictedEntity extends WeakReference<EntityInvocationHandler> {
+
+    private final EntityUUID uuid;
+
+    private EvictedEntity(final EntityInvocationHandler entity, final ReferenceQueue<EntityInvocationHandler> queue) {
+      super(entity, queue);
+      this.uuid = entity.getUUID();
+    }
+  }
 }
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.ext.proxy.utils;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.olingo.ext.proxy.api.annotations.ComplexType;
+import org.apache.olingo.ext.proxy.api.annotations.CompoundKey;
+import org.apache.olingo.ext.proxy.api.annotations.CompoundKeyElement;
+import org.apache.olingo.ext.proxy.api.annotations.EntityType;
+import org.apache.olingo.ext.proxy.api.annotations.EnumType;
+import org.apache.olingo.ext.proxy.api.annotations.Key;
+import org.apache.olingo.ext.proxy.api.annotations.KeyRef;
+import org.apache.olingo.ext.proxy.api.annotations.Namespace;
+import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
+import org.apache.olingo.ext.proxy.api.annotations.Property;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reflection data of a generated interface (or of any other class the proxy layer introspects), computed once per
+ * class and shared by all invocation handlers.
+ * <br/>
+ * Invocation handlers used to look up getters and annotations via reflection on every property access; with the
+ * descriptor these lookups become plain map accesses.
+ */
+public final class TypeDescriptor {
+
+  /**
+   * Logger.
+   */
+  private static final Logger LOG = LoggerFactory.getLogger(TypeDescriptor.class);
+
+  private static final ClassValue<TypeDescriptor> DESCRIPTORS = new ClassValue<TypeDescriptor>() {
+
+    @Override
+    protected TypeDescriptor computeValue(final Class<?> type) {
+      return new TypeDescriptor(type);
+    }
+  };
+
+  private final Class<?> type;
+
+  private final EntityType entityType;
+
+  private final ComplexType complexType;
+
+  private final EnumType enumType;
+
+  private final Namespace namespace;
+
+  private final Map<String, Method[]> methods = new HashMap<String, Method[]>();
+
+  private final Map<String, Accessor> accessors = new HashMap<String, Accessor>();
+
+  private final Set<String> propertyNames = new LinkedHashSet<String>();
+
+  private final ConcurrentMap<Class<? extends Annotation>, Map<String, Method>> annotatedGetters =
+      new ConcurrentHashMap<Class<? extends Annotation>, Map<String, Method>>();
+
+  private final Class<?> compoundKeyRef;
+
+  private final List<Method> keyGetters = new ArrayList<Method>();
+
+  private final String keyPropertyName;
+
+  private final List<CompoundKeyElementWrapper> compoundKeyElements;
+
+  private TypeDescriptor(final Class<?> type) {
+    this.type = type;
+    entityType = type.getAnnotation(EntityType.class);
+    complexType = type.getAnnotation(ComplexType.class);
+    enumType = type.getAnnotation(EnumType.class);
+    namespace = type.getAnnotation(Namespace.class);
+
+    final Map<String, List<Method>> byName = new HashMap<String, List<Method>>();
+    final List<CompoundKeyElementWrapper> elements = new ArrayList<CompoundKeyElementWrapper>();
+    for (Method method : type.getMethods()) {
+      List<Method> overloads = byName.get(method.getName());
+      if (overloads == null) {
+        overloads = new ArrayList<Method>();
+        byName.put(method.getName(), overloads);
+      }
+      // prefer non-bridge methods, as Class.getMethod() does
+      if (method.isBridge()) {
+        overloads.add(method);
+      } else {
+        overloads.add(0, method);
+      }
+
+      if (method.getParameterTypes().length == 0) {
+        final Property property = method.getAnnotation(Property.class);
+        final NavigationProperty navigationProperty = method.getAnnotation(NavigationProperty.class);
+        final Accessor previous = accessors.get(method.getName());
+        if (previous == null || !method.isBridge() && previous.getMethod().isBridge()) {
+          accessors.put(method.getName(), new Accessor(method, property, navigationProperty));
+        }
+        if (property != null) {
+          propertyNames.add(property.name());
+        }
+      }
+
+      final CompoundKeyElement element = method.getAnnotation(CompoundKeyElement.class);
+      if (element != null) {
+        elements.add(new CompoundKeyElementWrapper(element.name(), method, element.position()));
+      }
+    }
+    for (Map.Entry<String, List<Method>> entry : byName.entrySet()) {
+      methods.put(entry.getKey(), entry.getValue().toArray(new Method[entry.getValue().size()]));
+    }
+    Collections.sort(elements);
+    compoundKeyElements = Collections.unmodifiableList(elements);
+
+    String firstKeyPropertyName = null;
+    for (Method method : type.getDeclaredMethods()) {
+      if (method.getAnnotation(Key.class) != null) {
+        if (method.getName().startsWith("get")) {
+          keyGetters.add(method);
+        }
+        final Property property = method.getAnnotation(Property.class);
+        if (firstKeyPropertyName == null && property != null) {
+          firstKeyPropertyName = property.name();
+        }
+      }
+    }
+    keyPropertyName = firstKeyPropertyName;
+
+    final KeyRef keyRef = type.getAnnotation(KeyRef.class);
+    compoundKeyRef = keyRef == null || keyRef.value().getAnnotation(CompoundKey.class) == null
+        ? null
+        : keyRef.value();
+  }
+
+  /**
+   * Gets the descriptor of the given class, computing it on first access.
+   *
+   * @param type class to be described
+   * @return descriptor shared by all callers
+   */
+  public static TypeDescriptor of(final Class<?> type) {
+    return DESCRIPTORS.get(type);
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public EntityType getEntityType() {
+    return entityType;
+  }
+
+  public ComplexType getComplexType() {
+    return complexType;
+  }
+
+  public EnumType getEnumType() {
+    return enumType;
+  }
+
+  public Namespace getNamespace() {
+    return namespace;
+  }
+
+  /**
+   * @return <tt>true</tt> if the described type is an entity type with stream.
+   */
+  public boolean hasStream() {
+    return entityType != null && entityType.hasStream();
+  }
+
+  /**
+   * Same as {@link Class#getMethod(String, Class...)} but returning <tt>null</tt> instead of throwing an exception if
+   * no matching public method exists.
+   *
+   * @param name method name
+   * @param parameterTypes parameter types
+   * @return public method or <tt>null</tt>
+   */
+  public Method getMethod(final String name, final Class<?>... parameterTypes) {
+    final Method[] overloads = methods.get(name);
+    if (overloads != null) {
+      for (Method method : overloads) {
+        if (Arrays.equals(parameterTypes, method.getParameterTypes())) {
+          return method;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Gets the public method without parameters of the given name, together with its property annotations.
+   *
+   * @param name method name
+   * @return accessor or <tt>null</tt>
+   */
+  public Accessor getAccessor(final String name) {
+    return accessors.get(name);
+  }
+
+  /**
+   * @return names of all properties annotated via {@link Property}.
+   */
+  public Set<String> getPropertyNames() {
+    return Collections.unmodifiableSet(propertyNames);
+  }
+
+  /**
+   * Gets the getter annotated with the given annotation whose <tt>name</tt> attribute matches the given name.
+   *
+   * @param ann annotation, providing a <tt>name</tt> attribute
+   * @param name annotated name
+   * @return getter or <tt>null</tt>
+   */
+  public Method getGetterByAnnotatedName(final Class<? extends Annotation> ann, final String name) {
+    Map<String, Method> getters = annotatedGetters.get(ann);
+    if (getters == null) {
+      getters = new HashMap<String, Method>();
+      for (Method method : type.getMethods()) {
+        final Annotation annotation = method.getAnnotation(ann);
+        // Assumption: getter is always prefixed by 'get' word
+        if (annotation != null && method.getName().startsWith("get")) {
+          try {
+            final Object annotatedName = ann.getMethod("name").invoke(annotation);
+            if (annotatedName instanceof String && !getters.containsKey(annotatedName)) {
+              getters.put((String) annotatedName, method);
+            }
+          } catch (Exception e) {
+            LOG.warn("Error retrieving value annotation name for {}.{}", type.getName(), method.getName());
+          }
+        }
+      }
+      final Map<String, Method> previous = annotatedGetters.putIfAbsent(ann, getters);
+      if (previous != null) {
+        getters = previous;
+      }
+    }
+    return getters.get(name);
+  }
+
+  /**
+   * @return class referenced via {@link KeyRef} if annotated as {@link CompoundKey}, <tt>null</tt> otherwise.
+   */
+  public Class<?> getCompoundKeyRef() {
+    return compoundKeyRef;
+  }
+
+  /**
+   * @return getters declared by the described entity type and annotated as {@link Key}.
+   */
+  public List<Method> getKeyGetters() {
+    return Collections.unmodifiableList(keyGetters);
+  }
+
+  /**
+   * @return name of the first declared key property, or <tt>null</tt>.
+   */
+  public String getKeyPropertyName() {
+    return keyPropertyName;
+  }
+
+  /**
+   * @return methods annotated as {@link CompoundKeyElement}, sorted by position.
+   */
+  public List<CompoundKeyElementWrapper> getCompoundKeyElements() {
+    return compoundKeyElements;
+  }
+
+  /**
+   * Public method without parameters together with its {@link Property} or {@link NavigationProperty} annotation.
+   */
+  public static final class Accessor {
+
+    private final Method method;
+
+    private final Property property;
+
+    private final NavigationProperty navigationProperty;
+
+    private Accessor(final Method method, final Property property, final NavigationProperty navigationProperty) {
+      this.method = method;
+      this.property = property;
+      this.navigationProperty = navigationProperty;
+    }
+
+    public Method getMethod() {
+      return method;
+    }
+
+    public Property getProperty() {
+      return property;
+    }
+
+    public NavigationProperty getNavigationProperty() {
+      return navigationProperty;
+    }
+  }
+}
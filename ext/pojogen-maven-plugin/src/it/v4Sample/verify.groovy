@@ -18,3 +18,18 @@
  */
 File basepkg = new File( basedir, "target/generated-sources/ojc-plugin/org/apache/olingo/fit/proxy/v4" );
 assert basepkg.isDirectory() && basepkg.listFiles().length>0;
+
+File pojos = new File( basepkg, "staticservice/microsoft/test/odata/services/odatawcfservice/pojos" );
+assert new File( pojos, "Person.java" ).isFile() && new File( pojos, "PersonBinder.java" ).isFile();
+
+// flags enums are mapped to sets of members, other enums to single members
+String product = new File( pojos, "Product.java" ).text;
+assert product.contains( "java.util.EnumSet<org.apache.olingo.fit.proxy.v4.staticservice.microsoft.test.odata.services.odatawcfservice.types.AccessLevel> _userAccess;" );
+assert product.contains( "org.apache.olingo.fit.proxy.v4.staticservice.microsoft.test.odata.services.odatawcfservice.types.Color _skinColor;" );
+
+String productBinder = new File( pojos, "ProductBinder.java" ).text;
+assert productBinder.contains( "readFlags(org.apache.olingo.fit.proxy.v4.staticservice.microsoft.test.odata.services.odatawcfservice.types.AccessLevel.class, property.getEnumValue().getValue())" );
+assert productBinder.contains( "writeFlags(source.getUserAccess())" );
+assert productBinder.contains( "types.Color.valueOf(property.getEnumValue().getValue())" );
+assert productBinder.contains( "value.split(\",\")" );
+assert !new File( pojos, "PersonBinder.java" ).text.contains( "readFlags" );
@@ -54,6 +54,7 @@ import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmEnumType;
 import org.apache.olingo.commons.api.edm.EdmSchema;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
 import org.apache.olingo.commons.api.edm.EdmTerm;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.velocity.Template;
@@ -88,6 +89,13 @@ public abstract class AbstractPOJOGenMojo extends AbstractMojo {
   @Parameter(property = "basePackage", required = false)
   protected String basePackage;
 
+  /**
+   * Whether to generate, besides the proxy interfaces, concrete POJOs and binders mapping them from / to
+   * <tt>ClientEntity</tt> and <tt>ClientComplexValue</tt> without reflection.
+   */
+  @Parameter(property = "generatePojos", required = false, defaultValue = "false")
+  protected boolean generatePojos;
+
   protected final Set<String> namespaces = new HashSet<String>();
 
   protected static String TOOL_DIR = "ojc-plugin";
@@ -192,6 +200,18 @@ public abstract class AbstractPOJOGenMojo extends AbstractMojo {
     writeFile(out, base, ctx, template, append);
   }
 
+  private void parsePojo(final File base, final String pkg, final EdmStructuredType type, final boolean isEntity)
+      throws MojoExecutionException {
+
+    final String className = utility.capitalize(type.getName());
+    final Map<String, Object> objs = new HashMap<String, Object>();
+    objs.put("structuredType", type);
+    objs.put("isEntity", isEntity);
+
+    parseObj(base, pkg, "pojo", className + ".java", objs);
+    parseObj(base, pkg, "pojoBinder", className + "Binder.java", objs);
+  }
+
   protected abstract void createUtility(Edm edm, EdmSchema schema, String basePackage);
 
   protected abstract AbstractUtility getUtility();
@@ -271,6 +291,9 @@ public abstract class AbstractPOJOGenMojo extends AbstractMojo {
         final String typesPkg = pkg + ".types";
         parseObj(typesBaseDir, typesPkg, "package-info", "package-info.java");
 
+        final File pojosBaseDir = generatePojos ? mkPkgDir(schemaPath + "/pojos") : null;
+        final String pojosPkg = pkg + ".pojos";
+
         for (EdmTerm term : schema.getTerms()) {
           final String className = utility.capitalize(term.getName());
           termNames.put(term.getFullQualifiedName().toString(), typesPkg + "." + className);
@@ -304,6 +327,10 @@ public abstract class AbstractPOJOGenMojo extends AbstractMojo {
                   "complexCollection", className + "Collection.java", objs);
           parseObj(typesBaseDir, typesPkg, 
                   "complexCollectionComposableInvoker", className + "CollectionComposableInvoker.java", objs);
+
+          if (generatePojos) {
+            parsePojo(pojosBaseDir, pojosPkg, complex, false);
+          }
         }
 
         for (EdmEntityType entity : schema.getEntityTypes()) {
@@ -348,6 +375,10 @@ public abstract class AbstractPOJOGenMojo extends AbstractMojo {
                   "entityCollection", className + "Collection.java", objs);
           parseObj(typesBaseDir, typesPkg, 
                   "entityCollectionComposableInvoker", className + "CollectionComposableInvoker.java", objs);
+
+          if (generatePojos) {
+            parsePojo(pojosBaseDir, pojosPkg, entity, true);
+          }
         }
 
         // write container and top entity sets into the base package
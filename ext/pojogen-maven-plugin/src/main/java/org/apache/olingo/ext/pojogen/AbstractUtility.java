@@ -24,6 +24,7 @@ import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.edm.EdmAction;
 import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmEnumType;
 import org.apache.olingo.commons.api.edm.EdmFunction;
 import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
 import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
@@ -66,6 +67,8 @@ public abstract class AbstractUtility {
 
   protected static final String TYPE_SUB_PKG = "types";
 
+  protected static final String POJO_SUB_PKG = "pojos";
+
   protected final String basePackage;
 
   protected final String schemaName;
@@ -109,6 +112,15 @@ public abstract class AbstractUtility {
     return edm.getComplexType(fqn) != null;
   }
 
+  public boolean isEnum(final FullQualifiedName fqn) {
+    return edm.getEnumType(fqn) != null;
+  }
+
+  public boolean isFlags(final FullQualifiedName fqn) {
+    final EdmEnumType enumType = edm.getEnumType(fqn);
+    return enumType != null && enumType.isFlags();
+  }
+
   public Map<String, String> getEntityKeyType(final EdmSingleton singleton) {
     return getEntityKeyType(singleton.getEntityType());
   }
@@ -349,6 +361,55 @@ public abstract class AbstractUtility {
     return res.toString();
   }
 
+  /**
+   * Gets the properties declared by the given type itself, i.e. not inherited from its base type, which can be
+   * mapped onto a concrete POJO; stream properties are not.
+   *
+   * @param type entity or complex type
+   * @return declared properties
+   */
+  public List<EdmProperty> getPojoProperties(final EdmStructuredType type) {
+    final List<EdmProperty> result = new ArrayList<EdmProperty>();
+    for (String propertyName : type.getPropertyNames()) {
+      final EdmProperty property = type.getStructuralProperty(propertyName);
+      if ((type.getBaseType() == null || type.getBaseType().getProperty(propertyName) == null)
+              && !isStreamType(property.getType())) {
+        result.add(property);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Gets the Java type of a concrete POJO field or of a collection item; structured types map to the generated
+   * POJO classes, enum types to the generated enums, and flags enum types to sets of the generated enums.
+   *
+   * @param type EDM type
+   * @return Java type name
+   */
+  public String getPojoType(final EdmType type) {
+    final EdmTypeInfo edmType = getEdmTypeInfo(type);
+    if (edmType.isComplexType() || edmType.isEntityType()) {
+      return (StringUtils.isBlank(basePackage) ? "" : basePackage + ".")
+              + edmType.getFullQualifiedName().getNamespace().toLowerCase() + '.' + POJO_SUB_PKG + '.'
+              + capitalize(edmType.getFullQualifiedName().getName());
+    }
+    if (edmType.isEnumType() && edmType.getEnumType().isFlags()) {
+      return "java.util.EnumSet<" + getJavaType(type) + ">";
+    }
+    return getJavaType(type);
+  }
+
+  public String getPojoType(final EdmProperty property) {
+    return property.isCollection()
+            ? "java.util.List<" + getPojoType(property.getType()) + ">"
+            : getPojoType(property.getType());
+  }
+
+  public String getPrimitiveTypeKind(final EdmType type) {
+    return getEdmTypeInfo(type).getPrimitiveTypeKind().name();
+  }
+
   public EdmTypeInfo getEdmType(final EdmEntitySet entitySet) {
     return getEdmTypeInfo(entitySet.getEntityType().getFullQualifiedName().toString());
   }
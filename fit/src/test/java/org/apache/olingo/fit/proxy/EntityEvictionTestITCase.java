@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.fit.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+
+import org.apache.olingo.ext.proxy.api.EntityType;
+import org.apache.olingo.ext.proxy.commons.EntityInvocationHandler;
+import org.apache.olingo.ext.proxy.context.AttachedEntityStatus;
+import org.apache.olingo.ext.proxy.context.EntityContext;
+//CHECKSTYLE:OFF (Maven checkstyle)
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Customer;
+//CHECKSTYLE:ON (Maven checkstyle)
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is the unit test class to check eviction of unchanged entities from the entity context.
+ */
+public class EntityEvictionTestITCase extends AbstractTestITCase {
+
+  private EntityContext entityContext;
+
+  @Before
+  public void setAttachedBudget() {
+    service.getContext().detachAll();
+    entityContext = service.getContext().entityContext();
+    entityContext.setAttachedBudget(1);
+  }
+
+  @After
+  public void resetAttachedBudget() {
+    entityContext.setAttachedBudget(-1);
+    service.getContext().detachAll();
+  }
+
+  private EntityInvocationHandler getInvocationHandler(final EntityType<?> entity) {
+    return (EntityInvocationHandler) Proxy.getInvocationHandler(entity);
+  }
+
+  private Customer attachCustomer(final int id) {
+    final Customer customer = readCustomer(container, id);
+    // navigating attaches the entity as unchanged
+    customer.getParent();
+    assertEquals(AttachedEntityStatus.ATTACHED, entityContext.getStatus(getInvocationHandler(customer)));
+    return customer;
+  }
+
+  @Test
+  public void evictUnchanged() {
+    final long evictions = entityContext.getEvictions();
+
+    final Customer customer = attachCustomer(1);
+    final Customer other = attachCustomer(2);
+    assertEquals(evictions + 1, entityContext.getEvictions());
+    assertFalse(entityContext.isAttached(getInvocationHandler(customer)));
+    assertTrue(entityContext.isAttached(getInvocationHandler(other)));
+  }
+
+  @Test
+  public void reattachEvicted() {
+    final Customer customer = attachCustomer(1);
+    attachCustomer(2);
+    assertFalse(entityContext.isAttached(getInvocationHandler(customer)));
+
+    // still referenced, hence found by key and attached again
+    assertSame(getInvocationHandler(customer), getInvocationHandler(container.getCustomers().getByKey(1)));
+    assertTrue(entityContext.isAttached(getInvocationHandler(customer)));
+  }
+
+  @Test
+  public void flushChangedAfterEviction() {
+    final Customer customer = attachCustomer(1);
+    final String firstName = customer.getFirstName();
+    final Customer other = attachCustomer(2);
+    assertFalse(entityContext.isAttached(getInvocationHandler(customer)));
+
+    customer.setFirstName("Evicted");
+    assertTrue(entityContext.isAttached(getInvocationHandler(customer)));
+    assertEquals(AttachedEntityStatus.CHANGED, entityContext.getStatus(getInvocationHandler(customer)));
+
+    // changed entities are never evicted
+    entityContext.setAttachedBudget(0);
+    assertFalse(entityContext.isAttached(getInvocationHandler(other)));
+    assertTrue(entityContext.isAttached(getInvocationHandler(customer)));
+
+    container.flush();
+
+    service.getContext().detachAll();
+    assertEquals("Evicted", readCustomer(container, 1).getFirstName());
+
+    readCustomer(container, 1).setFirstName(firstName);
+    container.flush();
+    service.getContext().detachAll();
+    assertEquals(firstName, readCustomer(container, 1).getFirstName());
+  }
+}
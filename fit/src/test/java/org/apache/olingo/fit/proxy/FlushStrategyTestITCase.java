@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.fit.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import org.apache.olingo.ext.proxy.api.EntityType;
+import org.apache.olingo.ext.proxy.api.FlushStrategy;
+import org.apache.olingo.ext.proxy.api.ODataFlushException;
+import org.apache.olingo.ext.proxy.api.PrimitiveCollection;
+import org.apache.olingo.ext.proxy.commons.EntityInvocationHandler;
+//CHECKSTYLE:OFF (Maven checkstyle)
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Order;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Person;
+//CHECKSTYLE:ON (Maven checkstyle)
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * This is the unit test class to check flushing changes in several changesets and batch requests.
+ */
+public class FlushStrategyTestITCase extends AbstractTestITCase {
+
+  @After
+  public void resetFlushStrategy() {
+    service.getPersistenceManager().setFlushStrategy(FlushStrategy.atomic());
+    service.getContext().detachAll();
+  }
+
+  private Order newOrder(final int id) {
+    final Order order = container.newEntityInstance(Order.class);
+    order.setOrderID(id);
+
+    final Calendar orderDate = Calendar.getInstance(TimeZone.getTimeZone("GMT"));
+    orderDate.clear();
+    orderDate.set(2011, 3, 4, 16, 3, 57);
+    order.setOrderDate(new Timestamp(orderDate.getTimeInMillis()));
+    order.setShelfLife(BigDecimal.ZERO);
+
+    final PrimitiveCollection<BigDecimal> value = container.newPrimitiveCollection(BigDecimal.class);
+    value.add(BigDecimal.TEN);
+    order.setOrderShelfLifes(value);
+
+    container.getOrders().add(order);
+    return order;
+  }
+
+  private EntityInvocationHandler getInvocationHandler(final EntityType<?> entity) {
+    return (EntityInvocationHandler) Proxy.getInvocationHandler(entity);
+  }
+
+  private void createAndDeleteOrders(final FlushStrategy strategy, final int first, final int count) {
+    service.getPersistenceManager().setFlushStrategy(strategy);
+
+    for (int id = first; id < first + count; id++) {
+      newOrder(id);
+    }
+    container.flush();
+
+    service.getContext().detachAll();
+    for (int id = first; id < first + count; id++) {
+      assertEquals(id, container.getOrders().getByKey(id).load().getOrderID(), 0);
+    }
+
+    for (int id = first; id < first + count; id++) {
+      container.getOrders().delete(id);
+    }
+    container.flush();
+
+    service.getContext().detachAll();
+    for (int id = first; id < first + count; id++) {
+      try {
+        container.getOrders().getByKey(id).load();
+        fail();
+      } catch (IllegalArgumentException e) {
+        // Expected Exception
+      }
+    }
+  }
+
+  @Test
+  public void chunked() {
+    createAndDeleteOrders(FlushStrategy.chunked(2), 2001, 5);
+  }
+
+  @Test
+  public void pipelined() {
+    createAndDeleteOrders(FlushStrategy.pipelined(1, 2, 2), 2011, 5);
+  }
+
+  @Test
+  public void partialFailureAndRetry() {
+    service.getPersistenceManager().setFlushStrategy(FlushStrategy.chunked(1));
+
+    final Order committed = newOrder(2021);
+    // no key given: this create is rejected
+    final Person person = container.newEntityInstance(Person.class);
+    container.getPeople().add(person);
+    final Order pending = newOrder(2022);
+
+    try {
+      container.flush();
+      fail();
+    } catch (ODataFlushException e) {
+      assertEquals(2, e.getErrors().size());
+      assertEquals(1, e.getErrors().get(0).getIndex());
+      assertEquals(1, e.getErrors().get(0).getChangeset());
+      assertNotNull(e.getErrors().get(0).getRequest());
+      assertEquals(2, e.getErrors().get(1).getIndex());
+      assertEquals(2, e.getErrors().get(1).getChangeset());
+    }
+
+    // the committed changeset is not pending anymore, the others are
+    assertFalse(service.getContext().entityContext().isAttached(getInvocationHandler(committed)));
+    assertTrue(service.getContext().entityContext().isAttached(getInvocationHandler(person)));
+    assertTrue(service.getContext().entityContext().isAttached(getInvocationHandler(pending)));
+
+    // retry without the rejected change: the committed order is not created again
+    service.getContext().entityContext().detach(getInvocationHandler(person));
+    container.flush();
+    assertFalse(service.getContext().entityContext().isAttached(getInvocationHandler(pending)));
+
+    service.getContext().detachAll();
+    assertEquals(2021, container.getOrders().getByKey(2021).load().getOrderID(), 0);
+    assertEquals(2022, container.getOrders().getByKey(2022).load().getOrderID(), 0);
+
+    container.getOrders().delete(2021);
+    container.getOrders().delete(2022);
+    container.flush();
+  }
+}
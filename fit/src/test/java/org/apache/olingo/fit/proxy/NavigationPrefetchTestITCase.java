@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.fit.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.olingo.client.api.http.HttpClientFactory;
+import org.apache.olingo.client.core.http.DefaultHttpClientFactory;
+import org.apache.olingo.commons.api.http.HttpMethod;
+//CHECKSTYLE:OFF (Maven checkstyle)
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.People;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Customer;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Order;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Person;
+//CHECKSTYLE:ON (Maven checkstyle)
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * This is the unit test class to check navigation prefetch while iterating entity sets.
+ */
+public class NavigationPrefetchTestITCase extends AbstractTestITCase {
+
+  private static final class RecordingHttpClientFactory extends DefaultHttpClientFactory {
+
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public DefaultHttpClient create(final HttpMethod method, final URI uri) {
+      requests.add(uri.toASCIIString());
+      return super.create(method, uri);
+    }
+  }
+
+  private HttpClientFactory httpClientFactory;
+
+  private RecordingHttpClientFactory recording;
+
+  @Before
+  public void record() {
+    service.getContext().detachAll();
+    httpClientFactory = service.getClient().getConfiguration().getHttpClientFactory();
+    recording = new RecordingHttpClientFactory();
+    service.getClient().getConfiguration().setHttpClientFactory(recording);
+  }
+
+  @After
+  public void restore() {
+    service.getClient().getConfiguration().setHttpClientFactory(httpClientFactory);
+    service.getContext().detachAll();
+  }
+
+  private int count(final String part) {
+    int count = 0;
+    synchronized (recording.requests) {
+      for (String request : recording.requests) {
+        if (request.contains(part)) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  private static Set<Integer> getOrderIDs(final Iterable<Order> orders) {
+    final Set<Integer> ids = new TreeSet<Integer>();
+    for (Order order : orders) {
+      ids.add(order.getOrderID());
+    }
+    return ids;
+  }
+
+  @Test
+  public void prefetchPage() {
+    final Map<Integer, Set<Integer>> expected = new HashMap<Integer, Set<Integer>>();
+    for (Customer customer : container.getCustomers()) {
+      expected.put(customer.getPersonID(), getOrderIDs(customer.getOrders().execute()));
+    }
+    assertEquals(2, expected.size());
+    assertEquals(2, count("/Orders"));
+    assertEquals(0, count("$batch"));
+
+    service.getContext().detachAll();
+    recording.requests.clear();
+
+    final Map<Integer, Set<Integer>> actual = new HashMap<Integer, Set<Integer>>();
+    for (Customer customer : container.getCustomers().withNavigationPrefetch()) {
+      actual.put(customer.getPersonID(), getOrderIDs(customer.getOrders()));
+    }
+    assertEquals(expected, actual);
+    // one request for the page, one batch request for the orders of all customers
+    assertEquals(2, recording.requests.size());
+    assertEquals(1, count("$batch"));
+    assertEquals(0, count("/Orders"));
+  }
+
+  @Test
+  public void expandNextLinks() {
+    int iterating = 0;
+    for (Person person : container.getPeople().withNavigationPrefetch()) {
+      person.getParent();
+      iterating++;
+    }
+    assertEquals(6, iterating);
+    // the next link request expands the navigation property accessed on the first page
+    assertEquals(1, count("$skiptoken"));
+    assertEquals(1, count("$expand=Parent"));
+  }
+
+  @Test
+  public void prefetchIsScopedToIterator() {
+    final People people = container.getPeople();
+    for (Person person : people.withNavigationPrefetch()) {
+      person.getParent();
+    }
+    assertEquals(1, count("$expand=Parent"));
+
+    service.getContext().detachAll();
+    recording.requests.clear();
+
+    int iterating = 0;
+    for (Person person : people) {
+      assertFalse(person.getPersonID() == null);
+      iterating++;
+    }
+    assertEquals(6, iterating);
+    assertTrue(recording.requests.size() > 0);
+    assertEquals(0, count("$batch"));
+    assertEquals(0, count("$expand"));
+  }
+}
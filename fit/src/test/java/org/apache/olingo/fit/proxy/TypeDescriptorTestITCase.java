@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.fit.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.olingo.ext.proxy.api.annotations.NavigationProperty;
+import org.apache.olingo.ext.proxy.api.annotations.Property;
+import org.apache.olingo.ext.proxy.utils.CompoundKeyElementWrapper;
+import org.apache.olingo.ext.proxy.utils.TypeDescriptor;
+//CHECKSTYLE:OFF (Maven checkstyle)
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Address;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Customer;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.Order;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.OrderDetail;
+import org.apache.olingo.fit.proxy.staticservice.odatawcfservice.types.OrderDetailKey;
+//CHECKSTYLE:ON (Maven checkstyle)
+import org.junit.Test;
+
+/**
+ * This is the unit test class to check the reflection data cached for generated proxy interfaces.
+ */
+public class TypeDescriptorTestITCase extends AbstractTestITCase {
+
+  @Test
+  public void descriptorIsSharedPerClass() {
+    final TypeDescriptor descriptor = TypeDescriptor.of(Customer.class);
+    assertSame(descriptor, TypeDescriptor.of(Customer.class));
+    assertSame(Customer.class, descriptor.getType());
+    assertEquals("Customer", descriptor.getEntityType().name());
+    assertEquals("Microsoft.Test.OData.Services.ODataWCFService", descriptor.getNamespace().value());
+    assertNull(descriptor.getComplexType());
+
+    assertEquals("Address", TypeDescriptor.of(Address.class).getComplexType().name());
+    assertNull(TypeDescriptor.of(Address.class).getEntityType());
+  }
+
+  @Test
+  public void accessors() {
+    final TypeDescriptor descriptor = TypeDescriptor.of(Customer.class);
+
+    final TypeDescriptor.Accessor firstName = descriptor.getAccessor("getFirstName");
+    assertEquals("FirstName", firstName.getProperty().name());
+    assertNull(firstName.getNavigationProperty());
+    assertEquals("getFirstName", firstName.getMethod().getName());
+
+    final TypeDescriptor.Accessor orders = descriptor.getAccessor("getOrders");
+    assertNull(orders.getProperty());
+    assertEquals("Orders", orders.getNavigationProperty().name());
+
+    assertNull(descriptor.getAccessor("setFirstName"));
+    assertNotNull(descriptor.getMethod("setFirstName", String.class));
+    assertNull(descriptor.getMethod("setFirstName", Integer.class));
+
+    assertTrue(descriptor.getPropertyNames().contains("City"));
+    assertTrue(descriptor.getPropertyNames().contains("PersonID"));
+    assertEquals("getCity", descriptor.getGetterByAnnotatedName(Property.class, "City").getName());
+    assertEquals("getCompany",
+        descriptor.getGetterByAnnotatedName(NavigationProperty.class, "Company").getName());
+    assertNull(descriptor.getGetterByAnnotatedName(Property.class, "Company"));
+  }
+
+  @Test
+  public void keys() {
+    final TypeDescriptor customer = TypeDescriptor.of(Customer.class);
+    assertEquals("PersonID", customer.getKeyPropertyName());
+    assertEquals(1, customer.getKeyGetters().size());
+    assertEquals("getPersonID", customer.getKeyGetters().get(0).getName());
+    assertNull(customer.getCompoundKeyRef());
+
+    assertSame(OrderDetailKey.class, TypeDescriptor.of(OrderDetail.class).getCompoundKeyRef());
+    final List<CompoundKeyElementWrapper> elements = TypeDescriptor.of(OrderDetailKey.class).getCompoundKeyElements();
+    assertEquals(2, elements.size());
+    assertEquals("OrderID", elements.get(0).getName());
+    assertEquals("ProductID", elements.get(1).getName());
+  }
+
+  @Test
+  public void readWithCachedDescriptors() {
+    final Customer customer = readCustomer(container, 1);
+    assertEquals("Bob", customer.getFirstName());
+    assertEquals("London", customer.getCity());
+    assertNotNull(customer.getHomeAddress());
+
+    int count = 0;
+    for (Order order : customer.getOrders().execute()) {
+      assertNotNull(order.getOrderID());
+      count++;
+    }
+    assertTrue(count > 0);
+
+    final OrderDetailKey key = new OrderDetailKey();
+    key.setOrderID(7);
+    key.setProductID(5);
+    final OrderDetail orderDetail = container.getOrderDetails().getByKey(key).load();
+    assertEquals(7, orderDetail.getOrderID(), 0);
+    assertEquals(5, orderDetail.getProductID(), 0);
+
+    service.getContext().detachAll();
+  }
+}
@@ -284,6 +284,25 @@ public class BasicITCase extends AbstractParamTecSvcITCase {
     assertShortOrInt(0, property.getPrimitiveValue().toValue());
   }
   
+  @Test
+  public void readEntitySetWithGzipCompression() {
+    final URI uri = getClient().newURIBuilder(SERVICE_URI).appendEntitySetSegment("ESAllPrim").build();
+
+    ODataRawRequest request = getClient().getRetrieveRequestFactory().getRawRequest(uri);
+    request.addCustomHeader(HttpHeader.ACCEPT_ENCODING, "gzip");
+    ODataRawResponse response = request.execute();
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertThat(response.getHeader(HttpHeader.CONTENT_ENCODING), hasItem("gzip"));
+    response.close();
+
+    final ODataClient client = getClient();
+    client.getConfiguration().setGzipCompression(true);
+    request = client.getRetrieveRequestFactory().getRawRequest(uri);
+    response = request.execute();
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals(4, response.getBodyAs(ClientEntitySet.class).getPayload().getEntities().size());
+  }
+
   @Test
   public void readEntitySetWitInlineCount() {
     final URIBuilder uriBuilder = getClient().newURIBuilder(SERVICE_URI).
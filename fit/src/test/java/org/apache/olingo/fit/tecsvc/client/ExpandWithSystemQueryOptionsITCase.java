@@ -113,6 +113,33 @@ public class ExpandWithSystemQueryOptionsITCase extends AbstractParamTecSvcITCas
     }
   }
 
+  @Test
+  public void orderByWithTopAndCount() {
+    Map<QueryOption, Object> options = new EnumMap<QueryOption, Object>(QueryOption.class);
+    options.put(QueryOption.ORDERBY, "PropertyString desc");
+    options.put(QueryOption.TOP, "1");
+    options.put(QueryOption.COUNT, true);
+
+    final ODataRetrieveResponse<ClientEntitySet> response =
+        buildRequest(ES_TWO_KEY_NAV, NAV_PROPERTY_ET_TWO_KEY_NAV_MANY, options);
+    final List<ClientEntity> entities = response.getBody().getEntities();
+    assertEquals(4, entities.size());
+
+    for (final ClientEntity entity : entities) {
+      final Number propInt16 = (Number) entity.getProperty(PROPERTY_INT16).getPrimitiveValue().toValue();
+      final Object propString = entity.getProperty(PROPERTY_STRING).getPrimitiveValue().toValue();
+      final ClientEntitySet inlineEntitySet =
+          entity.getNavigationLink(NAV_PROPERTY_ET_TWO_KEY_NAV_MANY).asInlineEntitySet().getEntitySet();
+
+      if (propInt16.intValue() == 1 && propString.equals("1")) {
+        assertEquals(Integer.valueOf(2), inlineEntitySet.getCount());
+        assertEquals(1, inlineEntitySet.getEntities().size());
+        assertEquals("2",
+            inlineEntitySet.getEntities().get(0).getProperty(PROPERTY_STRING).getPrimitiveValue().toValue());
+      }
+    }
+  }
+
   @Test
   public void skip() {
     final ODataRetrieveResponse<ClientEntitySet> response =
@@ -24,6 +24,7 @@ import org.apache.olingo.client.api.communication.request.retrieve.EdmMetadataRe
 import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
 import org.apache.olingo.client.api.uri.URIBuilder;
 import org.apache.olingo.client.core.communication.request.invoke.EdmEnabledInvokeRequestFactoryImpl;
+import org.apache.olingo.client.core.edm.EdmMetadataCache;
 import org.apache.olingo.client.core.uri.URIBuilderImpl;
 import org.apache.olingo.commons.api.edm.Edm;
 
@@ -35,14 +36,22 @@ public class EdmEnabledODataClientImpl extends ODataClientImpl implements EdmEna
 
   private String metadataETag;
 
+  private final EdmMetadataCache metadataCache;
+
   private EdmEnabledInvokeRequestFactory edmEnabledInvokeRequestFactory;
 
   public EdmEnabledODataClientImpl(final String serviceRoot, final Edm edm, final String metadataETag) {
+    this(serviceRoot, edm, metadataETag, null);
+  }
+
+  public EdmEnabledODataClientImpl(final String serviceRoot, final Edm edm, final String metadataETag,
+      final EdmMetadataCache metadataCache) {
     super();
 
     this.serviceRoot = serviceRoot;
     this.edm = edm;
     this.metadataETag = metadataETag;
+    this.metadataCache = metadataCache;
   }
 
   @Override
@@ -54,6 +63,12 @@ public class EdmEnabledODataClientImpl extends ODataClientImpl implements EdmEna
   public Edm getEdm(final String metadataETag) {
     synchronized (this) {
       if (this.edm == null || (metadataETag != null && !metadataETag.equals(this.metadataETag))) {
+        if (metadataCache != null) {
+          final EdmMetadataCache.Entry entry = metadataCache.getEdm(this, serviceRoot, metadataETag);
+          this.metadataETag = entry.getETag();
+          this.edm = entry.getEdm();
+          return this.edm;
+        }
         final EdmMetadataRequest metadataReq = getRetrieveRequestFactory().getMetadataRequest(serviceRoot);
         final ODataRetrieveResponse<Edm> metadataRes = metadataReq.execute();
         this.metadataETag = metadataRes.getETag();
@@ -20,6 +20,7 @@ package org.apache.olingo.client.core;
 
 import org.apache.olingo.client.api.EdmEnabledODataClient;
 import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.core.edm.EdmMetadataCache;
 import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.format.ContentType;
 
@@ -50,7 +51,24 @@ public final class ODataClientFactory {
         new EdmEnabledODataClientImpl(serviceRoot, edm, metadataETag);
     instance.getConfiguration().setDefaultPubFormat(contentType);
     return instance;
-  }  
+  }
+
+  /**
+   * Creates an EdmEnabledODataClient which obtains its metadata through the given cache.
+   * @param serviceRoot service root
+   * @param metadataCache metadata cache, e.g. {@link EdmMetadataCache#getShared()}
+   * @param contentType default format
+   * @return new client instance
+   */
+  public static EdmEnabledODataClient getCachingEdmEnabledClient(
+      final String serviceRoot, final EdmMetadataCache metadataCache, final ContentType contentType) {
+
+    final EdmEnabledODataClient instance =
+        new EdmEnabledODataClientImpl(serviceRoot, null, null, metadataCache);
+    instance.getConfiguration().setDefaultPubFormat(contentType);
+    return instance;
+  }
+
   private ODataClientFactory() {
     // empty constructory for static utility class
   }
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.edm;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.communication.request.retrieve.ODataRawRequest;
+import org.apache.olingo.client.api.communication.response.ODataRawResponse;
+import org.apache.olingo.client.api.communication.response.ODataRetrieveResponse;
+import org.apache.olingo.client.api.edm.xml.XMLMetadata;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache for service metadata which can be shared between several
+ * {@link org.apache.olingo.client.api.EdmEnabledODataClient} instances.
+ * <p>
+ * Parsed {@link Edm} instances are kept in memory per service root. If a cache directory is given, the
+ * <code>$metadata</code> document is additionally stored gzip-compressed together with its ETag, so that a freshly
+ * started process can revalidate its copy with <code>If-None-Match</code> instead of downloading the whole document
+ * again.
+ * </p>
+ * Metadata documents containing <code>edmx:Reference</code> elements are not cached, since the referenced documents
+ * would have to be revalidated as well.
+ */
+public class EdmMetadataCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EdmMetadataCache.class);
+
+  private static final int FILE_MAGIC = 0x4f444d43;
+
+  private static final int FILE_VERSION = 1;
+
+  private static final String FILE_SUFFIX = ".metadata";
+
+  private static final EdmMetadataCache SHARED = new EdmMetadataCache();
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final File directory;
+
+  /**
+   * Creates a cache which holds metadata in memory only.
+   */
+  public EdmMetadataCache() {
+    this(null);
+  }
+
+  /**
+   * Creates a cache which holds metadata in memory and persists it to the given directory.
+   * @param directory cache directory, created if not existing; <code>null</code> for memory only
+   */
+  public EdmMetadataCache(final File directory) {
+    if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+      throw new IllegalArgumentException("Cannot create metadata cache directory " + directory);
+    }
+    this.directory = directory;
+  }
+
+  /**
+   * Gets the memory-only cache instance shared by the whole class loader.
+   * @return shared cache
+   */
+  public static EdmMetadataCache getShared() {
+    return SHARED;
+  }
+
+  /**
+   * Gets the metadata for the given service root, using the cached copy if it is still valid.
+   * <p>
+   * If the cached copy matches the expected ETag, no request is sent at all. Otherwise, also if no ETag is
+   * expected, the <code>$metadata</code> document is requested with <code>If-None-Match</code>; the cached copy
+   * is used if the service answers with <code>304 Not Modified</code>.
+   * </p>
+   * @param client client used for requesting the metadata document
+   * @param serviceRoot service root
+   * @param expectedETag metadata ETag known to the caller, or <code>null</code> if unknown
+   * @return cached or freshly loaded metadata
+   */
+  public Entry getEdm(final ODataClient client, final String serviceRoot, final String expectedETag) {
+    Entry cached = entries.get(serviceRoot);
+    if (cached == null) {
+      cached = load(serviceRoot);
+    }
+    if (cached != null && expectedETag != null && expectedETag.equals(cached.getETag())
+        && cached.getEdm() != null) {
+      return cached;
+    }
+
+    final URI uri = client.newURIBuilder(serviceRoot).appendMetadataSegment().build();
+    final ODataRawRequest request = client.getRetrieveRequestFactory().getRawRequest(uri);
+    request.setFormat(ContentType.APPLICATION_XML.toContentTypeString());
+    if (cached != null && cached.getETag() != null) {
+      request.setIfNoneMatch(cached.getETag());
+    }
+    final ODataRawResponse response = request.execute();
+    try {
+      if (cached != null && response.getStatusCode() == HttpStatusCode.NOT_MODIFIED.getStatusCode()) {
+        final Entry revalidated = cached.getEdm() == null ?
+            new Entry(cached.getETag(), parse(client, cached.document).getEdm(), cached.document) :
+            cached;
+        entries.put(serviceRoot, revalidated);
+        return revalidated;
+      }
+
+      final byte[] document = IOUtils.toByteArray(response.getRawResponse());
+      final Entry parsed = parse(client, document);
+      if (parsed.document == null) {
+        // referenced documents are resolved by the regular metadata request only
+        entries.remove(serviceRoot);
+        final ODataRetrieveResponse<Edm> metadataRes =
+            client.getRetrieveRequestFactory().getMetadataRequest(serviceRoot).execute();
+        return new Entry(metadataRes.getETag(), metadataRes.getBody(), null);
+      }
+      final Entry entry = new Entry(response.getETag(), parsed.getEdm(), parsed.document);
+      if (entry.getETag() != null) {
+        entries.put(serviceRoot, entry);
+        store(serviceRoot, entry);
+      } else {
+        entries.remove(serviceRoot);
+      }
+      return entry;
+    } catch (final IOException e) {
+      throw new IllegalStateException("Cannot read metadata document from " + uri, e);
+    } finally {
+      response.close();
+    }
+  }
+
+  /**
+   * Removes the cached metadata of the given service root from memory and disk.
+   * @param serviceRoot service root
+   */
+  public void invalidate(final String serviceRoot) {
+    entries.remove(serviceRoot);
+    if (directory != null) {
+      final File file = getFile(serviceRoot);
+      if (file.exists() && !file.delete()) {
+        LOG.warn("Could not delete cached metadata {}", file);
+      }
+    }
+  }
+
+  /**
+   * Removes all cached metadata from memory; persisted documents are kept.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  private Entry parse(final ODataClient client, final byte[] document) {
+    final XMLMetadata metadata =
+        client.getDeserializer(ContentType.APPLICATION_XML).toMetadata(new ByteArrayInputStream(document));
+    final Edm edm = client.getReader().readMetadata(metadata.getSchemaByNsOrAlias());
+    return new Entry(null, edm, metadata.getReferences().isEmpty() ? document : null);
+  }
+
+  private Entry load(final String serviceRoot) {
+    if (directory == null) {
+      return null;
+    }
+    final File file = getFile(serviceRoot);
+    if (!file.isFile()) {
+      return null;
+    }
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+      if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION
+          || !serviceRoot.equals(input.readUTF())) {
+        return null;
+      }
+      final String etag = input.readUTF();
+      final byte[] document = new byte[input.readInt()];
+      input.readFully(document);
+      return new Entry(etag, null, document);
+    } catch (final IOException e) {
+      LOG.warn("Ignoring unreadable cached metadata {}", file, e);
+      return null;
+    } finally {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private void store(final String serviceRoot, final Entry entry) {
+    if (directory == null) {
+      return;
+    }
+    final File file = getFile(serviceRoot);
+    final File temp = new File(directory, file.getName() + ".tmp" + Thread.currentThread().getId());
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(temp))));
+      output.writeInt(FILE_MAGIC);
+      output.writeInt(FILE_VERSION);
+      output.writeUTF(serviceRoot);
+      output.writeUTF(entry.getETag());
+      output.writeInt(entry.document.length);
+      output.write(entry.document);
+      output.close();
+      output = null;
+      if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+        LOG.warn("Could not store cached metadata {}", file);
+      }
+    } catch (final IOException e) {
+      LOG.warn("Could not store cached metadata {}", file, e);
+    } finally {
+      IOUtils.closeQuietly(output);
+      if (temp.exists() && !temp.delete()) {
+        temp.deleteOnExit();
+      }
+    }
+  }
+
+  private File getFile(final String serviceRoot) {
+    return new File(directory, DigestUtils.sha256Hex(serviceRoot) + FILE_SUFFIX);
+  }
+
+  /**
+   * Cached metadata of one service.
+   */
+  public static final class Entry {
+
+    private final String etag;
+
+    private final Edm edm;
+
+    private final byte[] document;
+
+    private Entry(final String etag, final Edm edm, final byte[] document) {
+      this.etag = etag;
+      this.edm = edm;
+      this.document = document;
+    }
+
+    /**
+     * @return metadata ETag as sent by the service, may be <code>null</code>
+     */
+    public String getETag() {
+      return etag;
+    }
+
+    /**
+     * @return parsed metadata
+     */
+    public Edm getEdm() {
+      return edm;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.client.core.edm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.client.api.ODataClient;
+import org.apache.olingo.client.api.communication.request.retrieve.ODataRawRequest;
+import org.apache.olingo.client.api.communication.request.retrieve.RetrieveRequestFactory;
+import org.apache.olingo.client.api.communication.response.ODataRawResponse;
+import org.apache.olingo.client.core.ODataClientFactory;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EdmMetadataCacheTest {
+
+  private static final String SERVICE_ROOT = "http://localhost/demo.svc";
+
+  private File directory;
+
+  private byte[] document;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = File.createTempFile("olingo-metadata", "");
+    directory.delete();
+    document = IOUtils.toByteArray(getClass().getResourceAsStream("/org/apache/olingo/client/core/demo-metadata.xml"));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteQuietly(directory);
+  }
+
+  @Test
+  public void memoryEntryIsUsedWithoutRequest() {
+    final ODataRawRequest request = mockRequest(200, "W/\"1\"");
+    final ODataClient client = mockClient(request);
+    final EdmMetadataCache cache = new EdmMetadataCache();
+
+    final EdmMetadataCache.Entry first = cache.getEdm(client, SERVICE_ROOT, null);
+    assertEquals("W/\"1\"", first.getETag());
+    assertNotNull(first.getEdm().getEntityType(new FullQualifiedName("ODataDemo", "Product")));
+
+    assertSame(first, cache.getEdm(client, SERVICE_ROOT, "W/\"1\""));
+    verify(request, times(1)).execute();
+    verify(request, never()).setIfNoneMatch(any(String.class));
+  }
+
+  @Test
+  public void memoryEntryIsRevalidatedWithoutExpectedETag() {
+    final EdmMetadataCache cache = new EdmMetadataCache();
+    final EdmMetadataCache.Entry first = cache.getEdm(mockClient(mockRequest(200, "W/\"1\"")), SERVICE_ROOT, null);
+
+    final ODataRawRequest revalidation = mockRequest(304, null);
+    assertSame(first, cache.getEdm(mockClient(revalidation), SERVICE_ROOT, null));
+    verify(revalidation).setIfNoneMatch("W/\"1\"");
+
+    final ODataRawRequest changed = mockRequest(200, "W/\"2\"");
+    final EdmMetadataCache.Entry second = cache.getEdm(mockClient(changed), SERVICE_ROOT, null);
+    verify(changed).setIfNoneMatch("W/\"1\"");
+    assertEquals("W/\"2\"", second.getETag());
+  }
+
+  @Test
+  public void persistedEntryIsRevalidated() {
+    final ODataRawRequest initial = mockRequest(200, "W/\"1\"");
+    new EdmMetadataCache(directory).getEdm(mockClient(initial), SERVICE_ROOT, null);
+
+    final ODataRawRequest revalidation = mockRequest(304, null);
+    final EdmMetadataCache.Entry entry =
+        new EdmMetadataCache(directory).getEdm(mockClient(revalidation), SERVICE_ROOT, null);
+
+    verify(revalidation).setIfNoneMatch("W/\"1\"");
+    assertEquals("W/\"1\"", entry.getETag());
+    assertNotNull(entry.getEdm().getEntityType(new FullQualifiedName("ODataDemo", "Product")));
+  }
+
+  private ODataRawRequest mockRequest(final int statusCode, final String etag) {
+    final ODataRawResponse response = mock(ODataRawResponse.class);
+    when(response.getStatusCode()).thenReturn(statusCode);
+    when(response.getETag()).thenReturn(etag);
+    when(response.getRawResponse()).thenReturn(
+        new ByteArrayInputStream(statusCode == 200 ? document : new byte[0]));
+    final ODataRawRequest request = mock(ODataRawRequest.class);
+    when(request.execute()).thenReturn(response);
+    return request;
+  }
+
+  private ODataClient mockClient(final ODataRawRequest request) {
+    final RetrieveRequestFactory factory = mock(RetrieveRequestFactory.class);
+    when(factory.getRawRequest(any(URI.class))).thenReturn(request);
+    final ODataClient client = spy(ODataClientFactory.getClient());
+    when(client.getRetrieveRequestFactory()).thenReturn(factory);
+    return client;
+  }
+}
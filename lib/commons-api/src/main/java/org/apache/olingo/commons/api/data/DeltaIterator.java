@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.data;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Data representation of a delta response as an Iterator, the streaming counterpart of {@link Delta}.
+ * <p/>
+ * Iterating over this instance yields the added or changed entities. After all of them have been consumed,
+ * the deleted entities, the added links and the deleted links are requested in this order, each exactly once,
+ * so implementations may compute them lazily (e.g., with a second query against a change log).
+ * The delta link is requested at the very end, so it can be determined while the changes are being read.
+ */
+public abstract class DeltaIterator extends EntityIterator {
+
+  private URI deltaLink;
+
+  /**
+   * Gets the deleted entities; called after all added or changed entities have been consumed.
+   * <p/>
+   * The default implementation returns no deleted entities.
+   * @return iterator over the deleted entities (must not be NULL)
+   */
+  public Iterator<DeletedEntity> getDeletedEntities() {
+    return Collections.<DeletedEntity> emptyList().iterator();
+  }
+
+  /**
+   * Gets the added links; called after all deleted entities have been consumed.
+   * <p/>
+   * The default implementation returns no added links.
+   * @return iterator over the added links (must not be NULL)
+   */
+  public Iterator<DeltaLink> getAddedLinks() {
+    return Collections.<DeltaLink> emptyList().iterator();
+  }
+
+  /**
+   * Gets the deleted links; called after all added links have been consumed.
+   * <p/>
+   * The default implementation returns no deleted links.
+   * @return iterator over the deleted links (must not be NULL)
+   */
+  public Iterator<DeltaLink> getDeletedLinks() {
+    return Collections.<DeltaLink> emptyList().iterator();
+  }
+
+  /**
+   * Gets delta link; called after all changes have been consumed.
+   *
+   */
+  @Override
+  public URI getDeltaLink() {
+    return deltaLink;
+  }
+
+  /**
+   * Sets delta link.
+   *
+   * @param deltaLink delta link.
+   */
+  public void setDeltaLink(final URI deltaLink) {
+    this.deltaLink = deltaLink;
+  }
+}
@@ -18,9 +18,28 @@
  */
 package org.apache.olingo.commons.api.data;
 
+import java.io.InputStream;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Content of a media entity or a stream property.
+ * <p>
+ * The content is given either as bytes or, to avoid holding large media in memory, as an {@link InputStream}
+ * or a {@link ReadableByteChannel}. Only one of them should be set; bytes take precedence over the channel,
+ * and the channel takes precedence over the stream. A {@link java.nio.channels.FileChannel} is transferred
+ * directly to the response, and byte ranges of it are served without reading the skipped content.
+ * </p>
+ * Streams and channels are closed after they have been written.
+ */
 public class EntityMediaObject {
 	
 	private byte[] bytes;
+
+	private InputStream content;
+
+	private ReadableByteChannel channel;
+
+	private long length = -1;
 	
 	public void setBytes(byte[] bytes) {
 		this.bytes = bytes;
@@ -29,4 +48,45 @@ public class EntityMediaObject {
 	public byte[] getBytes() {
 		return bytes;
 	}
+
+	/**
+	 * Sets the content as stream.
+	 * @param content the stream, read only once while writing the response
+	 */
+	public void setContent(InputStream content) {
+		this.content = content;
+	}
+
+	public InputStream getContent() {
+		return content;
+	}
+
+	/**
+	 * Sets the content as channel.
+	 * @param channel the channel, read only once while writing the response
+	 */
+	public void setChannel(ReadableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	public ReadableByteChannel getChannel() {
+		return channel;
+	}
+
+	/**
+	 * Sets the length of a content given as stream or channel.
+	 * Byte ranges are only supported for content with known length.
+	 * @param length number of bytes, or -1 if unknown
+	 */
+	public void setLength(long length) {
+		this.length = length;
+	}
+
+	/**
+	 * Gets the length of the content.
+	 * @return number of bytes, or -1 if unknown
+	 */
+	public long getLength() {
+		return bytes == null ? length : bytes.length;
+	}
 }
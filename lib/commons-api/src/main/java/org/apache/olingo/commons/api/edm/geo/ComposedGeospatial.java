@@ -31,6 +31,9 @@ public abstract class ComposedGeospatial<T extends Geospatial> extends Geospatia
 
   protected final List<T> geospatials;
 
+  /** Packed coordinates backing the points, or <code>null</code> if the elements are held in a list. */
+  final Coordinates coordinates;
+
   protected ComposedGeospatial(final Dimension dimension, final Type type, final SRID srid,
       final List<T> geospatials) {
 
@@ -39,6 +42,20 @@ public abstract class ComposedGeospatial<T extends Geospatial> extends Geospatia
     if (geospatials != null) {
       this.geospatials.addAll(geospatials);
     }
+    this.coordinates = null;
+  }
+
+  /**
+   * Creates a geospatial composed of points which are backed by the given packed coordinates.
+   * Only geospatials composed of {@link Point}s may use this constructor.
+   */
+  @SuppressWarnings("unchecked")
+  protected ComposedGeospatial(final Dimension dimension, final Type type, final SRID srid,
+      final Coordinates coordinates) {
+
+    super(dimension, type, srid);
+    this.geospatials = (List<T>) coordinates.asPoints(dimension);
+    this.coordinates = coordinates;
   }
 
   @Override
@@ -67,7 +84,9 @@ public abstract class ComposedGeospatial<T extends Geospatial> extends Geospatia
     final ComposedGeospatial<?> other = (ComposedGeospatial<?>) o;
     return dimension == other.dimension
         && (srid == null ? other.srid == null : srid.equals(other.srid))
-        && geospatials.equals(other.geospatials);
+        && (coordinates != null && other.coordinates != null ?
+            coordinates.equals(other.coordinates) :
+            geospatials.equals(other.geospatials));
   }
 
   @Override
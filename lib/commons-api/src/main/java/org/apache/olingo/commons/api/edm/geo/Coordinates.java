@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.edm.geo;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Sequence of point coordinates packed into a single <code>double</code> array.
+ * <p>
+ * The coordinates of point <i>i</i> are stored at index <code>i * stride</code>; the stride is either
+ * {@link #XY} or {@link #XYZ}. Line strings and multi points created from coordinates hold no separate
+ * {@link Point} objects; their points are views created on access.
+ * </p>
+ */
+public final class Coordinates {
+
+  /** Stride of coordinates with x and y values. */
+  public static final int XY = 2;
+
+  /** Stride of coordinates with x, y, and z values. */
+  public static final int XYZ = 3;
+
+  private static final Coordinates EMPTY = new Coordinates(XY, new double[0]);
+
+  private final int stride;
+
+  private final double[] values;
+
+  /**
+   * Creates coordinates backed by the given array, which is not copied.
+   * @param stride number of values per point, {@link #XY} or {@link #XYZ}
+   * @param values packed coordinate values
+   */
+  public Coordinates(final int stride, final double[] values) {
+    if (stride != XY && stride != XYZ) {
+      throw new IllegalArgumentException("Invalid stride " + stride);
+    }
+    if (values.length % stride != 0) {
+      throw new IllegalArgumentException("The number of values is not a multiple of the stride.");
+    }
+    this.stride = stride;
+    this.values = values;
+  }
+
+  /**
+   * Gets the coordinates of the given points.
+   * @param points the points; if they are backed by packed coordinates, these are returned without copying
+   * @return the coordinates
+   */
+  public static Coordinates valueOf(final Iterable<Point> points) {
+    if (points instanceof ComposedGeospatial && ((ComposedGeospatial<?>) points).coordinates != null) {
+      return ((ComposedGeospatial<?>) points).coordinates;
+    }
+    final Builder builder = new Builder();
+    for (final Point point : points) {
+      builder.add(point.getX(), point.getY(), point.getZ());
+    }
+    return builder.build();
+  }
+
+  /**
+   * Creates a builder collecting coordinates.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public int getStride() {
+    return stride;
+  }
+
+  /**
+   * Gets the number of points.
+   */
+  public int size() {
+    return values.length / stride;
+  }
+
+  public double getX(final int index) {
+    return values[index * stride];
+  }
+
+  public double getY(final int index) {
+    return values[index * stride + 1];
+  }
+
+  /**
+   * Gets the z coordinate of a point.
+   * @return the z coordinate, or 0 for coordinates without z values
+   */
+  public double getZ(final int index) {
+    return stride == XYZ ? values[index * stride + 2] : 0;
+  }
+
+  /**
+   * Gets the backing array; changes to it are reflected in all geospatials sharing these coordinates.
+   */
+  public double[] getValues() {
+    return values;
+  }
+
+  /**
+   * Creates a read-only view of the coordinates as points; every access creates a new point.
+   */
+  List<Point> asPoints(final Geospatial.Dimension dimension) {
+    return new PointView(dimension);
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final Coordinates other = (Coordinates) o;
+    return stride == other.stride && Arrays.equals(values, other.values);
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * stride + Arrays.hashCode(values);
+  }
+
+  @Override
+  public String toString() {
+    return asPoints(null).toString();
+  }
+
+  private class PointView extends AbstractList<Point> implements RandomAccess {
+
+    private final Geospatial.Dimension dimension;
+
+    private PointView(final Geospatial.Dimension dimension) {
+      this.dimension = dimension;
+    }
+
+    @Override
+    public Point get(final int index) {
+      if (index < 0 || index >= size()) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      }
+      final Point point = new Point(dimension, null);
+      point.setX(getX(index));
+      point.setY(getY(index));
+      point.setZ(getZ(index));
+      return point;
+    }
+
+    @Override
+    public int size() {
+      return Coordinates.this.size();
+    }
+  }
+
+  /**
+   * Collects coordinates point by point.
+   * The z values are only kept if at least one of them is not 0.
+   */
+  public static final class Builder {
+
+    private double[] values = new double[3 * 16];
+
+    private int length;
+
+    private boolean hasZ;
+
+    private Builder() {
+    }
+
+    public Builder add(final double x, final double y) {
+      return add(x, y, 0);
+    }
+
+    public Builder add(final double x, final double y, final double z) {
+      if (length + XYZ > values.length) {
+        values = Arrays.copyOf(values, values.length * 2);
+      }
+      values[length++] = x;
+      values[length++] = y;
+      values[length++] = z;
+      hasZ |= z != 0;
+      return this;
+    }
+
+    public Coordinates build() {
+      if (length == 0) {
+        return EMPTY;
+      }
+      if (hasZ) {
+        return new Coordinates(XYZ, Arrays.copyOf(values, length));
+      }
+      final double[] packed = new double[length / XYZ * XY];
+      for (int source = 0, target = 0; source < length; source += XYZ, target += XY) {
+        packed[target] = values[source];
+        packed[target + 1] = values[source + 1];
+      }
+      return new Coordinates(XY, packed);
+    }
+  }
+}
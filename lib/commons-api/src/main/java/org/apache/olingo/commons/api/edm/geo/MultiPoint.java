@@ -38,6 +38,24 @@ public class MultiPoint extends ComposedGeospatial<Point> {
     super(dimension, Type.MULTIPOINT, srid, points);
   }
 
+  /**
+   * Creates a new collection of points backed by packed coordinates
+   * @param dimension     Dimension of the points
+   * @param srid          SRID value
+   * @param coordinates   Coordinates of the points
+   */
+  public MultiPoint(final Dimension dimension, final SRID srid, final Coordinates coordinates) {
+    super(dimension, Type.MULTIPOINT, srid, coordinates);
+  }
+
+  /**
+   * Gets the coordinates of the points.
+   * @return the backing coordinates, or the packed coordinates of the points if these are held in a list
+   */
+  public Coordinates getCoordinates() {
+    return Coordinates.valueOf(this);
+  }
+
   @Override
   public EdmPrimitiveTypeKind getEdmPrimitiveTypeKind() {
     return dimension == Dimension.GEOGRAPHY ?
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.format;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Negotiation of a content coding like <code>gzip</code> from the <code>Accept-Encoding</code> HTTP header.
+ */
+public final class AcceptEncoding {
+
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+
+  private static final String X_GZIP = "x-gzip";
+  private static final String ANY = "*";
+
+  private AcceptEncoding() {
+    // utility class
+  }
+
+  /**
+   * Determines the content coding preferred by the client among the given supported ones.
+   * Codings not mentioned by the client get the quality of the wildcard <code>*</code>, if present;
+   * a quality of zero rules a coding out. If several codings have the same quality,
+   * the first one of the supported codings is chosen.
+   * @param acceptEncodings values of the <code>Accept-Encoding</code> headers, may be <code>null</code>
+   * @param supported supported content codings in lower case, in the order of preference of the server
+   * @return the chosen content coding, or <code>null</code> if no supported coding is acceptable
+   */
+  public static String negotiate(final List<String> acceptEncodings, final String... supported) {
+    if (acceptEncodings == null) {
+      return null;
+    }
+    final Map<String, Float> qualities = new HashMap<String, Float>();
+    for (final String header : acceptEncodings) {
+      for (final String coding : header.split(",")) {
+        final String[] parts = coding.split(TypeUtil.PARAMETER_SEPARATOR);
+        final String name = parts[0].trim().toLowerCase(Locale.ROOT);
+        qualities.put(X_GZIP.equals(name) ? GZIP : name, getQuality(parts));
+      }
+    }
+    String chosen = null;
+    float chosenQuality = 0;
+    for (final String coding : supported) {
+      Float quality = qualities.get(coding);
+      if (quality == null) {
+        quality = qualities.get(ANY);
+      }
+      if (quality != null && quality > chosenQuality) {
+        chosen = coding;
+        chosenQuality = quality;
+      }
+    }
+    return chosen;
+  }
+
+  private static float getQuality(final String[] parameters) {
+    for (int i = 1; i < parameters.length; i++) {
+      final String parameter = parameters[i].trim();
+      if (parameter.startsWith(TypeUtil.PARAMETER_Q + "=") || parameter.startsWith("Q=")) {
+        try {
+          return Float.parseFloat(parameter.substring(2).trim());
+        } catch (final NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+}
@@ -20,6 +20,6 @@
  * Contains all the format-related objects used for the handling of
  * OData responses and OData requests.
  * They are related to the HTTP headers <code>Prefer</code>, <code>Accept</code>,
- * and <code>Content-Type</code>.
+ * <code>Accept-Encoding</code>, and <code>Content-Type</code>.
  */
 package org.apache.olingo.commons.api.format;
\ No newline at end of file
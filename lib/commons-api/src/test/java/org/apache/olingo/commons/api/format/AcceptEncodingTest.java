@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.commons.api.format;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class AcceptEncodingTest {
+
+  @Test
+  public void negotiate() {
+    assertNull(AcceptEncoding.negotiate(null, AcceptEncoding.GZIP));
+    assertEquals(AcceptEncoding.GZIP,
+        AcceptEncoding.negotiate(Collections.singletonList("deflate, gzip"), AcceptEncoding.GZIP));
+    assertEquals(AcceptEncoding.GZIP,
+        AcceptEncoding.negotiate(Collections.singletonList("x-gzip"), AcceptEncoding.GZIP));
+    assertEquals(AcceptEncoding.GZIP, AcceptEncoding.negotiate(Collections.singletonList("*"), AcceptEncoding.GZIP));
+    assertNull(AcceptEncoding.negotiate(Collections.singletonList("deflate"), AcceptEncoding.GZIP));
+    assertNull(AcceptEncoding.negotiate(Collections.singletonList("gzip;q=0.0"), AcceptEncoding.GZIP));
+    assertNull(AcceptEncoding.negotiate(Arrays.asList("*", "gzip; q=0"), AcceptEncoding.GZIP));
+  }
+
+  @Test
+  public void preferenceOfTheServerDecidesTies() {
+    assertEquals(AcceptEncoding.DEFLATE, AcceptEncoding.negotiate(Collections.singletonList("gzip, deflate"),
+        AcceptEncoding.DEFLATE, AcceptEncoding.GZIP));
+    assertEquals(AcceptEncoding.GZIP, AcceptEncoding.negotiate(Collections.singletonList("gzip, deflate;q=0.9"),
+        AcceptEncoding.DEFLATE, AcceptEncoding.GZIP));
+  }
+}
@@ -27,6 +27,7 @@ import java.util.regex.Pattern;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 import org.apache.olingo.commons.api.edm.geo.ComposedGeospatial;
+import org.apache.olingo.commons.api.edm.geo.Coordinates;
 import org.apache.olingo.commons.api.edm.geo.Geospatial;
 import org.apache.olingo.commons.api.edm.geo.Geospatial.Dimension;
 import org.apache.olingo.commons.api.edm.geo.Geospatial.Type;
@@ -103,6 +104,27 @@ public abstract class AbstractGeospatialType<T extends Geospatial> extends Singl
     return result;
   }
 
+  private Coordinates newCoordinates(final String points, final boolean parenthesized, final Boolean isNullable,
+      final Integer maxLength, final Integer precision, final Integer scale, final Boolean isUnicode)
+          throws EdmPrimitiveTypeException {
+
+    // the positions are packed directly, without creating a point object per position
+    final Coordinates.Builder builder = Coordinates.builder();
+    for (final String pointCoo : split(points, ',')) {
+      final String point = parenthesized ? pointCoo.substring(1, pointCoo.length() - 1) : pointCoo;
+      final List<String> coordinates = split(point, ' ');
+      if (coordinates == null || coordinates.size() != 2) {
+        throw new EdmPrimitiveTypeException("The literal '" + point + "' has illegal content.");
+      }
+      builder.add(
+          EdmDouble.getInstance().valueOfString(coordinates.get(0),
+              isNullable, maxLength, precision, scale, isUnicode, Double.class),
+          EdmDouble.getInstance().valueOfString(coordinates.get(1),
+              isNullable, maxLength, precision, scale, isUnicode, Double.class));
+    }
+    return builder.build();
+  }
+
   protected Point stringToPoint(final String value, final Boolean isNullable, final Integer maxLength,
       final Integer precision, final Integer scale, final Boolean isUnicode) throws EdmPrimitiveTypeException {
 
@@ -117,25 +139,16 @@ public abstract class AbstractGeospatialType<T extends Geospatial> extends Singl
 
     final Matcher matcher = getMatcher(PATTERN, value);
 
-    final List<Point> points = new ArrayList<>();
-    for (final String pointCoo : split(matcher.group(4), ',')) {
-      points.add(newPoint(null, pointCoo.substring(1, pointCoo.length() - 1),
-          isNullable, maxLength, precision, scale, isUnicode));
-    }
-
-    return new MultiPoint(dimension, SRID.valueOf(matcher.group(2)), points);
+    return new MultiPoint(dimension, SRID.valueOf(matcher.group(2)),
+        newCoordinates(matcher.group(4), true, isNullable, maxLength, precision, scale, isUnicode));
   }
 
   private LineString newLineString(final SRID srid, final String lineString, final Boolean isNullable,
       final Integer maxLength, final Integer precision, final Integer scale, final Boolean isUnicode)
           throws EdmPrimitiveTypeException {
 
-    final List<Point> points = new ArrayList<>();
-    for (final String pointCoo : split(lineString, ',')) {
-      points.add(newPoint(null, pointCoo, isNullable, maxLength, precision, scale, isUnicode));
-    }
-
-    return new LineString(this.dimension, srid, points);
+    return new LineString(this.dimension, srid,
+        newCoordinates(lineString, false, isNullable, maxLength, precision, scale, isUnicode));
   }
 
   protected LineString stringToLineString(final String value, final Boolean isNullable, final Integer maxLength,
@@ -179,16 +192,13 @@ public abstract class AbstractGeospatialType<T extends Geospatial> extends Singl
 
     final List<LineString> interiorRings = new ArrayList<>();
     for (int i = 0; i < first.length -1; i++) {
-    	List<Point> interior = new ArrayList<Point>();
-	    for (final String pointCoo : split(first[i].substring(i==0?1:0, first[i].length()), ',')) {
-	      interior.add(newPoint(null, pointCoo, isNullable, maxLength, precision, scale, isUnicode));
-	    }
-	    interiorRings.add(new LineString(dimension, srid, interior));
-    }
-    final List<Point> exterior = new ArrayList<Point>();
-    for (final String pointCoo : split(first[first.length -1].substring(0, first[first.length -1].length() - 1), ',')) {
-      exterior.add(newPoint(null, pointCoo, isNullable, maxLength, precision, scale, isUnicode));
+      interiorRings.add(new LineString(dimension, srid,
+          newCoordinates(first[i].substring(i == 0 ? 1 : 0, first[i].length()),
+              false, isNullable, maxLength, precision, scale, isUnicode)));
     }
+    final Coordinates exterior = newCoordinates(
+        first[first.length -1].substring(0, first[first.length -1].length() - 1),
+        false, isNullable, maxLength, precision, scale, isUnicode);
 
     return new Polygon(dimension, srid, interiorRings, new LineString(dimension, srid, exterior));
   }
@@ -246,13 +256,8 @@ public abstract class AbstractGeospatialType<T extends Geospatial> extends Singl
       break;
 
     case MULTIPOINT:
-      final List<Point> points = new ArrayList<>();
-      for (final String pointCoo : split(matcher.group(4), ',')) {
-        points.add(newPoint(null, pointCoo.substring(1, pointCoo.length() - 1),
-            isNullable, maxLength, precision, scale, isUnicode));
-      }
-
-      item = new MultiPoint(dimension, SRID.valueOf(matcher.group(2)), points);
+      item = new MultiPoint(dimension, SRID.valueOf(matcher.group(2)),
+          newCoordinates(matcher.group(4), true, isNullable, maxLength, precision, scale, isUnicode));
       break;
 
     case LINESTRING:
@@ -301,13 +306,35 @@ public abstract class AbstractGeospatialType<T extends Geospatial> extends Singl
       final Integer maxLength, final Integer precision, final Integer scale, final Boolean isUnicode)
           throws EdmPrimitiveTypeException {
 
-    return new StringBuilder().
-        append(EdmDouble.getInstance().valueToString(point.getX(),
-            isNullable, maxLength, precision, scale, isUnicode)).
-            append(' ').
-            append(EdmDouble.getInstance().valueToString(point.getY(),
-                isNullable, maxLength, precision, scale, isUnicode)).
-                toString();
+    return appendCoordinate(point.getX(), point.getY(), isNullable, maxLength, precision, scale, isUnicode,
+        new StringBuilder()).toString();
+  }
+
+  private StringBuilder appendCoordinate(final double x, final double y, final Boolean isNullable,
+      final Integer maxLength, final Integer precision, final Integer scale, final Boolean isUnicode,
+      final StringBuilder result) throws EdmPrimitiveTypeException {
+
+    return result.
+        append(EdmDouble.getInstance().valueToString(x, isNullable, maxLength, precision, scale, isUnicode)).
+        append(' ').
+        append(EdmDouble.getInstance().valueToString(y, isNullable, maxLength, precision, scale, isUnicode));
+  }
+
+  private StringBuilder appendMultiPoint(final MultiPoint multiPoint, final Boolean isNullable,
+      final Integer maxLength, final Integer precision, final Integer scale, final Boolean isUnicode,
+      final StringBuilder result) throws EdmPrimitiveTypeException {
+
+    final Coordinates coordinates = multiPoint.getCoordinates();
+    for (int i = 0; i < coordinates.size(); i++) {
+      if (i > 0) {
+        result.append(',');
+      }
+      result.append('(');
+      appendCoordinate(coordinates.getX(i), coordinates.getY(i),
+          isNullable, maxLength, precision, scale, isUnicode, result).
+      append(')');
+    }
+    return result;
   }
 
   protected String toString(final Point point, final Boolean isNullable, final Integer maxLength,
@@ -336,28 +363,22 @@ public abstract class AbstractGeospatialType<T extends Geospatial> extends Singl
         append(reference.getSimpleName()).
         append('(');
 
-    for (final Iterator<Point> itor = multiPoint.iterator(); itor.hasNext();) {
-      result.append('(').
-      append(point(itor.next(), isNullable, maxLength, precision, scale, isUnicode)).
-      append(')');
-      if (itor.hasNext()) {
-        result.append(',');
-      }
-    }
-
-    return result.append(")'").toString();
+    return appendMultiPoint(multiPoint, isNullable, maxLength, precision, scale, isUnicode, result).
+        append(")'").toString();
   }
 
   private StringBuilder appendPoints(final ComposedGeospatial<Point> points, final Boolean isNullable, 
       final Integer maxLength, final Integer precision, final Integer scale, final Boolean isUnicode, 
       final StringBuilder result) throws EdmPrimitiveTypeException {
-	for (final Iterator<Point> itor = points.iterator(); itor.hasNext();) {
-      result.append(point(itor.next(), isNullable, maxLength, precision, scale, isUnicode));
-      if (itor.hasNext()) {
+    final Coordinates coordinates = Coordinates.valueOf(points);
+    for (int i = 0; i < coordinates.size(); i++) {
+      if (i > 0) {
         result.append(',');
       }
+      appendCoordinate(coordinates.getX(i), coordinates.getY(i),
+          isNullable, maxLength, precision, scale, isUnicode, result);
     }
-	return result;
+    return result;
 }
 
   protected String toString(final LineString lineString, final Boolean isNullable, final Integer maxLength,
@@ -473,14 +494,7 @@ public abstract class AbstractGeospatialType<T extends Geospatial> extends Singl
 
       case GeographyMultiPoint:
       case GeometryMultiPoint:
-        for (final Iterator<Point> itor = ((MultiPoint) item).iterator(); itor.hasNext();) {
-          result.append('(').
-          append(point(itor.next(), isNullable, maxLength, precision, scale, isUnicode)).
-          append(')');
-          if (itor.hasNext()) {
-            result.append(',');
-          }
-        }
+        appendMultiPoint((MultiPoint) item, isNullable, maxLength, precision, scale, isUnicode, result);
         break;
 
       case GeographyLineString:
@@ -21,11 +21,15 @@ package org.apache.olingo.commons.core.edm.primitivetype;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.geo.Coordinates;
 import org.apache.olingo.commons.api.edm.geo.Geospatial;
 import org.apache.olingo.commons.api.edm.geo.GeospatialCollection;
 import org.apache.olingo.commons.api.edm.geo.LineString;
@@ -91,6 +95,34 @@ public class EdmGeoTest extends PrimitiveTypeBaseTest {
     assertEquals(input, EdmGeographyLineString.getInstance().valueToString(lineString, null, null, null, null, null));
   }
 
+  @Test
+  public void packedLineString() throws EdmPrimitiveTypeException {
+    final String input = "geography'SRID=4326;LineString(142.1 64.1,3.14 2.78,-1.0 0.5)'";
+
+    final LineString parsed = EdmGeographyLineString.getInstance().valueOfString(input, null, null, null, null, null,
+        LineString.class);
+    final Coordinates coordinates = parsed.getCoordinates();
+    assertEquals(Coordinates.XY, coordinates.getStride());
+    assertEquals(3, coordinates.size());
+    assertEquals(3.14, coordinates.getX(1), 0);
+    assertEquals(0.5, coordinates.getY(2), 0);
+    assertSame(coordinates, parsed.getCoordinates());
+
+    final List<Point> points = new ArrayList<Point>();
+    for (final Point point : parsed) {
+      points.add(point);
+    }
+    final LineString fromPoints = new LineString(Geospatial.Dimension.GEOGRAPHY, parsed.getSrid(), points);
+    assertEquals(fromPoints, parsed);
+    assertEquals(fromPoints.hashCode(), parsed.hashCode());
+    assertEquals(coordinates, fromPoints.getCoordinates());
+
+    final LineString packed = new LineString(Geospatial.Dimension.GEOGRAPHY, parsed.getSrid(),
+        new Coordinates(Coordinates.XY, new double[] { 142.1, 64.1, 3.14, 2.78, -1.0, 0.5 }));
+    assertEquals(parsed, packed);
+    assertEquals(input, EdmGeographyLineString.getInstance().valueToString(packed, null, null, null, null, null));
+  }
+
   @Test
   public void multiLineString() throws EdmPrimitiveTypeException {
     final String input = "geography'SRID=0;MultiLineString((142.1 64.1,3.14 2.78),(142.1 64.7,3.14 2.78))'";
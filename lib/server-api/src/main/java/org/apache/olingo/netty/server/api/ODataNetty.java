@@ -18,9 +18,16 @@
  */
 package org.apache.olingo.netty.server.api;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.Processor;
+
+import io.netty.channel.ChannelHandler;
 
 public abstract class ODataNetty extends OData {
 
@@ -53,4 +60,19 @@ public abstract class ODataNetty extends OData {
    */
   public abstract ODataNettyHandler createNettyHandler(ServiceMetadata serviceMetadata);
 
+  /**
+   * <p>Creates a new Netty channel handler which processes OData requests without blocking the event loop.</p>
+   * <p>The handler has to be placed behind an <code>HttpServerCodec</code>; the requests must not be
+   * aggregated. Each request is processed on the given executor while its body is still being received,
+   * and the response content is written in chunks as soon as the channel is writable.
+   * A new handler instance is needed per channel.</p>
+   *
+   * @param serviceMetadata - metadata object required to handle an OData request
+   * @param processors - processors used for each request; they are shared by concurrently processed requests
+   * @param requestParameters - request parameters like <code>contextPath</code> and <code>split</code>
+   * @param executor - executor running the request processing
+   */
+  public abstract ChannelHandler createNettyChannelHandler(ServiceMetadata serviceMetadata,
+      List<Processor> processors, Map<String, String> requestParameters, Executor executor);
+
 }
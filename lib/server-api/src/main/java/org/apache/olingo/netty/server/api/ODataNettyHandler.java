@@ -18,8 +18,11 @@
  */
 package org.apache.olingo.netty.server.api;
 
+import java.io.InputStream;
 import java.util.Map;
 
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.OlingoExtension;
 import org.apache.olingo.server.api.processor.Processor;
 
 import io.netty.handler.codec.http.HttpRequest;
@@ -36,6 +39,17 @@ public interface ODataNettyHandler {
    * @param response - HTTP OData response
    */
   void processNettyRequest(HttpRequest request, HttpResponse response, Map<String, String> requestParameters);
+
+  /**
+   * <p>Processes a NettyRequest as an OData request whose body is provided as stream.</p>
+   * <p>In contrast to {@link #processNettyRequest(HttpRequest, HttpResponse, Map)} the request does not
+   * have to be aggregated and the response content is not copied; it is returned as created by the processor.</p>
+   * @param request - must be a HTTP OData request
+   * @param body - request body
+   * @param requestParameters - request parameters like <code>contextPath</code> and <code>split</code>
+   * @return OData response
+   */
+  ODataResponse processNettyRequest(HttpRequest request, InputStream body, Map<String, String> requestParameters);
   
   /**
    * <p>Registers additional custom processor implementations for handling OData requests.</p>
@@ -43,5 +57,24 @@ public interface ODataNettyHandler {
    * "not implemented" exception will happen.</p>
    */
   void register(Processor processor);
+
+  /**
+   * <p>Registers additional extensions for handling OData requests, like handler-specific
+   * {@link org.apache.olingo.server.api.metrics.ODataMetrics}.</p>
+   * @param extension the extension
+   */
+  void register(OlingoExtension extension);
+
+  /**
+   * <p>Enables compression of the response content written by
+   * {@link #processNettyRequest(HttpRequest, HttpResponse, Map)}.</p>
+   * <p>The content coding <code>gzip</code> or <code>deflate</code> is negotiated from the
+   * <code>Accept-Encoding</code> header of the request. Responses with fewer than <code>minimumSize</code>
+   * bytes are sent uncompressed. By default responses are not compressed.</p>
+   * @param minimumSize minimum number of content bytes for compressing the response;
+   * a negative value disables compression
+   * @param level compression level from 0 (no compression) to 9 (best compression), or -1 for the default level
+   */
+  void setResponseCompression(int minimumSize, int level);
   
 }
@@ -20,6 +20,7 @@ package org.apache.olingo.server.api;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
@@ -27,12 +28,16 @@ import org.apache.olingo.commons.api.edm.provider.CsdlEdmProvider;
 import org.apache.olingo.commons.api.edmx.EdmxReference;
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.server.api.async.AsyncRequestSupport;
+import org.apache.olingo.server.api.async.AsyncResponseStore;
 import org.apache.olingo.server.api.debug.DebugResponseHelper;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.FixedFormatDeserializer;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.etag.ETagHelper;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.expand.ExpandHelper;
+import org.apache.olingo.server.api.metrics.ODataMetrics;
 import org.apache.olingo.server.api.prefer.Preferences;
 import org.apache.olingo.server.api.serializer.EdmAssistedSerializer;
 import org.apache.olingo.server.api.serializer.EdmDeltaSerializer;
@@ -235,4 +240,39 @@ public abstract class OData {
    */
   public abstract EdmDeltaSerializer createEdmDeltaSerializer(final ContentType contentType,
       final List<String> versions) throws SerializerException;
+
+  /**
+   * Creates a new support for processing requests asynchronously as requested with the
+   * preference <code>respond-async</code>; it has to be registered at the handlers of the service.
+   * @param executor executor processing the requests in the background,
+   * e.g., one creating a virtual thread per task
+   * @param store storage for the results, or <code>null</code> to keep them in memory
+   * @param timeToLive time in milliseconds a result is kept after the processing has finished
+   * @see AsyncRequestSupport
+   */
+  public abstract AsyncRequestSupport createAsyncRequestSupport(Executor executor, AsyncResponseStore store,
+      long timeToLive);
+
+  /**
+   * Creates a new helper for resolving <code>$expand</code> for several entities at once.
+   * It can be used in Processor implementations.
+   * @see ExpandHelper
+   */
+  public abstract ExpandHelper createExpandHelper();
+
+  /**
+   * Gets the metrics about request processing, shared by all handlers of the class loader
+   * without own metrics registered, see {@link #createMetrics()}.
+   * Metrics collection is disabled until it is enabled with {@link ODataMetrics#setEnabled(boolean)}.
+   * @return the metrics
+   */
+  public abstract ODataMetrics getMetrics();
+
+  /**
+   * Creates new metrics for the requests of a single service; they are collected only by the handlers
+   * they are registered with, see {@link ODataHandler#register(OlingoExtension)}.
+   * Metrics collection is disabled until it is enabled with {@link ODataMetrics#setEnabled(boolean)}.
+   * @return the metrics
+   */
+  public abstract ODataMetrics createMetrics();
 }
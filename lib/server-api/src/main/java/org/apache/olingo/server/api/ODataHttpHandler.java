@@ -18,6 +18,8 @@
  */
 package org.apache.olingo.server.api;
 
+import java.util.concurrent.Executor;
+
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -39,6 +41,23 @@ public interface ODataHttpHandler extends ODataHandler {
    * @param response - HTTP OData response
    */
   void process(HttpServletRequest request, HttpServletResponse response);
+
+  /**
+   * <p>Processes a HttpServletRequest as an OData request in asynchronous mode.</p>
+   * <p>The request is put into asynchronous mode and processed on the given executor, so the
+   * container thread is released immediately. Processors may complete the response later
+   * (see {@link ODataResponse#setCompletion}); the response content is written with non-blocking
+   * output as soon as the client is ready to receive it.</p>
+   * <p>The servlet has to support asynchronous processing (<code>asyncSupported</code>).</p>
+   * <p>By default the request is processed synchronously with {@link #process(HttpServletRequest,
+   * HttpServletResponse)}.</p>
+   * @param request - must be a HTTP OData request
+   * @param response - HTTP OData response
+   * @param executor - executor processing the request
+   */
+  default void processAsync(HttpServletRequest request, HttpServletResponse response, Executor executor) {
+    process(request, response);
+  }
   
   /**
    * Sets the split parameter which is used for service resolution.
@@ -46,6 +65,19 @@ public interface ODataHttpHandler extends ODataHandler {
    */
   void setSplit(int split);
 
+  /**
+   * <p>Enables compression of the response content.</p>
+   * <p>The content coding <code>gzip</code> or <code>deflate</code> is negotiated from the
+   * <code>Accept-Encoding</code> header of the request. The content is compressed while it is written,
+   * so streamed content is not buffered. Responses with fewer than <code>minimumSize</code> bytes are
+   * sent uncompressed.</p>
+   * <p>By default responses are not compressed.</p>
+   * @param minimumSize minimum number of content bytes for compressing the response;
+   * a negative value disables compression
+   * @param level compression level from 0 (no compression) to 9 (best compression), or -1 for the default level
+   */
+  void setResponseCompression(int minimumSize, int level);
+
 
   /**
    * Registers the debug support handler.
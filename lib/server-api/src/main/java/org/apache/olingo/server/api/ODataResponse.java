@@ -23,6 +23,7 @@ import org.apache.olingo.commons.api.http.HttpStatusCode;
 import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
 /**
  * Response object to carry OData-relevant HTTP information (status code, response headers, and content).
@@ -140,4 +141,27 @@ public class ODataResponse {
   public ODataContent getODataContent() {
     return odataContent;
   }
+
+  private CompletionStage<?> completion;
+
+  /**
+   * <p>Marks the response as completed asynchronously.</p>
+   * <p>A processor can return before its result is available and fill status code, headers,
+   * and content of this response later, e.g., in a callback of its backend; it then completes
+   * the given stage. If the stage completes exceptionally an error response is created instead.</p>
+   * <p>Handlers processing the request synchronously wait for the completion; in asynchronous mode
+   * (see {@link ODataHttpHandler#processAsync}) no thread is held while waiting.</p>
+   * @param completion stage which completes after the response has been filled
+   */
+  public void setCompletion(final CompletionStage<?> completion) {
+    this.completion = completion;
+  }
+
+  /**
+   * Gets the stage completing the response.
+   * @return the stage or <code>null</code> if the response is complete already
+   */
+  public CompletionStage<?> getCompletion() {
+    return completion;
+  }
 }
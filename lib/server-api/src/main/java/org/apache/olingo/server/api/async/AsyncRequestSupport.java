@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.async;
+
+import org.apache.olingo.server.api.OlingoExtension;
+
+/**
+ * <p>Processes requests asynchronously if the client has set the preference <code>respond-async</code>.</p>
+ * <p>Once registered at a handler, such requests are answered with <code>202 Accepted</code> and the URL of a
+ * status monitor resource in the <code>Location</code> header. The request itself is processed in the background;
+ * if the client has set the preference <code>wait</code> and the processing finishes in time, the result is
+ * returned synchronously instead.</p>
+ * <p>The status monitor answers <code>202 Accepted</code> while the request is processed and returns the result
+ * as <code>application/http</code> once it is available. A <code>DELETE</code> request on the status monitor
+ * cancels the processing.</p>
+ * <p>An instance is meant to be shared by all handlers of a service.
+ * The background processing uses the processor instances registered at the handler which has received
+ * the request, so these processors must be thread-safe.</p>
+ */
+public interface AsyncRequestSupport extends OlingoExtension {
+
+  /** Path segment under the service root addressing status monitor resources. */
+  String STATUS_MONITOR_SEGMENT = "$async";
+
+  /** Default maximum size in bytes of a request body processed in the background. */
+  int DEFAULT_MAX_REQUEST_SIZE = 10 * 1024 * 1024;
+
+  /**
+   * Gets the number of requests currently processed in the background.
+   * @return the number of running requests
+   */
+  int getRunningRequests();
+
+  /**
+   * Sets the maximum size of a request body processed in the background.
+   * The body is held in memory until the background processing reads it;
+   * larger requests are rejected with <code>413 Payload Too Large</code>.
+   * The default is {@value #DEFAULT_MAX_REQUEST_SIZE} bytes.
+   * @param maxRequestSize the maximum number of bytes
+   */
+  void setMaxRequestSize(int maxRequestSize);
+
+  /**
+   * Cancels all running requests; new requests with preference <code>respond-async</code>
+   * are processed synchronously from now on.
+   */
+  void shutdown();
+}
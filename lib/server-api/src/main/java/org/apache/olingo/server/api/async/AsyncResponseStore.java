@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.async;
+
+import java.io.IOException;
+
+/**
+ * Storage for the results of asynchronously processed requests.
+ * <p>Results are kept in their serialized form (media type <code>application/http</code>)
+ * until they expire. Implementations have to be thread-safe.</p>
+ */
+public interface AsyncResponseStore {
+
+  /**
+   * Stores a result.
+   * @param id identifier of the asynchronously processed request
+   * @param response serialized response
+   * @param expirationTime time (in milliseconds since the epoch) after which the result may be discarded
+   * @throws IOException if the result could not be stored
+   */
+  void store(String id, byte[] response, long expirationTime) throws IOException;
+
+  /**
+   * Retrieves a result.
+   * @param id identifier of the asynchronously processed request
+   * @return the serialized response or <code>null</code> if unknown or expired
+   * @throws IOException if the result could not be read
+   */
+  byte[] retrieve(String id) throws IOException;
+
+  /**
+   * Removes a result.
+   * @param id identifier of the asynchronously processed request
+   * @throws IOException if the result could not be removed
+   */
+  void remove(String id) throws IOException;
+
+  /**
+   * Removes all results which have expired.
+   * @param now current time in milliseconds since the epoch
+   * @throws IOException if results could not be removed
+   */
+  void removeExpired(long now) throws IOException;
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.etag;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.OlingoExtension;
+import org.apache.olingo.server.api.uri.UriParameter;
+
+/**
+ * <p>Services that can look up the current ETag of an entity without loading it (e.g., from a version
+ * column) can implement this interface and register it at the ODataHttpHandler.</p>
+ * <p>For requests with an if-match or if-none-match header the ETag is then retrieved before any processor
+ * is called: read requests whose if-none-match header matches get a "Not Modified" response and
+ * requests whose preconditions are not fulfilled get a "Precondition Failed" response
+ * without the processor being invoked.
+ * This is done for requests targeting an entity of an entity set or a singleton, its properties, or
+ * its media value, and for read requests targeting an entity set as a whole.
+ * Requests navigating to related entities are left to the processor.</p>
+ * <p>If a method returns <code>null</code> the request is dispatched as usual and
+ * validation has to be performed inside the processor methods.</p>
+ */
+public interface ETagProvider extends OlingoExtension {
+
+  /**
+   * Gets the current ETag of an entity.
+   * @param entitySetOrSingleton the entity set or singleton
+   * @param keyPredicates the key predicates of the entity; empty for a singleton
+   * @return the ETag or <code>null</code> if it is not known
+   * @throws ODataApplicationException if the ETag cannot be determined, e.g., because the entity does not exist
+   */
+  String getETag(EdmBindingTarget entitySetOrSingleton, List<UriParameter> keyPredicates)
+      throws ODataApplicationException;
+
+  /**
+   * Gets the current ETag of the media value of a media entity.
+   * @param entitySetOrSingleton the entity set or singleton
+   * @param keyPredicates the key predicates of the entity; empty for a singleton
+   * @return the ETag or <code>null</code> if it is not known
+   * @throws ODataApplicationException if the ETag cannot be determined, e.g., because the entity does not exist
+   */
+  String getMediaETag(EdmBindingTarget entitySetOrSingleton, List<UriParameter> keyPredicates)
+      throws ODataApplicationException;
+
+  /**
+   * <p>Gets the current ETag of all entities of an entity set.</p>
+   * <p>This should be a weak ETag, i.e., starting with <code>W/</code>, which changes whenever
+   * an entity of the entity set is created, changed, or deleted.
+   * It is used only for read requests without system query options that expand related entities.</p>
+   * @param entitySet the entity set
+   * @return the ETag or <code>null</code> if it is not known
+   * @throws ODataApplicationException if the ETag cannot be determined
+   */
+  String getCollectionETag(EdmEntitySet entitySet) throws ODataApplicationException;
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.expand;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+
+/**
+ * Resolves <code>$expand</code> for a page of entities with an {@link ExpandResolver}.
+ * <p>The resolver is called once per expanded navigation property and level for all entities of that level,
+ * and the related entities are set as inline content of the navigation links of their parent entities,
+ * ready to be serialized.</p>
+ */
+public interface ExpandHelper {
+
+  /**
+   * Expands the given entities.
+   * @param bindingTarget binding target of the entities
+   * @param entities entities to be expanded
+   * @param expandOption expand option of the request, may be <code>null</code>
+   * @param resolver resolver for the related entities
+   * @throws ODataApplicationException if the resolver fails
+   */
+  void expand(EdmBindingTarget bindingTarget, List<Entity> entities, ExpandOption expandOption,
+      ExpandResolver resolver) throws ODataApplicationException;
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.expand;
+
+import java.util.List;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+
+/**
+ * Loads related entities for <code>$expand</code> for several parent entities at once.
+ * <p>Implemented by the application, e.g., with one database query per navigation property and
+ * page of parent entities instead of one query per parent entity.</p>
+ * @see ExpandHelper
+ */
+public interface ExpandResolver {
+
+  /**
+   * Loads the entities related to the given parent entities via the given navigation property.
+   * <p>The options of the expand item (<code>$filter</code>, <code>$orderby</code>, <code>$skip</code>,
+   * <code>$top</code>, <code>$count</code>) have to be applied per parent entity;
+   * <code>$select</code> is applied by the serializer, nested <code>$expand</code> and <code>$levels</code>
+   * are resolved by the {@link ExpandHelper} with further calls.</p>
+   * @param bindingTarget binding target of the parent entities, may be <code>null</code>
+   * @param parents parent entities
+   * @param navigationProperty navigation property to be expanded
+   * @param expandItem expand item with the options to be applied
+   * @return the related entities, one collection per parent entity in the order of the parent entities;
+   * for single-valued navigation properties, collections contain at most one entity;
+   * <code>null</code> elements are treated as empty collections
+   * @throws ODataApplicationException if the related entities could not be loaded
+   */
+  List<EntityCollection> resolve(EdmBindingTarget bindingTarget, List<Entity> parents,
+      EdmNavigationProperty navigationProperty, ExpandItem expandItem) throws ODataApplicationException;
+}
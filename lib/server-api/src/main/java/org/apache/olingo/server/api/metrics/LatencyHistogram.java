@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of one {@link RequestPhase}.
+ * <p>
+ * Bucket <code>i</code> counts the measurements up to {@link #getBucketUpperBound(int)} nanoseconds
+ * which are not counted by bucket <code>i - 1</code>; the bounds double from bucket to bucket,
+ * starting with one microsecond. The last bucket counts all longer measurements.
+ * </p>
+ */
+public final class LatencyHistogram {
+
+  /** Number of buckets. */
+  public static final int BUCKET_COUNT = 28;
+
+  private final long count;
+  private final long totalNanos;
+  private final long maxNanos;
+  private final long[] bucketCounts;
+
+  public LatencyHistogram(final long count, final long totalNanos, final long maxNanos, final long[] bucketCounts) {
+    if (bucketCounts.length != BUCKET_COUNT) {
+      throw new IllegalArgumentException("Expected " + BUCKET_COUNT + " buckets.");
+    }
+    this.count = count;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+    this.bucketCounts = bucketCounts.clone();
+  }
+
+  /**
+   * Gets the index of the bucket for the given latency.
+   * @param nanos latency in nanoseconds
+   * @return bucket index
+   */
+  public static int getBucketIndex(final long nanos) {
+    final long micros = nanos / 1000;
+    return micros <= 0 ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros));
+  }
+
+  /**
+   * Gets the upper bound of the given bucket.
+   * @param index bucket index
+   * @return upper bound in nanoseconds, {@link Long#MAX_VALUE} for the last bucket
+   */
+  public static long getBucketUpperBound(final int index) {
+    return index >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : TimeUnit.MICROSECONDS.toNanos(1L << index);
+  }
+
+  /**
+   * @return number of measurements
+   */
+  public long getCount() {
+    return count;
+  }
+
+  /**
+   * @return sum of all measurements in nanoseconds
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * @return longest measurement in nanoseconds
+   */
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  /**
+   * @return average measurement in nanoseconds, 0 without measurements
+   */
+  public long getMeanNanos() {
+    return count == 0 ? 0 : totalNanos / count;
+  }
+
+  /**
+   * @param index bucket index
+   * @return number of measurements in the given bucket
+   */
+  public long getBucketCount(final int index) {
+    return bucketCounts[index];
+  }
+
+  /**
+   * Estimates a percentile as the upper bound of the bucket containing it, limited by the longest measurement.
+   * @param percentile the percentile, from 0 to 100
+   * @return the estimated latency in nanoseconds, 0 without measurements
+   */
+  public long getPercentileNanos(final double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = (long) Math.ceil(percentile / 100 * count);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += bucketCounts[i];
+      if (seen >= rank) {
+        return Math.min(getBucketUpperBound(i), maxNanos);
+      }
+    }
+    return maxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + count + ", mean=" + getMeanNanos() + "ns, max=" + maxNanos + "ns, buckets="
+        + Arrays.toString(bucketCounts);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Values collected by {@link ODataMetrics} at one point in time.
+ */
+public final class MetricsSnapshot {
+
+  private final long timestamp;
+  private final long requestCount;
+  private final Map<Integer, Long> errorCounts;
+  private final long bytesWritten;
+  private final long entitiesSerialized;
+  private final Map<RequestPhase, LatencyHistogram> latencies;
+
+  public MetricsSnapshot(final long timestamp, final long requestCount, final Map<Integer, Long> errorCounts,
+      final long bytesWritten, final long entitiesSerialized, final Map<RequestPhase, LatencyHistogram> latencies) {
+    this.timestamp = timestamp;
+    this.requestCount = requestCount;
+    this.errorCounts = Collections.unmodifiableMap(new TreeMap<Integer, Long>(errorCounts));
+    this.bytesWritten = bytesWritten;
+    this.entitiesSerialized = entitiesSerialized;
+    this.latencies = Collections.unmodifiableMap(new EnumMap<RequestPhase, LatencyHistogram>(latencies));
+  }
+
+  /**
+   * @return creation time of the snapshot in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * @return number of processed requests
+   */
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  /**
+   * @return number of error responses per HTTP status code, sorted by status code
+   */
+  public Map<Integer, Long> getErrorCounts() {
+    return errorCounts;
+  }
+
+  /**
+   * @return total number of error responses
+   */
+  public long getErrorCount() {
+    long sum = 0;
+    for (final Long value : errorCounts.values()) {
+      sum += value;
+    }
+    return sum;
+  }
+
+  /**
+   * @return number of response content bytes written, before compression
+   */
+  public long getBytesWritten() {
+    return bytesWritten;
+  }
+
+  /**
+   * @return number of entities serialized
+   */
+  public long getEntitiesSerialized() {
+    return entitiesSerialized;
+  }
+
+  /**
+   * @param phase request phase
+   * @return latency distribution of the phase
+   */
+  public LatencyHistogram getLatency(final RequestPhase phase) {
+    return latencies.get(phase);
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+import org.apache.olingo.server.api.OlingoExtension;
+
+/**
+ * Metrics about request processing.
+ * <p>
+ * The metrics returned by {@link org.apache.olingo.server.api.OData#getMetrics()} are collected by all handlers
+ * of the class loader. Metrics created with {@link org.apache.olingo.server.api.OData#createMetrics()} and
+ * registered at a handler are collected only for the requests of that handler.
+ * </p>
+ * <p>
+ * Collection is disabled by default; if disabled, recording costs a single volatile read per measuring point.
+ * If enabled, values are recorded without locking: latencies go into histograms with exponential buckets,
+ * counters are kept for requests, error responses per status code, response bytes, and serialized entities.
+ * </p>
+ * Metrics can be read with {@link #getSnapshot()} or pushed to registered {@link MetricsExporter}s with
+ * {@link #export()}; the library does not start any threads, so the application decides when to export.
+ */
+public interface ODataMetrics extends OlingoExtension {
+
+  /**
+   * Enables or disables the collection of metrics; collected values are kept.
+   * @param enabled whether metrics should be collected
+   */
+  void setEnabled(boolean enabled);
+
+  /**
+   * @return whether metrics are collected
+   */
+  boolean isEnabled();
+
+  /**
+   * Gets a consistent-enough view of the collected values; concurrent requests may be partially included.
+   * @return the metrics collected since the last reset
+   */
+  MetricsSnapshot getSnapshot();
+
+  /**
+   * Resets all collected values.
+   */
+  void reset();
+
+  /**
+   * Registers an exporter.
+   * @param exporter the exporter
+   */
+  void addExporter(MetricsExporter exporter);
+
+  /**
+   * Unregisters an exporter.
+   * @param exporter the exporter
+   */
+  void removeExporter(MetricsExporter exporter);
+
+  /**
+   * Passes a snapshot of the collected values to all registered exporters.
+   */
+  void export();
+}
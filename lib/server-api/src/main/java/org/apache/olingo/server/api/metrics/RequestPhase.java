@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.metrics;
+
+/**
+ * Phases of request processing for which latencies are recorded.
+ */
+public enum RequestPhase {
+  /** The complete processing of a request, without writing the response content. */
+  REQUEST,
+  /** Content negotiation based on <code>$format</code> and the <code>Accept</code> header. */
+  CONTENT_NEGOTIATION,
+  /** Parsing of the resource path and the query options. */
+  URI_PARSING,
+  /** Validation of the parsed URI against the HTTP method. */
+  URI_VALIDATION,
+  /** Dispatching to the processor, including the work done by the processor. */
+  DISPATCH,
+  /** Serialization of entities and entity collections, including streamed content. */
+  SERIALIZATION,
+  /** Writing the response content to the client; for streamed content this includes its serialization. */
+  RESPONSE_WRITE,
+  /** Creation of the error response. */
+  ERROR_HANDLING
+}
@@ -19,8 +19,11 @@
 package org.apache.olingo.server.api.processor;
 
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 
+import org.apache.olingo.commons.api.format.AcceptEncoding;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
@@ -34,6 +37,8 @@ import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.etag.ETagHelper;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.processor.MetadataDocumentCache.Document;
+import org.apache.olingo.server.api.processor.MetadataDocumentCache.DocumentKind;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.uri.UriInfo;
 
@@ -44,11 +49,33 @@ import org.apache.olingo.server.api.uri.UriInfo;
  * <li>error handling</li></ul></p>
  * <p>This implementation is registered in the ODataHandler by default.
  * The default can be replaced by re-registering a custom implementation.</p>
+ * <p>If the application provides ETags for the metadata document and the service document,
+ * the serialized documents can be kept in a {@link MetadataDocumentCache}.
+ * The processor registered by default uses a cache shared by all handlers of the service.</p>
  */
 public class DefaultProcessor implements MetadataProcessor, ServiceDocumentProcessor, ErrorProcessor {
+
+  private final MetadataDocumentCache documentCache;
   private OData odata;
   private ServiceMetadata serviceMetadata;
 
+  /**
+   * Creates a processor which serializes the documents on every request.
+   */
+  public DefaultProcessor() {
+    this(null);
+  }
+
+  /**
+   * Creates a processor using the given document cache.
+   * Since handlers are usually created per request, the cache should be shared by all processors
+   * of the service in order to be effective; it must not be used for the documents of other services.
+   * @param documentCache cache for serialized documents, or <code>null</code> to serialize on every request
+   */
+  public DefaultProcessor(final MetadataDocumentCache documentCache) {
+    this.documentCache = documentCache;
+  }
+
   @Override
   public void init(final OData odata, final ServiceMetadata serviceMetadata) {
     this.odata = odata;
@@ -77,8 +104,14 @@ public class DefaultProcessor implements MetadataProcessor, ServiceDocumentProce
       if (HttpMethod.HEAD == request.getMethod()) {
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
       } else {
-        ODataSerializer serializer = odata.createSerializer(requestedContentType);
-        response.setContent(serializer.serviceDocument(serviceMetadata, null).getContent());
+        final Document cached = getCachedDocument(DocumentKind.SERVICE_DOCUMENT,
+            eTagSupport == null ? null : eTagSupport.getServiceDocumentETag(), request, requestedContentType);
+        if (cached == null) {
+          ODataSerializer serializer = odata.createSerializer(requestedContentType);
+          response.setContent(serializer.serviceDocument(serviceMetadata, null).getContent());
+        } else {
+          setCachedContent(request, response, cached);
+        }
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
         response.setHeader(HttpHeader.CONTENT_TYPE, requestedContentType.toContentTypeString());
       }
@@ -107,14 +140,60 @@ public class DefaultProcessor implements MetadataProcessor, ServiceDocumentProce
       if (HttpMethod.HEAD == request.getMethod()) {
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
       } else {
-        ODataSerializer serializer = odata.createSerializer(requestedContentType);
-        response.setContent(serializer.metadataDocument(serviceMetadata).getContent());
+        final Document cached = getCachedDocument(DocumentKind.METADATA,
+            eTagSupport == null ? null : eTagSupport.getMetadataETag(), request, requestedContentType);
+        if (cached == null) {
+          ODataSerializer serializer = odata.createSerializer(requestedContentType);
+          response.setContent(serializer.metadataDocument(serviceMetadata).getContent());
+        } else {
+          setCachedContent(request, response, cached);
+        }
         response.setStatusCode(HttpStatusCode.OK.getStatusCode());
         response.setHeader(HttpHeader.CONTENT_TYPE, requestedContentType.toContentTypeString());
       }
     }
   }
 
+  /**
+   * Gets the serialized document from the cache, serializing it if it is not cached yet.
+   * Documents without ETag are not cached because there would be no way to notice changes.
+   * @return cached document or <code>null</code> if the document is not cacheable
+   */
+  private Document getCachedDocument(final DocumentKind kind, final String etag, final ODataRequest request,
+      final ContentType requestedContentType) throws ODataLibraryException {
+    if (documentCache == null || etag == null) {
+      return null;
+    }
+    Document document = documentCache.get(kind, etag, requestedContentType, request.getRawBaseUri());
+    if (document == null) {
+      final ODataSerializer serializer = odata.createSerializer(requestedContentType);
+      final InputStream content = kind == DocumentKind.METADATA ?
+          serializer.metadataDocument(serviceMetadata).getContent() :
+          serializer.serviceDocument(serviceMetadata, null).getContent();
+      try {
+        document = documentCache.put(kind, etag, requestedContentType, request.getRawBaseUri(), content);
+      } catch (final IOException e) {
+        return null;
+      }
+    }
+    return document;
+  }
+
+  private void setCachedContent(final ODataRequest request, final ODataResponse response, final Document document) {
+    if (document.getGzipContent() == null) {
+      response.setContent(new ByteArrayInputStream(document.getContent()));
+    } else {
+      response.setHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+      if (AcceptEncoding.GZIP.equals(
+          AcceptEncoding.negotiate(request.getHeaders(HttpHeader.ACCEPT_ENCODING), AcceptEncoding.GZIP))) {
+        response.setHeader(HttpHeader.CONTENT_ENCODING, AcceptEncoding.GZIP);
+        response.setContent(new ByteArrayInputStream(document.getGzipContent()));
+      } else {
+        response.setContent(new ByteArrayInputStream(document.getContent()));
+      }
+    }
+  }
+
   @Override
   public void processError(final ODataRequest request, final ODataResponse response,
       final ODataServerError serverError,
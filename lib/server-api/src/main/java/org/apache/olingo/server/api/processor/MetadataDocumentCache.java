@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.processor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.olingo.commons.api.format.ContentType;
+
+/**
+ * Cache for serialized metadata and service documents.
+ * <p>
+ * Documents are only cached if the application provides an ETag for them through
+ * {@link org.apache.olingo.server.api.etag.ServiceMetadataETagSupport}; the ETag is part of the cache key,
+ * so a changed ETag invalidates all cached representations of the document. A representation is identified by the
+ * complete content type (including parameters like <code>odata.metadata</code>) and the base URI of the request.
+ * </p>
+ * The cache holds a bounded number of entries and evicts the least recently used one first.
+ * Optionally a gzip-compressed copy of each document is prepared as well.
+ * A cache must only be used for the documents of one service.
+ */
+public class MetadataDocumentCache {
+
+  /** Kind of cached document. */
+  public enum DocumentKind {
+    METADATA, SERVICE_DOCUMENT
+  }
+
+  private static final int DEFAULT_MAX_ENTRIES = 32;
+
+  private final Map<String, Document> entries;
+
+  private final boolean gzip;
+
+  /**
+   * Creates a cache with the default number of entries, without gzip-compressed copies.
+   */
+  public MetadataDocumentCache() {
+    this(DEFAULT_MAX_ENTRIES, false);
+  }
+
+  /**
+   * Creates a cache.
+   * @param maxEntries maximum number of cached documents
+   * @param gzip whether a gzip-compressed copy of each document should be prepared
+   */
+  public MetadataDocumentCache(final int maxEntries, final boolean gzip) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("The cache must hold at least one entry.");
+    }
+    this.gzip = gzip;
+    entries = new LinkedHashMap<String, Document>(16, 0.75F, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, Document> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Gets a cached document.
+   * @param kind kind of document
+   * @param etag ETag of the document
+   * @param contentType content type of the representation
+   * @param baseUri base URI of the request
+   * @return the cached document or <code>null</code>
+   */
+  public Document get(final DocumentKind kind, final String etag, final ContentType contentType,
+      final String baseUri) {
+    final String key = createKey(kind, etag, contentType, baseUri);
+    synchronized (entries) {
+      return entries.get(key);
+    }
+  }
+
+  /**
+   * Reads the given serialized document completely and stores it in the cache.
+   * @param kind kind of document
+   * @param etag ETag of the document
+   * @param contentType content type of the representation
+   * @param baseUri base URI of the request
+   * @param content serialized document; it is closed afterwards
+   * @return the cached document
+   * @throws IOException if the content could not be read
+   */
+  public Document put(final DocumentKind kind, final String etag, final ContentType contentType,
+      final String baseUri, final InputStream content) throws IOException {
+    final Document document = new Document(toByteArray(content), gzip);
+    final String key = createKey(kind, etag, contentType, baseUri);
+    synchronized (entries) {
+      entries.put(key, document);
+    }
+    return document;
+  }
+
+  /**
+   * Removes all cached documents.
+   */
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private static String createKey(final DocumentKind kind, final String etag, final ContentType contentType,
+      final String baseUri) {
+    return kind.name() + '\n' + etag + '\n' + contentType.toContentTypeString() + '\n' + baseUri;
+  }
+
+  private static byte[] toByteArray(final InputStream content) throws IOException {
+    try {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[8192];
+      int count;
+      while ((count = content.read(buffer)) != -1) {
+        output.write(buffer, 0, count);
+      }
+      return output.toByteArray();
+    } finally {
+      content.close();
+    }
+  }
+
+  /**
+   * A cached serialized document.
+   */
+  public static final class Document {
+
+    private final byte[] content;
+
+    private final byte[] gzipContent;
+
+    private Document(final byte[] content, final boolean gzip) throws IOException {
+      this.content = content;
+      if (gzip) {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream(content.length / 4 + 64);
+        final GZIPOutputStream gzipOutput = new GZIPOutputStream(output);
+        gzipOutput.write(content);
+        gzipOutput.close();
+        gzipContent = output.toByteArray();
+      } else {
+        gzipContent = null;
+      }
+    }
+
+    /**
+     * @return serialized document; the array must not be modified
+     */
+    public byte[] getContent() {
+      return content;
+    }
+
+    /**
+     * @return gzip-compressed serialized document, or <code>null</code> if the cache does not prepare it;
+     * the array must not be modified
+     */
+    public byte[] getGzipContent() {
+      return gzipContent;
+    }
+  }
+}
@@ -29,7 +29,9 @@ import org.apache.olingo.server.api.ServiceMetadata;
 public interface Processor {
 
   /**
-   * Initializes the processor for each HTTP request - response cycle.
+   * Initializes the processor before it handles its first HTTP request - response cycle.
+   * Processors which have to be prepared for every single request can implement
+   * {@link RequestScopedProcessor}.
    * @param odata Olingo's root object, acting as a factory for various object types
    * @param serviceMetadata metadata of the OData service like the EDM that have to be created
    * before the OData request handling takes place
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.api.processor;
+
+import org.apache.olingo.server.api.ODataRequest;
+
+/**
+ * <p>Processor which has to be notified about each request it is selected for.</p>
+ * <p>Registered processors are initialized only once per handler via
+ * {@link #init(org.apache.olingo.server.api.OData, org.apache.olingo.server.api.ServiceMetadata)};
+ * processors holding request-related state can implement this interface to be prepared
+ * for every request - response cycle.</p>
+ */
+public interface RequestScopedProcessor extends Processor {
+
+  /**
+   * Prepares the processor for handling the given request.
+   * It is called after {@link #init(org.apache.olingo.server.api.OData, org.apache.olingo.server.api.ServiceMetadata)}
+   * each time the processor has been selected.
+   * @param request the current OData request
+   */
+  void initRequest(ODataRequest request);
+}
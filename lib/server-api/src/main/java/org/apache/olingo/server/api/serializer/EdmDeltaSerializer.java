@@ -19,6 +19,7 @@
 package org.apache.olingo.server.api.serializer;
 
 import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaIterator;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.server.api.ServiceMetadata;
 
@@ -37,4 +38,16 @@ public interface EdmDeltaSerializer {
   SerializerResult entityCollection(ServiceMetadata metadata, EdmEntityType referencedEntityType,
       Delta delta, EntityCollectionSerializerOptions options) throws SerializerException;
 
+  /**
+   * Writes a delta-response into an InputStream while iterating over the changes.
+   * Nothing is read from the iterator before the content is written, so the changes never have to be
+   * held in memory completely; the delta link is written after the last change.
+   * @param metadata             metadata for the service
+   * @param referencedEntityType the {@link EdmEntityType} or <code>null</code> if not available
+   * @param delta                the delta data as iterator
+   * @param options              options for the serializer
+   */
+  SerializerStreamResult entityCollectionStreamed(ServiceMetadata metadata, EdmEntityType referencedEntityType,
+      DeltaIterator delta, EntityCollectionSerializerOptions options) throws SerializerException;
+
 }
@@ -37,6 +37,9 @@ public interface FixedFormatSerializer {
   
   /**
    * Writes bytes to an Input stream
+   * <p>Media given as stream or channel is written while the response is sent, without buffering it.
+   * If its length is known, <code>GET</code> requests with a <code>Range</code> header are answered
+   * with the requested byte range.</p>
    * @param mediaEntity bytes
    * @return
    * @throws SerializerException
@@ -18,15 +18,20 @@
  */
 package org.apache.olingo.server.core.responses;
 
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Operation;
 import org.apache.olingo.commons.api.edm.EdmAction;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmFunction;
+import org.apache.olingo.commons.api.edm.EdmOperation;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.core.Encoder;
@@ -86,6 +91,36 @@ public class EntitySetResponse extends ServiceResponse {
     close();
   }
 
+  /**
+   * Writes a collection of entities while iterating it, without materializing the whole collection in memory.
+   * <br/>
+   * Count and next link are taken from the iterator: the count (if requested) must be set before the response
+   * gets written, the next link at the latest when the iteration is over.
+   * @param entityType type of the entities
+   * @param entities lazily evaluated entities
+   */
+  public void writeReadEntitySet(EdmEntityType entityType, EntityIterator entities)
+      throws SerializerException {
+
+    assert (!isClosed());
+
+    if (entities == null) {
+      writeNotFound(true);
+      return;
+    }
+
+    EntityIterator iterator = entities;
+    if (ContentTypeHelper.isODataMetadataFull(this.responseContentType)) {
+      iterator = new OperationsEntityIterator(entities, getCollectionOperations(entityType),
+          getEntityOperations(entityType));
+    }
+    // write the entities to response while iterating
+    this.response.setODataContent(this.serializer.entityCollectionStreamed(metadata, entityType, iterator,
+        this.options).getODataContent());
+    writeOK(responseContentType);
+    close();
+  }
+
   @Override
   public void accepts(ServiceResponseVisior visitor) throws ODataLibraryException,
       ODataApplicationException {
@@ -103,34 +138,49 @@ public class EntitySetResponse extends ServiceResponse {
     
   private void buildOperations(EdmEntityType entityType,
       EntityCollection entitySet) {
+    entitySet.getOperations().addAll(getCollectionOperations(entityType));
+
+    List<EdmOperation> entityOperations = getEntityOperations(entityType);
+    for (Entity entity:entitySet.getEntities()) {
+      addEntityOperations(entity, entityOperations);
+    }
+  }
+
+  private List<Operation> getCollectionOperations(EdmEntityType entityType) {
+    List<Operation> operations = new ArrayList<Operation>();
     EdmAction action = this.metadata.getEdm().getBoundActionWithBindingType(
         entityType.getFullQualifiedName(), true);
     if (action != null) {
-      entitySet.getOperations().add(buildOperation(action, buildOperationTarget(options.getContextURL())));
+      operations.add(buildOperation(action, buildOperationTarget(options.getContextURL())));
     }
-    
-    action = this.metadata.getEdm().getBoundActionWithBindingType(
-        entityType.getFullQualifiedName(), false);
-    if (action != null) {
-      for (Entity entity:entitySet.getEntities()) {
-        entity.getOperations().add(buildOperation(action, entity.getId().toASCIIString()));
-      }
-    }      
-    
+
     List<EdmFunction> functions = this.metadata.getEdm()
         .getBoundFunctionsWithBindingType(entityType.getFullQualifiedName(),true);
-    
+
     for (EdmFunction function:functions) {
-      entitySet.getOperations().add(buildOperation(function, buildOperationTarget(options.getContextURL())));
+      operations.add(buildOperation(function, buildOperationTarget(options.getContextURL())));
     }
-    
-    functions = this.metadata.getEdm()
-        .getBoundFunctionsWithBindingType(entityType.getFullQualifiedName(),false);
-    
-    for (Entity entity:entitySet.getEntities()) {
-      for (EdmFunction function:functions) {
-        entity.getOperations().add(buildOperation(function, entity.getId().toASCIIString()));
-      }
+    return operations;
+  }
+
+  private List<EdmOperation> getEntityOperations(EdmEntityType entityType) {
+    List<EdmOperation> operations = new ArrayList<EdmOperation>();
+    EdmAction action = this.metadata.getEdm().getBoundActionWithBindingType(
+        entityType.getFullQualifiedName(), false);
+    if (action != null) {
+      operations.add(action);
+    }
+    operations.addAll(this.metadata.getEdm()
+        .getBoundFunctionsWithBindingType(entityType.getFullQualifiedName(),false));
+    return operations;
+  }
+
+  private void addEntityOperations(Entity entity, List<EdmOperation> operations) {
+    for (EdmOperation operation:operations) {
+      Operation op = operation instanceof EdmAction
+          ? buildOperation((EdmAction) operation, entity.getId().toASCIIString())
+          : buildOperation((EdmFunction) operation, entity.getId().toASCIIString());
+      entity.getOperations().add(op);
     }
   }
   
@@ -153,4 +203,47 @@ public class EntitySetResponse extends ServiceResponse {
     }
     return result.toString();
   }
+
+  /**
+   * Advertises the collection-bound operations and adds the entity-bound operations to each entity while iterating.
+   */
+  private class OperationsEntityIterator extends EntityIterator {
+    private final EntityIterator entities;
+    private final List<Operation> collectionOperations;
+    private final List<EdmOperation> operations;
+
+    OperationsEntityIterator(EntityIterator entities, List<Operation> collectionOperations,
+        List<EdmOperation> operations) {
+      this.entities = entities;
+      this.collectionOperations = collectionOperations;
+      this.operations = operations;
+    }
+
+    @Override
+    public List<Operation> getOperations() {
+      return this.collectionOperations;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return this.entities.hasNext();
+    }
+
+    @Override
+    public Entity next() {
+      Entity entity = this.entities.next();
+      addEntityOperations(entity, this.operations);
+      return entity;
+    }
+
+    @Override
+    public Integer getCount() {
+      return this.entities.getCount();
+    }
+
+    @Override
+    public URI getNext() {
+      return this.entities.getNext();
+    }
+  }
 }
@@ -22,12 +22,14 @@ import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Random;
 
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
 import org.apache.olingo.commons.api.data.Link;
 import org.apache.olingo.commons.api.data.Property;
 import org.apache.olingo.commons.api.data.ValueType;
@@ -210,6 +212,9 @@ public class TripPinHandler implements ServiceHandler {
         }
         if (details.entity == null && !request.getNavigations().isEmpty()) {
           response.writeReadEntitySet(details.entityType, new EntityCollection());
+        } else if (request.getPreference("odata.maxpagesize") != null && details.entitySet != null) {
+          // stream paged results
+          response.writeReadEntitySet(details.entityType, asEntityIterator(details.entitySet));
         } else {
           response.writeReadEntitySet(details.entityType, details.entitySet);
         }
@@ -227,6 +232,24 @@ public class TripPinHandler implements ServiceHandler {
     });
   }
 
+  private EntityIterator asEntityIterator(final EntityCollection entitySet) {
+    final Iterator<Entity> entities = entitySet.iterator();
+    EntityIterator iterator = new EntityIterator() {
+      @Override
+      public boolean hasNext() {
+        return entities.hasNext();
+      }
+
+      @Override
+      public Entity next() {
+        return entities.next();
+      }
+    };
+    iterator.setCount(entitySet.getCount());
+    iterator.setNext(entitySet.getNext());
+    return iterator;
+  }
+
   private int getPageSize(DataRequest request) {
     String size = request.getPreference("odata.maxpagesize");
     if (size == null) {
@@ -19,6 +19,7 @@
 package org.apache.olingo.server.example;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -165,6 +166,32 @@ public class TripPinServiceTest {
     assertEquals("odata.maxpagesize=10", getHeader(response, "Preference-Applied"));
   }
 
+  @Test
+  public void testReadEntitySetStreamedWithCount() throws Exception {
+    int count = Integer.parseInt(IOUtils.toString(
+        httpGET(baseURL + "/People/$count", 200).getEntity().getContent()));
+    String url = baseURL+"/People?$count=true&$skiptoken=10";
+    HttpRequest request = new HttpGet(url);
+    request.setHeader("Prefer", "odata.maxpagesize=5");
+    request.setHeader("Accept", "application/json;odata.metadata=full");
+    HttpResponse response = httpSend(request, 200);
+    JsonNode node = getJSONNode(response);
+    assertEquals(baseURL+"/$metadata#People", node.get("@odata.context").asText());
+    assertEquals(count, node.get("@odata.count").asInt());
+    assertEquals(5, ((ArrayNode)node.get("value")).size());
+    assertTrue(node.get("@odata.nextLink").asText().endsWith("$skiptoken=15"));
+
+    // collection-bound operations are advertised on the collection, entity-bound ones on each entity
+    assertEquals("Microsoft.OData.SampleService.Models.TripPin.GetFrequentTravelers",
+        node.get("#Microsoft.OData.SampleService.Models.TripPin.GetFrequentTravelers").get("title").asText());
+    assertTrue(node.get("#Microsoft.OData.SampleService.Models.TripPin.GetFrequentTravelers").get("target")
+        .asText().endsWith("People/Microsoft.OData.SampleService.Models.TripPin.GetFrequentTravelers"));
+    assertNull(node.get("#Microsoft.OData.SampleService.Models.TripPin.GetFavoriteAirline"));
+    JsonNode person = ((ArrayNode)node.get("value")).get(0);
+    assertNotNull(person.get("#Microsoft.OData.SampleService.Models.TripPin.GetFavoriteAirline"));
+    assertNull(person.get("#Microsoft.OData.SampleService.Models.TripPin.GetFrequentTravelers"));
+  }
+
   @Test
   public void testReadEntityWithKey() throws Exception {
     HttpResponse response = httpGET(baseURL + "/Airlines('AA')", 200);
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.netty.server.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.LastHttpContent;
+
+/**
+ * Writes the response content as Netty HTTP content chunks.
+ * The response head is sent together with the first chunk.
+ * The writing thread is blocked as long as the channel is not writable,
+ * so that slow clients do not cause the whole content to be buffered.
+ */
+final class NettyChunkedOutputChannel implements WritableByteChannel {
+
+  static final int CHUNK_SIZE = 8192;
+
+  private static final long WRITABILITY_CHECK_INTERVAL = 1000;
+
+  private final ChannelHandlerContext ctx;
+  private final Object writability = new Object();
+  private HttpResponse head;
+  private ByteBuf buffer;
+  private boolean open = true;
+  private ChannelFuture lastWrite;
+
+  NettyChunkedOutputChannel(final ChannelHandlerContext ctx, final HttpResponse head) {
+    this.ctx = ctx;
+    this.head = head;
+  }
+
+  @Override
+  public int write(final ByteBuffer src) throws IOException {
+    if (!open) {
+      throw new ClosedChannelException();
+    }
+    final int written = src.remaining();
+    while (src.hasRemaining()) {
+      if (buffer == null) {
+        buffer = ctx.alloc().buffer(CHUNK_SIZE, CHUNK_SIZE);
+      }
+      final int length = Math.min(buffer.writableBytes(), src.remaining());
+      final ByteBuffer part = src.duplicate();
+      part.limit(part.position() + length);
+      buffer.writeBytes(part);
+      src.position(src.position() + length);
+      if (!buffer.isWritable()) {
+        awaitWritable();
+        writeHead();
+        ctx.writeAndFlush(new DefaultHttpContent(buffer));
+        buffer = null;
+      }
+    }
+    return written;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return open;
+  }
+
+  /**
+   * Writes the remaining content and marks the end of the response.
+   */
+  @Override
+  public void close() throws IOException {
+    if (open) {
+      open = false;
+      awaitWritable();
+      writeHead();
+      lastWrite = ctx.writeAndFlush(buffer == null ? LastHttpContent.EMPTY_LAST_CONTENT :
+          new DefaultLastHttpContent(buffer));
+      buffer = null;
+    }
+  }
+
+  /**
+   * Releases the buffered content without writing it, e.g., after a failure.
+   */
+  void discard() {
+    open = false;
+    if (buffer != null) {
+      buffer.release();
+      buffer = null;
+    }
+  }
+
+  /**
+   * @return the future of writing the last content chunk or <code>null</code> if not yet closed
+   */
+  ChannelFuture getLastWrite() {
+    return lastWrite;
+  }
+
+  /**
+   * Wakes up the writing thread; called on changes of the channel's writability or activity.
+   */
+  void writabilityChanged() {
+    synchronized (writability) {
+      writability.notifyAll();
+    }
+  }
+
+  private void writeHead() {
+    if (head != null) {
+      ctx.write(head);
+      head = null;
+    }
+  }
+
+  private void awaitWritable() throws IOException {
+    synchronized (writability) {
+      while (!ctx.channel().isWritable()) {
+        if (!ctx.channel().isActive()) {
+          discard();
+          throw new ClosedChannelException();
+        }
+        try {
+          writability.wait(WRITABILITY_CHECK_INTERVAL);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          discard();
+          throw new InterruptedIOException();
+        }
+      }
+    }
+  }
+}
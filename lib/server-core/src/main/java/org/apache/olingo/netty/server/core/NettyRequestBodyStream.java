@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.netty.server.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+/**
+ * Request body which is fed with the content chunks received by the Netty event loop
+ * and read by the thread processing the request.
+ * Reading from the channel is suspended as long as too many bytes are waiting to be read.
+ */
+final class NettyRequestBodyStream extends InputStream {
+
+  static final int HIGH_WATER_MARK = 64 * 1024;
+  static final int LOW_WATER_MARK = 16 * 1024;
+
+  private final Channel channel;
+  private final Deque<ByteBuf> buffers = new ArrayDeque<>();
+  private int queuedBytes;
+  private boolean suspended;
+  private boolean complete;
+  private boolean closed;
+  private IOException failure;
+
+  NettyRequestBodyStream(final Channel channel) {
+    this.channel = channel;
+  }
+
+  /**
+   * Adds received content; the stream takes over the ownership of the buffer.
+   * Must be called from the event loop.
+   */
+  synchronized void offer(final ByteBuf buffer) {
+    if (closed || !buffer.isReadable()) {
+      buffer.release();
+      return;
+    }
+    buffers.add(buffer);
+    queuedBytes += buffer.readableBytes();
+    if (queuedBytes > HIGH_WATER_MARK && !suspended) {
+      suspended = true;
+      channel.config().setAutoRead(false);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Marks the end of the body. Must be called from the event loop.
+   * From now on reading from the channel is controlled by the caller again.
+   */
+  synchronized void complete() {
+    complete = true;
+    suspended = false;
+    notifyAll();
+  }
+
+  /**
+   * Marks the body as incomplete, e.g., because the connection has been closed.
+   */
+  synchronized void fail(final IOException cause) {
+    failure = cause;
+    notifyAll();
+  }
+
+  @Override
+  public int read() throws IOException {
+    final byte[] single = new byte[1];
+    return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+  }
+
+  @Override
+  public synchronized int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    while (buffers.isEmpty()) {
+      if (closed || complete) {
+        return -1;
+      }
+      if (failure != null) {
+        throw failure;
+      }
+      try {
+        wait();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+    final ByteBuf buffer = buffers.peek();
+    final int count = Math.min(len, buffer.readableBytes());
+    buffer.readBytes(b, off, count);
+    if (!buffer.isReadable()) {
+      buffers.poll().release();
+    }
+    queuedBytes -= count;
+    if (suspended && queuedBytes < LOW_WATER_MARK) {
+      resume();
+    }
+    return count;
+  }
+
+  @Override
+  public synchronized int available() {
+    return queuedBytes;
+  }
+
+  @Override
+  public synchronized void close() {
+    if (!closed) {
+      closed = true;
+      for (final ByteBuf buffer : buffers) {
+        buffer.release();
+      }
+      buffers.clear();
+      queuedBytes = 0;
+      if (suspended) {
+        // the rest of the body has to be consumed to reach the next request
+        resume();
+      }
+      notifyAll();
+    }
+  }
+
+  private void resume() {
+    suspended = false;
+    channel.eventLoop().execute(new Runnable() {
+      @Override
+      public void run() {
+        channel.config().setAutoRead(true);
+      }
+    });
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.netty.server.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.olingo.netty.server.api.ODataNetty;
+import org.apache.olingo.netty.server.api.ODataNettyHandler;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.Processor;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * <p>Netty channel handler processing OData requests on a worker executor.</p>
+ * <p>The event loop only passes the received content to the request body stream and never waits for
+ * the processing. Requests of one connection are processed one after the other; reading from the channel
+ * is suspended from the end of a request until its response has been written completely.</p>
+ */
+public class ODataNettyChannelHandler extends ChannelInboundHandlerAdapter {
+
+  private final ODataNetty odata;
+  private final ServiceMetadata serviceMetadata;
+  private final List<Processor> processors;
+  private final Map<String, String> requestParameters;
+  private final Executor executor;
+
+  /** Messages received while the previous request is still processed; event loop only. */
+  private final Deque<Object> pendingMessages = new ArrayDeque<>();
+  /** State of the current request; event loop only. */
+  private Exchange exchange;
+
+  private volatile NettyChunkedOutputChannel output;
+
+  public ODataNettyChannelHandler(final ODataNetty odata, final ServiceMetadata serviceMetadata,
+      final List<Processor> processors, final Map<String, String> requestParameters, final Executor executor) {
+    this.odata = odata;
+    this.serviceMetadata = serviceMetadata;
+    this.processors = processors;
+    this.requestParameters = requestParameters;
+    this.executor = executor;
+  }
+
+  @Override
+  public void channelRead(final ChannelHandlerContext ctx, final Object msg) {
+    if (exchange != null && exchange.requestComplete) {
+      pendingMessages.add(msg);
+      return;
+    }
+    if (msg instanceof HttpRequest) {
+      startExchange(ctx, (HttpRequest) msg);
+    }
+    if (msg instanceof HttpContent) {
+      final HttpContent content = (HttpContent) msg;
+      if (exchange == null) {
+        content.release();
+      } else {
+        exchange.body.offer(content.content());
+        if (msg instanceof LastHttpContent) {
+          exchange.requestComplete = true;
+          exchange.body.complete();
+          if (exchange.responseComplete) {
+            finishExchange(ctx);
+          } else {
+            ctx.channel().config().setAutoRead(false);
+          }
+        }
+      }
+    } else if (!(msg instanceof HttpRequest)) {
+      ctx.fireChannelRead(msg);
+    }
+  }
+
+  @Override
+  public void channelWritabilityChanged(final ChannelHandlerContext ctx) {
+    final NettyChunkedOutputChannel current = output;
+    if (current != null) {
+      current.writabilityChanged();
+    }
+    ctx.fireChannelWritabilityChanged();
+  }
+
+  @Override
+  public void channelInactive(final ChannelHandlerContext ctx) {
+    if (exchange != null) {
+      exchange.body.fail(new ClosedChannelException());
+    }
+    for (final Object msg : pendingMessages) {
+      ReferenceCountUtil.release(msg);
+    }
+    pendingMessages.clear();
+    final NettyChunkedOutputChannel current = output;
+    if (current != null) {
+      current.writabilityChanged();
+    }
+    ctx.fireChannelInactive();
+  }
+
+  @Override
+  public void exceptionCaught(final ChannelHandlerContext ctx, final Throwable cause) {
+    if (exchange != null) {
+      exchange.body.fail(new IOException(cause));
+    }
+    ctx.close();
+  }
+
+  private void startExchange(final ChannelHandlerContext ctx, final HttpRequest request) {
+    if (!request.decoderResult().isSuccess()) {
+      ctx.writeAndFlush(new DefaultFullHttpResponse(request.protocolVersion(), HttpResponseStatus.BAD_REQUEST))
+          .addListener(ChannelFutureListener.CLOSE);
+      return;
+    }
+    final Exchange started = new Exchange(new NettyRequestBodyStream(ctx.channel()));
+    exchange = started;
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          process(ctx, request, started);
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      exchange = null;
+      started.body.close();
+      ctx.writeAndFlush(new DefaultFullHttpResponse(request.protocolVersion(),
+          HttpResponseStatus.SERVICE_UNAVAILABLE)).addListener(ChannelFutureListener.CLOSE);
+    }
+  }
+
+  /** Called on the event loop once the response of the current exchange has been written. */
+  private void finishExchange(final ChannelHandlerContext ctx) {
+    exchange = null;
+    while (!pendingMessages.isEmpty() && (exchange == null || !exchange.requestComplete)) {
+      channelRead(ctx, pendingMessages.poll());
+    }
+    if (exchange == null || !exchange.requestComplete) {
+      ctx.channel().config().setAutoRead(true);
+    }
+  }
+
+  private void process(final ChannelHandlerContext ctx, final HttpRequest request, final Exchange current) {
+    final boolean keepAlive = HttpUtil.isKeepAlive(request);
+    ChannelFuture lastWrite = null;
+    try {
+      final ODataNettyHandler handler = odata.createNettyHandler(serviceMetadata);
+      for (final Processor processor : processors) {
+        handler.register(processor);
+      }
+      final ODataResponse response = handler.processNettyRequest(request, current.body, requestParameters);
+      lastWrite = write(ctx, request, response, keepAlive);
+    } catch (final IOException e) {
+      ctx.close();
+    } catch (final RuntimeException e) {
+      // the response may have been written partially, so the connection cannot be used any longer
+      ctx.close();
+    } finally {
+      current.body.close();
+    }
+
+    if (lastWrite == null || !keepAlive) {
+      if (lastWrite != null) {
+        lastWrite.addListener(ChannelFutureListener.CLOSE);
+      }
+      return;
+    }
+    ctx.channel().eventLoop().execute(new Runnable() {
+      @Override
+      public void run() {
+        current.responseComplete = true;
+        if (current == exchange && current.requestComplete) {
+          finishExchange(ctx);
+        }
+      }
+    });
+  }
+
+  private ChannelFuture write(final ChannelHandlerContext ctx, final HttpRequest request,
+      final ODataResponse odResponse, final boolean keepAlive) throws IOException {
+    final HttpResponseStatus status = HttpResponseStatus.valueOf(odResponse.getStatusCode());
+    final boolean hasContent = odResponse.getContent() != null || odResponse.getODataContent() != null;
+    final HttpResponse head = hasContent ?
+        new DefaultHttpResponse(request.protocolVersion(), status) :
+        new DefaultFullHttpResponse(request.protocolVersion(), status);
+    for (final Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
+      for (final String headerValue : entry.getValue()) {
+        head.headers().add(entry.getKey(), headerValue);
+      }
+    }
+    if (!keepAlive) {
+      head.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+    }
+
+    if (!hasContent) {
+      if (!head.headers().contains(HttpHeaderNames.CONTENT_LENGTH)) {
+        HttpUtil.setContentLength(head, 0);
+      }
+      return ctx.writeAndFlush((FullHttpResponse) head);
+    }
+
+    if (!head.headers().contains(HttpHeaderNames.CONTENT_LENGTH)) {
+      HttpUtil.setTransferEncodingChunked(head, true);
+    }
+    final NettyChunkedOutputChannel channel = new NettyChunkedOutputChannel(ctx, head);
+    output = channel;
+    try {
+      if (odResponse.getContent() != null) {
+        copy(odResponse.getContent(), channel);
+      } else {
+        odResponse.getODataContent().write(channel);
+      }
+      channel.close();
+      return channel.getLastWrite();
+    } finally {
+      channel.discard();
+      output = null;
+    }
+  }
+
+  private static void copy(final InputStream content, final NettyChunkedOutputChannel output) throws IOException {
+    final ReadableByteChannel input = Channels.newChannel(content);
+    try {
+      final ByteBuffer buffer = ByteBuffer.allocate(NettyChunkedOutputChannel.CHUNK_SIZE);
+      while (input.read(buffer) >= 0) {
+        buffer.flip();
+        output.write(buffer);
+        buffer.clear();
+      }
+    } finally {
+      input.close();
+    }
+  }
+
+  private static final class Exchange {
+    private final NettyRequestBodyStream body;
+    private boolean requestComplete;
+    private boolean responseComplete;
+
+    private Exchange(final NettyRequestBodyStream body) {
+      this.body = body;
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.olingo.netty.server.core;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
@@ -41,12 +42,16 @@ import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.OlingoExtension;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.metrics.RequestPhase;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.core.ODataExceptionHelper;
 import org.apache.olingo.server.core.ODataHandlerException;
 import org.apache.olingo.server.core.ODataHandlerImpl;
+import org.apache.olingo.server.core.ResponseCompression;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufInputStream;
@@ -68,6 +73,7 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
   private static final String SPLIT = "split";
 
   private int split = 0;
+  private ResponseCompression compression;
 
   public ODataNettyHandlerImpl(final OData odata, final ServiceMetadata serviceMetadata) {
     debugger = new ServerCoreDebugger(odata);
@@ -102,13 +108,73 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
 	      }
 	    }
 
+	    final long metricsStart = MetricsCollector.getInstance().start();
 	    if (odResponse.getContent() != null) {
 	      copyContent(odResponse.getContent(), response);
 	    } else if (odResponse.getODataContent() != null) {
 	      writeContent(odResponse, response);
 	    }
+	    MetricsCollector.getInstance().stop(RequestPhase.RESPONSE_WRITE, metricsStart);
 	  }
   
+  /**
+   * Convert the OData Response to Netty Response with compressed content
+   * @param response
+   * @param odResponse
+   * @param compression
+   * @param contentEncoding
+   */
+  static void convertToCompressedHttp(final HttpResponse response, final ODataResponse odResponse,
+      final ResponseCompression compression, final String contentEncoding) {
+    response.setStatus(HttpResponseStatus.valueOf(odResponse.getStatusCode()));
+
+    for (Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
+      // the length is only known after compression
+      if (!HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey())) {
+        for (String headerValue : entry.getValue()) {
+          response.headers().add(entry.getKey(), headerValue);
+        }
+      }
+    }
+    response.headers().add(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+
+    final long metricsStart = MetricsCollector.getInstance().start();
+    // the bytes are counted after compression, as they are sent to the client
+    try (OutputStream output = compression.compress(
+        MetricsCollector.getInstance().countBytes(new ByteBufOutputStream(((HttpContent) response).content())),
+        contentEncoding,
+        new ResponseCompression.Listener() {
+          @Override
+          public void compressed(final String encoding) {
+            response.headers().set(HttpHeader.CONTENT_ENCODING, encoding);
+          }
+
+          @Override
+          public void uncompressed(final int contentLength) {
+            response.headers().set(HttpHeader.CONTENT_LENGTH, contentLength);
+          }
+        })) {
+      if (odResponse.getContent() == null) {
+        odResponse.getODataContent().write(output);
+      } else {
+        final InputStream input = odResponse.getContent();
+        try {
+          final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+          int count;
+          while ((count = input.read(buffer)) != -1) {
+            output.write(buffer, 0, count);
+          }
+        } finally {
+          input.close();
+        }
+      }
+    } catch (IOException e) {
+      throw new ODataRuntimeException("Error on writing response content", e);
+    } finally {
+      MetricsCollector.getInstance().stop(RequestPhase.RESPONSE_WRITE, metricsStart);
+    }
+  }
+
   /**
    * Write the odata content to netty response content
    * @param odataResponse
@@ -116,7 +182,8 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
    */
   static void writeContent(final ODataResponse odataResponse, final HttpResponse response) {
     ODataContent res = odataResponse.getODataContent();
-    res.write(Channels.newChannel(new ByteBufOutputStream(((HttpContent)response).content())));
+    res.write(Channels.newChannel(
+        MetricsCollector.getInstance().countBytes(new ByteBufOutputStream(((HttpContent) response).content()))));
   }
   
   static void copyContent(final InputStream inputStream, final HttpResponse response) {
@@ -131,11 +198,13 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
   static void copyContent(final ReadableByteChannel input, final HttpResponse response) {
     try (WritableByteChannel output = Channels.newChannel(new ByteBufOutputStream(((HttpContent)response).content()))){
         ByteBuffer inBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+        long count = 0;
         while (input.read(inBuffer) > 0) {
           inBuffer.flip();
-          output.write(inBuffer);
+          count += output.write(inBuffer);
           inBuffer.clear();
         }
+        MetricsCollector.getInstance().addBytesWritten(count);
         closeStream(output);
       } catch (IOException e) {
         throw new ODataRuntimeException("Error on reading request content", e);
@@ -158,18 +227,17 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
    * Extract the information part of Netty Request and fill OData Request
    * @param odRequest
    * @param httpRequest
+   * @param body
    * @param split
    * @param contextPath
    * @return
    * @throws ODataLibraryException
    */
   private ODataRequest fillODataRequest(final ODataRequest odRequest, final HttpRequest httpRequest,
-	      final int split, final String contextPath) throws ODataLibraryException {
+	      final InputStream body, final int split, final String contextPath) throws ODataLibraryException {
 	    final int requestHandle = debugger.startRuntimeMeasurement("ODataHttpHandlerImpl", "fillODataRequest");
 	    try {
-	    	ByteBuf byteBuf = ((HttpContent)httpRequest).content();
-	    	ByteBufInputStream inputStream = new ByteBufInputStream(byteBuf);
-	      odRequest.setBody(inputStream);
+	      odRequest.setBody(body);
 	      
 	      odRequest.setProtocol(httpRequest.protocolVersion().text());
 	      odRequest.setMethod(extractMethod(httpRequest));
@@ -295,30 +363,46 @@ public class ODataNettyHandlerImpl implements ODataNettyHandler {
 	  }
   }
   
-@SuppressWarnings("unused")
 @Override
 public void processNettyRequest(HttpRequest request, HttpResponse response, 
 		Map<String, String> requestParameters) {
+    final MetricsCollector previousMetrics = MetricsCollector.bind(handler.getMetrics());
+    try {
+      ByteBuf byteBuf = ((HttpContent)request).content();
+      final ODataResponse odResponse =
+          processNettyRequest(request, new ByteBufInputStream(byteBuf), requestParameters);
+      final String contentEncoding = compression == null ? null :
+          compression.getContentEncoding(request.headers().getAll(HttpHeader.ACCEPT_ENCODING), odResponse);
+      if (contentEncoding == null) {
+        convertToHttp(response, odResponse);
+      } else {
+        convertToCompressedHttp(response, odResponse, compression, contentEncoding);
+      }
+    } finally {
+      MetricsCollector.bind(previousMetrics);
+    }
+  }
+
+@Override
+public ODataResponse processNettyRequest(HttpRequest request, InputStream body,
+    Map<String, String> requestParameters) {
 	  ODataRequest odRequest = new ODataRequest();
-    Exception exception = null;
     ODataResponse odResponse;
     
     final int processMethodHandle = 
     		debugger.startRuntimeMeasurement("ODataNettyHandlerImpl", "process");
     try {
-      fillODataRequest(odRequest, request, 
+      fillODataRequest(odRequest, request, body,
           requestParameters.get(SPLIT) != null? Integer.parseInt(requestParameters.get(SPLIT)) : split, 
               requestParameters.get(CONTEXT_PATH));
 
       odResponse = process(odRequest);
       // ALL future methods after process must not throw exceptions!
     } catch (Exception e) {
-      exception = e;
       odResponse = handleException(odRequest, e);
     }
     debugger.stopRuntimeMeasurement(processMethodHandle);
-
-    convertToHttp(response, odResponse);
+    return odResponse;
   }
 
   public ODataResponse process(ODataRequest request) {
@@ -329,4 +413,14 @@ public void processNettyRequest(HttpRequest request, HttpResponse response,
   public void register(Processor processor) {
     handler.register(processor);
   }
+
+  @Override
+  public void register(OlingoExtension extension) {
+    handler.register(extension);
+  }
+
+  @Override
+  public void setResponseCompression(final int minimumSize, final int level) {
+    compression = minimumSize < 0 ? null : new ResponseCompression(minimumSize, level);
+  }
 }
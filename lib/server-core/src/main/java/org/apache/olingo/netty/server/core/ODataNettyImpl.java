@@ -20,6 +20,8 @@ package org.apache.olingo.netty.server.core;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
@@ -33,13 +35,18 @@ import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataHandler;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.async.AsyncRequestSupport;
+import org.apache.olingo.server.api.async.AsyncResponseStore;
 import org.apache.olingo.server.api.debug.DebugResponseHelper;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.FixedFormatDeserializer;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.etag.ETagHelper;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.expand.ExpandHelper;
+import org.apache.olingo.server.api.metrics.ODataMetrics;
 import org.apache.olingo.server.api.prefer.Preferences;
+import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.serializer.EdmAssistedSerializer;
 import org.apache.olingo.server.api.serializer.EdmDeltaSerializer;
 import org.apache.olingo.server.api.serializer.FixedFormatSerializer;
@@ -47,6 +54,8 @@ import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.uri.UriHelper;
 
+import io.netty.channel.ChannelHandler;
+
 public class ODataNettyImpl extends ODataNetty {
   
   private static OData odata;
@@ -72,6 +81,12 @@ public class ODataNettyImpl extends ODataNetty {
     return new ODataNettyHandlerImpl(this, serviceMetadata);
   }
 
+  @Override
+  public ChannelHandler createNettyChannelHandler(ServiceMetadata serviceMetadata, List<Processor> processors,
+      Map<String, String> requestParameters, Executor executor) {
+    return new ODataNettyChannelHandler(this, serviceMetadata, processors, requestParameters, executor);
+  }
+
   @Override
   public ODataSerializer createSerializer(ContentType contentType) throws SerializerException {
     return odata.createSerializer(contentType);
@@ -140,6 +155,11 @@ public class ODataNettyImpl extends ODataNetty {
     return odata.createETagHelper();
   }
 
+  @Override
+  public ExpandHelper createExpandHelper() {
+    return odata.createExpandHelper();
+  }
+
   @Override
   public Preferences createPreferences(Collection<String> preferHeaders) {
     return odata.createPreferences(preferHeaders);
@@ -178,5 +198,20 @@ public class ODataNettyImpl extends ODataNetty {
       throws DeserializerException {
     return odata.createDeserializer(contentType, metadata, versions);
   }
-  
+
+  @Override
+  public AsyncRequestSupport createAsyncRequestSupport(Executor executor, AsyncResponseStore store,
+      long timeToLive) {
+    return odata.createAsyncRequestSupport(executor, store, timeToLive);
+  }
+
+  @Override
+  public ODataMetrics getMetrics() {
+    return odata.getMetrics();
+  }
+
+  @Override
+  public ODataMetrics createMetrics() {
+    return odata.createMetrics();
+  }
 }
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
+
+/**
+ * Writes response content with non-blocking servlet output.
+ * <p>
+ * The content is serialized on an executor into a bounded buffer of chunks; serialization waits while the
+ * buffer is full. The buffer is drained only while the output stream is ready, so a slow client neither
+ * holds a container thread nor makes the complete content pile up in memory.
+ * </p>
+ */
+class AsyncResponseWriter implements WriteListener {
+
+  /** Maximum number of chunks serialized ahead of the client. */
+  static final int CAPACITY = 4;
+
+  private final AsyncContext asyncContext;
+  private final ServletOutputStream output;
+  private final MetricsCollector metrics = MetricsCollector.getInstance();
+  private final Queue<byte[]> chunks = new ArrayDeque<>(CAPACITY);
+  private boolean endOfContent;
+  private boolean waitingForContent;
+  private boolean finished;
+
+  AsyncResponseWriter(final AsyncContext asyncContext, final ServletOutputStream output) {
+    this.asyncContext = asyncContext;
+    this.output = output;
+  }
+
+  /**
+   * Serializes the content of the given response on the given executor.
+   * The writer must have been registered as write listener of the output stream.
+   * @param response the response with content
+   * @param executor the executor serializing the content
+   */
+  void start(final ODataResponse response, final Executor executor) {
+    start(response, executor, null, null, null);
+  }
+
+  /**
+   * Serializes the content of the given response on the given executor, compressing it while it is written.
+   * The writer must have been registered as write listener of the output stream.
+   * @param response the response with content
+   * @param executor the executor serializing the content
+   * @param compression the response compression, or <code>null</code> for uncompressed content
+   * @param contentEncoding the negotiated content coding
+   * @param listener gets informed whether the content is compressed before it is handed to the output stream
+   */
+  void start(final ODataResponse response, final Executor executor, final ResponseCompression compression,
+      final String contentEncoding, final ResponseCompression.Listener listener) {
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          final MetricsCollector previousMetrics = MetricsCollector.bind(metrics);
+          try {
+            final OutputStream buffer = new ChunkOutputStream();
+            produce(response, compression == null ? buffer : compression.compress(buffer, contentEncoding, listener));
+          } finally {
+            MetricsCollector.bind(previousMetrics);
+          }
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      abort();
+    }
+  }
+
+  private void produce(final ODataResponse response, final OutputStream buffer) {
+    try {
+      if (response.getContent() == null) {
+        response.getODataContent().write(buffer);
+      } else {
+        try (InputStream content = response.getContent()) {
+          final byte[] bytes = new byte[ODataHttpHandlerImpl.COPY_BUFFER_SIZE];
+          int read;
+          while ((read = content.read(bytes)) >= 0) {
+            buffer.write(bytes, 0, read);
+          }
+        }
+      }
+      buffer.close();
+    } catch (final IOException | RuntimeException e) {
+      abort();
+    }
+  }
+
+  @Override
+  public synchronized void onWritePossible() throws IOException {
+    while (!finished && output.isReady()) {
+      final byte[] chunk = chunks.poll();
+      if (chunk == null) {
+        if (endOfContent) {
+          finish();
+        } else {
+          // The serializing thread resumes writing as soon as there is content.
+          waitingForContent = true;
+        }
+        return;
+      }
+      notifyAll();
+      output.write(chunk);
+      metrics.addBytesWritten(chunk.length);
+    }
+  }
+
+  @Override
+  public void onError(final Throwable t) {
+    abort();
+  }
+
+  private synchronized void offer(final byte[] chunk) throws IOException {
+    while (chunks.size() >= CAPACITY && !finished) {
+      try {
+        wait();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+    }
+    if (finished) {
+      throw new IOException("The response has been closed.");
+    }
+    chunks.add(chunk);
+    resume();
+  }
+
+  private synchronized void end() throws IOException {
+    endOfContent = true;
+    resume();
+  }
+
+  private void resume() throws IOException {
+    if (waitingForContent) {
+      waitingForContent = false;
+      onWritePossible();
+    }
+  }
+
+  private synchronized void abort() {
+    if (!finished) {
+      finish();
+    }
+  }
+
+  private void finish() {
+    finished = true;
+    chunks.clear();
+    notifyAll();
+    asyncContext.complete();
+  }
+
+  /** Collects the written content into chunks for the buffer. */
+  private class ChunkOutputStream extends OutputStream {
+
+    private byte[] chunk = new byte[ODataHttpHandlerImpl.COPY_BUFFER_SIZE];
+    private int count;
+    private boolean closed;
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      int position = offset;
+      int remaining = length;
+      while (remaining > 0) {
+        final int copied = Math.min(remaining, chunk.length - count);
+        System.arraycopy(bytes, position, chunk, count, copied);
+        count += copied;
+        position += copied;
+        remaining -= copied;
+        if (count == chunk.length) {
+          flush();
+        }
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (count > 0) {
+        final byte[] full = count == chunk.length ? chunk : Arrays.copyOf(chunk, count);
+        chunk = new byte[ODataHttpHandlerImpl.COPY_BUFFER_SIZE];
+        count = 0;
+        offer(full);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        flush();
+        end();
+      }
+    }
+  }
+}
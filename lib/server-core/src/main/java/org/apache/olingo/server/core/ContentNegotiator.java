@@ -31,9 +31,11 @@ import org.apache.olingo.commons.api.format.AcceptType;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.metrics.RequestPhase;
 import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 import org.apache.olingo.server.api.serializer.RepresentationType;
 import org.apache.olingo.server.api.uri.queryoption.FormatOption;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
 
 public final class ContentNegotiator {
 
@@ -91,6 +93,17 @@ public final class ContentNegotiator {
   public static ContentType doContentNegotiation(final FormatOption formatOption, final ODataRequest request,
       final CustomContentTypeSupport customContentTypeSupport, final RepresentationType representationType)
           throws ContentNegotiatorException {
+    final long metricsStart = MetricsCollector.getInstance().start();
+    try {
+      return negotiate(formatOption, request, customContentTypeSupport, representationType);
+    } finally {
+      MetricsCollector.getInstance().stop(RequestPhase.CONTENT_NEGOTIATION, metricsStart);
+    }
+  }
+
+  private static ContentType negotiate(final FormatOption formatOption, final ODataRequest request,
+      final CustomContentTypeSupport customContentTypeSupport, final RepresentationType representationType)
+          throws ContentNegotiatorException {
     final List<ContentType> supportedContentTypes =
         getSupportedContentTypes(customContentTypeSupport, representationType);
     final List<String> acceptHeaderValueList = request.getHeaders(HttpHeader.ACCEPT);
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import org.apache.olingo.commons.api.data.EntityMediaObject;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+
+/**
+ * Serves a byte range of media content as requested with the <code>Range</code> header.
+ * <p>
+ * Only media content of known length is supported; responses carrying such content get the
+ * <code>Accept-Ranges</code> header. A satisfiable range is answered with <code>206 Partial Content</code>
+ * and an unsatisfiable one with <code>416 Range Not Satisfiable</code>.
+ * </p>
+ * Multiple ranges, invalid range headers, and an <code>If-Range</code> header which does not match the
+ * strong entity tag or the modification date of the response lead to the complete content, as permitted by
+ * RFC 7233.
+ */
+final class MediaRange {
+
+  private static final String BYTES_UNIT = "bytes";
+
+  private MediaRange() {
+    // static helper
+  }
+
+  /**
+   * Restricts the media content of the response to the range requested by the request.
+   * @param request the OData request
+   * @param response the response as filled by the processor
+   */
+  static void apply(final ODataRequest request, final ODataResponse response) {
+    if (response.getStatusCode() != HttpStatusCode.OK.getStatusCode() || response.getCompletion() != null
+        || !(response.getODataContent() instanceof ODataWritableContent)) {
+      return;
+    }
+    final ODataWritableContent content = (ODataWritableContent) response.getODataContent();
+    final EntityMediaObject mediaEntity = content.getMediaEntity();
+    if (mediaEntity == null || mediaEntity.getLength() < 0) {
+      return;
+    }
+    response.setHeader(HttpHeader.ACCEPT_RANGES, BYTES_UNIT);
+
+    final String range = request.getHeader(HttpHeader.RANGE);
+    if (range == null || !matchesIfRange(request.getHeader(HttpHeader.IF_RANGE), response)) {
+      return;
+    }
+    final long length = mediaEntity.getLength();
+    final long[] bounds = parse(range, length);
+    if (bounds == null) {
+      return;
+    }
+    if (bounds.length == 0) {
+      response.setStatusCode(HttpStatusCode.RANGE_NOT_SATISFIABLE.getStatusCode());
+      response.setHeader(HttpHeader.CONTENT_RANGE, BYTES_UNIT + " */" + length);
+      response.setHeader(HttpHeader.CONTENT_LENGTH, "0");
+      // the empty range just releases the underlying stream or channel
+      response.setODataContent(content.range(0, 0));
+    } else {
+      final long count = bounds[1] - bounds[0] + 1;
+      response.setStatusCode(HttpStatusCode.PARTIAL_CONTENT.getStatusCode());
+      response.setHeader(HttpHeader.CONTENT_RANGE, BYTES_UNIT + ' ' + bounds[0] + '-' + bounds[1] + '/' + length);
+      response.setHeader(HttpHeader.CONTENT_LENGTH, Long.toString(count));
+      response.setODataContent(content.range(bounds[0], count));
+    }
+  }
+
+  private static boolean matchesIfRange(final String ifRange, final ODataResponse response) {
+    if (ifRange == null) {
+      return true;
+    }
+    final String value = ifRange.trim();
+    if (value.startsWith("\"")) {
+      return value.equals(response.getHeader(HttpHeader.ETAG));
+    }
+    return !value.startsWith("W/") && value.equals(response.getHeader(HttpHeader.LAST_MODIFIED));
+  }
+
+  /**
+   * Parses a single byte range.
+   * @return first and last byte position, an empty array for an unsatisfiable range,
+   * or <code>null</code> if the range has to be ignored
+   */
+  static long[] parse(final String range, final long length) {
+    final String value = range.trim();
+    if (!value.regionMatches(true, 0, BYTES_UNIT + '=', 0, BYTES_UNIT.length() + 1)) {
+      return null;
+    }
+    final String spec = value.substring(BYTES_UNIT.length() + 1).trim();
+    final int dash = spec.indexOf('-');
+    if (dash < 0 || spec.indexOf(',') >= 0) {
+      return null;
+    }
+    final String firstPosition = spec.substring(0, dash).trim();
+    final String lastPosition = spec.substring(dash + 1).trim();
+    try {
+      final long first;
+      long last;
+      if (firstPosition.isEmpty()) {
+        final long suffixLength = lastPosition.isEmpty() ? -1 : Long.parseLong(lastPosition);
+        if (suffixLength < 0) {
+          return null;
+        }
+        first = Math.max(0, length - suffixLength);
+        last = suffixLength == 0 ? -1 : length - 1;
+      } else {
+        first = Long.parseLong(firstPosition);
+        last = lastPosition.isEmpty() ? Long.MAX_VALUE : Long.parseLong(lastPosition);
+        if (first < 0 || last < first) {
+          return null;
+        }
+        last = Math.min(last, length - 1);
+      }
+      return first >= length || last < first ? new long[0] : new long[] { first, last };
+    } catch (final NumberFormatException e) {
+      return null;
+    }
+  }
+}
@@ -64,6 +64,7 @@ import org.apache.olingo.server.api.processor.ReferenceProcessor;
 import org.apache.olingo.server.api.processor.ServiceDocumentProcessor;
 import org.apache.olingo.server.api.serializer.RepresentationType;
 import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriInfoKind;
 import org.apache.olingo.server.api.uri.UriResource;
 import org.apache.olingo.server.api.uri.UriResourceAction;
 import org.apache.olingo.server.api.uri.UriResourceEntitySet;
@@ -75,6 +76,7 @@ import org.apache.olingo.server.api.uri.UriResourceProperty;
 import org.apache.olingo.server.api.uri.UriResourceSingleton;
 import org.apache.olingo.server.core.batchhandler.BatchHandler;
 import org.apache.olingo.server.core.etag.PreconditionsValidator;
+import org.apache.olingo.server.core.etag.ProvidedETagValidator;
 
 public class ODataDispatcher {
 
@@ -97,31 +99,35 @@ public class ODataDispatcher {
       checkMethods(request.getMethod(), HttpMethod.GET, HttpMethod.HEAD);
       final ContentType requestedContentType = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), RepresentationType.METADATA);
-      handler.selectProcessor(MetadataProcessor.class)
+      handler.selectProcessor(MetadataProcessor.class, request)
           .readMetadata(request, response, uriInfo, requestedContentType);
       break;
 
     case service:
       checkMethods(request.getMethod(), HttpMethod.GET, HttpMethod.HEAD);
       if ("".equals(request.getRawODataPath())) {
-        handler.selectProcessor(RedirectProcessor.class)
+        handler.selectProcessor(RedirectProcessor.class, request)
             .redirect(request, response);
       } else {
         final ContentType serviceContentType = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
             request, handler.getCustomContentTypeSupport(), RepresentationType.SERVICE);
-        handler.selectProcessor(ServiceDocumentProcessor.class)
+        handler.selectProcessor(ServiceDocumentProcessor.class, request)
             .readServiceDocument(request, response, uriInfo, serviceContentType);
       }
       break;
 
     case resource:
     case entityId:
+      if (uriInfo.getKind() == UriInfoKind.resource && handler.getETagProvider() != null
+          && new ProvidedETagValidator(uriInfo).validate(handler.getETagProvider(), request, response)) {
+        break;
+      }
       handleResourceDispatching(request, response);
       break;
 
     case batch:
       checkMethod(request.getMethod(), HttpMethod.POST);
-      new BatchHandler(handler, handler.selectProcessor(BatchProcessor.class))
+      new BatchHandler(handler, handler.selectProcessor(BatchProcessor.class, request))
           .process(request, response, true);
       break;
 
@@ -223,7 +229,7 @@ public class ODataDispatcher {
         RepresentationType.ACTION_PARAMETERS, false);
     final EdmReturnType returnType = action.getReturnType();
     if (returnType == null) {
-      handler.selectProcessor(ActionVoidProcessor.class)
+      handler.selectProcessor(ActionVoidProcessor.class, request)
           .processActionVoid(request, response, uriInfo, requestFormat);
     } else {
       final boolean isCollection = returnType.isCollection();
@@ -234,10 +240,10 @@ public class ODataDispatcher {
             request, handler.getCustomContentTypeSupport(),
             isCollection ? RepresentationType.COLLECTION_ENTITY : RepresentationType.ENTITY);
         if (isCollection) {
-          handler.selectProcessor(ActionEntityCollectionProcessor.class)
+          handler.selectProcessor(ActionEntityCollectionProcessor.class, request)
               .processActionEntityCollection(request, response, uriInfo, requestFormat, responseFormat);
         } else {
-          handler.selectProcessor(ActionEntityProcessor.class)
+          handler.selectProcessor(ActionEntityProcessor.class, request)
               .processActionEntity(request, response, uriInfo, requestFormat, responseFormat);
         }
         break;
@@ -247,10 +253,10 @@ public class ODataDispatcher {
             request, handler.getCustomContentTypeSupport(),
             isCollection ? RepresentationType.COLLECTION_PRIMITIVE : RepresentationType.PRIMITIVE);
         if (isCollection) {
-          handler.selectProcessor(ActionPrimitiveCollectionProcessor.class)
+          handler.selectProcessor(ActionPrimitiveCollectionProcessor.class, request)
               .processActionPrimitiveCollection(request, response, uriInfo, requestFormat, responseFormat);
         } else {
-          handler.selectProcessor(ActionPrimitiveProcessor.class)
+          handler.selectProcessor(ActionPrimitiveProcessor.class, request)
               .processActionPrimitive(request, response, uriInfo, requestFormat, responseFormat);
         }
         break;
@@ -260,10 +266,10 @@ public class ODataDispatcher {
             request, handler.getCustomContentTypeSupport(),
             isCollection ? RepresentationType.COLLECTION_COMPLEX : RepresentationType.COMPLEX);
         if (isCollection) {
-          handler.selectProcessor(ActionComplexCollectionProcessor.class)
+          handler.selectProcessor(ActionComplexCollectionProcessor.class, request)
               .processActionComplexCollection(request, response, uriInfo, requestFormat, responseFormat);
         } else {
-          handler.selectProcessor(ActionComplexProcessor.class)
+          handler.selectProcessor(ActionComplexProcessor.class, request)
               .processActionComplex(request, response, uriInfo, requestFormat, responseFormat);
         }
         break;
@@ -286,30 +292,31 @@ public class ODataDispatcher {
       validatePreferHeader(request);
       final ContentType responseFormat = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), RepresentationType.COLLECTION_REFERENCE);
-      handler.selectProcessor(ReferenceCollectionProcessor.class)
+      handler.selectProcessor(ReferenceCollectionProcessor.class, request)
           .readReferenceCollection(request, response, uriInfo, responseFormat);
 
     } else if (isCollection && httpMethod == HttpMethod.POST) {
       final ContentType requestFormat = getSupportedContentType(request.getHeader(HttpHeader.CONTENT_TYPE),
           RepresentationType.REFERENCE, true);
-      handler.selectProcessor(ReferenceProcessor.class)
+      handler.selectProcessor(ReferenceProcessor.class, request)
           .createReference(request, response, uriInfo, requestFormat);
 
     } else if (!isCollection && httpMethod == HttpMethod.GET) {
       validatePreferHeader(request);
       final ContentType responseFormat = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), RepresentationType.REFERENCE);
-      handler.selectProcessor(ReferenceProcessor.class).readReference(request, response, uriInfo, responseFormat);
+      handler.selectProcessor(ReferenceProcessor.class, request)
+          .readReference(request, response, uriInfo, responseFormat);
 
     } else if (!isCollection && (httpMethod == HttpMethod.PUT || httpMethod == HttpMethod.PATCH)) {
       final ContentType requestFormat = getSupportedContentType(request.getHeader(HttpHeader.CONTENT_TYPE),
           RepresentationType.REFERENCE, true);
-      handler.selectProcessor(ReferenceProcessor.class)
+      handler.selectProcessor(ReferenceProcessor.class, request)
           .updateReference(request, response, uriInfo, requestFormat);
 
     } else if (httpMethod == HttpMethod.DELETE) {
       validatePreferHeader(request);
-      handler.selectProcessor(ReferenceProcessor.class)
+      handler.selectProcessor(ReferenceProcessor.class, request)
           .deleteReference(request, response, uriInfo);
 
     } else {
@@ -341,8 +348,9 @@ public class ODataDispatcher {
       final ContentType requestedContentType = ContentNegotiator.
           doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), RepresentationType.MEDIA);
-      handler.selectProcessor(MediaEntityProcessor.class)
+      handler.selectProcessor(MediaEntityProcessor.class, request)
           .readMediaEntity(request, response, uriInfo, requestedContentType);
+      MediaRange.apply(request, response);
       // PUT and DELETE can only be called on EntitySets or Navigation properties which are media resources
     } else if (method == HttpMethod.PUT && (isEntityOrNavigationMedia(resource) 
         || isSingletonMedia(resource))) {
@@ -350,11 +358,11 @@ public class ODataDispatcher {
       final ContentType requestFormat = ContentType.parse(request.getHeader(HttpHeader.CONTENT_TYPE));
       final ContentType responseFormat = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), RepresentationType.ENTITY);
-      handler.selectProcessor(MediaEntityProcessor.class)
+      handler.selectProcessor(MediaEntityProcessor.class, request)
           .updateMediaEntity(request, response, uriInfo, requestFormat, responseFormat);
     } else if (method == HttpMethod.DELETE && isEntityOrNavigationMedia(resource)) {
       validatePreconditions(request, true);
-      handler.selectProcessor(MediaEntityProcessor.class)
+      handler.selectProcessor(MediaEntityProcessor.class, request)
           .deleteMediaEntity(request, response, uriInfo);
     } else {
       throwMethodNotAllowed(method);
@@ -377,20 +385,21 @@ public class ODataDispatcher {
           doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), valueRepresentationType);
 
-      handler.selectProcessor(PrimitiveValueProcessor.class)
+      handler.selectProcessor(PrimitiveValueProcessor.class, request)
           .readPrimitiveValue(request, response, uriInfo, requestedContentType);
+      MediaRange.apply(request, response);
     } else if (method == HttpMethod.PUT && resource instanceof UriResourceProperty) {
       validatePreconditions(request, false);
       final ContentType requestFormat = getSupportedContentType(request.getHeader(HttpHeader.CONTENT_TYPE),
           valueRepresentationType, true);
       final ContentType responseFormat = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), valueRepresentationType);
-      handler.selectProcessor(PrimitiveValueProcessor.class)
+      handler.selectProcessor(PrimitiveValueProcessor.class, request)
           .updatePrimitiveValue(request, response, uriInfo, requestFormat, responseFormat);
     } else if (method == HttpMethod.DELETE && resource instanceof UriResourceProperty) {
       validatePreferHeader(request);
       validatePreconditions(request, false);
-      handler.selectProcessor(PrimitiveValueProcessor.class)
+      handler.selectProcessor(PrimitiveValueProcessor.class, request)
           .deletePrimitiveValue(request, response, uriInfo);
     } else {
       throwMethodNotAllowed(method);
@@ -407,10 +416,10 @@ public class ODataDispatcher {
       final ContentType requestedContentType = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), complexRepresentationType);
       if (isCollection) {
-        handler.selectProcessor(ComplexCollectionProcessor.class)
+        handler.selectProcessor(ComplexCollectionProcessor.class, request)
             .readComplexCollection(request, response, uriInfo, requestedContentType);
       } else {
-        handler.selectProcessor(ComplexProcessor.class)
+        handler.selectProcessor(ComplexProcessor.class, request)
             .readComplex(request, response, uriInfo, requestedContentType);
       }
     } else if (method == HttpMethod.PUT || method == HttpMethod.PATCH ||
@@ -421,20 +430,20 @@ public class ODataDispatcher {
       final ContentType responseFormat = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), complexRepresentationType);
       if (isCollection) {
-        handler.selectProcessor(ComplexCollectionProcessor.class)
+        handler.selectProcessor(ComplexCollectionProcessor.class, request)
             .updateComplexCollection(request, response, uriInfo, requestFormat, responseFormat);
       } else {
-        handler.selectProcessor(ComplexProcessor.class)
+        handler.selectProcessor(ComplexProcessor.class, request)
             .updateComplex(request, response, uriInfo, requestFormat, responseFormat);
       }
     } else if (method == HttpMethod.DELETE) {
       validatePreferHeader(request);
       validatePreconditions(request, false);
       if (isCollection) {
-        handler.selectProcessor(ComplexCollectionProcessor.class)
+        handler.selectProcessor(ComplexCollectionProcessor.class, request)
             .deleteComplexCollection(request, response, uriInfo);
       } else {
-        handler.selectProcessor(ComplexProcessor.class)
+        handler.selectProcessor(ComplexProcessor.class, request)
             .deleteComplex(request, response, uriInfo);
       }
     } else {
@@ -452,11 +461,12 @@ public class ODataDispatcher {
       final ContentType requestedContentType = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), representationType);
       if (isCollection) {
-        handler.selectProcessor(PrimitiveCollectionProcessor.class)
+        handler.selectProcessor(PrimitiveCollectionProcessor.class, request)
             .readPrimitiveCollection(request, response, uriInfo, requestedContentType);
       } else {
-        handler.selectProcessor(PrimitiveProcessor.class)
+        handler.selectProcessor(PrimitiveProcessor.class, request)
             .readPrimitive(request, response, uriInfo, requestedContentType);
+        MediaRange.apply(request, response);
       }
     } else if (method == HttpMethod.PUT || method == HttpMethod.PATCH ||
           ((method == HttpMethod.POST) && isCollection)) {
@@ -475,20 +485,20 @@ public class ODataDispatcher {
       final ContentType responseFormat = ContentNegotiator.doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), representationType);
       if (isCollection) {
-        handler.selectProcessor(PrimitiveCollectionProcessor.class)
+        handler.selectProcessor(PrimitiveCollectionProcessor.class, request)
             .updatePrimitiveCollection(request, response, uriInfo, requestFormat, responseFormat);
       } else {
-        handler.selectProcessor(PrimitiveProcessor.class)
+        handler.selectProcessor(PrimitiveProcessor.class, request)
             .updatePrimitive(request, response, uriInfo, requestFormat, responseFormat);
       }
     } else if (method == HttpMethod.DELETE) {
       validatePreferHeader(request);
       validatePreconditions(request, false);
       if (isCollection) {
-        handler.selectProcessor(PrimitiveCollectionProcessor.class)
+        handler.selectProcessor(PrimitiveCollectionProcessor.class, request)
             .deletePrimitiveCollection(request, response, uriInfo);
       } else {
-        handler.selectProcessor(PrimitiveProcessor.class)
+        handler.selectProcessor(PrimitiveProcessor.class, request)
             .deletePrimitive(request, response, uriInfo);
       }
     } else {
@@ -504,15 +514,15 @@ public class ODataDispatcher {
         || resource instanceof UriResourceNavigation
         || resource instanceof UriResourceFunction
             && ((UriResourceFunction) resource).getType().getKind() == EdmTypeKind.ENTITY) {
-      handler.selectProcessor(CountEntityCollectionProcessor.class)
+      handler.selectProcessor(CountEntityCollectionProcessor.class, request)
           .countEntityCollection(request, response, uriInfo);
     } else if (resource instanceof UriResourcePrimitiveProperty
         || resource instanceof UriResourceFunction
             && ((UriResourceFunction) resource).getType().getKind() == EdmTypeKind.PRIMITIVE) {
-      handler.selectProcessor(CountPrimitiveCollectionProcessor.class)
+      handler.selectProcessor(CountPrimitiveCollectionProcessor.class, request)
           .countPrimitiveCollection(request, response, uriInfo);
     } else {
-      handler.selectProcessor(CountComplexCollectionProcessor.class)
+      handler.selectProcessor(CountComplexCollectionProcessor.class, request)
           .countComplexCollection(request, response, uriInfo);
     }
   }
@@ -537,7 +547,7 @@ public class ODataDispatcher {
       final ContentType requestedContentType = ContentNegotiator.
           doContentNegotiation(uriInfo.getFormatOption(),
           request, handler.getCustomContentTypeSupport(), RepresentationType.COLLECTION_ENTITY);
-      handler.selectProcessor(EntityCollectionProcessor.class)
+      handler.selectProcessor(EntityCollectionProcessor.class, request)
           .readEntityCollection(request, response, uriInfo, requestedContentType);
     } else if (method == HttpMethod.POST) {
       final ContentType responseFormat = ContentNegotiator.
@@ -547,7 +557,7 @@ public class ODataDispatcher {
         validatePreferHeader(request);
         final ContentType requestFormat = ContentType.parse(
             request.getHeader(HttpHeader.CONTENT_TYPE));
-        handler.selectProcessor(MediaEntityProcessor.class)
+        handler.selectProcessor(MediaEntityProcessor.class, request)
             .createMediaEntity(request, response, uriInfo, requestFormat, responseFormat);
       } else {
         try {
@@ -558,7 +568,7 @@ public class ODataDispatcher {
             RepresentationType.ENTITY, false) : getSupportedContentType(
                 request.getHeader(HttpHeader.CONTENT_TYPE),
                 RepresentationType.ENTITY, true);
-            handler.selectProcessor(EntityProcessor.class)
+            handler.selectProcessor(EntityProcessor.class, request)
             .createEntity(request, response, uriInfo, requestFormat, responseFormat);
         } catch (IOException e) {
           throw new ODataHandlerException("There is problem in the payload.",
@@ -576,7 +586,7 @@ public class ODataDispatcher {
           final ContentType responseFormat = ContentNegotiator.
               doContentNegotiation(uriInfo.getFormatOption(),
               request, handler.getCustomContentTypeSupport(), RepresentationType.ENTITY);
-          handler.selectProcessor(EntityProcessor.class)
+          handler.selectProcessor(EntityProcessor.class, request)
               .updateEntity(request, response, uriInfo, requestFormat, responseFormat);
         } else {
       throwMethodNotAllowed(method);
@@ -617,7 +627,7 @@ public class ODataDispatcher {
         final ContentType requestedContentType = ContentNegotiator.
             doContentNegotiation(uriInfo.getFormatOption(),
             request, handler.getCustomContentTypeSupport(), RepresentationType.ENTITY);
-        handler.selectProcessor(EntityProcessor.class)
+        handler.selectProcessor(EntityProcessor.class, request)
             .readEntity(request, response, uriInfo, requestedContentType);
       } else if (method == HttpMethod.PUT || method == HttpMethod.PATCH) {
         if (isMedia) {
@@ -630,17 +640,17 @@ public class ODataDispatcher {
         final ContentType responseFormat = ContentNegotiator.
             doContentNegotiation(uriInfo.getFormatOption(),
             request, handler.getCustomContentTypeSupport(), RepresentationType.ENTITY);
-        handler.selectProcessor(EntityProcessor.class)
+        handler.selectProcessor(EntityProcessor.class, request)
             .updateEntity(request, response, uriInfo, requestFormat, responseFormat);
       } else if (method == HttpMethod.DELETE && !isSingleton) {
         validateIsSingleton(method);
         validatePreconditions(request, false);
         validatePreferHeader(request);
         if (isMedia) {
-          ((MediaEntityProcessor) handler.selectProcessor(MediaEntityProcessor.class))
+          ((MediaEntityProcessor) handler.selectProcessor(MediaEntityProcessor.class, request))
           .deleteEntity(request, response, uriInfo);
           } else {
-          ((EntityProcessor) handler.selectProcessor(EntityProcessor.class))
+          ((EntityProcessor) handler.selectProcessor(EntityProcessor.class, request))
           .deleteEntity(request, response, uriInfo);
         }
       } else {
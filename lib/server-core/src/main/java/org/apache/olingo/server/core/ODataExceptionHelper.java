@@ -106,6 +106,8 @@ public class ODataExceptionHelper {
       serverError.setStatusCode(HttpStatusCode.BAD_REQUEST.getStatusCode());
     } else if (ODataHandlerException.MessageKeys.HTTP_METHOD_NOT_ALLOWED.equals(e.getMessageKey())) {
       serverError.setStatusCode(HttpStatusCode.METHOD_NOT_ALLOWED.getStatusCode());
+    } else if (ODataHandlerException.MessageKeys.PAYLOAD_TOO_LARGE.equals(e.getMessageKey())) {
+      serverError.setStatusCode(HttpStatusCode.PAYLOAD_TOO_LARGE.getStatusCode());
     }
 
     return serverError;
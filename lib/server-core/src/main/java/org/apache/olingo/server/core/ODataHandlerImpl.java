@@ -18,8 +18,13 @@
  */
 package org.apache.olingo.server.core;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.olingo.commons.api.edm.constants.ODataServiceVersion;
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
@@ -37,17 +42,23 @@ import org.apache.olingo.server.api.OlingoExtension;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
+import org.apache.olingo.server.api.etag.ETagProvider;
 import org.apache.olingo.server.api.etag.PreconditionException;
+import org.apache.olingo.server.api.metrics.RequestPhase;
+import org.apache.olingo.server.api.prefer.Preferences;
 import org.apache.olingo.server.api.processor.DefaultProcessor;
 import org.apache.olingo.server.api.processor.ErrorProcessor;
 import org.apache.olingo.server.api.processor.Processor;
+import org.apache.olingo.server.api.processor.RequestScopedProcessor;
 import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 import org.apache.olingo.server.api.serializer.RepresentationType;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.api.uri.queryoption.FormatOption;
 import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
+import org.apache.olingo.server.core.async.AsyncRequestEngine;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
 import org.apache.olingo.server.core.uri.parser.Parser;
 import org.apache.olingo.server.core.uri.parser.UriParserException;
 import org.apache.olingo.server.core.uri.parser.UriParserSemanticException;
@@ -64,11 +75,17 @@ public class ODataHandlerImpl implements ODataHandler {
 
   private final OData odata;
   private final ServiceMetadata serviceMetadata;
-  private final List<Processor> processors = new LinkedList<>();
+  /** Maps each processor type to the processor registered last for it. */
+  private final Map<Class<?>, Processor> processors = new ConcurrentHashMap<>();
+  private final Set<Processor> initializedProcessors =
+      Collections.newSetFromMap(new ConcurrentHashMap<Processor, Boolean>());
   private final ServerCoreDebugger debugger;
 
   private CustomContentTypeSupport customContentTypeSupport;
   private CustomETagSupport customETagSupport;
+  private ETagProvider eTagProvider;
+  private AsyncRequestEngine asyncRequestEngine;
+  private MetricsCollector metrics;
 
   private UriInfo uriInfo;
   private Exception lastThrownException;
@@ -79,11 +96,57 @@ public class ODataHandlerImpl implements ODataHandler {
     this.debugger = debugger;
 
     register(new DefaultRedirectProcessor());
-    register(new DefaultProcessor());
+    register(new DefaultProcessor(serviceMetadata instanceof ServiceMetadataImpl ?
+        ((ServiceMetadataImpl) serviceMetadata).getDocumentCache() :
+        null));
+  }
+
+  /**
+   * Creates a handler for processing a request in the background,
+   * with the processors and extensions of the given handler.
+   */
+  private ODataHandlerImpl(final ODataHandlerImpl handler) {
+    odata = handler.odata;
+    serviceMetadata = handler.serviceMetadata;
+    debugger = new ServerCoreDebugger(odata);
+    processors.putAll(handler.processors);
+    initializedProcessors.addAll(handler.initializedProcessors);
+    customContentTypeSupport = handler.customContentTypeSupport;
+    customETagSupport = handler.customETagSupport;
+    eTagProvider = handler.eTagProvider;
+    metrics = handler.metrics;
   }
 
   public ODataResponse process(final ODataRequest request) {
+    final MetricsCollector previousMetrics = MetricsCollector.bind(metrics);
+    try {
+      final long metricsStart = MetricsCollector.getInstance().start();
+      ODataResponse response = processDeferred(request);
+      if (response.getCompletion() != null) {
+        try {
+          response.getCompletion().toCompletableFuture().get();
+        } catch (final ExecutionException e) {
+          response = handleCompletionFailure(request, e.getCause());
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+          response = handleCompletionFailure(request, e);
+        }
+      }
+      MetricsCollector.getInstance().requestProcessed(response.getStatusCode(), metricsStart);
+      return response;
+    } finally {
+      MetricsCollector.bind(previousMetrics);
+    }
+  }
+
+  /**
+   * Processes the request without waiting for a response completed asynchronously by the processor.
+   * @param request the OData request
+   * @return the response; it is complete only after its {@link ODataResponse#getCompletion() completion}
+   */
+  public ODataResponse processDeferred(final ODataRequest request) {
     ODataResponse response = new ODataResponse();
+    final MetricsCollector previousMetrics = MetricsCollector.bind(metrics);
     final int responseHandle = debugger.startRuntimeMeasurement("ODataHandler", "process");
     try {
       processInternal(request, response);
@@ -123,11 +186,36 @@ public class ODataHandlerImpl implements ODataHandler {
     } catch (Exception e) {
       ODataServerError serverError = ODataExceptionHelper.createServerErrorObject(e);
       handleException(request, response, serverError, e);
+    } finally {
+      MetricsCollector.bind(previousMetrics);
     }
     debugger.stopRuntimeMeasurement(responseHandle);
     return response;
   }
 
+  /**
+   * Creates the error response for a response which has been completed exceptionally.
+   * @param request the OData request
+   * @param failure the cause of the failed completion
+   * @return the error response
+   */
+  public ODataResponse handleCompletionFailure(final ODataRequest request, final Throwable failure) {
+    final Throwable cause = failure instanceof CompletionException && failure.getCause() != null ?
+        failure.getCause() : failure;
+    final Exception exception = cause instanceof Exception ? (Exception) cause : new ExecutionException(cause);
+    final ODataServerError serverError;
+    if (exception instanceof ODataLibraryException) {
+      serverError = ODataExceptionHelper.createServerErrorObject((ODataLibraryException) exception, null);
+    } else if (exception instanceof ODataApplicationException) {
+      serverError = ODataExceptionHelper.createServerErrorObject((ODataApplicationException) exception);
+    } else {
+      serverError = ODataExceptionHelper.createServerErrorObject(exception);
+    }
+    final ODataResponse response = new ODataResponse();
+    handleException(request, response, serverError, exception);
+    return response;
+  }
+
   private void processInternal(final ODataRequest request, final ODataResponse response)
       throws ODataApplicationException, ODataLibraryException {
     final int measurementHandle = debugger.startRuntimeMeasurement("ODataHandler", "processInternal");
@@ -141,7 +229,18 @@ public class ODataHandlerImpl implements ODataHandler {
       throw e;
     }
 
+    if (asyncRequestEngine != null && asyncRequestEngine.isStatusMonitorRequest(request)) {
+      try {
+        asyncRequestEngine.handleStatusMonitorRequest(request, response);
+      } finally {
+        debugger.stopRuntimeMeasurement(measurementHandle);
+      }
+      return;
+    }
+
+    final MetricsCollector metrics = MetricsCollector.getInstance();
     final int measurementUriParser = debugger.startRuntimeMeasurement("Parser", "parseUri");
+    long metricsStart = metrics.start();
     try {
       uriInfo = new Parser(serviceMetadata.getEdm(), odata)
           .parseUri(request.getRawODataPath(), request.getRawQueryPath(), null, request.getRawBaseUri());
@@ -149,10 +248,13 @@ public class ODataHandlerImpl implements ODataHandler {
       debugger.stopRuntimeMeasurement(measurementUriParser);
       debugger.stopRuntimeMeasurement(measurementHandle);
       throw e;
+    } finally {
+      metrics.stop(RequestPhase.URI_PARSING, metricsStart);
     }
     debugger.stopRuntimeMeasurement(measurementUriParser);
 
     final int measurementUriValidator = debugger.startRuntimeMeasurement("UriValidator", "validate");
+    metricsStart = metrics.start();
     final HttpMethod method = request.getMethod();
     try {
       new UriValidator().validate(uriInfo, method);
@@ -160,25 +262,54 @@ public class ODataHandlerImpl implements ODataHandler {
       debugger.stopRuntimeMeasurement(measurementUriValidator);
       debugger.stopRuntimeMeasurement(measurementHandle);
       throw e;
+    } finally {
+      metrics.stop(RequestPhase.URI_VALIDATION, metricsStart);
     }
     debugger.stopRuntimeMeasurement(measurementUriValidator);
 
+    if (asyncRequestEngine != null && processAsynchronously(request, response)) {
+      debugger.stopRuntimeMeasurement(measurementHandle);
+      return;
+    }
+
     final int measurementDispatcher = debugger.startRuntimeMeasurement("ODataDispatcher", "dispatch");
+    metricsStart = metrics.start();
     try {
       new ODataDispatcher(uriInfo, this).dispatch(request, response);
     } finally {
+      metrics.stop(RequestPhase.DISPATCH, metricsStart);
       debugger.stopRuntimeMeasurement(measurementDispatcher);
       debugger.stopRuntimeMeasurement(measurementHandle);
     }
   }
 
+  private boolean processAsynchronously(final ODataRequest request, final ODataResponse response)
+      throws ODataHandlerException {
+    final Preferences preferences = odata.createPreferences(request.getHeaders(HttpHeader.PREFER));
+    if (!preferences.hasRespondAsync()) {
+      return false;
+    }
+    // The original request may be finished before the background processing reads the body.
+    if (request.getBody() != null) {
+      request.setBody(asyncRequestEngine.bufferBody(request.getBody()));
+    }
+    final ODataHandlerImpl handler = new ODataHandlerImpl(this);
+    return asyncRequestEngine.submit(request, response, new Callable<ODataResponse>() {
+      @Override
+      public ODataResponse call() {
+        return handler.process(request);
+      }
+    }, preferences.getWait());
+  }
+
   public void handleException(final ODataRequest request, final ODataResponse response,
       final ODataServerError serverError, final Exception exception) {
     final int measurementHandle = debugger.startRuntimeMeasurement("ODataHandler", "handleException");
+    final long metricsStart = MetricsCollector.getInstance().start();
     lastThrownException = exception;
     ErrorProcessor exceptionProcessor;
     try {
-      exceptionProcessor = selectProcessor(ErrorProcessor.class);
+      exceptionProcessor = selectProcessor(ErrorProcessor.class, request);
     } catch (ODataHandlerException e) {
       // This cannot happen since there is always an ExceptionProcessor registered.
       exceptionProcessor = new DefaultProcessor();
@@ -196,6 +327,7 @@ public class ODataHandlerImpl implements ODataHandler {
     final int measurementError = debugger.startRuntimeMeasurement("ErrorProcessor", "processError");
     exceptionProcessor.processError(request, response, serverError, requestedContentType);
     debugger.stopRuntimeMeasurement(measurementError);
+    MetricsCollector.getInstance().stop(RequestPhase.ERROR_HANDLING, metricsStart);
     debugger.stopRuntimeMeasurement(measurementHandle);
   }
 
@@ -244,19 +376,49 @@ public class ODataHandlerImpl implements ODataHandler {
       }
   }
 
-  <T extends Processor> T selectProcessor(final Class<T> cls) throws ODataHandlerException {
-    for (final Processor processor : processors) {
-      if (cls.isAssignableFrom(processor.getClass())) {
-        processor.init(odata, serviceMetadata);
-        return cls.cast(processor);
+  <T extends Processor> T selectProcessor(final Class<T> cls, final ODataRequest request)
+      throws ODataHandlerException {
+    final Processor processor = processors.get(cls);
+    if (processor == null) {
+      throw new ODataHandlerException("Processor: " + cls.getSimpleName() + " not registered.",
+          ODataHandlerException.MessageKeys.PROCESSOR_NOT_IMPLEMENTED, cls.getSimpleName());
+    }
+    initProcessor(processor);
+    if (processor instanceof RequestScopedProcessor) {
+      ((RequestScopedProcessor) processor).initRequest(request);
+    }
+    return cls.cast(processor);
+  }
+
+  /**
+   * Initializes the processor unless this has already been done successfully.
+   * The processor is recorded as initialized only after its initialization has returned,
+   * so concurrent requests never see a processor whose initialization is still running or has failed.
+   */
+  private void initProcessor(final Processor processor) {
+    if (!initializedProcessors.contains(processor)) {
+      synchronized (processor) {
+        if (!initializedProcessors.contains(processor)) {
+          processor.init(odata, serviceMetadata);
+          initializedProcessors.add(processor);
+        }
       }
     }
-    throw new ODataHandlerException("Processor: " + cls.getSimpleName() + " not registered.",
-        ODataHandlerException.MessageKeys.PROCESSOR_NOT_IMPLEMENTED, cls.getSimpleName());
   }
 
   public void register(final Processor processor) {
-    processors.add(0, processor);
+    registerTypes(processor.getClass(), processor);
+  }
+
+  private void registerTypes(final Class<?> type, final Processor processor) {
+    if (type == null || !Processor.class.isAssignableFrom(type)) {
+      return;
+    }
+    processors.put(type, processor);
+    registerTypes(type.getSuperclass(), processor);
+    for (final Class<?> implemented : type.getInterfaces()) {
+      registerTypes(implemented, processor);
+    }
   }
 
   @Override
@@ -265,6 +427,12 @@ public class ODataHandlerImpl implements ODataHandler {
       this.customContentTypeSupport = (CustomContentTypeSupport) extension;
     } else if(extension instanceof CustomETagSupport) {
       this.customETagSupport = (CustomETagSupport) extension;
+    } else if(extension instanceof ETagProvider) {
+      this.eTagProvider = (ETagProvider) extension;
+    } else if(extension instanceof AsyncRequestEngine) {
+      this.asyncRequestEngine = (AsyncRequestEngine) extension;
+    } else if(extension instanceof MetricsCollector) {
+      this.metrics = (MetricsCollector) extension;
     } else {
       throw new ODataRuntimeException("Got not supported exception with class name " +
           extension.getClass().getSimpleName());
@@ -279,6 +447,17 @@ public class ODataHandlerImpl implements ODataHandler {
     return customETagSupport;
   }
 
+  public ETagProvider getETagProvider() {
+    return eTagProvider;
+  }
+
+  /**
+   * @return the metrics registered for this handler, or <code>null</code> if the shared metrics are used
+   */
+  public MetricsCollector getMetrics() {
+    return metrics;
+  }
+
   public Exception getLastThrownException() {
     return lastThrownException;
   }
@@ -20,6 +20,7 @@ package org.apache.olingo.server.core;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.Channel;
 import java.nio.channels.Channels;
@@ -31,13 +32,19 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 
+import jakarta.servlet.AsyncContext;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.ODataHttpHandler;
@@ -50,9 +57,11 @@ import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.debug.DebugSupport;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.etag.CustomETagSupport;
+import org.apache.olingo.server.api.metrics.RequestPhase;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.serializer.CustomContentTypeSupport;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
 
 public class ODataHttpHandlerImpl implements ODataHttpHandler {
 
@@ -63,6 +72,7 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   private final ServerCoreDebugger debugger;
 
   private int split = 0;
+  private ResponseCompression compression;
 
   public ODataHttpHandlerImpl(final OData odata, final ServiceMetadata serviceMetadata) {
     debugger = new ServerCoreDebugger(odata);
@@ -76,6 +86,15 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
 
   @Override
   public void process(final HttpServletRequest request, final HttpServletResponse response) {
+    final MetricsCollector previousMetrics = MetricsCollector.bind(handler.getMetrics());
+    try {
+      processRequest(request, response);
+    } finally {
+      MetricsCollector.bind(previousMetrics);
+    }
+  }
+
+  private void processRequest(final HttpServletRequest request, final HttpServletResponse response) {
     ODataRequest odRequest = new ODataRequest();
     Exception exception = null;
     ODataResponse odResponse;
@@ -104,7 +123,129 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
               serverEnvironmentVariables);
     }
 
-    convertToHttp(response, odResponse);
+    writeResponse(odRequest, response, odResponse);
+  }
+
+  /**
+   * Writes the OData response to the servlet response, compressing the content if enabled.
+   * @param odRequest the OData request, may be <code>null</code> if it could not be created
+   * @param response the servlet response
+   * @param odResponse the OData response
+   */
+  protected void writeResponse(final ODataRequest odRequest, final HttpServletResponse response,
+      final ODataResponse odResponse) {
+    final String contentEncoding = compression == null || odRequest == null ? null :
+        compression.getContentEncoding(odRequest.getHeaders(HttpHeader.ACCEPT_ENCODING), odResponse);
+    if (contentEncoding == null) {
+      convertToHttp(response, odResponse);
+    } else {
+      convertToCompressedHttp(response, odResponse, compression, contentEncoding);
+    }
+  }
+
+  @Override
+  public void processAsync(final HttpServletRequest request, final HttpServletResponse response,
+      final Executor executor) {
+    final AsyncContext asyncContext = request.startAsync(request, response);
+    debugger.resolveDebugMode(request);
+    final Map<String, String> serverEnvironmentVariables =
+        debugger.isDebugMode() ? createEnvironmentVariablesMap(request) : null;
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          final MetricsCollector previousMetrics = MetricsCollector.bind(handler.getMetrics());
+          try {
+            processAsync(asyncContext, request, response, serverEnvironmentVariables, executor);
+          } finally {
+            MetricsCollector.bind(previousMetrics);
+          }
+        }
+      });
+    } catch (final RejectedExecutionException e) {
+      response.setStatus(HttpStatusCode.SERVICE_UNAVAILABLE.getStatusCode());
+      asyncContext.complete();
+    }
+  }
+
+  private void processAsync(final AsyncContext asyncContext, final HttpServletRequest request,
+      final HttpServletResponse response, final Map<String, String> serverEnvironmentVariables,
+      final Executor executor) {
+    final long metricsStart = MetricsCollector.getInstance().start();
+    final ODataRequest odRequest = new ODataRequest();
+    ODataResponse odResponse;
+    try {
+      fillODataRequest(odRequest, request, split);
+      odResponse = handler.processDeferred(odRequest);
+    } catch (Exception e) {
+      odResponse = handleException(odRequest, e);
+    }
+
+    final CompletionStage<?> completion = odResponse.getCompletion();
+    if (completion == null) {
+      completeAsync(asyncContext, response, odRequest, odResponse, null, serverEnvironmentVariables, metricsStart,
+          executor);
+    } else {
+      final ODataResponse pendingResponse = odResponse;
+      completion.whenComplete(new BiConsumer<Object, Throwable>() {
+        @Override
+        public void accept(final Object result, final Throwable failure) {
+          final MetricsCollector previousMetrics = MetricsCollector.bind(handler.getMetrics());
+          try {
+            if (failure == null) {
+              completeAsync(asyncContext, response, odRequest, pendingResponse, null, serverEnvironmentVariables,
+                  metricsStart, executor);
+            } else {
+              completeAsync(asyncContext, response, odRequest, handler.handleCompletionFailure(odRequest, failure),
+                  failure, serverEnvironmentVariables, metricsStart, executor);
+            }
+          } finally {
+            MetricsCollector.bind(previousMetrics);
+          }
+        }
+      });
+    }
+  }
+
+  private void completeAsync(final AsyncContext asyncContext, final HttpServletResponse response,
+      final ODataRequest odRequest, final ODataResponse odResponse, final Throwable failure,
+      final Map<String, String> serverEnvironmentVariables, final long metricsStart, final Executor executor) {
+    MetricsCollector.getInstance().requestProcessed(odResponse.getStatusCode(), metricsStart);
+    ODataResponse result = odResponse;
+    if (serverEnvironmentVariables != null) {
+      final Exception exception = failure instanceof Exception ? (Exception) failure : handler.getLastThrownException();
+      result = debugger.createDebugResponse(odRequest, odResponse, exception, handler.getUriInfo(),
+          serverEnvironmentVariables);
+    }
+
+    final String contentEncoding = compression == null ? null :
+        compression.getContentEncoding(odRequest.getHeaders(HttpHeader.ACCEPT_ENCODING), result);
+    response.setStatus(result.getStatusCode());
+    for (Entry<String, List<String>> entry : result.getAllHeaders().entrySet()) {
+      // the length is only known after compression
+      if (contentEncoding == null || !HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey())) {
+        for (String headerValue : entry.getValue()) {
+          response.addHeader(entry.getKey(), headerValue);
+        }
+      }
+    }
+
+    if (result.getContent() == null && result.getODataContent() == null) {
+      asyncContext.complete();
+      return;
+    }
+    try {
+      final AsyncResponseWriter writer = new AsyncResponseWriter(asyncContext, response.getOutputStream());
+      response.getOutputStream().setWriteListener(writer);
+      if (contentEncoding == null) {
+        writer.start(result, executor);
+      } else {
+        response.addHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+        writer.start(result, executor, compression, contentEncoding, createCompressionListener(response));
+      }
+    } catch (final IOException e) {
+      asyncContext.complete();
+    }
   }
 
   private Map<String, String> createEnvironmentVariablesMap(final HttpServletRequest request) {
@@ -135,6 +276,11 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
     this.split = split;
   }
 
+  @Override
+  public void setResponseCompression(final int minimumSize, final int level) {
+    compression = minimumSize < 0 ? null : new ResponseCompression(minimumSize, level);
+  }
+
   private ODataResponse handleException(final ODataRequest odRequest, final Exception e) {
     ODataResponse resp = new ODataResponse();
     ODataServerError serverError;
@@ -158,17 +304,64 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
       }
     }
 
+    final long metricsStart = MetricsCollector.getInstance().start();
     if (odResponse.getContent() != null) {
       copyContent(odResponse.getContent(), response);
     } else if (odResponse.getODataContent() != null) {
       writeContent(odResponse, response);
     }
+    MetricsCollector.getInstance().stop(RequestPhase.RESPONSE_WRITE, metricsStart);
   }
   
+  static void convertToCompressedHttp(final HttpServletResponse response, final ODataResponse odResponse,
+      final ResponseCompression compression, final String contentEncoding) {
+    response.setStatus(odResponse.getStatusCode());
+
+    for (Entry<String, List<String>> entry : odResponse.getAllHeaders().entrySet()) {
+      // the length is only known after compression
+      if (!HttpHeader.CONTENT_LENGTH.equalsIgnoreCase(entry.getKey())) {
+        for (String headerValue : entry.getValue()) {
+          response.addHeader(entry.getKey(), headerValue);
+        }
+      }
+    }
+    response.addHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+
+    final long metricsStart = MetricsCollector.getInstance().start();
+    // the bytes are counted after compression, as they are sent to the client
+    try (OutputStream output = compression.compress(
+        MetricsCollector.getInstance().countBytes(response.getOutputStream()), contentEncoding,
+        createCompressionListener(response))) {
+      if (odResponse.getContent() == null) {
+        odResponse.getODataContent().write(output);
+      } else {
+        copyContent(Channels.newChannel(odResponse.getContent()), Channels.newChannel(output));
+      }
+    } catch (IOException e) {
+      throw new ODataRuntimeException("Error on writing response content", e);
+    } finally {
+      MetricsCollector.getInstance().stop(RequestPhase.RESPONSE_WRITE, metricsStart);
+    }
+  }
+
+  private static ResponseCompression.Listener createCompressionListener(final HttpServletResponse response) {
+    return new ResponseCompression.Listener() {
+      @Override
+      public void compressed(final String encoding) {
+        response.setHeader(HttpHeader.CONTENT_ENCODING, encoding);
+      }
+
+      @Override
+      public void uncompressed(final int contentLength) {
+        response.setContentLength(contentLength);
+      }
+    };
+  }
+
   static void writeContent(final ODataResponse odataResponse, final HttpServletResponse servletResponse) {
     try {
       ODataContent res = odataResponse.getODataContent();
-      res.write(Channels.newChannel(servletResponse.getOutputStream()));
+      res.write(Channels.newChannel(MetricsCollector.getInstance().countBytes(servletResponse.getOutputStream())));
     } catch (IOException e) {
       throw new ODataRuntimeException("Error on reading request content", e);
     }
@@ -179,15 +372,23 @@ public class ODataHttpHandlerImpl implements ODataHttpHandler {
   }
 
   static void copyContent(final ReadableByteChannel input, final HttpServletResponse servletResponse) {
-    try (WritableByteChannel output = Channels.newChannel(servletResponse.getOutputStream());) {
+    try (WritableByteChannel output =
+        Channels.newChannel(MetricsCollector.getInstance().countBytes(servletResponse.getOutputStream()))) {
+      copyContent(input, output);
+    } catch (IOException e) {
+      throw new ODataRuntimeException("Error on reading request content", e);
+    }
+  }
+
+  private static void copyContent(final ReadableByteChannel input, final WritableByteChannel output)
+      throws IOException {
+    try {
       ByteBuffer inBuffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
       while (input.read(inBuffer) > 0) {
         inBuffer.flip();
         output.write(inBuffer);
         inBuffer.clear();
       }
-    } catch (IOException e) {
-      throw new ODataRuntimeException("Error on reading request content", e);
     } finally {
       closeStream(input);
     }
@@ -20,6 +20,7 @@ package org.apache.olingo.server.core;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import org.apache.olingo.commons.api.constants.Constantsv00;
 import org.apache.olingo.commons.api.constants.Constantsv01;
@@ -34,12 +35,16 @@ import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataHandler;
 import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.async.AsyncRequestSupport;
+import org.apache.olingo.server.api.async.AsyncResponseStore;
 import org.apache.olingo.server.api.debug.DebugResponseHelper;
 import org.apache.olingo.server.api.deserializer.DeserializerException;
 import org.apache.olingo.server.api.deserializer.FixedFormatDeserializer;
 import org.apache.olingo.server.api.deserializer.ODataDeserializer;
 import org.apache.olingo.server.api.etag.ETagHelper;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.expand.ExpandHelper;
+import org.apache.olingo.server.api.metrics.ODataMetrics;
 import org.apache.olingo.server.api.prefer.Preferences;
 import org.apache.olingo.server.api.serializer.EdmAssistedSerializer;
 import org.apache.olingo.server.api.serializer.EdmDeltaSerializer;
@@ -47,12 +52,16 @@ import org.apache.olingo.server.api.serializer.FixedFormatSerializer;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.uri.UriHelper;
+import org.apache.olingo.server.core.async.AsyncRequestEngine;
+import org.apache.olingo.server.core.async.InMemoryAsyncResponseStore;
 import org.apache.olingo.server.core.debug.DebugResponseHelperImpl;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
 import org.apache.olingo.server.core.deserializer.FixedFormatDeserializerImpl;
 import org.apache.olingo.server.core.deserializer.json.ODataJsonDeserializer;
 import org.apache.olingo.server.core.deserializer.xml.ODataXmlDeserializer;
 import org.apache.olingo.server.core.etag.ETagHelperImpl;
+import org.apache.olingo.server.core.expand.ExpandHelperImpl;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
 import org.apache.olingo.server.core.prefer.PreferencesImpl;
 import org.apache.olingo.server.core.serializer.FixedFormatSerializerImpl;
 import org.apache.olingo.server.core.serializer.json.EdmAssistedJsonSerializer;
@@ -255,6 +264,11 @@ public class ODataImpl extends OData {
     return new ETagHelperImpl();
   }
 
+  @Override
+  public ExpandHelper createExpandHelper() {
+    return new ExpandHelperImpl();
+  }
+
   @Override
   public Preferences createPreferences(final Collection<String> preferHeaders) {
     return new PreferencesImpl(preferHeaders);
@@ -307,4 +321,21 @@ public class ODataImpl extends OData {
           ((contentType != null) ? contentType.toContentTypeString() : null));
     }
   }
+
+  @Override
+  public AsyncRequestSupport createAsyncRequestSupport(final Executor executor, final AsyncResponseStore store,
+      final long timeToLive) {
+    return new AsyncRequestEngine(this, executor, store == null ? new InMemoryAsyncResponseStore() : store,
+        timeToLive);
+  }
+
+  @Override
+  public ODataMetrics getMetrics() {
+    return MetricsCollector.getInstance();
+  }
+
+  @Override
+  public ODataMetrics createMetrics() {
+    return new MetricsCollector();
+  }
 }
@@ -23,6 +23,7 @@ import java.io.OutputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 
+import org.apache.olingo.commons.api.data.DeltaIterator;
 import org.apache.olingo.commons.api.data.EntityIterator;
 import org.apache.olingo.commons.api.data.EntityMediaObject;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
@@ -32,12 +33,15 @@ import org.apache.olingo.server.api.ODataContentWriteErrorCallback;
 import org.apache.olingo.server.api.ODataContentWriteErrorContext;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.serializer.EdmDeltaSerializer;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.ODataSerializer;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerStreamResult;
 import org.apache.olingo.server.core.serializer.SerializerStreamResultImpl;
 import org.apache.olingo.server.core.serializer.FixedFormatSerializerImpl;
+import org.apache.olingo.server.core.serializer.json.JsonDeltaSerializer;
+import org.apache.olingo.server.core.serializer.json.JsonDeltaSerializerWithNavigations;
 import org.apache.olingo.server.core.serializer.json.ODataJsonSerializer;
 import org.apache.olingo.server.core.serializer.xml.ODataXmlSerializer;
 
@@ -84,11 +88,20 @@ public class ODataWritableContent implements ODataContent {
     		  writeBinary(mediaEntity, out);
     	  }
       } catch (SerializerException e) {
-        final ODataContentWriteErrorCallback errorCallback = options.getODataContentWriteErrorCallback();
-        if (errorCallback != null) {
-          final WriteErrorContext errorContext = new WriteErrorContext(e);
-          errorCallback.handleError(errorContext, Channels.newChannel(out));
-        }
+        handleError(e, Channels.newChannel(out));
+      }
+    }
+
+    public void write(WritableByteChannel channel) {
+      write(Channels.newOutputStream(channel));
+    }
+
+    protected void handleError(SerializerException e, WritableByteChannel channel) {
+      final ODataContentWriteErrorCallback errorCallback =
+          options == null ? null : options.getODataContentWriteErrorCallback();
+      if (errorCallback != null) {
+        final WriteErrorContext errorContext = new WriteErrorContext(e);
+        errorCallback.handleError(errorContext, channel);
       }
     }
   }
@@ -119,14 +132,56 @@ public class ODataWritableContent implements ODataContent {
 	}
   }
   
+  private static class StreamContentForJsonDelta extends StreamContent {
+    private EdmDeltaSerializer deltaSerializer;
+
+    public StreamContentForJsonDelta(DeltaIterator iterator, EdmEntityType entityType,
+        EdmDeltaSerializer deltaSerializer, ServiceMetadata metadata,
+        EntityCollectionSerializerOptions options) {
+      super(iterator, entityType, metadata, options);
+
+      this.deltaSerializer = deltaSerializer;
+    }
+
+    protected void writeEntity(EntityIterator entity, OutputStream outputStream) throws SerializerException {
+      try {
+        if (deltaSerializer instanceof JsonDeltaSerializerWithNavigations) {
+          ((JsonDeltaSerializerWithNavigations) deltaSerializer).entityCollectionIntoStream(metadata, entityType,
+              (DeltaIterator) entity, options, outputStream);
+        } else {
+          ((JsonDeltaSerializer) deltaSerializer).entityCollectionIntoStream(metadata, entityType,
+              (DeltaIterator) entity, options, outputStream);
+        }
+        outputStream.flush();
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Failed delta serialization", e);
+      }
+    }
+
+    @Override
+    protected void writeBinary(EntityMediaObject mediaEntity, OutputStream outputStream)
+        throws SerializerException {
+      throw new ODataRuntimeException("Not Implemented in Delta Handling");
+    }
+  }
+
   private static class StreamContentForMedia extends StreamContent {
 	    private FixedFormatSerializerImpl fixedFormatSerializer;
+	    private final long offset;
+	    private final long count;
 
 	    public StreamContentForMedia(EntityMediaObject mediaEntity, 
 	    		FixedFormatSerializerImpl fixedFormatSerializer) {
+	      this(mediaEntity, fixedFormatSerializer, 0, -1);
+	    }
+
+	    public StreamContentForMedia(EntityMediaObject mediaEntity,
+	        FixedFormatSerializerImpl fixedFormatSerializer, long offset, long count) {
 	      super(mediaEntity);
 
 	      this.fixedFormatSerializer = fixedFormatSerializer;
+	      this.offset = offset;
+	      this.count = count;
 	    }
 
 	    protected void writeEntity(EntityIterator entity, 
@@ -137,7 +192,18 @@ public class ODataWritableContent implements ODataContent {
 		@Override
 		protected void writeBinary(EntityMediaObject mediaEntity, 
 				OutputStream outputStream) throws SerializerException {
-			fixedFormatSerializer.binaryIntoStreamed(mediaEntity, outputStream);
+			fixedFormatSerializer.binaryIntoStreamed(mediaEntity, offset, count,
+			    Channels.newChannel(outputStream));
+		}
+
+		@Override
+		public void write(WritableByteChannel channel) {
+		  // writing to the channel directly allows file content to be transferred without copying
+		  try {
+		    fixedFormatSerializer.binaryIntoStreamed(mediaEntity, offset, count, channel);
+		  } catch (SerializerException e) {
+		    handleError(e, channel);
+		  }
 		}
 	  }
 
@@ -169,7 +235,7 @@ public class ODataWritableContent implements ODataContent {
 
   @Override
   public void write(WritableByteChannel writeChannel) {
-    this.streamContent.write(Channels.newOutputStream(writeChannel));
+    this.streamContent.write(writeChannel);
   }
 
   @Override
@@ -181,12 +247,37 @@ public class ODataWritableContent implements ODataContent {
     this.streamContent = streamContent;
   }
 
+  /**
+   * Gets the media content written by this content.
+   * @return the media content, or <code>null</code> if this content is not media
+   */
+  EntityMediaObject getMediaEntity() {
+    return streamContent instanceof StreamContentForMedia ? streamContent.mediaEntity : null;
+  }
+
+  /**
+   * Creates a content writing only a byte range of the media content written by this content.
+   * @param offset index of the first byte
+   * @param count number of bytes
+   */
+  ODataWritableContent range(long offset, long count) {
+    final StreamContentForMedia media = (StreamContentForMedia) streamContent;
+    return new ODataWritableContent(
+        new StreamContentForMedia(media.mediaEntity, media.fixedFormatSerializer, offset, count));
+  }
+
   public static ODataWritableContentBuilder with(EntityIterator iterator, EdmEntityType entityType,
       ODataSerializer serializer, ServiceMetadata metadata,
       EntityCollectionSerializerOptions options) {
     return new ODataWritableContentBuilder(iterator, entityType, serializer, metadata, options);
   }
   
+  public static ODataWritableContentBuilder with(DeltaIterator delta, EdmEntityType entityType,
+      EdmDeltaSerializer deltaSerializer, ServiceMetadata metadata,
+      EntityCollectionSerializerOptions options) {
+    return new ODataWritableContentBuilder(delta, entityType, deltaSerializer, metadata, options);
+  }
+
   public static ODataWritableContentBuilder with(EntityMediaObject mediaEntity, 
 		  FixedFormatSerializerImpl fixedFormatSerializer) {
 	  return new ODataWritableContentBuilder(mediaEntity, fixedFormatSerializer);
@@ -212,6 +303,7 @@ public class ODataWritableContent implements ODataContent {
 
   public static class ODataWritableContentBuilder {
     private ODataSerializer serializer;
+    private EdmDeltaSerializer deltaSerializer;
     private EntityIterator entities;
     private ServiceMetadata metadata;
     private EdmEntityType entityType;
@@ -229,6 +321,16 @@ public class ODataWritableContent implements ODataContent {
       this.options = options;
     }
 
+    public ODataWritableContentBuilder(DeltaIterator delta, EdmEntityType entityType,
+        EdmDeltaSerializer deltaSerializer,
+        ServiceMetadata metadata, EntityCollectionSerializerOptions options) {
+      this.entities = delta;
+      this.entityType = entityType;
+      this.deltaSerializer = deltaSerializer;
+      this.metadata = metadata;
+      this.options = options;
+    }
+
     public ODataWritableContentBuilder(EntityMediaObject mediaEntity, FixedFormatSerializerImpl fixedFormatSerializer) {
     	this.mediaEntity = mediaEntity;
     	this.fixedFormatSerializer = fixedFormatSerializer;
@@ -243,6 +345,11 @@ public class ODataWritableContent implements ODataContent {
         StreamContentForXml input = new StreamContentForXml(entities, entityType,
             (ODataXmlSerializer) serializer, metadata, options);
         return new ODataWritableContent(input);
+      } else if (deltaSerializer instanceof JsonDeltaSerializer
+          || deltaSerializer instanceof JsonDeltaSerializerWithNavigations) {
+        StreamContent input = new StreamContentForJsonDelta((DeltaIterator) entities, entityType,
+            deltaSerializer, metadata, options);
+        return new ODataWritableContent(input);
       } else if (fixedFormatSerializer instanceof FixedFormatSerializerImpl) {
     	  StreamContent input = new StreamContentForMedia(mediaEntity, fixedFormatSerializer);
     	  return new ODataWritableContent(input);
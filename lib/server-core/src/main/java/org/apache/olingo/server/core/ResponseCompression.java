@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.olingo.commons.api.format.AcceptEncoding;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataResponse;
+
+/**
+ * Compresses response content with the <code>gzip</code> or <code>deflate</code> content coding negotiated
+ * from the <code>Accept-Encoding</code> header of the request.
+ * <p>
+ * Compression is applied while the content is written, so streamed content is never buffered completely.
+ * Flushing does not force the compressor to emit pending output, which would degrade the compression ratio.
+ * Only the first <code>minimumSize</code> bytes are held back to decide whether compression is worthwhile;
+ * smaller responses are sent uncompressed together with their exact <code>Content-Length</code>.
+ * </p>
+ * Responses which already have a <code>Content-Encoding</code>, partial content, and media types which are
+ * compressed anyway (images, audio, video, and archives) are not compressed.
+ */
+public class ResponseCompression {
+
+  public static final String GZIP = AcceptEncoding.GZIP;
+  public static final String DEFLATE = AcceptEncoding.DEFLATE;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private final int minimumSize;
+  private final int level;
+
+  /**
+   * Creates a response compression.
+   * @param minimumSize minimum number of content bytes for compressing the response
+   * @param level compression level from 0 to 9, or -1 for the default level
+   */
+  public ResponseCompression(final int minimumSize, final int level) {
+    if (minimumSize < 0) {
+      throw new IllegalArgumentException("The minimum size must not be negative.");
+    }
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level " + level);
+    }
+    this.minimumSize = minimumSize;
+    this.level = level;
+  }
+
+  public int getMinimumSize() {
+    return minimumSize;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  /**
+   * Determines the content coding for the given response.
+   * @param acceptEncodings values of the <code>Accept-Encoding</code> request headers, may be <code>null</code>
+   * @param response the response
+   * @return {@link #GZIP}, {@link #DEFLATE}, or <code>null</code> if the response must not be compressed
+   */
+  public String getContentEncoding(final List<String> acceptEncodings, final ODataResponse response) {
+    if (response.getContent() == null && response.getODataContent() == null
+        || response.getStatusCode() == HttpStatusCode.NO_CONTENT.getStatusCode()
+        || response.getStatusCode() == HttpStatusCode.NOT_MODIFIED.getStatusCode()
+        || response.getHeader(HttpHeader.CONTENT_ENCODING) != null
+        || response.getHeader(HttpHeader.CONTENT_RANGE) != null
+        || !isCompressible(response.getHeader(HttpHeader.CONTENT_TYPE))) {
+      return null;
+    }
+    return AcceptEncoding.negotiate(acceptEncodings, GZIP, DEFLATE);
+  }
+
+  /**
+   * Wraps the given output stream into a stream which compresses the written content
+   * once it exceeds the minimum size.
+   * @param output stream receiving the (possibly compressed) content; it is closed with the returned stream
+   * @param contentEncoding content coding as determined by {@link #getContentEncoding(List, ODataResponse)}
+   * @param listener gets informed whether the content is compressed before anything is written to the output
+   * @return the stream the uncompressed content has to be written to
+   */
+  public OutputStream compress(final OutputStream output, final String contentEncoding, final Listener listener) {
+    return new ThresholdOutputStream(output, contentEncoding, listener);
+  }
+
+  private static boolean isCompressible(final String contentType) {
+    if (contentType == null) {
+      return true;
+    }
+    final String type = contentType.toLowerCase(Locale.ROOT);
+    return !(type.startsWith("image/") || type.startsWith("audio/") || type.startsWith("video/")
+        || type.startsWith("application/zip") || type.startsWith("application/gzip"));
+  }
+
+  private OutputStream createCompressingStream(final OutputStream output, final String contentEncoding)
+      throws IOException {
+    if (GZIP.equals(contentEncoding)) {
+      return new GZIPOutputStream(output, BUFFER_SIZE) {
+        {
+          def.setLevel(level);
+        }
+      };
+    } else {
+      final Deflater deflater = new Deflater(level);
+      return new DeflaterOutputStream(output, deflater, BUFFER_SIZE) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            deflater.end();
+          }
+        }
+      };
+    }
+  }
+
+  /**
+   * Gets informed about the decision whether the response content is compressed.
+   */
+  public interface Listener {
+
+    /**
+     * The content is compressed; called before the first compressed byte is written.
+     * @param contentEncoding the content coding used
+     */
+    void compressed(String contentEncoding);
+
+    /**
+     * The content is too small to be compressed; called before the content is written.
+     * @param contentLength length of the complete content
+     */
+    void uncompressed(int contentLength);
+  }
+
+  private class ThresholdOutputStream extends OutputStream {
+
+    private final OutputStream output;
+    private final String contentEncoding;
+    private final Listener listener;
+    private byte[] buffer = new byte[minimumSize];
+    private int count;
+    private OutputStream compressed;
+    private boolean closed;
+
+    ThresholdOutputStream(final OutputStream output, final String contentEncoding, final Listener listener) {
+      this.output = output;
+      this.contentEncoding = contentEncoding;
+      this.listener = listener;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+      if (compressed != null) {
+        compressed.write(bytes, offset, length);
+      } else if (count + length <= minimumSize) {
+        System.arraycopy(bytes, offset, buffer, count, length);
+        count += length;
+      } else {
+        listener.compressed(contentEncoding);
+        compressed = createCompressingStream(output, contentEncoding);
+        compressed.write(buffer, 0, count);
+        compressed.write(bytes, offset, length);
+        buffer = null;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      // Small content is held back until it is known whether it will be compressed.
+      if (compressed != null) {
+        compressed.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (compressed == null) {
+        listener.uncompressed(count);
+        try {
+          output.write(buffer, 0, count);
+        } finally {
+          output.close();
+        }
+      } else {
+        compressed.close();
+      }
+    }
+  }
+}
@@ -29,6 +29,7 @@ import org.apache.olingo.commons.api.edmx.EdmxReference;
 import org.apache.olingo.commons.core.edm.EdmProviderImpl;
 import org.apache.olingo.server.api.ServiceMetadata;
 import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.processor.MetadataDocumentCache;
 
 /**
  */
@@ -37,6 +38,7 @@ public class ServiceMetadataImpl implements ServiceMetadata {
   private final Edm edm;
   private final List<EdmxReference> references;
   private final ServiceMetadataETagSupport serviceMetadataETagSupport;
+  private final MetadataDocumentCache documentCache = new MetadataDocumentCache();
 
   public ServiceMetadataImpl(final CsdlEdmProvider edmProvider, final List<EdmxReference> references,
       final ServiceMetadataETagSupport serviceMetadataETagSupport) {
@@ -65,4 +67,13 @@ public class ServiceMetadataImpl implements ServiceMetadata {
   public ServiceMetadataETagSupport getServiceMetadataETagSupport() {
     return serviceMetadataETagSupport;
   }
+
+  /**
+   * Gets the cache for the serialized metadata and service documents of this service,
+   * shared by all handlers of the service.
+   * @return the document cache
+   */
+  public MetadataDocumentCache getDocumentCache() {
+    return documentCache;
+  }
 }
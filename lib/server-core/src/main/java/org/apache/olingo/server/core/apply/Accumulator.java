@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression.StandardMethod;
+
+/**
+ * Aggregates the values of one aggregate expression.
+ * <p>
+ * Integral values are summed up as <code>long</code> values, floating-point values as <code>double</code> values;
+ * only decimal values or sums exceeding the <code>long</code> range are calculated with {@link BigDecimal}.
+ * Accumulators of the same kind can be merged, so partial aggregates can be calculated in parallel.
+ * </p>
+ */
+abstract class Accumulator {
+
+  /** Adds a value; <code>null</code> values are ignored. */
+  abstract void add(Object value) throws ODataApplicationException;
+
+  /** Adds the values collected by another accumulator of the same kind. */
+  abstract void merge(Accumulator other) throws ODataApplicationException;
+
+  /** Gets the aggregated value. */
+  abstract Object getResult();
+
+  /** Creates a new, empty accumulator of the same kind. */
+  abstract Accumulator newInstance();
+
+  static Accumulator create(final StandardMethod method) {
+    switch (method) {
+    case SUM:
+      return new Sum();
+    case AVERAGE:
+      return new Average();
+    case MIN:
+      return new MinMax(false);
+    case MAX:
+      return new MinMax(true);
+    default:
+      return new CountDistinct();
+    }
+  }
+
+  static Accumulator count() {
+    return new Count();
+  }
+
+  /** Sum of numeric values, specialized for integral and floating-point values. */
+  static class Sum extends Accumulator {
+    long longSum;
+    double doubleSum;
+    BigDecimal decimalSum;
+    boolean hasDouble;
+    long count;
+
+    @Override
+    void add(final Object value) throws ODataApplicationException {
+      if (value == null) {
+        return;
+      }
+      count++;
+      if (value instanceof Number && ApplyExpressionVisitor.isIntegral((Number) value)) {
+        addLong(((Number) value).longValue());
+      } else if (value instanceof Double || value instanceof Float) {
+        hasDouble = true;
+        doubleSum += ((Number) value).doubleValue();
+      } else if (value instanceof BigDecimal) {
+        decimalSum = decimalSum == null ? (BigDecimal) value : decimalSum.add((BigDecimal) value);
+      } else {
+        throw new ODataApplicationException("Value of type " + value.getClass().getSimpleName()
+            + " cannot be aggregated numerically.", HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+    }
+
+    private void addLong(final long value) {
+      try {
+        longSum = Math.addExact(longSum, value);
+      } catch (final ArithmeticException e) {
+        decimalSum = (decimalSum == null ? BigDecimal.valueOf(longSum) : decimalSum.add(BigDecimal.valueOf(longSum)))
+            .add(BigDecimal.valueOf(value));
+        longSum = 0;
+      }
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      final Sum sum = (Sum) other;
+      count += sum.count;
+      addLong(sum.longSum);
+      hasDouble |= sum.hasDouble;
+      doubleSum += sum.doubleSum;
+      if (sum.decimalSum != null) {
+        decimalSum = decimalSum == null ? sum.decimalSum : decimalSum.add(sum.decimalSum);
+      }
+    }
+
+    @Override
+    Object getResult() {
+      if (hasDouble) {
+        return doubleSum + longSum + (decimalSum == null ? 0 : decimalSum.doubleValue());
+      } else if (decimalSum != null) {
+        return decimalSum.add(BigDecimal.valueOf(longSum));
+      } else {
+        return longSum;
+      }
+    }
+
+    @Override
+    Accumulator newInstance() {
+      return new Sum();
+    }
+  }
+
+  /** Average of numeric values; <code>null</code> if there are no values. */
+  static class Average extends Sum {
+
+    @Override
+    Object getResult() {
+      if (count == 0) {
+        return null;
+      }
+      final Object sum = super.getResult();
+      if (sum instanceof Double) {
+        return (Double) sum / count;
+      }
+      return ApplyExpressionVisitor.toBigDecimal((Number) sum)
+          .divide(BigDecimal.valueOf(count), MathContext.DECIMAL64);
+    }
+
+    @Override
+    Accumulator newInstance() {
+      return new Average();
+    }
+  }
+
+  /** Minimum or maximum of comparable values. */
+  static class MinMax extends Accumulator {
+    private final boolean max;
+    private Object result;
+
+    MinMax(final boolean max) {
+      this.max = max;
+    }
+
+    @Override
+    void add(final Object value) throws ODataApplicationException {
+      if (value != null && (result == null
+          || (max ? ApplyExpressionVisitor.compare(value, result) > 0
+              : ApplyExpressionVisitor.compare(value, result) < 0))) {
+        result = value;
+      }
+    }
+
+    @Override
+    void merge(final Accumulator other) throws ODataApplicationException {
+      add(((MinMax) other).result);
+    }
+
+    @Override
+    Object getResult() {
+      return result;
+    }
+
+    @Override
+    Accumulator newInstance() {
+      return new MinMax(max);
+    }
+  }
+
+  /** Number of distinct values. */
+  static class CountDistinct extends Accumulator {
+    private final Set<Object> values = new HashSet<>();
+
+    @Override
+    void add(final Object value) {
+      if (value != null) {
+        values.add(value instanceof BigDecimal ? ((BigDecimal) value).stripTrailingZeros() : value);
+      }
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      values.addAll(((CountDistinct) other).values);
+    }
+
+    @Override
+    Object getResult() {
+      return (long) values.size();
+    }
+
+    @Override
+    Accumulator newInstance() {
+      return new CountDistinct();
+    }
+  }
+
+  /** Number of entities, as requested with <code>$count</code>. */
+  static class Count extends Accumulator {
+    private long count;
+
+    @Override
+    void add(final Object value) {
+      count++;
+    }
+
+    @Override
+    void merge(final Accumulator other) {
+      count += ((Count) other).count;
+    }
+
+    @Override
+    Object getResult() {
+      return count;
+    }
+
+    @Override
+    Accumulator newInstance() {
+      return new Count();
+    }
+  }
+}
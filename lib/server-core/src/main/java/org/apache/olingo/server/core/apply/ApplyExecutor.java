@@ -0,0 +1,635 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import org.apache.olingo.commons.api.data.AbstractEntityCollection;
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceCount;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.ApplyItem;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.apply.Aggregate;
+import org.apache.olingo.server.api.uri.queryoption.apply.AggregateExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.BottomTop;
+import org.apache.olingo.server.api.uri.queryoption.apply.Compute;
+import org.apache.olingo.server.api.uri.queryoption.apply.ComputeExpression;
+import org.apache.olingo.server.api.uri.queryoption.apply.Concat;
+import org.apache.olingo.server.api.uri.queryoption.apply.Filter;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupBy;
+import org.apache.olingo.server.api.uri.queryoption.apply.GroupByItem;
+import org.apache.olingo.server.api.uri.queryoption.apply.Identity;
+import org.apache.olingo.server.api.uri.queryoption.apply.OrderBy;
+import org.apache.olingo.server.api.uri.queryoption.apply.Skip;
+import org.apache.olingo.server.api.uri.queryoption.apply.Top;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+/**
+ * Executes the transformations of the system query option <code>$apply</code> in memory.
+ * <p>
+ * Supported are the transformations <code>aggregate</code> (with the standard aggregation methods and
+ * <code>$count</code>), <code>groupby</code> (without rollup), <code>filter</code>, <code>compute</code>,
+ * <code>orderby</code>, <code>skip</code>, <code>top</code>, <code>topcount</code>, <code>bottomcount</code>,
+ * <code>topsum</code>, <code>bottomsum</code>, <code>toppercent</code>, <code>bottompercent</code>,
+ * <code>concat</code>, and <code>identity</code>; all others result in a
+ * {@link ODataApplicationException} with status code <code>501 Not Implemented</code>.
+ * </p>
+ * <p>
+ * Grouping is done in a hash table. Aggregations at the start of the transformation sequence, also grouped ones,
+ * are computed while iterating over the input, so an {@link org.apache.olingo.commons.api.data.EntityIterator}
+ * is never materialized for them. If a {@link ForkJoinPool} is given, large entity collections are split into
+ * partitions which are aggregated in parallel and merged afterwards.
+ * </p>
+ * <p>
+ * The input entities are never modified. Result entities of aggregations contain the grouping properties and
+ * the aggregated values as dynamic properties; they can be serialized with an
+ * {@link org.apache.olingo.server.api.serializer.EdmAssistedSerializer}.
+ * </p>
+ */
+public class ApplyExecutor {
+
+  private static final String DECIMAL_TYPE = "Edm.Decimal";
+  private static final String DOUBLE_TYPE = "Edm.Double";
+
+  private final ForkJoinPool pool;
+  private final int parallelThreshold;
+
+  /**
+   * Creates an executor processing all transformations in the calling thread.
+   */
+  public ApplyExecutor() {
+    this(null, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Creates an executor aggregating large entity collections in parallel.
+   * @param pool the pool used for parallel aggregation
+   * @param parallelThreshold the minimum number of entities for parallel aggregation
+   */
+  public ApplyExecutor(final ForkJoinPool pool, final int parallelThreshold) {
+    this.pool = pool;
+    this.parallelThreshold = Math.max(parallelThreshold, 2);
+  }
+
+  /**
+   * Applies the transformations to the given entities.
+   * @param applyOption the parsed <code>$apply</code> option
+   * @param entities the input; an {@link EntityCollection} or an
+   * {@link org.apache.olingo.commons.api.data.EntityIterator}
+   * @return the transformed entities
+   * @throws ODataApplicationException if a transformation is not supported or fails
+   */
+  public EntityCollection apply(final ApplyOption applyOption, final AbstractEntityCollection entities)
+      throws ODataApplicationException {
+    final List<ApplyItem> items = applyOption.getApplyItems();
+    List<Entity> current;
+    int start = 0;
+    if (!items.isEmpty() && isAggregation(items.get(0))) {
+      current = aggregate(items.get(0), entities instanceof EntityCollection ?
+          ((EntityCollection) entities).getEntities() : entities);
+      start = 1;
+    } else {
+      current = toList(entities);
+    }
+    for (final ApplyItem item : items.subList(start, items.size())) {
+      current = apply(item, current);
+    }
+    final EntityCollection result = new EntityCollection();
+    result.getEntities().addAll(current);
+    return result;
+  }
+
+  /**
+   * Evaluates an expression for an entity.
+   * Subclasses may override this method to support further kinds of expressions.
+   * @param expression the expression
+   * @param entity the entity
+   * @return the value; <code>null</code> for the null value
+   * @throws ODataApplicationException if the expression is not supported or cannot be evaluated
+   */
+  protected Object evaluate(final Expression expression, final Entity entity) throws ODataApplicationException {
+    return ApplyExpressionVisitor.evaluate(expression, entity);
+  }
+
+  private List<Entity> apply(final ApplyOption applyOption, final List<Entity> entities)
+      throws ODataApplicationException {
+    List<Entity> current = entities;
+    for (final ApplyItem item : applyOption.getApplyItems()) {
+      current = apply(item, current);
+    }
+    return current;
+  }
+
+  private List<Entity> apply(final ApplyItem item, final List<Entity> entities) throws ODataApplicationException {
+    if (item instanceof Aggregate || item instanceof GroupBy) {
+      return aggregate(item, entities);
+    } else if (item instanceof Filter) {
+      return filter(((Filter) item).getFilterOption().getExpression(), entities);
+    } else if (item instanceof Compute) {
+      return compute(((Compute) item).getExpressions(), entities);
+    } else if (item instanceof OrderBy) {
+      return orderBy(((OrderBy) item).getOrderByOption().getOrders(), entities);
+    } else if (item instanceof Skip) {
+      final int skip = ((Skip) item).getSkipOption().getValue();
+      return skip >= entities.size() ? new ArrayList<Entity>() : entities.subList(skip, entities.size());
+    } else if (item instanceof Top) {
+      return entities.subList(0, Math.min(((Top) item).getTopOption().getValue(), entities.size()));
+    } else if (item instanceof BottomTop) {
+      return bottomTop((BottomTop) item, entities);
+    } else if (item instanceof Concat) {
+      List<Entity> result = new ArrayList<>();
+      for (final ApplyOption option : ((Concat) item).getApplyOptions()) {
+        result.addAll(apply(option, entities));
+      }
+      return result;
+    } else if (item instanceof Identity) {
+      return entities;
+    } else {
+      throw notSupported("Transformation " + item.getKind());
+    }
+  }
+
+  private boolean isAggregation(final ApplyItem item) {
+    return item instanceof Aggregate
+        || item instanceof GroupBy && (((GroupBy) item).getApplyOption() == null
+        || isSimpleAggregate(((GroupBy) item).getApplyOption()));
+  }
+
+  private boolean isSimpleAggregate(final ApplyOption option) {
+    return option.getApplyItems().size() == 1 && option.getApplyItems().get(0) instanceof Aggregate;
+  }
+
+  private List<Entity> aggregate(final ApplyItem item, final Iterable<Entity> entities)
+      throws ODataApplicationException {
+    if (item instanceof Aggregate) {
+      return aggregateGroups(Collections.<GroupByItem> emptyList(), createPlan((Aggregate) item), entities);
+    }
+    final GroupBy groupBy = (GroupBy) item;
+    for (final GroupByItem groupByItem : groupBy.getGroupByItems()) {
+      if (groupByItem.isRollupAll() || !groupByItem.getRollup().isEmpty()) {
+        throw notSupported("Rollup");
+      }
+    }
+    final ApplyOption nested = groupBy.getApplyOption();
+    if (nested == null) {
+      return aggregateGroups(groupBy.getGroupByItems(), null, entities);
+    } else if (isSimpleAggregate(nested)) {
+      return aggregateGroups(groupBy.getGroupByItems(), createPlan((Aggregate) nested.getApplyItems().get(0)),
+          entities);
+    }
+
+    // The nested transformations need the entities of the group.
+    final Map<List<Object>, Group> groups = new LinkedHashMap<>();
+    for (final Entity entity : entities) {
+      final Group group = getGroup(groups, groupBy.getGroupByItems(), entity, null);
+      if (group.entities == null) {
+        group.entities = new ArrayList<>();
+      }
+      group.entities.add(entity);
+    }
+    List<Entity> result = new ArrayList<>();
+    for (final Group group : groups.values()) {
+      for (final Entity groupResult : apply(nested, group.entities)) {
+        final Entity entity = copy(groupResult);
+        addGroupingProperties(entity, groupBy.getGroupByItems(), group.properties);
+        result.add(entity);
+      }
+    }
+    return result;
+  }
+
+  private List<Entity> aggregateGroups(final List<GroupByItem> groupByItems, final AggregatePlan plan,
+      final Iterable<Entity> entities) throws ODataApplicationException {
+    Map<List<Object>, Group> groups;
+    if (pool != null && entities instanceof List && ((List<Entity>) entities).size() >= parallelThreshold) {
+      final List<Entity> list = (List<Entity>) entities;
+      final int partitionSize = Math.max(parallelThreshold / 2, list.size() / (pool.getParallelism() * 4) + 1);
+      try {
+        groups = pool.invoke(new PartialAggregation(groupByItems, plan, list, 0, list.size(), partitionSize));
+      } catch (final ODataRuntimeException e) {
+        if (e.getCause() instanceof ODataApplicationException) {
+          throw (ODataApplicationException) e.getCause();
+        }
+        throw e;
+      }
+    } else {
+      groups = aggregatePartition(groupByItems, plan, entities);
+    }
+    if (groupByItems.isEmpty() && groups.isEmpty()) {
+      // Aggregating an empty set results in one entity with the aggregated values of the empty set.
+      groups.put(Collections.emptyList(), new Group(new Property[0], plan));
+    }
+
+    List<Entity> result = new ArrayList<>(groups.size());
+    for (final Group group : groups.values()) {
+      final Entity entity = new Entity();
+      addGroupingProperties(entity, groupByItems, group.properties);
+      if (plan != null) {
+        for (int i = 0; i < plan.aliases.size(); i++) {
+          final Object value = group.accumulators[i].getResult();
+          entity.addProperty(new Property(plan.getTypeName(i, value), plan.aliases.get(i),
+              ValueType.PRIMITIVE, value));
+        }
+      }
+      result.add(entity);
+    }
+    return result;
+  }
+
+  private Map<List<Object>, Group> aggregatePartition(final List<GroupByItem> groupByItems, final AggregatePlan plan,
+      final Iterable<Entity> entities) throws ODataApplicationException {
+    final Map<List<Object>, Group> groups = new LinkedHashMap<>();
+    for (final Entity entity : entities) {
+      final Group group = getGroup(groups, groupByItems, entity, plan);
+      if (plan != null) {
+        for (int i = 0; i < plan.expressions.size(); i++) {
+          final Expression expression = plan.expressions.get(i);
+          group.accumulators[i].add(expression == null ? entity : evaluate(expression, entity));
+        }
+      }
+    }
+    return groups;
+  }
+
+  private Group getGroup(final Map<List<Object>, Group> groups, final List<GroupByItem> groupByItems,
+      final Entity entity, final AggregatePlan plan) throws ODataApplicationException {
+    final Property[] properties = new Property[groupByItems.size()];
+    final List<Object> key = new ArrayList<>(groupByItems.size());
+    for (int i = 0; i < properties.length; i++) {
+      properties[i] = getProperty(groupByItems.get(i).getPath(), entity);
+      final Object value = properties[i] == null ? null : properties[i].getValue();
+      key.add(value instanceof BigDecimal ? ((BigDecimal) value).stripTrailingZeros() : value);
+    }
+    Group group = groups.get(key);
+    if (group == null) {
+      group = new Group(properties, plan);
+      groups.put(key, group);
+    }
+    return group;
+  }
+
+  private Property getProperty(final List<UriResource> path, final Entity entity) throws ODataApplicationException {
+    final UriResource last = path.get(path.size() - 1);
+    if (!(last instanceof UriResourceProperty)) {
+      throw notSupported("Grouping by '" + last.getSegmentValue() + "'");
+    }
+    final Object parent = path.size() == 1 ? entity :
+        ApplyExpressionVisitor.getValue(path.subList(0, path.size() - 1), entity);
+    final String name = ((UriResourceProperty) last).getProperty().getName();
+    if (parent instanceof Entity) {
+      return ((Entity) parent).getProperty(name);
+    } else if (parent instanceof ComplexValue) {
+      for (final Property property : ((ComplexValue) parent).getValue()) {
+        if (name.equals(property.getName())) {
+          return property;
+        }
+      }
+    }
+    return null;
+  }
+
+  /** Adds the grouping properties at their paths, creating complex values and inline entities as needed. */
+  private void addGroupingProperties(final Entity entity, final List<GroupByItem> groupByItems,
+      final Property[] properties) {
+    for (int i = 0; i < properties.length; i++) {
+      final List<UriResource> path = groupByItems.get(i).getPath();
+      Entity currentEntity = entity;
+      List<Property> currentProperties = null;
+      for (final UriResource part : path.subList(0, path.size() - 1)) {
+        final String name = part instanceof UriResourceNavigation ?
+            ((UriResourceNavigation) part).getProperty().getName() :
+            ((UriResourceProperty) part).getProperty().getName();
+        if (part instanceof UriResourceNavigation) {
+          Link link = currentEntity.getNavigationLink(name);
+          if (link == null) {
+            link = new Link();
+            link.setTitle(name);
+            link.setInlineEntity(new Entity());
+            currentEntity.getNavigationLinks().add(link);
+          }
+          currentEntity = link.getInlineEntity();
+          currentProperties = null;
+        } else {
+          Property complex = currentEntity == null ? find(currentProperties, name) : currentEntity.getProperty(name);
+          if (complex == null) {
+            complex = new Property(((UriResourceProperty) part).getProperty().getType().getFullQualifiedName()
+                .getFullQualifiedNameAsString(), name, ValueType.COMPLEX, new ComplexValue());
+            if (currentEntity == null) {
+              currentProperties.add(complex);
+            } else {
+              currentEntity.addProperty(complex);
+            }
+          }
+          currentEntity = null;
+          currentProperties = complex.asComplex().getValue();
+        }
+      }
+      final UriResourceProperty last = (UriResourceProperty) path.get(path.size() - 1);
+      final Property property = properties[i] == null ?
+          new Property(last.getProperty().getType().getFullQualifiedName().getFullQualifiedNameAsString(),
+              last.getProperty().getName(), ValueType.PRIMITIVE, null) :
+          properties[i];
+      if (currentEntity == null) {
+        currentProperties.add(property);
+      } else {
+        currentEntity.addProperty(property);
+      }
+    }
+  }
+
+  private Property find(final List<Property> properties, final String name) {
+    for (final Property property : properties) {
+      if (name.equals(property.getName())) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+  private List<Entity> filter(final Expression expression, final List<Entity> entities)
+      throws ODataApplicationException {
+    List<Entity> result = new ArrayList<>();
+    for (final Entity entity : entities) {
+      if (Boolean.TRUE.equals(evaluate(expression, entity))) {
+        result.add(entity);
+      }
+    }
+    return result;
+  }
+
+  private List<Entity> compute(final List<ComputeExpression> expressions, final List<Entity> entities)
+      throws ODataApplicationException {
+    List<Entity> result = new ArrayList<>(entities.size());
+    for (final Entity entity : entities) {
+      final Entity computed = copy(entity);
+      for (final ComputeExpression expression : expressions) {
+        final Object value = evaluate(expression.getExpression(), entity);
+        computed.addProperty(new Property(getTypeName(expression.getExpression(), value),
+            expression.getAlias(), ValueType.PRIMITIVE, value));
+      }
+      result.add(computed);
+    }
+    return result;
+  }
+
+  private List<Entity> orderBy(final List<OrderByItem> orders, final List<Entity> entities)
+      throws ODataApplicationException {
+    return new EntitySorter(orders, new EntitySorter.KeyEvaluator() {
+      @Override
+      public Object evaluate(final Expression expression, final Entity entity) throws ODataApplicationException {
+        return ApplyExecutor.this.evaluate(expression, entity);
+      }
+    }).setParallelThreshold(pool == null ? Integer.MAX_VALUE : parallelThreshold).sort(entities);
+  }
+
+  private List<Entity> bottomTop(final BottomTop bottomTop, final List<Entity> entities)
+      throws ODataApplicationException {
+    final Object number = evaluate(bottomTop.getNumber(), null);
+    if (!(number instanceof Number)) {
+      throw new ODataApplicationException("The number of " + bottomTop.getMethod() + " must be numeric.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+    final boolean top = bottomTop.getMethod() == BottomTop.Method.TOP_COUNT
+        || bottomTop.getMethod() == BottomTop.Method.TOP_PERCENT
+        || bottomTop.getMethod() == BottomTop.Method.TOP_SUM;
+    final List<Entity> sorted = new ArrayList<>(entities.size());
+    final List<BigDecimal> values = new ArrayList<>(entities.size());
+    for (final Entity entity : orderBy(Collections.<OrderByItem> singletonList(
+        new ValueOrder(bottomTop.getValue(), top)), entities)) {
+      final Object value = evaluate(bottomTop.getValue(), entity);
+      if (value != null) {
+        sorted.add(entity);
+        values.add(ApplyExpressionVisitor.toBigDecimal((Number) value));
+      }
+    }
+
+    switch (bottomTop.getMethod()) {
+    case TOP_COUNT:
+    case BOTTOM_COUNT:
+      return sorted.subList(0, (int) Math.min(((Number) number).longValue(), sorted.size()));
+    default:
+      BigDecimal limit = ApplyExpressionVisitor.toBigDecimal((Number) number);
+      if (bottomTop.getMethod() == BottomTop.Method.TOP_PERCENT
+          || bottomTop.getMethod() == BottomTop.Method.BOTTOM_PERCENT) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (final BigDecimal value : values) {
+          total = total.add(value);
+        }
+        limit = total.multiply(limit).movePointLeft(2);
+      }
+      // Take entities until their sum reaches the limit.
+      BigDecimal sum = BigDecimal.ZERO;
+      int count = 0;
+      while (count < sorted.size() && sum.compareTo(limit) < 0) {
+        sum = sum.add(values.get(count));
+        count++;
+      }
+      return sorted.subList(0, count);
+    }
+  }
+
+  private AggregatePlan createPlan(final Aggregate aggregate) throws ODataApplicationException {
+    AggregatePlan plan = new AggregatePlan();
+    for (final AggregateExpression expression : aggregate.getExpressions()) {
+      if (expression.getInlineAggregateExpression() != null || !expression.getFrom().isEmpty()
+          || expression.getCustomMethod() != null || expression.getAlias() == null) {
+        throw notSupported("Aggregate expression " + expression.getAlias());
+      }
+      final List<UriResource> path = expression.getPath();
+      if (expression.getExpression() == null && path != null && !path.isEmpty()
+          && path.get(path.size() - 1) instanceof UriResourceCount) {
+        plan.add(expression.getAlias(), null, Accumulator.count(), DECIMAL_TYPE);
+      } else if (expression.getExpression() != null && expression.getStandardMethod() != null) {
+        final AggregateExpression.StandardMethod method = expression.getStandardMethod();
+        plan.add(expression.getAlias(), expression.getExpression(), Accumulator.create(method),
+            method == AggregateExpression.StandardMethod.MIN || method == AggregateExpression.StandardMethod.MAX ?
+                getTypeName(expression.getExpression(), null) : DECIMAL_TYPE);
+      } else {
+        throw notSupported("Aggregate expression " + expression.getAlias());
+      }
+    }
+    return plan;
+  }
+
+  private String getTypeName(final Expression expression, final Object value) {
+    if (expression instanceof Member && ((Member) expression).getType() != null) {
+      final EdmType type = ((Member) expression).getType();
+      return type.getFullQualifiedName().getFullQualifiedNameAsString();
+    }
+    return value instanceof Double ? DOUBLE_TYPE : null;
+  }
+
+  private Entity copy(final Entity entity) {
+    final Entity copy = new Entity();
+    copy.setType(entity.getType());
+    copy.setId(entity.getId());
+    copy.getProperties().addAll(entity.getProperties());
+    copy.getNavigationLinks().addAll(entity.getNavigationLinks());
+    return copy;
+  }
+
+  private List<Entity> toList(final AbstractEntityCollection entities) {
+    if (entities instanceof EntityCollection) {
+      return ((EntityCollection) entities).getEntities();
+    }
+    List<Entity> list = new ArrayList<>();
+    for (final Entity entity : entities) {
+      list.add(entity);
+    }
+    return list;
+  }
+
+  private static ODataApplicationException notSupported(final String what) {
+    return new ODataApplicationException(what + " is not supported.",
+        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+  }
+
+  /** The aggregate expressions of an <code>aggregate</code> transformation. */
+  private static final class AggregatePlan {
+    private final List<String> aliases = new ArrayList<>();
+    /** The expressions to aggregate; <code>null</code> for <code>$count</code>. */
+    private final List<Expression> expressions = new ArrayList<>();
+    private final List<Accumulator> prototypes = new ArrayList<>();
+    private final List<String> typeNames = new ArrayList<>();
+
+    private void add(final String alias, final Expression expression, final Accumulator prototype,
+        final String typeName) {
+      aliases.add(alias);
+      expressions.add(expression);
+      prototypes.add(prototype);
+      typeNames.add(typeName);
+    }
+
+    private String getTypeName(final int index, final Object value) {
+      return DECIMAL_TYPE.equals(typeNames.get(index)) && value instanceof Double ? DOUBLE_TYPE : typeNames.get(index);
+    }
+  }
+
+  /** One group, with the values of its grouping properties and its (partial) aggregates. */
+  private static final class Group {
+    private final Property[] properties;
+    private final Accumulator[] accumulators;
+    private List<Entity> entities;
+
+    private Group(final Property[] properties, final AggregatePlan plan) {
+      this.properties = properties;
+      accumulators = new Accumulator[plan == null ? 0 : plan.prototypes.size()];
+      for (int i = 0; i < accumulators.length; i++) {
+        accumulators[i] = plan.prototypes.get(i).newInstance();
+      }
+    }
+
+    private void merge(final Group other) throws ODataApplicationException {
+      for (int i = 0; i < accumulators.length; i++) {
+        accumulators[i].merge(other.accumulators[i]);
+      }
+    }
+  }
+
+  /** Aggregates a partition of the input, splitting it further if it is too large. */
+  private final class PartialAggregation extends RecursiveTask<Map<List<Object>, Group>> {
+    private static final long serialVersionUID = 1L;
+
+    private final List<GroupByItem> groupByItems;
+    private final AggregatePlan plan;
+    private final List<Entity> entities;
+    private final int from;
+    private final int to;
+    private final int partitionSize;
+
+    private PartialAggregation(final List<GroupByItem> groupByItems, final AggregatePlan plan,
+        final List<Entity> entities, final int from, final int to, final int partitionSize) {
+      this.groupByItems = groupByItems;
+      this.plan = plan;
+      this.entities = entities;
+      this.from = from;
+      this.to = to;
+      this.partitionSize = partitionSize;
+    }
+
+    @Override
+    protected Map<List<Object>, Group> compute() {
+      try {
+        if (to - from <= partitionSize) {
+          return aggregatePartition(groupByItems, plan, entities.subList(from, to));
+        }
+        final int middle = (from + to) >>> 1;
+        final PartialAggregation right =
+            new PartialAggregation(groupByItems, plan, entities, middle, to, partitionSize);
+        right.fork();
+        final Map<List<Object>, Group> groups =
+            new PartialAggregation(groupByItems, plan, entities, from, middle, partitionSize).compute();
+        for (final Map.Entry<List<Object>, Group> entry : right.join().entrySet()) {
+          final Group group = groups.get(entry.getKey());
+          if (group == null) {
+            groups.put(entry.getKey(), entry.getValue());
+          } else {
+            group.merge(entry.getValue());
+          }
+        }
+        return groups;
+      } catch (final ODataApplicationException e) {
+        throw new ODataRuntimeException(e.getMessage(), e);
+      }
+    }
+  }
+
+  /** Orders by a value, used for <code>topcount</code> and its relatives. */
+  private static final class ValueOrder implements OrderByItem {
+    private final Expression expression;
+    private final boolean descending;
+
+    private ValueOrder(final Expression expression, final boolean descending) {
+      this.expression = expression;
+      this.descending = descending;
+    }
+
+    @Override
+    public boolean isDescending() {
+      return descending;
+    }
+
+    @Override
+    public Expression getExpression() {
+      return expression;
+    }
+  }
+}
@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmEnumType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceCount;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.expression.BinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitor;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+import org.apache.olingo.server.api.uri.queryoption.expression.MethodKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.UnaryOperatorKind;
+
+/**
+ * Evaluates expressions of transformations (or of <code>$filter</code> and <code>$orderby</code>)
+ * on a single entity.
+ * <p>
+ * Supported are property paths (also through complex properties and expanded single-valued
+ * navigation properties), literals, arithmetic, comparison and logical operators, and the most common
+ * string and arithmetic methods.
+ * </p>
+ */
+public class ApplyExpressionVisitor implements ExpressionVisitor<Object> {
+
+  private static final MathContext DIVISION_CONTEXT = MathContext.DECIMAL64;
+
+  private final Entity entity;
+
+  ApplyExpressionVisitor(final Entity entity) {
+    this.entity = entity;
+  }
+
+  /**
+   * Evaluates an expression.
+   * @param expression the expression
+   * @param entity the entity the expression is evaluated on
+   * @return the value; <code>null</code> for the null value
+   * @throws ODataApplicationException if the expression is not supported or cannot be evaluated
+   */
+  public static Object evaluate(final Expression expression, final Entity entity) throws ODataApplicationException {
+    try {
+      return expression.accept(new ApplyExpressionVisitor(entity));
+    } catch (final ExpressionVisitException e) {
+      throw new ODataApplicationException("Invalid expression: " + e.getMessage(),
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  /**
+   * Gets the value at the end of the given path, or <code>null</code> if there is none.
+   * @param parts the resource parts of the path
+   * @param entity the entity where the path starts
+   */
+  static Object getValue(final List<UriResource> parts, final Entity entity) throws ODataApplicationException {
+    Entity currentEntity = entity;
+    List<Property> currentProperties = null;
+    Object value = null;
+    for (final UriResource part : parts) {
+      if (currentEntity == null && currentProperties == null) {
+        return null;
+      }
+      if (part instanceof UriResourceProperty) {
+        final String name = ((UriResourceProperty) part).getProperty().getName();
+        final Property property = currentEntity == null ?
+            findProperty(currentProperties, name) : currentEntity.getProperty(name);
+        value = property == null ? null : property.getValue();
+        currentEntity = null;
+        currentProperties = value instanceof ComplexValue ? ((ComplexValue) value).getValue() : null;
+      } else if (part instanceof UriResourceNavigation && currentEntity != null
+          && !((UriResourceNavigation) part).isCollection()) {
+        final Link link = currentEntity.getNavigationLink(((UriResourceNavigation) part).getProperty().getName());
+        currentEntity = link == null ? null : link.getInlineEntity();
+        value = currentEntity;
+      } else if (part instanceof UriResourceCount) {
+        throw new ODataApplicationException("$count is not supported in this context.",
+            HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+      } else {
+        throw new ODataApplicationException("Path segment '" + part.getSegmentValue() + "' is not supported.",
+            HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+      }
+    }
+    return value;
+  }
+
+  private static Property findProperty(final List<Property> properties, final String name) {
+    for (final Property property : properties) {
+      if (name.equals(property.getName())) {
+        return property;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public Object visitBinaryOperator(final BinaryOperatorKind operator, final Object left, final Object right)
+      throws ODataApplicationException {
+    switch (operator) {
+    case AND:
+      return Boolean.TRUE.equals(left) && Boolean.TRUE.equals(right);
+    case OR:
+      return Boolean.TRUE.equals(left) || Boolean.TRUE.equals(right);
+    case EQ:
+      return compareNullable(left, right) == 0;
+    case NE:
+      return compareNullable(left, right) != 0;
+    case GT:
+      return left != null && right != null && compare(left, right) > 0;
+    case GE:
+      return left != null && right != null && compare(left, right) >= 0;
+    case LT:
+      return left != null && right != null && compare(left, right) < 0;
+    case LE:
+      return left != null && right != null && compare(left, right) <= 0;
+    case ADD:
+    case SUB:
+    case MUL:
+    case DIV:
+    case MOD:
+      return left == null || right == null ? null : calculate(operator, toNumber(left), toNumber(right));
+    default:
+      throw notSupported("Operator " + operator);
+    }
+  }
+
+  @Override
+  public Object visitBinaryOperator(final BinaryOperatorKind operator, final Object left, final List<Object> right)
+      throws ODataApplicationException {
+    if (operator != BinaryOperatorKind.IN) {
+      throw notSupported("Operator " + operator);
+    }
+    for (final Object value : right) {
+      if (compareNullable(left, value) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Object visitUnaryOperator(final UnaryOperatorKind operator, final Object operand)
+      throws ODataApplicationException {
+    if (operator == UnaryOperatorKind.NOT) {
+      return operand == null ? null : !Boolean.TRUE.equals(operand);
+    } else if (operand == null) {
+      return null;
+    }
+    final Number number = toNumber(operand);
+    if (number instanceof BigDecimal) {
+      return ((BigDecimal) number).negate();
+    } else if (isIntegral(number)) {
+      return -number.longValue();
+    } else {
+      return -number.doubleValue();
+    }
+  }
+
+  @Override
+  public Object visitMethodCall(final MethodKind methodCall, final List<Object> parameters)
+      throws ODataApplicationException {
+    for (final Object parameter : parameters) {
+      if (parameter == null) {
+        return null;
+      }
+    }
+    switch (methodCall) {
+    case CONTAINS:
+      return parameters.get(0).toString().contains(parameters.get(1).toString());
+    case STARTSWITH:
+      return parameters.get(0).toString().startsWith(parameters.get(1).toString());
+    case ENDSWITH:
+      return parameters.get(0).toString().endsWith(parameters.get(1).toString());
+    case INDEXOF:
+      return parameters.get(0).toString().indexOf(parameters.get(1).toString());
+    case LENGTH:
+      return parameters.get(0).toString().length();
+    case TOLOWER:
+      return parameters.get(0).toString().toLowerCase(Locale.ROOT);
+    case TOUPPER:
+      return parameters.get(0).toString().toUpperCase(Locale.ROOT);
+    case TRIM:
+      return parameters.get(0).toString().trim();
+    case CONCAT:
+      return parameters.get(0).toString() + parameters.get(1).toString();
+    case ROUND:
+      return round(toNumber(parameters.get(0)), RoundingMode.HALF_UP);
+    case FLOOR:
+      return round(toNumber(parameters.get(0)), RoundingMode.FLOOR);
+    case CEILING:
+      return round(toNumber(parameters.get(0)), RoundingMode.CEILING);
+    default:
+      throw notSupported("Method " + methodCall);
+    }
+  }
+
+  @Override
+  public Object visitLambdaExpression(final String lambdaFunction, final String lambdaVariable,
+      final Expression expression) throws ODataApplicationException {
+    throw notSupported("Lambda expression");
+  }
+
+  @Override
+  public Object visitLiteral(final Literal literal) throws ODataApplicationException {
+    final EdmType type = literal.getType();
+    if (type == null) {
+      return null;
+    } else if (!(type instanceof EdmPrimitiveType)) {
+      throw notSupported("Literal of type " + type.getFullQualifiedName());
+    }
+    final EdmPrimitiveType primitiveType = (EdmPrimitiveType) type;
+    try {
+      return primitiveType.valueOfString(primitiveType.fromUriLiteral(literal.getText()),
+          true, null, null, null, true, primitiveType.getDefaultType());
+    } catch (final EdmPrimitiveTypeException e) {
+      throw new ODataApplicationException("Invalid literal " + literal.getText(),
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  @Override
+  public Object visitMember(final Member member) throws ODataApplicationException {
+    return getValue(member.getResourcePath().getUriResourceParts(), entity);
+  }
+
+  @Override
+  public Object visitAlias(final String aliasName) throws ODataApplicationException {
+    throw notSupported("Alias");
+  }
+
+  @Override
+  public Object visitTypeLiteral(final EdmType type) throws ODataApplicationException {
+    throw notSupported("Type literal");
+  }
+
+  @Override
+  public Object visitLambdaReference(final String variableName) throws ODataApplicationException {
+    throw notSupported("Lambda reference");
+  }
+
+  @Override
+  public Object visitEnum(final EdmEnumType type, final List<String> enumValues) throws ODataApplicationException {
+    throw notSupported("Enumeration literal");
+  }
+
+  /**
+   * Compares two non-<code>null</code> values; numbers are compared by their numerical value.
+   */
+  @SuppressWarnings("unchecked")
+  static int compare(final Object left, final Object right) throws ODataApplicationException {
+    if (left instanceof Number && right instanceof Number) {
+      if (isIntegral((Number) left) && isIntegral((Number) right)) {
+        return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+      }
+      return toBigDecimal((Number) left).compareTo(toBigDecimal((Number) right));
+    } else if (left instanceof Comparable && left.getClass().isInstance(right)) {
+      return ((Comparable<Object>) left).compareTo(right);
+    } else {
+      throw new ODataApplicationException("Values of type " + left.getClass().getSimpleName()
+          + " and " + right.getClass().getSimpleName() + " cannot be compared.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+  }
+
+  /**
+   * Compares two values; <code>null</code> is less than any other value.
+   */
+  static int compareNullable(final Object left, final Object right) throws ODataApplicationException {
+    if (left == null || right == null) {
+      return left == null ? (right == null ? 0 : -1) : 1;
+    }
+    return compare(left, right);
+  }
+
+  static boolean isIntegral(final Number number) {
+    return number instanceof Long || number instanceof Integer || number instanceof Short
+        || number instanceof Byte;
+  }
+
+  static BigDecimal toBigDecimal(final Number number) {
+    if (number instanceof BigDecimal) {
+      return (BigDecimal) number;
+    } else if (isIntegral(number)) {
+      return BigDecimal.valueOf(number.longValue());
+    } else {
+      return BigDecimal.valueOf(number.doubleValue());
+    }
+  }
+
+  private static Number toNumber(final Object value) throws ODataApplicationException {
+    if (value instanceof Number) {
+      return (Number) value;
+    }
+    throw new ODataApplicationException("Value of type " + value.getClass().getSimpleName() + " is not numeric.",
+        HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+  }
+
+  private static Number calculate(final BinaryOperatorKind operator, final Number left, final Number right)
+      throws ODataApplicationException {
+    if (isIntegral(left) && isIntegral(right)) {
+      final long l = left.longValue();
+      final long r = right.longValue();
+      if ((operator == BinaryOperatorKind.DIV || operator == BinaryOperatorKind.MOD) && r == 0) {
+        throw new ODataApplicationException("Division by zero.",
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+      try {
+        switch (operator) {
+        case ADD:
+          return Math.addExact(l, r);
+        case SUB:
+          return Math.subtractExact(l, r);
+        case MUL:
+          return Math.multiplyExact(l, r);
+        case DIV:
+          return l / r;
+        default:
+          return l % r;
+        }
+      } catch (final ArithmeticException e) {
+        // The result does not fit into a long value; calculate it with decimals.
+      }
+    }
+    if (left instanceof Double || left instanceof Float || right instanceof Double || right instanceof Float) {
+      final double l = left.doubleValue();
+      final double r = right.doubleValue();
+      switch (operator) {
+      case ADD:
+        return l + r;
+      case SUB:
+        return l - r;
+      case MUL:
+        return l * r;
+      case DIV:
+        return l / r;
+      default:
+        return l % r;
+      }
+    }
+    final BigDecimal l = toBigDecimal(left);
+    final BigDecimal r = toBigDecimal(right);
+    if ((operator == BinaryOperatorKind.DIV || operator == BinaryOperatorKind.MOD) && r.signum() == 0) {
+      throw new ODataApplicationException("Division by zero.",
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+    switch (operator) {
+    case ADD:
+      return l.add(r);
+    case SUB:
+      return l.subtract(r);
+    case MUL:
+      return l.multiply(r);
+    case DIV:
+      return l.divide(r, DIVISION_CONTEXT);
+    default:
+      return l.remainder(r);
+    }
+  }
+
+  private static Number round(final Number number, final RoundingMode mode) {
+    if (isIntegral(number)) {
+      return number;
+    } else if (number instanceof BigDecimal) {
+      return ((BigDecimal) number).setScale(0, mode);
+    } else {
+      return BigDecimal.valueOf(number.doubleValue()).setScale(0, mode).doubleValue();
+    }
+  }
+
+  private static ODataApplicationException notSupported(final String what) {
+    return new ODataApplicationException(what + " is not supported in transformations.",
+        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+  }
+}
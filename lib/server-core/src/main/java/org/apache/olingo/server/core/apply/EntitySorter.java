@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+
+/**
+ * Orders entities according to the items of an <code>$orderby</code> option.
+ * <p>
+ * Every order expression is evaluated exactly once per entity; the results are stored in typed key columns
+ * (<code>long</code> and <code>double</code> arrays for integral and floating-point values), so that comparisons
+ * neither evaluate expressions nor unbox values. The order is stable, <code>null</code> values are ordered
+ * first in ascending order, and values which cannot be compared are treated as equal.
+ * </p>
+ * <p>
+ * If only the first entities are needed, as for <code>$top</code>, {@link #sort(List, int)} keeps them
+ * in a bounded heap instead of sorting all entities.
+ * </p>
+ */
+public class EntitySorter {
+
+  /** Evaluates an order expression for an entity. */
+  public interface KeyEvaluator {
+    /**
+     * Evaluates an order expression.
+     * @param expression the expression
+     * @param entity the entity
+     * @return the value or <code>null</code>
+     * @throws ODataApplicationException if the expression could not be evaluated
+     */
+    Object evaluate(Expression expression, Entity entity) throws ODataApplicationException;
+  }
+
+  private static final KeyEvaluator DEFAULT_EVALUATOR = new KeyEvaluator() {
+    @Override
+    public Object evaluate(final Expression expression, final Entity entity) throws ODataApplicationException {
+      return ApplyExpressionVisitor.evaluate(expression, entity);
+    }
+  };
+
+  private final List<OrderByItem> orders;
+  private final KeyEvaluator evaluator;
+  private int parallelThreshold = Integer.MAX_VALUE;
+
+  /**
+   * Creates a sorter evaluating property paths, literals, and operators.
+   * @param orders the order items
+   */
+  public EntitySorter(final List<OrderByItem> orders) {
+    this(orders, DEFAULT_EVALUATOR);
+  }
+
+  /**
+   * Creates a sorter.
+   * @param orders the order items
+   * @param evaluator the evaluator for the order expressions
+   */
+  public EntitySorter(final List<OrderByItem> orders, final KeyEvaluator evaluator) {
+    this.orders = orders;
+    this.evaluator = evaluator;
+  }
+
+  /**
+   * Sets the minimum number of entities for which the sorting is done in parallel.
+   * @param parallelThreshold the threshold
+   * @return this sorter
+   */
+  public EntitySorter setParallelThreshold(final int parallelThreshold) {
+    this.parallelThreshold = parallelThreshold;
+    return this;
+  }
+
+  /**
+   * Orders the entities.
+   * @param entities the entities; not modified
+   * @return the ordered entities
+   * @throws ODataApplicationException if an order expression could not be evaluated
+   */
+  public List<Entity> sort(final List<Entity> entities) throws ODataApplicationException {
+    return sort(entities, entities.size());
+  }
+
+  /**
+   * Gets the first entities in order.
+   * @param entities the entities; not modified
+   * @param limit the maximum number of entities to return
+   * @return the first <code>limit</code> entities in order
+   * @throws ODataApplicationException if an order expression could not be evaluated
+   */
+  public List<Entity> sort(final List<Entity> entities, final int limit) throws ODataApplicationException {
+    final int size = entities.size();
+    if (limit <= 0 || size == 0) {
+      return new ArrayList<>();
+    }
+    final KeyComparator comparator = new KeyComparator(createColumns(entities));
+
+    Integer[] positions;
+    if (limit < size / 2) {
+      // A heap ordered in reverse keeps the best entities; the worst of them is always on top.
+      final PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, Collections.reverseOrder(comparator));
+      for (int i = 0; i < size; i++) {
+        heap.offer(i);
+        if (heap.size() > limit) {
+          heap.poll();
+        }
+      }
+      positions = heap.toArray(new Integer[heap.size()]);
+      Arrays.sort(positions, comparator);
+    } else {
+      positions = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        positions[i] = i;
+      }
+      if (size >= parallelThreshold) {
+        Arrays.parallelSort(positions, comparator);
+      } else {
+        Arrays.sort(positions, comparator);
+      }
+    }
+
+    final int resultSize = Math.min(limit, positions.length);
+    List<Entity> result = new ArrayList<>(resultSize);
+    for (int i = 0; i < resultSize; i++) {
+      result.add(entities.get(positions[i]));
+    }
+    return result;
+  }
+
+  private KeyColumn[] createColumns(final List<Entity> entities) throws ODataApplicationException {
+    final KeyColumn[] columns = new KeyColumn[orders.size()];
+    final Object[] values = new Object[entities.size()];
+    for (int column = 0; column < columns.length; column++) {
+      final Expression expression = orders.get(column).getExpression();
+      boolean integral = true;
+      boolean floatingPoint = true;
+      for (int i = 0; i < values.length; i++) {
+        final Object value = evaluator.evaluate(expression, entities.get(i));
+        values[i] = value;
+        if (value != null) {
+          integral &= value instanceof Number && ApplyExpressionVisitor.isIntegral((Number) value);
+          floatingPoint &= value instanceof Double || value instanceof Float;
+        }
+      }
+      final boolean descending = orders.get(column).isDescending();
+      columns[column] = integral ? new LongColumn(values, descending)
+          : floatingPoint ? new DoubleColumn(values, descending)
+              : new ObjectColumn(values.clone(), descending);
+    }
+    return columns;
+  }
+
+  /** Compares entity positions by their keys; ties are broken by the position to keep the order stable. */
+  private static final class KeyComparator implements Comparator<Integer> {
+    private final KeyColumn[] columns;
+
+    private KeyComparator(final KeyColumn[] columns) {
+      this.columns = columns;
+    }
+
+    @Override
+    public int compare(final Integer left, final Integer right) {
+      final int l = left;
+      final int r = right;
+      for (final KeyColumn column : columns) {
+        final int result = column.compare(l, r);
+        if (result != 0) {
+          return result;
+        }
+      }
+      return Integer.compare(l, r);
+    }
+  }
+
+  /** The evaluated keys of one order item. */
+  private abstract static class KeyColumn {
+    private final boolean[] nulls;
+    private final boolean descending;
+
+    KeyColumn(final Object[] values, final boolean descending) {
+      nulls = new boolean[values.length];
+      for (int i = 0; i < values.length; i++) {
+        nulls[i] = values[i] == null;
+      }
+      this.descending = descending;
+    }
+
+    int compare(final int left, final int right) {
+      final int result = nulls[left] || nulls[right] ?
+          Boolean.compare(!nulls[left], !nulls[right]) :
+          compareValues(left, right);
+      return descending ? -result : result;
+    }
+
+    abstract int compareValues(int left, int right);
+  }
+
+  private static final class LongColumn extends KeyColumn {
+    private final long[] keys;
+
+    LongColumn(final Object[] values, final boolean descending) {
+      super(values, descending);
+      keys = new long[values.length];
+      for (int i = 0; i < values.length; i++) {
+        keys[i] = values[i] == null ? 0 : ((Number) values[i]).longValue();
+      }
+    }
+
+    @Override
+    int compareValues(final int left, final int right) {
+      return Long.compare(keys[left], keys[right]);
+    }
+  }
+
+  private static final class DoubleColumn extends KeyColumn {
+    private final double[] keys;
+
+    DoubleColumn(final Object[] values, final boolean descending) {
+      super(values, descending);
+      keys = new double[values.length];
+      for (int i = 0; i < values.length; i++) {
+        keys[i] = values[i] == null ? 0 : ((Number) values[i]).doubleValue();
+      }
+    }
+
+    @Override
+    int compareValues(final int left, final int right) {
+      return Double.compare(keys[left], keys[right]);
+    }
+  }
+
+  private static final class ObjectColumn extends KeyColumn {
+    private final Object[] keys;
+
+    ObjectColumn(final Object[] values, final boolean descending) {
+      super(values, descending);
+      keys = values;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    int compareValues(final int left, final int right) {
+      final Object l = keys[left];
+      final Object r = keys[right];
+      if (l instanceof Number && r instanceof Number && l.getClass() != r.getClass()) {
+        return ApplyExpressionVisitor.toBigDecimal((Number) l)
+            .compareTo(ApplyExpressionVisitor.toBigDecimal((Number) r));
+      } else if (l instanceof Comparable && l.getClass() == r.getClass()) {
+        return ((Comparable<Object>) l).compareTo(r);
+      }
+      return 0;
+    }
+  }
+}
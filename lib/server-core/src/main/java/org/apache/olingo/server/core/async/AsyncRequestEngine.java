@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.async;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.async.AsyncRequestSupport;
+import org.apache.olingo.server.api.async.AsyncResponseStore;
+import org.apache.olingo.server.api.prefer.PreferencesApplied;
+import org.apache.olingo.server.api.serializer.SerializerException;
+import org.apache.olingo.server.core.ODataHandlerException;
+
+/**
+ * Processes requests with the preference <code>respond-async</code> in the background.
+ * <p>
+ * The request is answered with <code>202 Accepted</code> and a <code>Location</code> header
+ * pointing to a status monitor resource below <code>$async</code>. A <code>GET</code> request
+ * to the status monitor returns <code>202 Accepted</code> as long as the request is processed and
+ * the complete response in the format <code>application/http</code> afterwards.
+ * A <code>DELETE</code> request cancels the processing and discards the result.
+ * </p>
+ * <p>
+ * If the client has specified the preference <code>wait</code> and the processing finishes in time,
+ * the response is returned directly.
+ * Results are kept in the {@link AsyncResponseStore} until their time to live has expired.
+ * </p>
+ */
+public class AsyncRequestEngine implements AsyncRequestSupport {
+
+  private static final String MONITOR_PATH_PREFIX = "/" + STATUS_MONITOR_SEGMENT + "/";
+  private static final Pattern ID_PATTERN =
+      Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+  private static final String CONTENT_TRANSFER_ENCODING = "Content-Transfer-Encoding";
+  private static final String RETRY_AFTER_SECONDS = "1";
+  private static final long MAX_EVICTION_INTERVAL = 60000;
+
+  private static final int WAITING = 0;
+  private static final int DETACHED = 1;
+  private static final int HANDED_OVER = 2;
+
+  private final OData odata;
+  private final Executor executor;
+  private final AsyncResponseStore store;
+  private final long timeToLive;
+  private final long evictionInterval;
+
+  private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+  private final AtomicLong nextEviction = new AtomicLong();
+  private volatile int maxRequestSize = DEFAULT_MAX_REQUEST_SIZE;
+  private volatile boolean shutdown;
+
+  public AsyncRequestEngine(final OData odata, final Executor executor, final AsyncResponseStore store,
+      final long timeToLive) {
+    if (timeToLive <= 0) {
+      throw new IllegalArgumentException("Time to live must be positive.");
+    }
+    this.odata = odata;
+    this.executor = executor;
+    this.store = store;
+    this.timeToLive = timeToLive;
+    evictionInterval = Math.min(timeToLive, MAX_EVICTION_INTERVAL);
+  }
+
+  @Override
+  public int getRunningRequests() {
+    int running = 0;
+    for (final Job job : jobs.values()) {
+      if (!job.isDone()) {
+        running++;
+      }
+    }
+    return running;
+  }
+
+  @Override
+  public void setMaxRequestSize(final int maxRequestSize) {
+    if (maxRequestSize < 0) {
+      throw new IllegalArgumentException("The maximum request size must not be negative.");
+    }
+    this.maxRequestSize = maxRequestSize;
+  }
+
+  @Override
+  public void shutdown() {
+    shutdown = true;
+    for (final Job job : jobs.values()) {
+      job.cancel(true);
+    }
+    jobs.clear();
+  }
+
+  /**
+   * Checks whether the request addresses a status monitor resource.
+   * @param request the OData request
+   * @return <code>true</code> for status monitor requests
+   */
+  public boolean isStatusMonitorRequest(final ODataRequest request) {
+    final String path = request.getRawODataPath();
+    return path != null && path.startsWith(MONITOR_PATH_PREFIX);
+  }
+
+  /**
+   * Answers a request to a status monitor resource.
+   * @param request the OData request
+   * @param response the OData response
+   * @throws ODataHandlerException if the HTTP method is not allowed for status monitor resources
+   */
+  public void handleStatusMonitorRequest(final ODataRequest request, final ODataResponse response)
+      throws ODataHandlerException {
+    removeExpired();
+    final String id = request.getRawODataPath().substring(MONITOR_PATH_PREFIX.length());
+    final HttpMethod method = request.getMethod();
+    if (method != HttpMethod.GET && method != HttpMethod.DELETE) {
+      throw new ODataHandlerException("HTTP method " + method + " not allowed for status monitor resources.",
+          ODataHandlerException.MessageKeys.HTTP_METHOD_NOT_ALLOWED, method.toString());
+    }
+    if (!ID_PATTERN.matcher(id).matches()) {
+      response.setStatusCode(HttpStatusCode.NOT_FOUND.getStatusCode());
+      return;
+    }
+
+    if (method == HttpMethod.DELETE) {
+      final Job job = jobs.remove(id);
+      if (job != null) {
+        job.cancel(true);
+      }
+      try {
+        final boolean found = job != null || store.retrieve(id) != null;
+        store.remove(id);
+        response.setStatusCode(found ? HttpStatusCode.NO_CONTENT.getStatusCode()
+            : HttpStatusCode.NOT_FOUND.getStatusCode());
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Cannot remove the result of request " + id, e);
+      }
+      return;
+    }
+
+    final Job job = jobs.get(id);
+    byte[] result = null;
+    if (job != null && !job.isDone()) {
+      setAccepted(response, request, id);
+      response.setHeader(HttpHeader.RETRY_AFTER, RETRY_AFTER_SECONDS);
+      return;
+    } else if (job != null && job.unstored != null) {
+      result = job.unstored;
+    } else {
+      try {
+        result = store.retrieve(id);
+      } catch (final IOException e) {
+        throw new ODataRuntimeException("Cannot read the result of request " + id, e);
+      }
+    }
+    if (result == null) {
+      response.setStatusCode(job == null ? HttpStatusCode.NOT_FOUND.getStatusCode()
+          : HttpStatusCode.ACCEPTED.getStatusCode());
+      if (job != null) {
+        // the result is being stored right now
+        setAccepted(response, request, id);
+        response.setHeader(HttpHeader.RETRY_AFTER, RETRY_AFTER_SECONDS);
+      }
+    } else {
+      response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+      response.setHeader(HttpHeader.CONTENT_TYPE, ContentType.APPLICATION_HTTP.toContentTypeString());
+      response.setHeader(CONTENT_TRANSFER_ENCODING, "binary");
+      response.setContent(new ByteArrayInputStream(result));
+    }
+  }
+
+  /**
+   * Processes a request in the background.
+   * <p>
+   * The request body must be readable independently from the original request,
+   * since the original request may have been finished before the processing starts.
+   * </p>
+   * @param request the OData request
+   * @param response the OData response; filled with either the final result or the status monitor reference
+   * @param processing the processing of the request, creating its response
+   * @param wait the number of seconds the client is willing to wait for the response, or <code>null</code>
+   * @return <code>false</code> if the request has not been accepted for background processing
+   * and has to be processed synchronously
+   */
+  public boolean submit(final ODataRequest request, final ODataResponse response,
+      final Callable<ODataResponse> processing, final Integer wait) {
+    if (shutdown) {
+      return false;
+    }
+    removeExpired();
+    final String id = UUID.randomUUID().toString();
+    final Job job = new Job(id, processing, wait != null && wait > 0 ? WAITING : DETACHED);
+    jobs.put(id, job);
+    try {
+      executor.execute(job);
+    } catch (final RejectedExecutionException e) {
+      jobs.remove(id);
+      return false;
+    }
+
+    if (wait != null && wait > 0) {
+      try {
+        job.handedOver.await(wait, TimeUnit.SECONDS);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      if (!job.state.compareAndSet(WAITING, DETACHED)) {
+        copy(job.getResult(), response);
+        return true;
+      }
+    }
+    setAccepted(response, request, id);
+    response.setHeader(HttpHeader.PREFERENCE_APPLIED,
+        PreferencesApplied.with().respondAsync().build().toValueString());
+    return true;
+  }
+
+  /**
+   * Reads the request body into memory, so that it can be processed after the original request has finished.
+   * @param body the request body
+   * @return the buffered body
+   * @throws ODataHandlerException if the body exceeds the maximum request size
+   */
+  public InputStream bufferBody(final InputStream body) throws ODataHandlerException {
+    final int maxSize = maxRequestSize;
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final byte[] chunk = new byte[8192];
+    try {
+      int count;
+      while ((count = body.read(chunk)) > 0) {
+        if (buffer.size() + count > maxSize) {
+          throw new ODataHandlerException("The request body exceeds " + maxSize + " bytes.",
+              ODataHandlerException.MessageKeys.PAYLOAD_TOO_LARGE, Integer.toString(maxSize));
+        }
+        buffer.write(chunk, 0, count);
+      }
+    } catch (final IOException e) {
+      throw new ODataRuntimeException("Error on reading request content", e);
+    }
+    return new ByteArrayInputStream(buffer.toByteArray());
+  }
+
+  private void setAccepted(final ODataResponse response, final ODataRequest request, final String id) {
+    response.setStatusCode(HttpStatusCode.ACCEPTED.getStatusCode());
+    response.setHeader(HttpHeader.LOCATION, request.getRawBaseUri() + MONITOR_PATH_PREFIX + id);
+  }
+
+  private void copy(final ODataResponse from, final ODataResponse to) {
+    to.setStatusCode(from.getStatusCode());
+    for (final Map.Entry<String, List<String>> header : from.getAllHeaders().entrySet()) {
+      to.addHeader(header.getKey(), header.getValue());
+    }
+    to.setContent(from.getContent());
+    to.setODataContent(from.getODataContent());
+  }
+
+  private void removeExpired() {
+    final long now = System.currentTimeMillis();
+    final long scheduled = nextEviction.get();
+    if (now < scheduled || !nextEviction.compareAndSet(scheduled, now + evictionInterval)) {
+      return;
+    }
+    final Iterator<Job> iterator = jobs.values().iterator();
+    while (iterator.hasNext()) {
+      final Job job = iterator.next();
+      if (job.isDone() && job.expirationTime < now) {
+        iterator.remove();
+      }
+    }
+    try {
+      store.removeExpired(now);
+    } catch (final IOException e) {
+      // Expired results are tried to be removed again with the next eviction.
+    }
+  }
+
+  private byte[] serialize(final ODataResponse response) throws SerializerException, IOException {
+    if (response.getODataContent() != null) {
+      final ByteArrayOutputStream content = new ByteArrayOutputStream();
+      response.getODataContent().write(content);
+      response.setContent(new ByteArrayInputStream(content.toByteArray()));
+      response.setODataContent(null);
+    }
+    final InputStream serialized = odata.createFixedFormatSerializer().asyncResponse(response);
+    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    final byte[] chunk = new byte[8192];
+    int count;
+    while ((count = serialized.read(chunk)) > 0) {
+      buffer.write(chunk, 0, count);
+    }
+    return buffer.toByteArray();
+  }
+
+  /** One request processed in the background. */
+  private final class Job extends FutureTask<ODataResponse> {
+    private final String id;
+    private final AtomicInteger state;
+    private final CountDownLatch handedOver = new CountDownLatch(1);
+    /** The serialized result if it could not be stored. */
+    private volatile byte[] unstored;
+    private volatile long expirationTime = Long.MAX_VALUE;
+
+    private Job(final String id, final Callable<ODataResponse> processing, final int initialState) {
+      super(processing);
+      this.id = id;
+      state = new AtomicInteger(initialState);
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        jobs.remove(id, this);
+        return;
+      }
+      if (state.compareAndSet(WAITING, HANDED_OVER)) {
+        jobs.remove(id, this);
+        handedOver.countDown();
+        return;
+      }
+      final long expiration = System.currentTimeMillis() + timeToLive;
+      byte[] serialized;
+      try {
+        serialized = serialize(getResult());
+      } catch (final SerializerException | IOException | RuntimeException e) {
+        // The status monitor reports the failure instead of losing the request.
+        try {
+          serialized = serialize(createServerError());
+        } catch (final SerializerException | IOException e2) {
+          jobs.remove(id, this);
+          return;
+        }
+      }
+      try {
+        store.store(id, serialized, expiration);
+      } catch (final IOException e) {
+        unstored = serialized;
+        expirationTime = expiration;
+        return;
+      }
+      if (!jobs.remove(id, this)) {
+        // The processing has been cancelled while the result has been stored.
+        try {
+          store.remove(id);
+        } catch (final IOException e) {
+          // The result expires anyway.
+        }
+      }
+    }
+
+    /** Gets the response of the finished processing; a failed processing results in an empty error response. */
+    private ODataResponse getResult() {
+      try {
+        return get();
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (final ExecutionException e) {
+        // The handler creates error responses itself; this is reached only in case of severe errors.
+      }
+      return createServerError();
+    }
+  }
+
+  private static ODataResponse createServerError() {
+    final ODataResponse response = new ODataResponse();
+    response.setStatusCode(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode());
+    return response;
+  }
+}
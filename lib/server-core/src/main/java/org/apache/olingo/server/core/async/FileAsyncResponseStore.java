@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.async;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.apache.olingo.server.api.async.AsyncResponseStore;
+
+/**
+ * Stores the results of asynchronously processed requests as files in a local directory,
+ * one file per request, so that large results do not have to be kept in memory.
+ */
+public class FileAsyncResponseStore implements AsyncResponseStore {
+
+  private static final String FILE_SUFFIX = ".response";
+
+  private final File directory;
+
+  /**
+   * Creates a store writing into the given directory.
+   * @param directory the directory; created if not existing
+   * @throws IOException if the directory could not be created
+   */
+  public FileAsyncResponseStore(final File directory) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create directory " + directory);
+    }
+    this.directory = directory;
+  }
+
+  @Override
+  public void store(final String id, final byte[] response, final long expirationTime) throws IOException {
+    final File file = getFile(id);
+    final File temp = new File(directory, file.getName() + ".tmp");
+    try (DataOutputStream output = new DataOutputStream(new FileOutputStream(temp))) {
+      output.writeLong(expirationTime);
+      output.write(response);
+    }
+    if (!temp.renameTo(file)) {
+      temp.delete();
+      throw new IOException("Cannot store response " + file);
+    }
+  }
+
+  @Override
+  public byte[] retrieve(final String id) throws IOException {
+    final File file = getFile(id);
+    try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+      if (input.readLong() < System.currentTimeMillis()) {
+        return null;
+      }
+      final byte[] response = new byte[(int) file.length() - 8];
+      input.readFully(response);
+      return response;
+    } catch (final FileNotFoundException e) {
+      return null;
+    }
+  }
+
+  @Override
+  public void remove(final String id) throws IOException {
+    final File file = getFile(id);
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Cannot remove response " + file);
+    }
+  }
+
+  @Override
+  public void removeExpired(final long now) throws IOException {
+    final File[] files = directory.listFiles();
+    if (files == null) {
+      throw new IOException("Cannot list directory " + directory);
+    }
+    for (final File file : files) {
+      if (file.getName().endsWith(FILE_SUFFIX) && isExpired(file, now) && !file.delete()) {
+        throw new IOException("Cannot remove response " + file);
+      }
+    }
+  }
+
+  private boolean isExpired(final File file, final long now) throws IOException {
+    try (DataInputStream input = new DataInputStream(new FileInputStream(file))) {
+      return input.readLong() < now;
+    } catch (final FileNotFoundException e) {
+      return false;
+    } catch (final EOFException e) {
+      // A truncated file cannot be read anymore.
+      return true;
+    }
+  }
+
+  private File getFile(final String id) {
+    // identifiers are created by the engine, but must not be used to address other files
+    if (id.isEmpty() || !id.matches("[A-Za-z0-9-]+")) {
+      throw new IllegalArgumentException("Invalid identifier " + id);
+    }
+    return new File(directory, id + FILE_SUFFIX);
+  }
+}
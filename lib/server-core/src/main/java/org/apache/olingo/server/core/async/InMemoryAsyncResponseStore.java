@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.async;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.olingo.server.api.async.AsyncResponseStore;
+
+/**
+ * Keeps the results of asynchronously processed requests in memory.
+ */
+public class InMemoryAsyncResponseStore implements AsyncResponseStore {
+
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  @Override
+  public void store(final String id, final byte[] response, final long expirationTime) {
+    entries.put(id, new Entry(response, expirationTime));
+  }
+
+  @Override
+  public byte[] retrieve(final String id) {
+    final Entry entry = entries.get(id);
+    if (entry == null || entry.expirationTime < System.currentTimeMillis()) {
+      return null;
+    }
+    return entry.response;
+  }
+
+  @Override
+  public void remove(final String id) {
+    entries.remove(id);
+  }
+
+  @Override
+  public void removeExpired(final long now) {
+    final Iterator<Entry> iterator = entries.values().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next().expirationTime < now) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private static final class Entry {
+    private final byte[] response;
+    private final long expirationTime;
+
+    private Entry(final byte[] response, final long expirationTime) {
+      this.response = response;
+      this.expirationTime = expirationTime;
+    }
+  }
+}
@@ -0,0 +1,521 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.delta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.olingo.commons.api.data.DeletedEntity;
+import org.apache.olingo.commons.api.data.DeltaIterator;
+import org.apache.olingo.commons.api.data.DeltaLink;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+
+/**
+ * Records changes of entities and links per entity set, to answer requests with a delta token
+ * (see the <code>odata.track-changes</code> preference).
+ * <p>
+ * Every change gets the next number of an ascending sequence; a delta token is the sequence number
+ * at the time it was minted, so the changes since a token are found by binary search and reported
+ * once per entity or link with their latest state. The log is append-only; {@link #compact(String)}
+ * drops superseded changes and the changes older than a given token, which makes older tokens expire.
+ * </p>
+ * <p>
+ * If a file is given, every change is appended to it, so that delta tokens survive a restart.
+ * Tokens minted by another log, e.g., an in-memory log before a restart, are rejected as expired.
+ * The log is safe for concurrent use.
+ * </p>
+ */
+public class ChangeLog implements Closeable {
+
+  private static final int FILE_MAGIC = 0x4f43484c;
+  private static final int FILE_VERSION = 1;
+
+  private static final byte ENTITY_CHANGED = 0;
+  private static final byte ENTITY_DELETED = 1;
+  private static final byte LINK_ADDED = 2;
+  private static final byte LINK_DELETED = 3;
+
+  private static final char TOKEN_SEPARATOR = '.';
+
+  private final Map<String, List<Change>> changes = new HashMap<>();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final File file;
+  private DataOutputStream output;
+  private long epoch;
+  private long horizon;
+  private long sequence;
+
+  /**
+   * Creates a log which holds the changes in memory only.
+   */
+  public ChangeLog() {
+    file = null;
+    epoch = System.currentTimeMillis();
+  }
+
+  /**
+   * Creates a log which appends the changes to the given file, reading the changes already contained.
+   * @param file the file; created if not existing
+   * @throws IOException if the file could not be read or written
+   */
+  public ChangeLog(final File file) throws IOException {
+    this.file = file;
+    if (file.isFile()) {
+      if (!read()) {
+        // the last change has been written incompletely
+        rewrite();
+      }
+    } else {
+      epoch = System.currentTimeMillis();
+      rewrite();
+    }
+    output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+  }
+
+  /**
+   * Records that an entity has been created or updated.
+   * @param entitySet name of the entity set
+   * @param id the entity id
+   */
+  public void entityChanged(final String entitySet, final URI id) {
+    append(entitySet, new Change(ENTITY_CHANGED, id, null, null));
+  }
+
+  /**
+   * Records that an entity has been deleted.
+   * @param entitySet name of the entity set
+   * @param id the entity id
+   */
+  public void entityDeleted(final String entitySet, final URI id) {
+    append(entitySet, new Change(ENTITY_DELETED, id, null, null));
+  }
+
+  /**
+   * Records that a link has been added.
+   * @param entitySet name of the entity set of the link source
+   * @param link the link
+   */
+  public void linkAdded(final String entitySet, final DeltaLink link) {
+    append(entitySet, new Change(LINK_ADDED, link.getSource(), link.getRelationship(), link.getTarget()));
+  }
+
+  /**
+   * Records that a link has been deleted.
+   * @param entitySet name of the entity set of the link source
+   * @param link the link
+   */
+  public void linkDeleted(final String entitySet, final DeltaLink link) {
+    append(entitySet, new Change(LINK_DELETED, link.getSource(), link.getRelationship(), link.getTarget()));
+  }
+
+  /**
+   * Mints a delta token for the current state, i.e., to request all changes recorded after this call.
+   * @return the delta token
+   */
+  public String getCurrentToken() {
+    lock.readLock().lock();
+    try {
+      return createToken(sequence);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the changes of an entity set recorded since the given delta token was minted.
+   * Every entity and every link is contained at most once, with its latest state.
+   * @param entitySet name of the entity set
+   * @param token the delta token
+   * @return the changes, including the delta token to request the subsequent changes
+   * @throws ODataApplicationException with status 400 if the token is invalid,
+   * or with status 410 if the token has expired and the client has to read the entity set completely
+   */
+  public Changes getChangesSince(final String entitySet, final String token) throws ODataApplicationException {
+    lock.readLock().lock();
+    try {
+      final long since = parseToken(token);
+      final List<Change> entitySetChanges = changes.get(entitySet);
+      final Map<String, Change> latest = new LinkedHashMap<>();
+      if (entitySetChanges != null) {
+        for (int index = findFirstAfter(entitySetChanges, since); index < entitySetChanges.size(); index++) {
+          final Change change = entitySetChanges.get(index);
+          final String key = change.getKey();
+          latest.remove(key);
+          latest.put(key, change);
+        }
+      }
+      return new Changes(latest.values(), createToken(sequence));
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Compacts the log: superseded changes are dropped, as well as all changes up to the given token.
+   * Tokens older than the given one are expired afterwards.
+   * @param oldestToken the oldest delta token still to be answered
+   * @throws ODataApplicationException with status 400 if the token is invalid,
+   * or with status 410 if the token has already expired
+   * @throws IOException if the file could not be written
+   */
+  public void compact(final String oldestToken) throws ODataApplicationException, IOException {
+    lock.writeLock().lock();
+    try {
+      final long oldest = parseToken(oldestToken);
+      for (final Iterator<List<Change>> iterator = changes.values().iterator(); iterator.hasNext();) {
+        final List<Change> entitySetChanges = iterator.next();
+        final Map<String, Change> latest = new LinkedHashMap<>();
+        for (int index = findFirstAfter(entitySetChanges, oldest); index < entitySetChanges.size(); index++) {
+          final Change change = entitySetChanges.get(index);
+          latest.remove(change.getKey());
+          latest.put(change.getKey(), change);
+        }
+        if (latest.isEmpty()) {
+          iterator.remove();
+        } else {
+          entitySetChanges.clear();
+          entitySetChanges.addAll(latest.values());
+        }
+      }
+      horizon = oldest;
+      if (file != null) {
+        output.close();
+        rewrite();
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (output != null) {
+        output.close();
+        output = null;
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void append(final String entitySet, final Change change) {
+    lock.writeLock().lock();
+    try {
+      change.sequence = ++sequence;
+      List<Change> entitySetChanges = changes.get(entitySet);
+      if (entitySetChanges == null) {
+        entitySetChanges = new ArrayList<>();
+        changes.put(entitySet, entitySetChanges);
+      }
+      entitySetChanges.add(change);
+      if (file != null) {
+        if (output == null) {
+          throw new ODataRuntimeException("Change log " + file + " has been closed.");
+        }
+        write(output, entitySet, change);
+        output.flush();
+      }
+    } catch (final IOException e) {
+      throw new ODataRuntimeException("Cannot write change log " + file, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private static int findFirstAfter(final List<Change> entitySetChanges, final long since) {
+    int low = 0;
+    int high = entitySetChanges.size();
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+      if (entitySetChanges.get(middle).sequence <= since) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  private String createToken(final long tokenSequence) {
+    return Long.toString(epoch, Character.MAX_RADIX) + TOKEN_SEPARATOR
+        + Long.toString(tokenSequence, Character.MAX_RADIX);
+  }
+
+  private long parseToken(final String token) throws ODataApplicationException {
+    final int separator = token == null ? -1 : token.indexOf(TOKEN_SEPARATOR);
+    long tokenEpoch;
+    long tokenSequence;
+    try {
+      if (separator < 0) {
+        throw new NumberFormatException();
+      }
+      tokenEpoch = Long.parseLong(token.substring(0, separator), Character.MAX_RADIX);
+      tokenSequence = Long.parseLong(token.substring(separator + 1), Character.MAX_RADIX);
+    } catch (final NumberFormatException e) {
+      throw new ODataApplicationException("Invalid delta token " + token,
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+    if (tokenEpoch != epoch || tokenSequence < horizon) {
+      throw new ODataApplicationException("The delta token " + token + " has expired.",
+          HttpStatusCode.GONE.getStatusCode(), Locale.ROOT);
+    } else if (tokenSequence > sequence) {
+      throw new ODataApplicationException("Invalid delta token " + token,
+          HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+    }
+    return tokenSequence;
+  }
+
+  /** Reads the file; returns <code>false</code> if its end is incomplete. */
+  private boolean read() throws IOException {
+    try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (input.readInt() != FILE_MAGIC || input.readInt() != FILE_VERSION) {
+        throw new IOException("Invalid change log " + file);
+      }
+      epoch = input.readLong();
+      horizon = input.readLong();
+      sequence = input.readLong();
+      while (true) {
+        final int type = input.read();
+        if (type < 0) {
+          return true;
+        }
+        final Change change;
+        final String entitySet;
+        try {
+          change = new Change((byte) type, null, null, null);
+          change.sequence = input.readLong();
+          entitySet = input.readUTF();
+          change.id = URI.create(input.readUTF());
+          if (type == LINK_ADDED || type == LINK_DELETED) {
+            change.relationship = input.readUTF();
+            change.target = URI.create(input.readUTF());
+          }
+        } catch (final EOFException e) {
+          return false;
+        }
+        List<Change> entitySetChanges = changes.get(entitySet);
+        if (entitySetChanges == null) {
+          entitySetChanges = new ArrayList<>();
+          changes.put(entitySet, entitySetChanges);
+        }
+        entitySetChanges.add(change);
+        sequence = change.sequence;
+      }
+    }
+  }
+
+  /** Replaces the file with the current content, in sequence order. */
+  private void rewrite() throws IOException {
+    final List<Map.Entry<String, Change>> all = new ArrayList<>();
+    for (final Map.Entry<String, List<Change>> entry : changes.entrySet()) {
+      for (final Change change : entry.getValue()) {
+        all.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), change));
+      }
+    }
+    Collections.sort(all, new Comparator<Map.Entry<String, Change>>() {
+      @Override
+      public int compare(final Map.Entry<String, Change> first, final Map.Entry<String, Change> second) {
+        return Long.compare(first.getValue().sequence, second.getValue().sequence);
+      }
+    });
+
+    final File temp = new File(file.getPath() + ".tmp");
+    try (DataOutputStream tempOutput =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      tempOutput.writeInt(FILE_MAGIC);
+      tempOutput.writeInt(FILE_VERSION);
+      tempOutput.writeLong(epoch);
+      tempOutput.writeLong(horizon);
+      tempOutput.writeLong(sequence);
+      for (final Map.Entry<String, Change> entry : all) {
+        write(tempOutput, entry.getKey(), entry.getValue());
+      }
+    }
+    if (!temp.renameTo(file) && (!file.delete() || !temp.renameTo(file))) {
+      temp.delete();
+      throw new IOException("Cannot write change log " + file);
+    }
+  }
+
+  private static void write(final DataOutputStream output, final String entitySet, final Change change)
+      throws IOException {
+    output.writeByte(change.type);
+    output.writeLong(change.sequence);
+    output.writeUTF(entitySet);
+    output.writeUTF(change.id.toASCIIString());
+    if (change.type == LINK_ADDED || change.type == LINK_DELETED) {
+      output.writeUTF(change.relationship);
+      output.writeUTF(change.target.toASCIIString());
+    }
+  }
+
+  private static final class Change {
+    private final byte type;
+    private long sequence;
+    private URI id;
+    private String relationship;
+    private URI target;
+
+    private Change(final byte type, final URI id, final String relationship, final URI target) {
+      this.type = type;
+      this.id = id;
+      this.relationship = relationship;
+      this.target = target;
+    }
+
+    private String getKey() {
+      return type == ENTITY_CHANGED || type == ENTITY_DELETED ?
+          id.toASCIIString() :
+          id.toASCIIString() + ' ' + relationship + ' ' + target.toASCIIString();
+    }
+  }
+
+  /**
+   * The changes of an entity set since a delta token.
+   */
+  public static final class Changes {
+
+    private final List<URI> changedEntityIds = new ArrayList<>();
+    private final List<DeletedEntity> deletedEntities = new ArrayList<>();
+    private final List<DeltaLink> addedLinks = new ArrayList<>();
+    private final List<DeltaLink> deletedLinks = new ArrayList<>();
+    private final String deltaToken;
+
+    private Changes(final Collection<Change> changes, final String deltaToken) {
+      for (final Change change : changes) {
+        if (change.type == ENTITY_CHANGED) {
+          changedEntityIds.add(change.id);
+        } else if (change.type == ENTITY_DELETED) {
+          final DeletedEntity deletedEntity = new DeletedEntity();
+          deletedEntity.setId(change.id);
+          deletedEntity.setReason(DeletedEntity.Reason.deleted);
+          deletedEntities.add(deletedEntity);
+        } else {
+          final DeltaLink link = new DeltaLink();
+          link.setSource(change.id);
+          link.setRelationship(change.relationship);
+          link.setTarget(change.target);
+          (change.type == LINK_ADDED ? addedLinks : deletedLinks).add(link);
+        }
+      }
+      this.deltaToken = deltaToken;
+    }
+
+    /**
+     * Gets the ids of the entities created or updated since the token, in the order of their latest change.
+     * The application reads their current state to serialize them.
+     * @return the entity ids
+     */
+    public List<URI> getChangedEntityIds() {
+      return Collections.unmodifiableList(changedEntityIds);
+    }
+
+    /**
+     * @return the entities deleted since the token
+     */
+    public List<DeletedEntity> getDeletedEntities() {
+      return Collections.unmodifiableList(deletedEntities);
+    }
+
+    /**
+     * @return the links added since the token
+     */
+    public List<DeltaLink> getAddedLinks() {
+      return Collections.unmodifiableList(addedLinks);
+    }
+
+    /**
+     * @return the links deleted since the token
+     */
+    public List<DeltaLink> getDeletedLinks() {
+      return Collections.unmodifiableList(deletedLinks);
+    }
+
+    /**
+     * @return the delta token to request the changes after these
+     */
+    public String getDeltaToken() {
+      return deltaToken;
+    }
+
+    /**
+     * Creates an iterator for the streaming delta serializers, combining the given entities, i.e.,
+     * the current state of the {@link #getChangedEntityIds() changed entities}, with the recorded
+     * deletions and links. The delta link has to be set by the caller.
+     * @param entities the changed entities
+     * @return the delta iterator
+     */
+    public DeltaIterator toDeltaIterator(final Iterator<Entity> entities) {
+      return new DeltaIterator() {
+        @Override
+        public boolean hasNext() {
+          return entities.hasNext();
+        }
+
+        @Override
+        public Entity next() {
+          return entities.next();
+        }
+
+        @Override
+        public Iterator<DeletedEntity> getDeletedEntities() {
+          return deletedEntities.iterator();
+        }
+
+        @Override
+        public Iterator<DeltaLink> getAddedLinks() {
+          return addedLinks.iterator();
+        }
+
+        @Override
+        public Iterator<DeltaLink> getDeletedLinks() {
+          return deletedLinks.iterator();
+        }
+      };
+    }
+  }
+}
@@ -67,6 +67,7 @@ import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.edm.EdmTypeDefinition;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
+import org.apache.olingo.commons.api.edm.geo.Coordinates;
 import org.apache.olingo.commons.api.edm.geo.Geospatial;
 import org.apache.olingo.commons.api.edm.geo.GeospatialCollection;
 import org.apache.olingo.commons.api.edm.geo.LineString;
@@ -884,17 +885,17 @@ public class ODataJsonDeserializer implements ODataDeserializer {
           if (geoDataType.equals(Point.class)) {
             return readGeoPointValue(name, dimension, topNode, srid);
           } else if (geoDataType.equals(MultiPoint.class)) {
-            return new MultiPoint(dimension, srid, readGeoPointValues(name, dimension, 0, false, topNode));
+            return new MultiPoint(dimension, srid, readGeoCoordinates(name, 0, false, topNode));
           } else if (geoDataType.equals(LineString.class)) {
             // Although a line string with less than two points is not really one, the OData specification says:
             // "The coordinates member of a LineString can have zero or more positions".
             // Therefore the required minimal size of the points array currently is zero.
-            return new LineString(dimension, srid, readGeoPointValues(name, dimension, 0, false, topNode));
+            return new LineString(dimension, srid, readGeoCoordinates(name, 0, false, topNode));
           } else if (geoDataType.equals(MultiLineString.class)) {
             List<LineString> lines = new ArrayList<>();
             for (final JsonNode element : topNode) {
               // Line strings can be empty (see above).
-              lines.add(new LineString(dimension, srid, readGeoPointValues(name, dimension, 0, false, element)));
+              lines.add(new LineString(dimension, srid, readGeoCoordinates(name, 0, false, element)));
             }
             return new MultiLineString(dimension, srid, lines);
           } else if (geoDataType.equals(Polygon.class)) {
@@ -926,8 +927,7 @@ public class ODataJsonDeserializer implements ODataDeserializer {
 
   private Point readGeoPointValue(final String name, final Geospatial.Dimension dimension, JsonNode node, SRID srid)
       throws DeserializerException, EdmPrimitiveTypeException {
-    if (node.isArray() && (node.size() ==2 || node.size() == 3)
-        && node.get(0).isNumber() && node.get(1).isNumber() && (node.get(2) == null || node.get(2).isNumber())) {
+    if (isGeoPosition(node)) {
       Point point = new Point(dimension, srid);
       point.setX(getDoubleValue(node.get(0).asText()));
       point.setY(getDoubleValue(node.get(1).asText()));
@@ -952,33 +952,47 @@ public class ODataJsonDeserializer implements ODataDeserializer {
     return result;
   }
 
-  private List<Point> readGeoPointValues(final String name, final Geospatial.Dimension dimension,
-      final int minimalSize, final boolean closed, JsonNode node)
-      throws DeserializerException, EdmPrimitiveTypeException {
+  private Coordinates readGeoCoordinates(final String name, final int minimalSize, final boolean closed,
+      JsonNode node) throws DeserializerException, EdmPrimitiveTypeException {
     if (node.isArray()) {
-      List<Point> points = new ArrayList<>();
+      // positions are collected into packed coordinates, avoiding a point object per position
+      final Coordinates.Builder builder = Coordinates.builder();
       for (final JsonNode element : node) {
-        points.add(readGeoPointValue(name, dimension, element, null));
+        if (!isGeoPosition(element)) {
+          throw new DeserializerException("Invalid point value '" + element + "' in property: " + name,
+              DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY, name);
+        }
+        builder.add(getDoubleValue(element.get(0).asText()), getDoubleValue(element.get(1).asText()),
+            element.get(2) == null ? 0 : getDoubleValue(element.get(2).asText()));
       }
-      if (points.size() >= minimalSize
-          && (!closed || points.get(points.size() - 1).equals(points.get(0)))) {
-          return points;
+      final Coordinates coordinates = builder.build();
+      final int last = coordinates.size() - 1;
+      if (coordinates.size() >= minimalSize
+          && (!closed || coordinates.getX(last) == coordinates.getX(0)
+              && coordinates.getY(last) == coordinates.getY(0)
+              && coordinates.getZ(last) == coordinates.getZ(0))) {
+        return coordinates;
       }
     }
     throw new DeserializerException("Invalid point values '" + node + "' in property: " + name,
         DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY, name);
   }
 
+  private boolean isGeoPosition(final JsonNode node) {
+    return node.isArray() && (node.size() == 2 || node.size() == 3)
+        && node.get(0).isNumber() && node.get(1).isNumber() && (node.get(2) == null || node.get(2).isNumber());
+  }
+
   private Polygon readGeoPolygon(final String name, final Geospatial.Dimension dimension, JsonNode node, SRID srid)
       throws DeserializerException, EdmPrimitiveTypeException {
     // There could be a more strict verification that the lines describe boundaries and have the correct winding order.
     if (node.isArray() && (node.size() >= 1)) {
       List<LineString> interiors = new ArrayList<>();
       for (int i = 1; i < node.size(); i++) {
-        interiors.add(new LineString(dimension, srid, readGeoPointValues(name, dimension, 4, true, node.get(i))));
+        interiors.add(new LineString(dimension, srid, readGeoCoordinates(name, 4, true, node.get(i))));
       }
       return new Polygon(dimension, srid, interiors,
-          new LineString(dimension, srid, readGeoPointValues(name, dimension, 4, true, node.get(0))));
+          new LineString(dimension, srid, readGeoCoordinates(name, 4, true, node.get(0))));
     }
     throw new DeserializerException("Invalid polygon values '" + node + "' in property: " + name,
         DeserializerException.MessageKeys.INVALID_VALUE_FOR_PROPERTY, name);
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.etag;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.etag.ETagProvider;
+import org.apache.olingo.server.api.etag.PreconditionException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceEntitySet;
+import org.apache.olingo.server.api.uri.UriResourceKind;
+import org.apache.olingo.server.api.uri.UriResourceSingleton;
+
+/**
+ * Validates the preconditions of a request with the ETag retrieved from an {@link ETagProvider},
+ * before the request is dispatched to a processor.
+ */
+public class ProvidedETagValidator {
+
+  private final UriInfo uriInfo;
+
+  public ProvidedETagValidator(final UriInfo uriInfo) {
+    this.uriInfo = uriInfo;
+  }
+
+  /**
+   * Validates the preconditions of the request.
+   * If the request is a read request whose If-None-Match header matches the current ETag,
+   * a "Not Modified" response is created.
+   * @param eTagProvider the ETag provider
+   * @param request the request
+   * @param response the response
+   * @return <code>true</code> if the response is complete and the request must not be dispatched,
+   *         <code>false</code> if the request has to be dispatched as usual
+   * @throws PreconditionException if the preconditions are not fulfilled
+   * @throws ODataApplicationException if the ETag provider fails
+   */
+  public boolean validate(final ETagProvider eTagProvider, final ODataRequest request, final ODataResponse response)
+      throws PreconditionException, ODataApplicationException {
+    final List<String> ifMatch = request.getHeaders(HttpHeader.IF_MATCH);
+    final List<String> ifNoneMatch = request.getHeaders(HttpHeader.IF_NONE_MATCH);
+    if (ifMatch == null && ifNoneMatch == null
+        || uriInfo.getExpandOption() != null) {
+      return false;
+    }
+    final HttpMethod method = request.getMethod();
+    final boolean isRead = method == HttpMethod.GET || method == HttpMethod.HEAD;
+    if (!isRead && method != HttpMethod.PUT && method != HttpMethod.PATCH && method != HttpMethod.DELETE) {
+      return false;
+    }
+
+    final String eTag = getETag(eTagProvider, isRead);
+    if (eTag == null) {
+      return false;
+    }
+    final ETagHelperImpl eTagHelper = new ETagHelperImpl();
+    if (isRead) {
+      if (eTagHelper.checkReadPreconditions(eTag, ifMatch, ifNoneMatch)) {
+        response.setStatusCode(HttpStatusCode.NOT_MODIFIED.getStatusCode());
+        response.setHeader(HttpHeader.ETAG, eTag);
+        return true;
+      }
+    } else {
+      eTagHelper.checkChangePreconditions(eTag, ifMatch, ifNoneMatch);
+    }
+    return false;
+  }
+
+  private String getETag(final ETagProvider eTagProvider, final boolean isRead) throws ODataApplicationException {
+    final List<UriResource> parts = uriInfo.getUriResourceParts();
+    if (parts.isEmpty()) {
+      return null;
+    }
+    final UriResource first = parts.get(0);
+    if (first.getKind() == UriResourceKind.entitySet) {
+      final UriResourceEntitySet entitySetResource = (UriResourceEntitySet) first;
+      final EdmEntitySet entitySet = entitySetResource.getEntitySet();
+      if (entitySetResource.getTypeFilterOnEntry() != null) {
+        return null;
+      } else if (entitySetResource.isCollection()) {
+        return isRead && parts.size() == 1 && entitySetResource.getTypeFilterOnCollection() == null ?
+            eTagProvider.getCollectionETag(entitySet) :
+            null;
+      } else if (isEntityOrProperty(parts)) {
+        return isMediaValue(parts) ?
+            eTagProvider.getMediaETag(entitySet, entitySetResource.getKeyPredicates()) :
+            eTagProvider.getETag(entitySet, entitySetResource.getKeyPredicates());
+      }
+    } else if (first.getKind() == UriResourceKind.singleton) {
+      final UriResourceSingleton singletonResource = (UriResourceSingleton) first;
+      if (singletonResource.getEntityTypeFilter() == null && isEntityOrProperty(parts)) {
+        return isMediaValue(parts) ?
+            eTagProvider.getMediaETag(singletonResource.getSingleton(), Collections.emptyList()) :
+            eTagProvider.getETag(singletonResource.getSingleton(), Collections.emptyList());
+      }
+    }
+    return null;
+  }
+
+  /** Checks whether the resource path consists only of property segments following the entity. */
+  private boolean isEntityOrProperty(final List<UriResource> parts) {
+    for (int i = 1; i < parts.size(); i++) {
+      final UriResourceKind kind = parts.get(i).getKind();
+      if (!(kind == UriResourceKind.primitiveProperty || kind == UriResourceKind.complexProperty
+          || kind == UriResourceKind.value && i == parts.size() - 1)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isMediaValue(final List<UriResource> parts) {
+    return parts.size() == 2 && parts.get(1).getKind() == UriResourceKind.value;
+  }
+}
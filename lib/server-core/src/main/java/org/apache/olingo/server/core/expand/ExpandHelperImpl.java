@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.expand;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.Constants;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Link;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.expand.ExpandHelper;
+import org.apache.olingo.server.api.expand.ExpandResolver;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceNavigation;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
+
+public class ExpandHelperImpl implements ExpandHelper {
+
+  /** Upper bound for <code>$levels=max</code>, guarding against cyclic data. */
+  private static final int MAX_LEVELS = 16;
+
+  @Override
+  public void expand(final EdmBindingTarget bindingTarget, final List<Entity> entities,
+      final ExpandOption expandOption, final ExpandResolver resolver) throws ODataApplicationException {
+    if (expandOption == null || entities == null || entities.isEmpty()) {
+      return;
+    }
+    expand(bindingTarget, bindingTarget.getEntityType(), entities, expandOption, resolver);
+  }
+
+  private void expand(final EdmBindingTarget bindingTarget, final EdmEntityType entityType,
+      final List<Entity> entities, final ExpandOption expandOption, final ExpandResolver resolver)
+      throws ODataApplicationException {
+    for (final ExpandItem item : expandOption.getExpandItems()) {
+      for (final EdmNavigationProperty navigationProperty : getNavigationProperties(entityType, item)) {
+        final LevelsExpandOption levelsOption = item.getLevelsOption();
+        final int levels = levelsOption == null ? 1
+            : levelsOption.isMax() ? MAX_LEVELS : Math.min(levelsOption.getValue(), MAX_LEVELS);
+        expand(bindingTarget, entities, navigationProperty, item, levels, resolver);
+      }
+    }
+  }
+
+  private void expand(final EdmBindingTarget bindingTarget, final List<Entity> parents,
+      final EdmNavigationProperty navigationProperty, final ExpandItem item, final int levels,
+      final ExpandResolver resolver) throws ODataApplicationException {
+    final List<EntityCollection> results = resolver.resolve(bindingTarget, parents, navigationProperty, item);
+    if (results == null || results.size() != parents.size()) {
+      throw new ODataApplicationException("Expand resolver returned "
+          + (results == null ? "no" : results.size()) + " results for " + parents.size() + " entities",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
+    }
+
+    // related entities may be shared by several parents but have to be expanded only once
+    final Set<Entity> children = Collections.newSetFromMap(new IdentityHashMap<Entity, Boolean>());
+    final List<Entity> orderedChildren = new ArrayList<Entity>();
+    for (int i = 0; i < parents.size(); i++) {
+      final EntityCollection result = results.get(i) == null ? new EntityCollection() : results.get(i);
+      List<Entity> related = result.getEntities();
+      final Link link = getNavigationLink(parents.get(i), navigationProperty);
+      if (navigationProperty.isCollection()) {
+        link.setInlineEntity(null);
+        link.setInlineEntitySet(result);
+      } else {
+        related = related.subList(0, Math.min(1, related.size()));
+        link.setInlineEntitySet(null);
+        link.setInlineEntity(related.isEmpty() ? null : related.get(0));
+      }
+      for (final Entity child : related) {
+        if (children.add(child)) {
+          orderedChildren.add(child);
+        }
+      }
+    }
+    if (orderedChildren.isEmpty()) {
+      return;
+    }
+
+    final EdmBindingTarget childBindingTarget = bindingTarget == null ? null
+        : bindingTarget.getRelatedBindingTarget(navigationProperty.getName());
+    final EdmEntityType childType = navigationProperty.getType();
+    if (item.getExpandOption() != null) {
+      expand(childBindingTarget, childType, orderedChildren, item.getExpandOption(), resolver);
+    }
+    if (levels > 1) {
+      final EdmNavigationProperty childNavigationProperty = childType.getNavigationProperty(
+          navigationProperty.getName());
+      if (childNavigationProperty != null) {
+        expand(childBindingTarget, orderedChildren, childNavigationProperty, item, levels - 1, resolver);
+      }
+    }
+  }
+
+  private List<EdmNavigationProperty> getNavigationProperties(final EdmEntityType entityType,
+      final ExpandItem item) {
+    final Set<EdmNavigationProperty> navigationProperties = new LinkedHashSet<EdmNavigationProperty>();
+    if (item.isStar()) {
+      for (final String name : entityType.getNavigationPropertyNames()) {
+        navigationProperties.add(entityType.getNavigationProperty(name));
+      }
+    } else if (item.getResourcePath() != null) {
+      for (final UriResource resource : item.getResourcePath().getUriResourceParts()) {
+        if (resource instanceof UriResourceNavigation) {
+          navigationProperties.add(((UriResourceNavigation) resource).getProperty());
+          break;
+        }
+      }
+    }
+    return new ArrayList<EdmNavigationProperty>(navigationProperties);
+  }
+
+  private Link getNavigationLink(final Entity entity, final EdmNavigationProperty navigationProperty) {
+    Link link = entity.getNavigationLink(navigationProperty.getName());
+    if (link == null) {
+      link = new Link();
+      link.setRel(Constants.NS_NAVIGATION_LINK_REL + navigationProperty.getName());
+      link.setType(navigationProperty.isCollection()
+          ? Constants.ENTITY_SET_NAVIGATION_LINK_TYPE : Constants.ENTITY_NAVIGATION_LINK_TYPE);
+      link.setTitle(navigationProperty.getName());
+      entity.getNavigationLinks().add(link);
+    }
+    return link;
+  }
+}
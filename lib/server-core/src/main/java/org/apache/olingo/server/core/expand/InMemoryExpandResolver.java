@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.expand;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.edm.EdmReferentialConstraint;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.expand.ExpandResolver;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.core.apply.ApplyExpressionVisitor;
+import org.apache.olingo.server.core.apply.EntitySorter;
+
+/**
+ * Reference implementation of an {@link ExpandResolver} for entity sets held in memory.
+ * <p>Related entities are found via the referential constraints of the navigation property or of its partner:
+ * the target entity set is indexed once by the referencing properties, then the related entities of all parents
+ * are looked up in the index. <code>$filter</code>, <code>$orderby</code>, <code>$skip</code>, <code>$top</code>,
+ * and <code>$count</code> are supported, with the expressions supported by {@link ApplyExpressionVisitor};
+ * other options can be supported by overriding {@link #applyOptions(EntityCollection, ExpandItem)}.</p>
+ * <p>Returned entities are copies without navigation links, so that expanding them does not modify the
+ * entity sets.</p>
+ */
+public class InMemoryExpandResolver implements ExpandResolver {
+
+  private final Map<String, EntityCollection> entitySets;
+
+  /**
+   * @param entitySets entity sets by name
+   */
+  public InMemoryExpandResolver(final Map<String, EntityCollection> entitySets) {
+    this.entitySets = entitySets;
+  }
+
+  @Override
+  public List<EntityCollection> resolve(final EdmBindingTarget bindingTarget, final List<Entity> parents,
+      final EdmNavigationProperty navigationProperty, final ExpandItem expandItem)
+      throws ODataApplicationException {
+    final EdmBindingTarget target = bindingTarget == null ? null
+        : bindingTarget.getRelatedBindingTarget(navigationProperty.getName());
+    final EntityCollection targetEntities = target == null ? null : entitySets.get(target.getName());
+    if (targetEntities == null) {
+      throw new ODataApplicationException("No entity set found for navigation property "
+          + navigationProperty.getName(), HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+
+    final List<String> parentProperties = new ArrayList<String>();
+    final List<String> childProperties = new ArrayList<String>();
+    if (!navigationProperty.getReferentialConstraints().isEmpty()) {
+      for (final EdmReferentialConstraint constraint : navigationProperty.getReferentialConstraints()) {
+        parentProperties.add(constraint.getPropertyName());
+        childProperties.add(constraint.getReferencedPropertyName());
+      }
+    } else if (navigationProperty.getPartner() != null) {
+      for (final EdmReferentialConstraint constraint : navigationProperty.getPartner().getReferentialConstraints()) {
+        parentProperties.add(constraint.getReferencedPropertyName());
+        childProperties.add(constraint.getPropertyName());
+      }
+    }
+    if (parentProperties.isEmpty()) {
+      throw new ODataApplicationException("No referential constraint found for navigation property "
+          + navigationProperty.getName(), HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+
+    // index the target entities once instead of scanning them for every parent
+    final Map<List<Object>, List<Entity>> index = new HashMap<List<Object>, List<Entity>>();
+    for (final Entity entity : targetEntities.getEntities()) {
+      final List<Object> key = getValues(entity, childProperties);
+      if (key != null) {
+        List<Entity> entities = index.get(key);
+        if (entities == null) {
+          entities = new ArrayList<Entity>();
+          index.put(key, entities);
+        }
+        entities.add(entity);
+      }
+    }
+
+    final List<EntityCollection> results = new ArrayList<EntityCollection>(parents.size());
+    for (final Entity parent : parents) {
+      final List<Object> key = getValues(parent, parentProperties);
+      final List<Entity> related = key == null ? null : index.get(key);
+      final EntityCollection result = new EntityCollection();
+      for (final Entity entity : related == null ? Collections.<Entity> emptyList() : related) {
+        result.getEntities().add(copy(entity));
+      }
+      results.add(applyOptions(result, expandItem));
+    }
+    return results;
+  }
+
+  /**
+   * Applies the options of the expand item to the related entities of one parent entity.
+   * @param entities related entities
+   * @param expandItem expand item
+   * @return the related entities to be expanded
+   * @throws ODataApplicationException if an option is not supported
+   */
+  protected EntityCollection applyOptions(final EntityCollection entities, final ExpandItem expandItem)
+      throws ODataApplicationException {
+    if (expandItem.getSearchOption() != null) {
+      throw new ODataApplicationException("$search is not supported in $expand",
+          HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+    }
+    final List<Entity> list = entities.getEntities();
+    if (expandItem.getFilterOption() != null) {
+      final Expression expression = expandItem.getFilterOption().getExpression();
+      for (final Iterator<Entity> iterator = list.iterator(); iterator.hasNext();) {
+        if (!Boolean.TRUE.equals(ApplyExpressionVisitor.evaluate(expression, iterator.next()))) {
+          iterator.remove();
+        }
+      }
+    }
+    if (expandItem.hasCountPath()
+        || expandItem.getCountOption() != null && expandItem.getCountOption().getValue()) {
+      entities.setCount(list.size());
+    }
+    final int skip = expandItem.getSkipOption() == null ? 0
+        : Math.min(expandItem.getSkipOption().getValue(), list.size());
+    final int limit = expandItem.getTopOption() == null ? list.size()
+        : (int) Math.min((long) skip + expandItem.getTopOption().getValue(), list.size());
+    if (expandItem.getOrderByOption() != null) {
+      // only the entities up to the last one returned need to be in order
+      final List<Entity> sorted = new EntitySorter(expandItem.getOrderByOption().getOrders()).sort(list, limit);
+      list.clear();
+      list.addAll(sorted);
+    }
+    list.subList(Math.min(limit, list.size()), list.size()).clear();
+    list.subList(0, Math.min(skip, list.size())).clear();
+    return entities;
+  }
+
+  private List<Object> getValues(final Entity entity, final List<String> propertyNames) {
+    final List<Object> values = new ArrayList<Object>(propertyNames.size());
+    for (final String name : propertyNames) {
+      final Property property = entity.getProperty(name);
+      if (property == null || property.getValue() == null) {
+        return null;
+      }
+      values.add(normalize(property.getValue()));
+    }
+    return values;
+  }
+
+  /** Integral values of different types must match each other, as for Int32 foreign keys of Int64 keys. */
+  private static Object normalize(final Object value) {
+    return value instanceof Short || value instanceof Integer || value instanceof Byte ?
+        Long.valueOf(((Number) value).longValue()) :
+        value;
+  }
+
+  private Entity copy(final Entity entity) {
+    final Entity copy = new Entity();
+    copy.setId(entity.getId());
+    copy.setType(entity.getType());
+    copy.setETag(entity.getETag());
+    copy.setBaseURI(entity.getBaseURI());
+    copy.setSelfLink(entity.getSelfLink());
+    copy.setEditLink(entity.getEditLink());
+    copy.setMediaContentSource(entity.getMediaContentSource());
+    copy.setMediaContentType(entity.getMediaContentType());
+    copy.setMediaETag(entity.getMediaETag());
+    copy.getProperties().addAll(entity.getProperties());
+    copy.getAnnotations().addAll(entity.getAnnotations());
+    copy.getOperations().addAll(entity.getOperations());
+    return copy;
+  }
+}
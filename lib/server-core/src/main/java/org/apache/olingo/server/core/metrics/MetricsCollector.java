@@ -0,0 +1,263 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.olingo.server.api.metrics.LatencyHistogram;
+import org.apache.olingo.server.api.metrics.MetricsExporter;
+import org.apache.olingo.server.api.metrics.MetricsSnapshot;
+import org.apache.olingo.server.api.metrics.ODataMetrics;
+import org.apache.olingo.server.api.metrics.RequestPhase;
+
+/**
+ * Lock-free collector for request metrics.
+ * <p>
+ * Measuring points call {@link #start()} and pass its result to {@link #stop(RequestPhase, long)};
+ * while collection is disabled, {@link #start()} returns 0 and nothing is recorded.
+ * </p>
+ * A handler with its own collector binds it to the processing thread with {@link #bind(MetricsCollector)},
+ * so that measuring points deeper in the library record into it; all other requests are recorded
+ * by the collector shared in the class loader.
+ */
+public final class MetricsCollector implements ODataMetrics {
+
+  private static final MetricsCollector INSTANCE = new MetricsCollector();
+  private static final ThreadLocal<MetricsCollector> BOUND = new ThreadLocal<>();
+
+  private static final int MIN_ERROR_STATUS = 400;
+  private static final int MAX_ERROR_STATUS = 599;
+
+  private final Histogram[] histograms = new Histogram[RequestPhase.values().length];
+  private final LongAdder requests = new LongAdder();
+  private final AtomicLongArray errors = new AtomicLongArray(MAX_ERROR_STATUS - MIN_ERROR_STATUS + 1);
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder entitiesSerialized = new LongAdder();
+  private final CopyOnWriteArrayList<MetricsExporter> exporters = new CopyOnWriteArrayList<>();
+
+  private volatile boolean enabled;
+
+  public MetricsCollector() {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new Histogram();
+    }
+  }
+
+  /**
+   * Gets the collector for the current thread.
+   * @return the collector bound to the current thread, or the shared collector if none is bound
+   */
+  public static MetricsCollector getInstance() {
+    final MetricsCollector bound = BOUND.get();
+    return bound == null ? INSTANCE : bound;
+  }
+
+  /**
+   * Binds a collector to the current thread.
+   * @param collector the collector, or <code>null</code> to record into the shared collector
+   * @return the collector bound before, to be restored with this method when processing ends
+   */
+  public static MetricsCollector bind(final MetricsCollector collector) {
+    final MetricsCollector previous = BOUND.get();
+    if (collector == null) {
+      BOUND.remove();
+    } else {
+      BOUND.set(collector);
+    }
+    return previous;
+  }
+
+  @Override
+  public void setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Starts a measurement.
+   * @return the start time, or 0 if collection is disabled
+   */
+  public long start() {
+    if (enabled) {
+      final long now = System.nanoTime();
+      return now == 0 ? 1 : now;
+    }
+    return 0;
+  }
+
+  /**
+   * Stops a measurement.
+   * @param phase the measured phase
+   * @param start the value returned by {@link #start()}
+   */
+  public void stop(final RequestPhase phase, final long start) {
+    if (start != 0) {
+      histograms[phase.ordinal()].record(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Records a processed request.
+   * @param statusCode HTTP status code of the response
+   * @param start the value returned by {@link #start()} at the begin of the request
+   */
+  public void requestProcessed(final int statusCode, final long start) {
+    if (start != 0) {
+      histograms[RequestPhase.REQUEST.ordinal()].record(System.nanoTime() - start);
+      requests.increment();
+      if (statusCode >= MIN_ERROR_STATUS && statusCode <= MAX_ERROR_STATUS) {
+        errors.incrementAndGet(statusCode - MIN_ERROR_STATUS);
+      }
+    }
+  }
+
+  public void addBytesWritten(final long count) {
+    if (enabled) {
+      bytesWritten.add(count);
+    }
+  }
+
+  public void addEntitiesSerialized(final long count) {
+    if (enabled) {
+      entitiesSerialized.add(count);
+    }
+  }
+
+  /**
+   * Wraps the given stream so that the bytes written are counted, if collection is enabled.
+   * @param output the stream
+   * @return the counting stream or the given stream
+   */
+  public OutputStream countBytes(final OutputStream output) {
+    if (!enabled) {
+      return output;
+    }
+    return new FilterOutputStream(output) {
+      @Override
+      public void write(final int b) throws IOException {
+        out.write(b);
+        bytesWritten.increment();
+      }
+
+      @Override
+      public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        out.write(bytes, offset, length);
+        bytesWritten.add(length);
+      }
+    };
+  }
+
+  @Override
+  public MetricsSnapshot getSnapshot() {
+    final Map<Integer, Long> errorCounts = new HashMap<>();
+    for (int i = 0; i < errors.length(); i++) {
+      final long count = errors.get(i);
+      if (count > 0) {
+        errorCounts.put(MIN_ERROR_STATUS + i, count);
+      }
+    }
+    final Map<RequestPhase, LatencyHistogram> latencies = new EnumMap<>(RequestPhase.class);
+    for (final RequestPhase phase : RequestPhase.values()) {
+      latencies.put(phase, histograms[phase.ordinal()].snapshot());
+    }
+    return new MetricsSnapshot(System.currentTimeMillis(), requests.sum(), errorCounts,
+        bytesWritten.sum(), entitiesSerialized.sum(), latencies);
+  }
+
+  @Override
+  public void reset() {
+    for (final Histogram histogram : histograms) {
+      histogram.reset();
+    }
+    requests.reset();
+    for (int i = 0; i < errors.length(); i++) {
+      errors.set(i, 0);
+    }
+    bytesWritten.reset();
+    entitiesSerialized.reset();
+  }
+
+  @Override
+  public void addExporter(final MetricsExporter exporter) {
+    exporters.addIfAbsent(exporter);
+  }
+
+  @Override
+  public void removeExporter(final MetricsExporter exporter) {
+    exporters.remove(exporter);
+  }
+
+  @Override
+  public void export() {
+    if (!exporters.isEmpty()) {
+      final MetricsSnapshot snapshot = getSnapshot();
+      for (final MetricsExporter exporter : exporters) {
+        exporter.export(snapshot);
+      }
+    }
+  }
+
+  private static final class Histogram {
+
+    private final AtomicLongArray buckets = new AtomicLongArray(LatencyHistogram.BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    void record(final long nanos) {
+      buckets.incrementAndGet(LatencyHistogram.getBucketIndex(nanos));
+      count.increment();
+      total.add(nanos);
+      long current = max.get();
+      while (nanos > current && !max.compareAndSet(current, nanos)) {
+        current = max.get();
+      }
+    }
+
+    LatencyHistogram snapshot() {
+      final long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = buckets.get(i);
+      }
+      return new LatencyHistogram(count.sum(), total.sum(), max.get(), counts);
+    }
+
+    void reset() {
+      for (int i = 0; i < buckets.length(); i++) {
+        buckets.set(i, 0);
+      }
+      count.reset();
+      total.reset();
+      max.set(0);
+    }
+  }
+}
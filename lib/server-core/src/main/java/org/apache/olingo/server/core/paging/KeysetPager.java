@@ -0,0 +1,493 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.paging;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmComplexType;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.edm.EdmStructuredType;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriResource;
+import org.apache.olingo.server.api.uri.UriResourceProperty;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SkipTokenOption;
+import org.apache.olingo.server.api.uri.queryoption.SystemQueryOptionKind;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
+import org.apache.olingo.server.api.uri.queryoption.expression.Member;
+
+/**
+ * Server-driven paging by keyset: the skiptoken contains the order values of the last entity of the
+ * previous page, so the next page starts right after it instead of skipping over all preceding entities.
+ * <p>
+ * The order is given by the properties in <code>$orderby</code>, followed by the key properties
+ * to make it unique; <code>null</code> is less than any other value. The skiptoken is opaque to clients;
+ * it also contains the page size, so that the page size of the first request is kept.
+ * </p>
+ * <p>
+ * {@link #applyPaging(EntityCollection, SkipTokenOption, Integer, String)} pages in-memory data.
+ * Other back ends use {@link #decode(SkipTokenOption)} to get the {@link SeekPredicate} and
+ * {@link #encode(Entity, int)} to create the skiptoken for the last entity of the page they have read.
+ * </p>
+ */
+public class KeysetPager {
+
+  private static final int TOKEN_VERSION = 1;
+
+  private final List<Column> columns = new ArrayList<>();
+  private final int maxPageSize;
+  private final int fingerprint;
+
+  /**
+   * Creates a pager.
+   * @param entityType the type of the paged entities
+   * @param orderByOption the <code>$orderby</code> option or <code>null</code>;
+   * only primitive properties are supported as order expressions
+   * @param maxPageSize the maximum page size of the service
+   * @throws ODataApplicationException if an order expression is not a primitive property
+   */
+  public KeysetPager(final EdmEntityType entityType, final OrderByOption orderByOption, final int maxPageSize)
+      throws ODataApplicationException {
+    if (orderByOption != null) {
+      for (final OrderByItem item : orderByOption.getOrders()) {
+        columns.add(createColumn(item.getExpression(), item.isDescending()));
+      }
+    }
+    for (final EdmKeyPropertyRef keyPropertyRef : entityType.getKeyPropertyRefs()) {
+      final List<String> path = Arrays.asList(keyPropertyRef.getName().split("/"));
+      if (!containsPath(path)) {
+        columns.add(new Column(path, keyPropertyRef.getProperty(), false));
+      }
+    }
+    this.maxPageSize = maxPageSize;
+    // A skiptoken is only valid for the entity type and the order it has been created for.
+    fingerprint = (entityType.getFullQualifiedName().getFullQualifiedNameAsString() + columns).hashCode();
+  }
+
+  /**
+   * @return the order columns, i.e., the order items and then the key properties
+   */
+  public List<Column> getColumns() {
+    return Collections.unmodifiableList(columns);
+  }
+
+  /**
+   * Gets the page size: the one of the skiptoken if given, otherwise the preferred one up to the maximum.
+   * @param skipTokenOption the skiptoken option or <code>null</code>
+   * @param preferredPageSize the client's preference <code>odata.maxpagesize</code> or <code>null</code>
+   * @return the page size
+   * @throws ODataApplicationException if the skiptoken is invalid
+   */
+  public int getPageSize(final SkipTokenOption skipTokenOption, final Integer preferredPageSize)
+      throws ODataApplicationException {
+    final SeekPredicate predicate = decode(skipTokenOption);
+    return predicate != null ? predicate.getPageSize() :
+        preferredPageSize == null || preferredPageSize > maxPageSize || preferredPageSize <= 0 ?
+            maxPageSize :
+            preferredPageSize;
+  }
+
+  /**
+   * Decodes a skiptoken.
+   * @param skipTokenOption the skiptoken option or <code>null</code>
+   * @return the predicate selecting the entities after the last entity of the previous page,
+   * or <code>null</code> if no skiptoken has been given
+   * @throws ODataApplicationException if the skiptoken is invalid, belongs to another entity type or order,
+   * or has a page size above the maximum
+   */
+  public SeekPredicate decode(final SkipTokenOption skipTokenOption) throws ODataApplicationException {
+    if (skipTokenOption == null || skipTokenOption.getValue() == null) {
+      return null;
+    }
+    try {
+      final DataInputStream input = new DataInputStream(
+          new ByteArrayInputStream(Base64.decodeBase64(skipTokenOption.getValue())));
+      if (input.readByte() != TOKEN_VERSION || input.readInt() != fingerprint) {
+        throw invalidSkipToken(null);
+      }
+      final int pageSize = input.readInt();
+      final String[] literals = new String[columns.size()];
+      final Object[] values = new Object[columns.size()];
+      for (int index = 0; index < literals.length; index++) {
+        if (input.readBoolean()) {
+          literals[index] = input.readUTF();
+          values[index] = columns.get(index).parse(literals[index], null);
+        }
+      }
+      if (pageSize <= 0 || pageSize > maxPageSize || input.read() >= 0) {
+        throw invalidSkipToken(null);
+      }
+      return new SeekPredicate(pageSize, literals, values);
+    } catch (final IOException | EdmPrimitiveTypeException e) {
+      throw invalidSkipToken(e);
+    }
+  }
+
+  /**
+   * Creates the skiptoken for the page following the given entity.
+   * @param lastEntity the last entity of the current page
+   * @param pageSize the page size
+   * @return the skiptoken
+   * @throws ODataApplicationException if an order value could not be converted
+   */
+  public String encode(final Entity lastEntity, final int pageSize) throws ODataApplicationException {
+    try {
+      final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+      final DataOutputStream output = new DataOutputStream(buffer);
+      output.writeByte(TOKEN_VERSION);
+      output.writeInt(fingerprint);
+      output.writeInt(pageSize);
+      for (final Column column : columns) {
+        final Object value = column.getValue(lastEntity);
+        output.writeBoolean(value != null);
+        if (value != null) {
+          output.writeUTF(column.format(value));
+        }
+      }
+      output.close();
+      return Base64.encodeBase64URLSafeString(buffer.toByteArray());
+    } catch (final IOException | EdmPrimitiveTypeException e) {
+      throw new ODataApplicationException("Cannot create skiptoken.",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  /**
+   * <p>Applies server-side paging to the given entity collection, in the order of the columns.</p>
+   * <p>Only the entities after the skiptoken are considered, and only the first page of them is ordered.
+   * If there are more entities, the next link is set in the data.</p>
+   * @param entityCollection the data, in any order
+   * @param skipTokenOption the current skiptoken option (from a previous response's next link) or <code>null</code>
+   * @param preferredPageSize the client's preference for page size or <code>null</code>
+   * @param rawRequestUri the request URI (used to construct the next link)
+   * @return the chosen page size; could be used in the Preference-Applied HTTP header
+   * @throws ODataApplicationException if the skiptoken is invalid or the order values cannot be compared
+   */
+  public int applyPaging(final EntityCollection entityCollection, final SkipTokenOption skipTokenOption,
+      final Integer preferredPageSize, final String rawRequestUri) throws ODataApplicationException {
+    final SeekPredicate predicate = decode(skipTokenOption);
+    final int pageSize = predicate == null ? getPageSize(null, preferredPageSize) : predicate.getPageSize();
+    final Comparator<Entity> comparator = new Comparator<Entity>() {
+      @Override
+      public int compare(final Entity left, final Entity right) {
+        try {
+          return compareEntities(left, right);
+        } catch (final ODataApplicationException e) {
+          throw new IllegalArgumentException(e);
+        }
+      }
+    };
+
+    // A heap ordered in reverse keeps the first entities after the skiptoken, plus one to detect more.
+    final PriorityQueue<Entity> heap = new PriorityQueue<>(Math.min(pageSize, maxPageSize) + 1,
+        Collections.reverseOrder(comparator));
+    try {
+      for (final Entity entity : entityCollection.getEntities()) {
+        if (predicate == null || predicate.matches(entity)) {
+          heap.offer(entity);
+          if (heap.size() > pageSize + 1) {
+            heap.poll();
+          }
+        }
+      }
+    } catch (final IllegalArgumentException e) {
+      throw (ODataApplicationException) e.getCause();
+    }
+    final boolean hasNext = heap.size() > pageSize;
+    if (hasNext) {
+      heap.poll();
+    }
+    final Entity[] page = heap.toArray(new Entity[heap.size()]);
+    try {
+      Arrays.sort(page, comparator);
+    } catch (final IllegalArgumentException e) {
+      throw (ODataApplicationException) e.getCause();
+    }
+
+    entityCollection.getEntities().clear();
+    entityCollection.getEntities().addAll(Arrays.asList(page));
+    entityCollection.setNext(hasNext ?
+        createNextLink(rawRequestUri, encode(page[page.length - 1], pageSize)) :
+        null);
+    return pageSize;
+  }
+
+  /**
+   * Creates the next link by replacing the skiptoken in the request URI.
+   * @param rawRequestUri the request URI
+   * @param skipToken the new skiptoken
+   * @return the next link
+   * @throws ODataApplicationException if the link is not a valid URI
+   */
+  public static URI createNextLink(final String rawRequestUri, final String skipToken)
+      throws ODataApplicationException {
+    // Remove a maybe existing skiptoken, making sure that the query part is not empty.
+    String nextlink = rawRequestUri.contains("?") ?
+        rawRequestUri.replaceAll("(\\$|%24)skiptoken=[^&]*&?", "").replaceAll("(\\?|&)$", "") :
+        rawRequestUri;
+    nextlink += nextlink.contains("?") ? '&' : '?';
+    // The URL-safe Base64 alphabet does not need percent encoding.
+    nextlink += SystemQueryOptionKind.SKIPTOKEN.toString().replace("$", "%24") + '=' + skipToken;
+    try {
+      return new URI(nextlink);
+    } catch (final URISyntaxException e) {
+      throw new ODataApplicationException("Exception while constructing next link",
+          HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
+    }
+  }
+
+  private int compareEntities(final Entity left, final Entity right) throws ODataApplicationException {
+    for (final Column column : columns) {
+      final int result = column.compare(column.getValue(left), column.getValue(right));
+      if (result != 0) {
+        return column.isDescending() ? -result : result;
+      }
+    }
+    return 0;
+  }
+
+  private Column createColumn(final Expression expression, final boolean descending)
+      throws ODataApplicationException {
+    if (expression instanceof Member) {
+      final List<UriResource> parts = ((Member) expression).getResourcePath().getUriResourceParts();
+      final List<String> path = new ArrayList<>();
+      EdmProperty property = null;
+      for (final UriResource part : parts) {
+        if (!(part instanceof UriResourceProperty) || ((UriResourceProperty) part).isCollection()) {
+          property = null;
+          break;
+        }
+        property = ((UriResourceProperty) part).getProperty();
+        path.add(property.getName());
+      }
+      if (property != null && property.isPrimitive()) {
+        return new Column(path, property, descending);
+      }
+    }
+    throw new ODataApplicationException("Server-driven paging supports only primitive properties in $orderby.",
+        HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), Locale.ROOT);
+  }
+
+  private boolean containsPath(final List<String> path) {
+    for (final Column column : columns) {
+      if (column.getPath().equals(path)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static ODataApplicationException invalidSkipToken(final Exception cause) {
+    return new ODataApplicationException("Invalid skip token", HttpStatusCode.BAD_REQUEST.getStatusCode(),
+        Locale.ROOT, cause);
+  }
+
+  /**
+   * One order column: a primitive property, optionally within complex properties.
+   */
+  public static final class Column {
+    private final List<String> path;
+    private final EdmProperty property;
+    private final boolean descending;
+
+    private Column(final List<String> path, final EdmProperty property, final boolean descending) {
+      this.path = Collections.unmodifiableList(path);
+      this.property = property;
+      this.descending = descending;
+    }
+
+    /**
+     * @return the names of the property and the complex properties containing it
+     */
+    public List<String> getPath() {
+      return path;
+    }
+
+    /**
+     * @return the EDM property
+     */
+    public EdmProperty getProperty() {
+      return property;
+    }
+
+    /**
+     * @return whether the order is descending
+     */
+    public boolean isDescending() {
+      return descending;
+    }
+
+    /**
+     * Gets the value of this column from an entity.
+     * @param entity the entity
+     * @return the value or <code>null</code>
+     */
+    public Object getValue(final Entity entity) {
+      List<Property> properties = entity.getProperties();
+      Object value = null;
+      for (final String name : path) {
+        Property property = null;
+        for (final Property candidate : properties == null ? Collections.<Property> emptyList() : properties) {
+          if (name.equals(candidate.getName())) {
+            property = candidate;
+            break;
+          }
+        }
+        if (property == null || property.isNull()) {
+          return null;
+        }
+        value = property.getValue();
+        properties = value instanceof ComplexValue ? ((ComplexValue) value).getValue() : null;
+      }
+      return value;
+    }
+
+    private String format(final Object value) throws EdmPrimitiveTypeException {
+      return ((EdmPrimitiveType) property.getType()).valueToString(value, property.isNullable(),
+          property.getMaxLength(), property.getPrecision(), property.getScale(), property.isUnicode());
+    }
+
+    private Object parse(final String literal, final Class<?> returnType) throws EdmPrimitiveTypeException {
+      final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
+      final Class<?> targetType = returnType == null ? type.getDefaultType() : returnType;
+      return type.valueOfString(literal, property.isNullable(), property.getMaxLength(),
+          property.getPrecision(), property.getScale(), property.isUnicode(), targetType);
+    }
+
+    /** Compares two values; <code>null</code> is less than any other value. */
+    @SuppressWarnings("unchecked")
+    private int compare(final Object left, final Object right) throws ODataApplicationException {
+      if (left == null || right == null) {
+        return left == null ? (right == null ? 0 : -1) : 1;
+      } else if (left instanceof Number && right instanceof Number) {
+        return compareNumbers((Number) left, (Number) right);
+      } else if (left instanceof Comparable && left.getClass().isInstance(right)) {
+        return ((Comparable<Object>) left).compareTo(right);
+      } else {
+        throw new ODataApplicationException("Values of type " + left.getClass().getSimpleName()
+            + " and " + right.getClass().getSimpleName() + " cannot be compared.",
+            HttpStatusCode.BAD_REQUEST.getStatusCode(), Locale.ROOT);
+      }
+    }
+
+    private static int compareNumbers(final Number left, final Number right) {
+      if (isIntegral(left) && isIntegral(right)) {
+        return Long.compare(left.longValue(), right.longValue());
+      } else if (left instanceof Double || left instanceof Float || right instanceof Double || right instanceof Float) {
+        return Double.compare(left.doubleValue(), right.doubleValue());
+      } else {
+        return new BigDecimal(left.toString()).compareTo(new BigDecimal(right.toString()));
+      }
+    }
+
+    private static boolean isIntegral(final Number number) {
+      return number instanceof Long || number instanceof Integer || number instanceof Short
+          || number instanceof Byte;
+    }
+
+    @Override
+    public String toString() {
+      return path + (descending ? " desc" : " asc");
+    }
+  }
+
+  /**
+   * Selects the entities after the last entity of the previous page; back ends supporting queries
+   * translate it to <code>(c1 &gt; v1) OR (c1 = v1 AND c2 &gt; v2) OR ...</code>,
+   * with <code>&lt;</code> for descending columns.
+   */
+  public final class SeekPredicate {
+    private final int pageSize;
+    private final String[] literals;
+    private final Object[] values;
+
+    private SeekPredicate(final int pageSize, final String[] literals, final Object[] values) {
+      this.pageSize = pageSize;
+      this.literals = literals;
+      this.values = values;
+    }
+
+    /**
+     * @return the page size
+     */
+    public int getPageSize() {
+      return pageSize;
+    }
+
+    /**
+     * @return the order values of the last entity of the previous page, in the order of the columns
+     */
+    public List<Object> getValues() {
+      return Collections.unmodifiableList(Arrays.asList(values));
+    }
+
+    /**
+     * Checks whether an entity comes after the last entity of the previous page.
+     * @param entity the entity
+     * @return <code>true</code> if the entity belongs to a following page
+     * @throws ODataApplicationException if the values cannot be compared
+     */
+    public boolean matches(final Entity entity) throws ODataApplicationException {
+      for (int index = 0; index < values.length; index++) {
+        final Column column = columns.get(index);
+        final Object value = column.getValue(entity);
+        Object seekValue = values[index];
+        if (value != null && seekValue != null && !(value instanceof Number && seekValue instanceof Number)
+            && !seekValue.getClass().isInstance(value)) {
+          // e.g., Calendar instead of Timestamp
+          try {
+            seekValue = column.parse(literals[index], value.getClass());
+          } catch (final EdmPrimitiveTypeException e) {
+            throw invalidSkipToken(e);
+          }
+        }
+        final int result = column.compare(value, seekValue);
+        if (result != 0) {
+          return column.isDescending() ? result < 0 : result > 0;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchBinary;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchBinaryOperatorKind;
+import org.apache.olingo.server.api.uri.queryoption.search.SearchExpression;
+
+/**
+ * In-memory inverted index for evaluating <code>$search</code> expressions.
+ * <p>
+ * The values of the configured string properties are split into lower-case words.
+ * Every word refers to the sorted list of entities containing it, so AND, OR, and NOT are evaluated by
+ * merging these lists as intersection, union, and complement; search terms consisting of several words
+ * (phrases) additionally must occur at consecutive word positions within one property value.
+ * Search terms match whole words, ignoring case.
+ * </p>
+ * <p>
+ * The index is maintained incrementally with {@link #put(Object, Entity)} and {@link #remove(Object)},
+ * e.g., whenever an entity is created, updated, or deleted. It is safe for concurrent use.
+ * </p>
+ * @param <K> type of the entity keys
+ */
+public class SearchIndex<K> {
+
+  /** Distance of positions between property values, so that phrases do not span values. */
+  private static final int VALUE_GAP = 1 << 16;
+
+  private final List<String[]> propertyPaths = new ArrayList<>();
+
+  private final Map<String, Postings> postings = new HashMap<>();
+  private final Map<K, Integer> documentIds = new HashMap<>();
+  private final List<K> keys = new ArrayList<>();
+  private final List<String[]> documentWords = new ArrayList<>();
+  private final BitSet documents = new BitSet();
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Creates an index for the given properties.
+   * @param propertyPaths paths of the properties to index, with segments separated by <code>/</code>
+   * to address properties of complex properties
+   */
+  public SearchIndex(final List<String> propertyPaths) {
+    for (final String path : propertyPaths) {
+      this.propertyPaths.add(path.split("/"));
+    }
+  }
+
+  /**
+   * Adds an entity to the index or replaces the indexed values of an entity.
+   * @param key the key of the entity
+   * @param entity the entity
+   */
+  public void put(final K key, final Entity entity) {
+    final Map<String, List<Integer>> positions = new HashMap<>();
+    int position = 0;
+    for (final String[] path : propertyPaths) {
+      for (final String value : getValues(entity.getProperties(), path, 0, new ArrayList<String>())) {
+        for (final String word : tokenize(value)) {
+          List<Integer> wordPositions = positions.get(word);
+          if (wordPositions == null) {
+            wordPositions = new ArrayList<>();
+            positions.put(word, wordPositions);
+          }
+          wordPositions.add(position++);
+        }
+        position += VALUE_GAP;
+      }
+    }
+
+    lock.writeLock().lock();
+    try {
+      removeInternal(key);
+      final int id = allocate(key);
+      documentWords.set(id, positions.keySet().toArray(new String[positions.size()]));
+      for (final Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+        Postings wordPostings = postings.get(entry.getKey());
+        if (wordPostings == null) {
+          wordPostings = new Postings();
+          postings.put(entry.getKey(), wordPostings);
+        }
+        wordPostings.add(id, entry.getValue());
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Removes an entity from the index.
+   * @param key the key of the entity
+   */
+  public void remove(final K key) {
+    lock.writeLock().lock();
+    try {
+      removeInternal(key);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Gets the number of indexed entities.
+   * @return the number of entities
+   */
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return documentIds.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Evaluates a search expression.
+   * @param expression the parsed search expression
+   * @return the keys of all matching entities
+   */
+  public Set<K> search(final SearchExpression expression) {
+    lock.readLock().lock();
+    try {
+      final int[] result = evaluate(expression);
+      Set<K> matches = new LinkedHashSet<>();
+      for (final int id : result) {
+        matches.add(keys.get(id));
+      }
+      return matches;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /** Evaluates an expression to the sorted identifiers of the matching documents. */
+  private int[] evaluate(final SearchExpression expression) {
+    if (expression.isSearchTerm()) {
+      return evaluateTerm(expression.asSearchTerm().getSearchTerm());
+    } else if (expression.isSearchUnary()) {
+      return difference(getAllDocuments(), evaluate(expression.asSearchUnary().getOperand()));
+    } else {
+      final SearchBinary binary = expression.asSearchBinary();
+      final int[] left = evaluate(binary.getLeftOperand());
+      if (binary.getOperator() == SearchBinaryOperatorKind.AND) {
+        return left.length == 0 ? left : intersection(left, evaluate(binary.getRightOperand()));
+      } else {
+        return union(left, evaluate(binary.getRightOperand()));
+      }
+    }
+  }
+
+  private int[] evaluateTerm(final String term) {
+    final List<String> words = tokenize(term);
+    if (words.isEmpty()) {
+      return new int[0];
+    }
+    final Postings[] phrase = new Postings[words.size()];
+    for (int i = 0; i < phrase.length; i++) {
+      phrase[i] = postings.get(words.get(i));
+      if (phrase[i] == null) {
+        return new int[0];
+      }
+    }
+    // Intersect starting with the shortest posting list.
+    final Postings[] bySize = phrase.clone();
+    Arrays.sort(bySize, new Comparator<Postings>() {
+      @Override
+      public int compare(final Postings left, final Postings right) {
+        return Integer.compare(left.positions.size(), right.positions.size());
+      }
+    });
+    int[] candidates = bySize[0].getDocuments();
+    for (int i = 1; i < bySize.length && candidates.length > 0; i++) {
+      candidates = intersection(candidates, bySize[i].getDocuments());
+    }
+    if (phrase.length == 1) {
+      return candidates;
+    }
+    int count = 0;
+    for (final int id : candidates) {
+      if (containsPhrase(phrase, id)) {
+        candidates[count++] = id;
+      }
+    }
+    return Arrays.copyOf(candidates, count);
+  }
+
+  private boolean containsPhrase(final Postings[] phrase, final int id) {
+    for (final int start : phrase[0].positions.get(id)) {
+      boolean found = true;
+      for (int i = 1; i < phrase.length && found; i++) {
+        found = Arrays.binarySearch(phrase[i].positions.get(id), start + i) >= 0;
+      }
+      if (found) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private int[] getAllDocuments() {
+    final int[] all = new int[documentIds.size()];
+    int count = 0;
+    for (int id = documents.nextSetBit(0); id >= 0; id = documents.nextSetBit(id + 1)) {
+      all[count++] = id;
+    }
+    return all;
+  }
+
+  private static int[] intersection(final int[] left, final int[] right) {
+    final int[] result = new int[Math.min(left.length, right.length)];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < left.length && j < right.length) {
+      if (left[i] < right[j]) {
+        i++;
+      } else if (left[i] > right[j]) {
+        j++;
+      } else {
+        result[count++] = left[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  private static int[] union(final int[] left, final int[] right) {
+    final int[] result = new int[left.length + right.length];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < left.length || j < right.length) {
+      if (j == right.length || i < left.length && left[i] < right[j]) {
+        result[count++] = left[i++];
+      } else if (i == left.length || right[j] < left[i]) {
+        result[count++] = right[j++];
+      } else {
+        result[count++] = left[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  private static int[] difference(final int[] left, final int[] right) {
+    final int[] result = new int[left.length];
+    int count = 0;
+    int j = 0;
+    for (final int id : left) {
+      while (j < right.length && right[j] < id) {
+        j++;
+      }
+      if (j == right.length || right[j] != id) {
+        result[count++] = id;
+      }
+    }
+    return Arrays.copyOf(result, count);
+  }
+
+  private int allocate(final K key) {
+    int id = documents.nextClearBit(0);
+    documents.set(id);
+    documentIds.put(key, id);
+    if (id == keys.size()) {
+      keys.add(key);
+      documentWords.add(null);
+    } else {
+      keys.set(id, key);
+    }
+    return id;
+  }
+
+  private void removeInternal(final K key) {
+    final Integer id = documentIds.remove(key);
+    if (id == null) {
+      return;
+    }
+    for (final String word : documentWords.get(id)) {
+      final Postings wordPostings = postings.get(word);
+      wordPostings.remove(id);
+      if (wordPostings.positions.isEmpty()) {
+        postings.remove(word);
+      }
+    }
+    documentWords.set(id, null);
+    keys.set(id, null);
+    documents.clear(id);
+  }
+
+  private List<String> getValues(final List<Property> properties, final String[] path, final int index,
+      final List<String> values) {
+    for (final Property property : properties) {
+      if (path[index].equals(property.getName()) && !property.isNull()) {
+        if (index == path.length - 1) {
+          addStrings(property.isCollection() ? property.asCollection() :
+              Collections.singletonList(property.getValue()), values);
+        } else if (property.isComplex()) {
+          final List<?> complexValues = property.isCollection() ? property.asCollection() :
+              Collections.singletonList(property.asComplex());
+          for (final Object complexValue : complexValues) {
+            getValues(((ComplexValue) complexValue).getValue(), path, index + 1, values);
+          }
+        }
+      }
+    }
+    return values;
+  }
+
+  private void addStrings(final Iterable<?> primitives, final List<String> values) {
+    for (final Object primitive : primitives) {
+      if (primitive instanceof String) {
+        values.add((String) primitive);
+      }
+    }
+  }
+
+  /** Splits text into lower-case words consisting of letters and digits. */
+  static List<String> tokenize(final String text) {
+    List<String> words = new ArrayList<>();
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      final boolean wordCharacter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (wordCharacter && start < 0) {
+        start = i;
+      } else if (!wordCharacter && start >= 0) {
+        words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return words;
+  }
+
+  /** The entities containing a word, with the positions of the word. */
+  private static final class Postings {
+    private final Map<Integer, int[]> positions = new HashMap<>();
+    /** The sorted identifiers of the entities; built on demand after changes. */
+    private volatile int[] documents;
+
+    private void add(final int id, final List<Integer> wordPositions) {
+      final int[] sorted = new int[wordPositions.size()];
+      for (int i = 0; i < sorted.length; i++) {
+        sorted[i] = wordPositions.get(i);
+      }
+      positions.put(id, sorted);
+      documents = null;
+    }
+
+    private void remove(final int id) {
+      positions.remove(id);
+      documents = null;
+    }
+
+    private int[] getDocuments() {
+      int[] result = documents;
+      if (result == null) {
+        result = new int[positions.size()];
+        int count = 0;
+        for (final Integer id : positions.keySet()) {
+          result[count++] = id;
+        }
+        Arrays.sort(result);
+        documents = result;
+      }
+      return result;
+    }
+  }
+}
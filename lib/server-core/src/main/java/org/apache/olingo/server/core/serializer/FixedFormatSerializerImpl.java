@@ -23,6 +23,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 
 import org.apache.olingo.commons.api.data.EntityMediaObject;
@@ -39,6 +45,8 @@ import org.apache.olingo.server.core.ODataWritableContent;
 
 public class FixedFormatSerializerImpl implements FixedFormatSerializer {
 
+  private static final int COPY_BUFFER_SIZE = 8192;
+
   @Override
   public InputStream binary(final byte[] binary) throws SerializerException {
     return new ByteArrayInputStream(binary);
@@ -46,17 +54,95 @@ public class FixedFormatSerializerImpl implements FixedFormatSerializer {
   
   protected void binary(final EntityMediaObject mediaEntity, 
 		  OutputStream outputStream) throws SerializerException {
-	  try {
-		outputStream.write(mediaEntity.getBytes());
-	} catch (IOException e) {
-		throw new SerializerException("IO Exception occured ", e, SerializerException.MessageKeys.IO_EXCEPTION);
-	}
+    binary(mediaEntity, 0, -1, Channels.newChannel(outputStream));
+  }
+
+  /**
+   * Writes a byte range of the media content.
+   * Content given as {@link FileChannel} is transferred without copying it through the heap.
+   * @param mediaEntity the media content
+   * @param offset index of the first byte to write
+   * @param count number of bytes to write, or -1 for all bytes up to the end of the content
+   * @param output the target channel
+   */
+  protected void binary(final EntityMediaObject mediaEntity, final long offset, final long count,
+      final WritableByteChannel output) throws SerializerException {
+    try {
+      if (mediaEntity.getBytes() != null) {
+        final byte[] bytes = mediaEntity.getBytes();
+        final int start = (int) Math.min(offset, bytes.length);
+        final int length = count < 0 ? bytes.length - start : (int) Math.min(count, bytes.length - start);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes, start, length);
+        while (buffer.hasRemaining()) {
+          output.write(buffer);
+        }
+      } else if (mediaEntity.getChannel() instanceof FileChannel) {
+        try (FileChannel file = (FileChannel) mediaEntity.getChannel()) {
+          final long end = count < 0 ? file.size() : Math.min(file.size(), offset + count);
+          long position = offset;
+          while (position < end) {
+            final long transferred = file.transferTo(position, end - position, output);
+            if (transferred <= 0) {
+              break;
+            }
+            position += transferred;
+          }
+        }
+      } else if (mediaEntity.getChannel() != null || mediaEntity.getContent() != null) {
+        try (ReadableByteChannel input = mediaEntity.getChannel() == null ?
+            Channels.newChannel(mediaEntity.getContent()) : mediaEntity.getChannel()) {
+          copy(input, offset, count, output);
+        }
+      }
+    } catch (final IOException e) {
+      throw new SerializerException("IO Exception occured ", e, SerializerException.MessageKeys.IO_EXCEPTION);
+    }
+  }
+
+  private void copy(final ReadableByteChannel input, final long offset, final long count,
+      final WritableByteChannel output) throws IOException {
+    final ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+    long skip = offset;
+    if (skip > 0 && input instanceof SeekableByteChannel) {
+      ((SeekableByteChannel) input).position(skip);
+      skip = 0;
+    }
+    long remaining = count < 0 ? Long.MAX_VALUE : count;
+    while (remaining > 0) {
+      buffer.clear();
+      if (skip == 0 && remaining < buffer.capacity()) {
+        buffer.limit((int) remaining);
+      } else if (skip > 0 && skip < buffer.capacity()) {
+        buffer.limit((int) skip);
+      }
+      if (input.read(buffer) < 0) {
+        break;
+      }
+      buffer.flip();
+      if (skip > 0) {
+        skip -= buffer.remaining();
+        continue;
+      }
+      remaining -= buffer.remaining();
+      while (buffer.hasRemaining()) {
+        output.write(buffer);
+      }
+    }
   }
   
   public void binaryIntoStreamed(final EntityMediaObject mediaEntity, 
 		  final OutputStream outputStream) throws SerializerException {
 	binary(mediaEntity, outputStream);
   }
+
+  /**
+   * Writes a byte range of the media content into the given channel.
+   * @see #binary(EntityMediaObject, long, long, WritableByteChannel)
+   */
+  public void binaryIntoStreamed(final EntityMediaObject mediaEntity, final long offset, final long count,
+      final WritableByteChannel output) throws SerializerException {
+    binary(mediaEntity, offset, count, output);
+  }
   
   @Override
   public SerializerStreamResult mediaEntityStreamed(EntityMediaObject mediaEntity) throws SerializerException {
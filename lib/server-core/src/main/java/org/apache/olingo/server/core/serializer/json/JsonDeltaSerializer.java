@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -31,6 +32,7 @@ import org.apache.olingo.commons.api.data.ComplexValue;
 import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.DeletedEntity;
 import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaIterator;
 import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.Link;
@@ -52,9 +54,11 @@ import org.apache.olingo.server.api.serializer.EdmDeltaSerializer;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.SerializerException;
 import org.apache.olingo.server.api.serializer.SerializerResult;
+import org.apache.olingo.server.api.serializer.SerializerStreamResult;
 import org.apache.olingo.server.api.uri.UriHelper;
 import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
+import org.apache.olingo.server.core.ODataWritableContent;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
 import org.apache.olingo.server.core.serializer.utils.ContentTypeHelper;
@@ -122,6 +126,59 @@ public class JsonDeltaSerializer implements EdmDeltaSerializer {
 
   }
 
+  @Override
+  public SerializerStreamResult entityCollectionStreamed(ServiceMetadata metadata, EdmEntityType referencedEntityType,
+      DeltaIterator delta, EntityCollectionSerializerOptions options) throws SerializerException {
+
+    return ODataWritableContent.with(delta, referencedEntityType, this, metadata, options).build();
+  }
+
+  public void entityCollectionIntoStream(final ServiceMetadata metadata, final EdmEntityType referencedEntityType,
+      final DeltaIterator delta, final EntityCollectionSerializerOptions options, final OutputStream outputStream)
+      throws SerializerException {
+    try {
+      JsonGenerator json = new JsonFactory().createGenerator(outputStream);
+      json.writeStartObject();
+
+      final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
+      writeContextURL(contextURL, json);
+
+      if (options != null && options.getCount() != null && options.getCount().getValue()) {
+        writeInlineCount(delta.getCount(), json);
+      }
+      json.writeFieldName(Constants.VALUE);
+      writeEntitySet(metadata, referencedEntityType, delta, options, json);
+
+      // the delta link is requested only now, after all changes have been read
+      final boolean pagination = writeNextLink(delta, json);
+      writeDeltaLink(delta, json, pagination);
+
+      json.close();
+    } catch (final IOException e) {
+      throw new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
+    }
+  }
+
+  protected void writeEntitySet(final ServiceMetadata metadata, final EdmEntityType entityType,
+      final DeltaIterator delta, final EntityCollectionSerializerOptions options,
+      final JsonGenerator json) throws IOException, SerializerException {
+    json.writeStartArray();
+    while (delta.hasNext()) {
+      writeAddedUpdatedEntity(metadata, entityType, delta.next(), options.getExpand(), options.getSelect(),
+          options.getContextURL(), false, options.getContextURL().getEntitySetOrSingletonOrType(), json);
+    }
+    for (final Iterator<DeletedEntity> iterator = delta.getDeletedEntities(); iterator.hasNext();) {
+      writeDeletedEntity(iterator.next(), json);
+    }
+    for (final Iterator<DeltaLink> iterator = delta.getAddedLinks(); iterator.hasNext();) {
+      writeLink(iterator.next(), options, json, true);
+    }
+    for (final Iterator<DeltaLink> iterator = delta.getDeletedLinks(); iterator.hasNext();) {
+      writeLink(iterator.next(), options, json, false);
+    }
+    json.writeEndArray();
+  }
+
   protected void writeEntitySet(final ServiceMetadata metadata, final EdmEntityType entityType,
       final Delta entitySet, final EntityCollectionSerializerOptions options,
       final JsonGenerator json) throws IOException,
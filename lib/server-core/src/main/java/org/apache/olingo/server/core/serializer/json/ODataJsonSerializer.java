@@ -56,6 +56,7 @@ import org.apache.olingo.commons.api.edm.EdmType;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.constants.EdmTypeKind;
 import org.apache.olingo.commons.api.edm.geo.ComposedGeospatial;
+import org.apache.olingo.commons.api.edm.geo.Coordinates;
 import org.apache.olingo.commons.api.edm.geo.Geospatial;
 import org.apache.olingo.commons.api.edm.geo.GeospatialCollection;
 import org.apache.olingo.commons.api.edm.geo.LineString;
@@ -65,10 +66,12 @@ import org.apache.olingo.commons.api.edm.geo.MultiPolygon;
 import org.apache.olingo.commons.api.edm.geo.Point;
 import org.apache.olingo.commons.api.edm.geo.Polygon;
 import org.apache.olingo.commons.api.edm.geo.SRID;
+import org.apache.olingo.commons.api.ex.ODataNotSupportedException;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
 import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.metrics.RequestPhase;
 import org.apache.olingo.server.api.serializer.ComplexSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
@@ -85,6 +88,7 @@ import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.core.ODataWritableContent;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
 import org.apache.olingo.server.core.serializer.AbstractODataSerializer;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
@@ -202,6 +206,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   public SerializerResult entityCollection(final ServiceMetadata metadata,
       final EdmEntityType entityType, final AbstractEntityCollection entitySet,
       final EntityCollectionSerializerOptions options) throws SerializerException {
+    final long metricsStart = MetricsCollector.getInstance().start();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     boolean pagination = false;
@@ -239,6 +244,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      MetricsCollector.getInstance().stop(RequestPhase.SERIALIZATION, metricsStart);
     }
   }
 
@@ -254,6 +260,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final EntityCollectionSerializerOptions options, final OutputStream outputStream)
       throws SerializerException {
 
+    final long metricsStart = MetricsCollector.getInstance().start();
     SerializerException cachedException;
     boolean pagination = false;
     try {
@@ -268,6 +275,9 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       if (options != null && options.getCount() != null && options.getCount().getValue()) {
         writeInlineCount("", entitySet.getCount(), json);
       }
+      if (isODataMetadataFull) {
+        writeOperations(getOperations(entitySet), json);
+      }
       json.writeFieldName(Constants.VALUE);
       String name =  contextURL == null ? null:contextURL.getEntitySetOrSingletonOrType() ;
       if (options == null) {
@@ -284,12 +294,15 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       cachedException =
           new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
       throw cachedException;
+    } finally {
+      MetricsCollector.getInstance().stop(RequestPhase.SERIALIZATION, metricsStart);
     }
   }
 
   @Override
   public SerializerResult entity(final ServiceMetadata metadata, final EdmEntityType entityType,
       final Entity entity, final EntitySerializerOptions options) throws SerializerException {
+    final long metricsStart = MetricsCollector.getInstance().start();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     
@@ -305,6 +318,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
           options == null ? false : options.getWriteOnlyReferences(),
           null, name,
           json);
+      MetricsCollector.getInstance().addEntitiesSerialized(1);
 
       json.close();
       return SerializerResultImpl.with().content(buffer.getInputStream()).build();
@@ -314,6 +328,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      MetricsCollector.getInstance().stop(RequestPhase.SERIALIZATION, metricsStart);
     }
   }
 
@@ -331,6 +346,7 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       final boolean onlyReference, final Set<String> ancestors, String name, final JsonGenerator json)
           throws IOException, SerializerException, DecoderException {
     json.writeStartArray();
+    int count = 0;
     for (final Entity entity : entitySet) {
       if (onlyReference) {
         json.writeStartObject();
@@ -339,8 +355,10 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
       } else {
         writeEntity(metadata, entityType, entity, null, expand, toDepth, select, false, ancestors, name, json);
       }
+      count++;
     }
     json.writeEndArray();
+    MetricsCollector.getInstance().addEntitiesSerialized(count);
   }
 
   /**
@@ -448,6 +466,17 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
     }
   }
 
+  /**
+   * Gets the operations bound to a streamed collection; iterators not supporting operations have none.
+   */
+  private List<Operation> getOperations(final EntityIterator entitySet) {
+    try {
+      return entitySet.getOperations();
+    } catch (final ODataNotSupportedException e) {
+      return Collections.emptyList();
+    }
+  }
+
   private void writeOperations(final List<Operation> operations, final JsonGenerator json)
       throws IOException {
     if (isODataMetadataFull) {
@@ -1050,9 +1079,16 @@ public class ODataJsonSerializer extends AbstractODataSerializer {
   }
 
   private void writeGeoPoints(JsonGenerator json, final ComposedGeospatial<Point> points) throws IOException {
-    for (final Point point : points) {
+    // packed coordinates are written without creating a point object per position
+    final Coordinates coordinates = Coordinates.valueOf(points);
+    final int size = coordinates.size();
+    for (int i = 0; i < size; i++) {
       json.writeStartArray();
-      writeGeoPoint(json, point);
+      json.writeNumber(coordinates.getX(i));
+      json.writeNumber(coordinates.getY(i));
+      if (coordinates.getZ(i) != 0) {
+        json.writeNumber(coordinates.getZ(i));
+      }
       json.writeEndArray();
     }
   }
@@ -59,6 +59,7 @@ import org.apache.olingo.commons.core.edm.primitivetype.EdmPrimitiveTypeFactory;
 import org.apache.olingo.commons.core.edm.primitivetype.EdmString;
 import org.apache.olingo.server.api.ODataServerError;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.metrics.RequestPhase;
 import org.apache.olingo.server.api.serializer.ComplexSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.serializer.EntitySerializerOptions;
@@ -75,6 +76,7 @@ import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.LevelsExpandOption;
 import org.apache.olingo.server.api.uri.queryoption.SelectOption;
 import org.apache.olingo.server.core.ODataWritableContent;
+import org.apache.olingo.server.core.metrics.MetricsCollector;
 import org.apache.olingo.server.core.serializer.AbstractODataSerializer;
 import org.apache.olingo.server.core.serializer.SerializerResultImpl;
 import org.apache.olingo.server.core.serializer.utils.CircleStreamBuffer;
@@ -227,6 +229,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       return entityReferenceCollection(entitySet, rso);
     }
 
+    final long metricsStart = MetricsCollector.getInstance().start();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
@@ -284,6 +287,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      MetricsCollector.getInstance().stop(RequestPhase.SERIALIZATION, metricsStart);
     }
   }
 
@@ -292,6 +296,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
 
     final ContextURL contextURL = checkContextURL(options == null ? null : options.getContextURL());
     final String name = contextURL == null ? null : contextURL.getEntitySetOrSingletonOrType();
+    final long metricsStart = MetricsCollector.getInstance().start();
     SerializerException cachedException;
     try {
       XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, DEFAULT_CHARSET);
@@ -335,6 +340,8 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       cachedException =
           new SerializerException(IO_EXCEPTION_TEXT, e, SerializerException.MessageKeys.IO_EXCEPTION);
       throw cachedException;
+    } finally {
+      MetricsCollector.getInstance().stop(RequestPhase.SERIALIZATION, metricsStart);
     }
   }
 
@@ -354,6 +361,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
           ReferenceSerializerOptions.with().contextURL(contextURL).build());
     }
 
+    final long metricsStart = MetricsCollector.getInstance().start();
     OutputStream outputStream = null;
     SerializerException cachedException = null;
     try {
@@ -367,6 +375,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
           options == null ? null : options.getSelect(),
           options == null ? null : options.xml10InvalidCharReplacement(),
           writer, true, false, name, null);
+      MetricsCollector.getInstance().addEntitiesSerialized(1);
       writer.writeEndDocument();
 
       writer.flush();
@@ -384,6 +393,7 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       throw cachedException;
     } finally {
       closeCircleStreamBufferOutput(outputStream, cachedException);
+      MetricsCollector.getInstance().stop(RequestPhase.SERIALIZATION, metricsStart);
     }
   }
 
@@ -410,10 +420,13 @@ public class ODataXmlSerializer extends AbstractODataSerializer {
       final String xml10InvalidCharReplacement,final XMLStreamWriter writer, 
       final boolean writeOnlyRef, final String name,final Set<String> ancestors) 
           throws XMLStreamException, SerializerException {
+    int count = 0;
     for (final Entity entity : entitySet) {
       writeEntity(metadata, entityType, entity, null, expand, toDepth, select, 
           xml10InvalidCharReplacement, writer, false, writeOnlyRef, name, ancestors);
+      count++;
     }
+    MetricsCollector.getInstance().addEntitiesSerialized(count);
   }
   
   /**
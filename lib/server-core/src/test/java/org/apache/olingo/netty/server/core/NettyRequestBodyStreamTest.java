@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.netty.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+public class NettyRequestBodyStreamTest {
+
+  @Test
+  public void readOfferedContent() throws Exception {
+    final NettyRequestBodyStream body = new NettyRequestBodyStream(new EmbeddedChannel());
+    body.offer(Unpooled.copiedBuffer("Hello ", StandardCharsets.UTF_8));
+    body.offer(Unpooled.EMPTY_BUFFER);
+    body.offer(Unpooled.copiedBuffer("World", StandardCharsets.UTF_8));
+    body.complete();
+
+    assertEquals("Hello World", IOUtils.toString(body, StandardCharsets.UTF_8));
+    assertEquals(-1, body.read());
+  }
+
+  @Test
+  public void readingIsSuspendedAboveHighWaterMark() throws Exception {
+    final EmbeddedChannel channel = new EmbeddedChannel();
+    final NettyRequestBodyStream body = new NettyRequestBodyStream(channel);
+    body.offer(Unpooled.wrappedBuffer(new byte[NettyRequestBodyStream.HIGH_WATER_MARK + 1]));
+    assertFalse(channel.config().isAutoRead());
+
+    final byte[] buffer = new byte[NettyRequestBodyStream.HIGH_WATER_MARK];
+    int read = 0;
+    while (read < buffer.length) {
+      read += body.read(buffer, read, buffer.length - read);
+    }
+    channel.runPendingTasks();
+    assertTrue(channel.config().isAutoRead());
+  }
+
+  @Test
+  public void closeReleasesContent() {
+    final NettyRequestBodyStream body = new NettyRequestBodyStream(new EmbeddedChannel());
+    final ByteBuf first = Unpooled.copiedBuffer("first", StandardCharsets.UTF_8);
+    body.offer(first);
+    body.close();
+    final ByteBuf second = Unpooled.copiedBuffer("second", StandardCharsets.UTF_8);
+    body.offer(second);
+
+    assertEquals(0, first.refCnt());
+    assertEquals(0, second.refCnt());
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.servlet.AsyncContext;
+
+import org.apache.olingo.server.api.ODataResponse;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AsyncResponseWriterTest {
+
+  @Test
+  public void contentIsBufferedUpToCapacity() throws Exception {
+    final byte[] content = new byte[10 * ODataHttpHandlerImpl.COPY_BUFFER_SIZE + 1];
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    final SlowServletOutputStream output = new SlowServletOutputStream();
+    final int[] maxAhead = new int[1];
+    final InputStream input = new ByteArrayInputStream(content) {
+      @Override
+      public synchronized int read(final byte[] bytes, final int offset, final int length) {
+        maxAhead[0] = Math.max(maxAhead[0], pos - output.getSize());
+        return super.read(bytes, offset, length);
+      }
+    };
+    final ODataResponse response = new ODataResponse();
+    response.setContent(input);
+    final AsyncContext asyncContext = mock(AsyncContext.class);
+    final CountDownLatch completed = new CountDownLatch(1);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        completed.countDown();
+        return null;
+      }
+    }).when(asyncContext).complete();
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final AsyncResponseWriter writer = new AsyncResponseWriter(asyncContext, output);
+      output.setWriteListener(writer);
+      writer.start(response, executor);
+      drive(output, completed);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    assertArrayEquals(content, output.toByteArray());
+    assertTrue(maxAhead[0] <= (AsyncResponseWriter.CAPACITY + 1) * ODataHttpHandlerImpl.COPY_BUFFER_SIZE);
+    verify(asyncContext).complete();
+  }
+
+  @Test
+  public void errorStopsSerialization() throws Exception {
+    final SlowServletOutputStream output = new SlowServletOutputStream();
+    final ODataResponse response = new ODataResponse();
+    response.setContent(new InputStream() {
+      @Override
+      public int read() {
+        return 0;
+      }
+    });
+    final AsyncContext asyncContext = mock(AsyncContext.class);
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final AsyncResponseWriter writer = new AsyncResponseWriter(asyncContext, output);
+      writer.start(response, executor);
+      writer.onError(new IOException("connection reset"));
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(0, output.getSize());
+    verify(asyncContext).complete();
+  }
+
+  /** Plays the container serving a slow client until the response is complete. */
+  static void drive(final SlowServletOutputStream output, final CountDownLatch completed) throws Exception {
+    final long end = System.currentTimeMillis() + 10000;
+    while (!completed.await(1, TimeUnit.MILLISECONDS)) {
+      assertTrue("response not completed in time", System.currentTimeMillis() < end);
+      output.makeReady();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.apache.olingo.commons.api.data.EntityMediaObject;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.core.serializer.FixedFormatSerializerImpl;
+import org.junit.Test;
+
+public class MediaRangeTest {
+
+  private static final byte[] MEDIA = "0123456789".getBytes();
+
+  @Test
+  public void parse() {
+    assertArrayEquals(new long[] { 2, 4 }, MediaRange.parse("bytes=2-4", 10));
+    assertArrayEquals(new long[] { 2, 9 }, MediaRange.parse("bytes=2-", 10));
+    assertArrayEquals(new long[] { 7, 9 }, MediaRange.parse("bytes=-3", 10));
+    assertArrayEquals(new long[] { 0, 9 }, MediaRange.parse("BYTES=-30", 10));
+    assertArrayEquals(new long[] { 8, 9 }, MediaRange.parse("bytes=8-20", 10));
+    assertEquals(0, MediaRange.parse("bytes=10-", 10).length);
+    assertEquals(0, MediaRange.parse("bytes=-0", 10).length);
+    assertNull(MediaRange.parse("bytes=4-2", 10));
+    assertNull(MediaRange.parse("bytes=0-1,4-5", 10));
+    assertNull(MediaRange.parse("bytes=a-", 10));
+    assertNull(MediaRange.parse("items=0-1", 10));
+  }
+
+  @Test
+  public void partialContent() {
+    final ODataResponse response = createResponse(createMedia(), "\"1\"");
+    MediaRange.apply(createRequest("bytes=3-5", "\"1\""), response);
+
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes 3-5/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("3", response.getHeader(HttpHeader.CONTENT_LENGTH));
+    assertEquals("bytes", response.getHeader(HttpHeader.ACCEPT_RANGES));
+    assertEquals("345", write(response));
+  }
+
+  @Test
+  public void streamedPartialContent() {
+    final EntityMediaObject mediaEntity = new EntityMediaObject();
+    mediaEntity.setContent(new ByteArrayInputStream(MEDIA));
+    mediaEntity.setLength(MEDIA.length);
+    final ODataResponse response = createResponse(mediaEntity, null);
+    MediaRange.apply(createRequest("bytes=-4", null), response);
+
+    assertEquals(HttpStatusCode.PARTIAL_CONTENT.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes 6-9/10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("6789", write(response));
+  }
+
+  @Test
+  public void notSatisfiable() {
+    final ODataResponse response = createResponse(createMedia(), null);
+    MediaRange.apply(createRequest("bytes=10-", null), response);
+
+    assertEquals(HttpStatusCode.RANGE_NOT_SATISFIABLE.getStatusCode(), response.getStatusCode());
+    assertEquals("bytes */10", response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("", write(response));
+  }
+
+  @Test
+  public void completeContent() {
+    // outdated If-Range
+    ODataResponse response = createResponse(createMedia(), "\"2\"");
+    MediaRange.apply(createRequest("bytes=3-5", "\"1\""), response);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertNull(response.getHeader(HttpHeader.CONTENT_RANGE));
+    assertEquals("0123456789", write(response));
+
+    // unknown length
+    final EntityMediaObject mediaEntity = new EntityMediaObject();
+    mediaEntity.setContent(new ByteArrayInputStream(MEDIA));
+    response = createResponse(mediaEntity, null);
+    MediaRange.apply(createRequest("bytes=3-5", null), response);
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertNull(response.getHeader(HttpHeader.ACCEPT_RANGES));
+    assertEquals("0123456789", write(response));
+  }
+
+  private EntityMediaObject createMedia() {
+    final EntityMediaObject mediaEntity = new EntityMediaObject();
+    mediaEntity.setBytes(MEDIA);
+    return mediaEntity;
+  }
+
+  private ODataRequest createRequest(final String range, final String ifRange) {
+    final ODataRequest request = new ODataRequest();
+    request.addHeader(HttpHeader.RANGE, range);
+    if (ifRange != null) {
+      request.addHeader(HttpHeader.IF_RANGE, ifRange);
+    }
+    return request;
+  }
+
+  private ODataResponse createResponse(final EntityMediaObject mediaEntity, final String etag) {
+    final ODataResponse response = new ODataResponse();
+    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    response.setODataContent(ODataWritableContent.with(mediaEntity, new FixedFormatSerializerImpl()).buildContent());
+    if (etag != null) {
+      response.setHeader(HttpHeader.ETAG, etag);
+    }
+    return response;
+  }
+
+  private String write(final ODataResponse response) {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    response.getODataContent().write(output);
+    return new String(output.toByteArray());
+  }
+}
@@ -19,16 +19,52 @@
 package org.apache.olingo.server.core;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
+import org.apache.olingo.commons.api.edm.provider.CsdlAbstractEdmProvider;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
+import org.apache.olingo.commons.api.format.ContentType;
+import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataContent;
+import org.apache.olingo.server.api.ODataHttpHandler;
 import org.apache.olingo.server.api.ODataLibraryException;
 import org.apache.olingo.server.api.ODataRequest;
+import org.apache.olingo.server.api.ODataResponse;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.metrics.ODataMetrics;
+import org.apache.olingo.server.api.processor.MetadataProcessor;
+import org.apache.olingo.server.api.uri.UriInfo;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class ODataHttpHandlerImplTest {
 
@@ -224,4 +260,178 @@ public class ODataHttpHandlerImplTest {
     
     }
   }
+
+  @Test
+  public void processAsyncWithSlowClient() throws Exception {
+    final int size = 20 * ODataHttpHandlerImpl.COPY_BUFFER_SIZE;
+    final SlowServletOutputStream output = new SlowServletOutputStream();
+    final int[] maxAhead = new int[1];
+    final OData odata = OData.newInstance();
+    final ODataHttpHandler handler = odata.createHandler(odata.createServiceMetadata(
+        new CsdlAbstractEdmProvider() {}, Collections.<EdmxReference> emptyList()));
+    handler.register(new MetadataProcessor() {
+      @Override
+      public void init(final OData odata, final ServiceMetadata serviceMetadata) {}
+
+      @Override
+      public void readMetadata(final ODataRequest request, final ODataResponse response, final UriInfo uriInfo,
+          final ContentType responseFormat) {
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setODataContent(new ODataContent() {
+          @Override
+          public void write(final WritableByteChannel channel) {
+            write(Channels.newOutputStream(channel));
+          }
+
+          @Override
+          public void write(final OutputStream stream) {
+            try {
+              for (int written = 0; written < size; written += 1000) {
+                maxAhead[0] = Math.max(maxAhead[0], written - output.getSize());
+                stream.write(new byte[Math.min(1000, size - written)]);
+              }
+              stream.close();
+            } catch (final IOException e) {
+              throw new ODataRuntimeException(e);
+            }
+          }
+        });
+      }
+    });
+
+    final HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/service/$metadata"));
+    when(request.getServletPath()).thenReturn("/service");
+    when(request.getHeaderNames()).thenReturn(Collections.<String> emptyEnumeration());
+    final HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(output);
+    final AsyncContext asyncContext = mock(AsyncContext.class);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+    final CountDownLatch completed = new CountDownLatch(1);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        completed.countDown();
+        return null;
+      }
+    }).when(asyncContext).complete();
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      handler.processAsync(request, response, executor);
+      AsyncResponseWriterTest.drive(output, completed);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(response).setStatus(HttpStatusCode.OK.getStatusCode());
+    assertEquals(size, output.getSize());
+    assertTrue(output.getRounds() > size / ODataHttpHandlerImpl.COPY_BUFFER_SIZE);
+    assertTrue(maxAhead[0] <= (AsyncResponseWriter.CAPACITY + 2) * ODataHttpHandlerImpl.COPY_BUFFER_SIZE);
+  }
+
+  @Test
+  public void processAsyncCompressesResponse() throws Exception {
+    final OData odata = OData.newInstance();
+    final ODataHttpHandler handler = odata.createHandler(odata.createServiceMetadata(
+        new CsdlAbstractEdmProvider() {}, Collections.<EdmxReference> emptyList()));
+    handler.setResponseCompression(0, -1);
+
+    final HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/service/$metadata"));
+    when(request.getServletPath()).thenReturn("/service");
+    when(request.getHeaderNames()).thenReturn(
+        Collections.enumeration(Collections.singletonList(HttpHeader.ACCEPT_ENCODING)));
+    when(request.getHeaders(HttpHeader.ACCEPT_ENCODING)).thenReturn(
+        Collections.enumeration(Collections.singletonList("gzip")));
+    final SlowServletOutputStream output = new SlowServletOutputStream();
+    final HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(output);
+    final AsyncContext asyncContext = mock(AsyncContext.class);
+    when(request.startAsync(request, response)).thenReturn(asyncContext);
+    final CountDownLatch completed = new CountDownLatch(1);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        completed.countDown();
+        return null;
+      }
+    }).when(asyncContext).complete();
+
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      handler.processAsync(request, response, executor);
+      AsyncResponseWriterTest.drive(output, completed);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    verify(response).setStatus(HttpStatusCode.OK.getStatusCode());
+    verify(response).setHeader(HttpHeader.CONTENT_ENCODING, "gzip");
+    verify(response).addHeader(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING);
+    final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(output.toByteArray()))) {
+      final byte[] buffer = new byte[1024];
+      int count;
+      while ((count = input.read(buffer)) != -1) {
+        uncompressed.write(buffer, 0, count);
+      }
+    }
+    assertTrue(uncompressed.toString("UTF-8").contains("<edmx:Edmx"));
+  }
+
+  @Test
+  public void compressedBytesAreCounted() throws Exception {
+    final OData odata = OData.newInstance();
+    final ODataHttpHandler handler = odata.createHandler(odata.createServiceMetadata(
+        new CsdlAbstractEdmProvider() {}, Collections.<EdmxReference> emptyList()));
+    handler.setResponseCompression(0, -1);
+    final ODataMetrics metrics = odata.createMetrics();
+    metrics.setEnabled(true);
+    handler.register(metrics);
+
+    final HttpServletRequest request = mock(HttpServletRequest.class);
+    when(request.getMethod()).thenReturn("GET");
+    when(request.getRequestURL()).thenReturn(new StringBuffer("http://localhost/service/$metadata"));
+    when(request.getServletPath()).thenReturn("/service");
+    when(request.getHeaderNames()).thenReturn(
+        Collections.enumeration(Collections.singletonList(HttpHeader.ACCEPT_ENCODING)));
+    when(request.getHeaders(HttpHeader.ACCEPT_ENCODING)).thenReturn(
+        Collections.enumeration(Collections.singletonList("gzip")));
+    final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    final HttpServletResponse response = mock(HttpServletResponse.class);
+    when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(final WriteListener writeListener) {}
+
+      @Override
+      public void write(final int b) {
+        written.write(b);
+      }
+    });
+
+    handler.process(request, response);
+
+    verify(response).setHeader(HttpHeader.CONTENT_ENCODING, "gzip");
+    final byte[] content = written.toByteArray();
+    assertTrue(content.length > 0);
+    assertEquals(content.length, metrics.getSnapshot().getBytesWritten());
+    assertEquals(1, metrics.getSnapshot().getRequestCount());
+    final ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+    try (InputStream input = new GZIPInputStream(new ByteArrayInputStream(content))) {
+      final byte[] buffer = new byte[1024];
+      int count;
+      while ((count = input.read(buffer)) != -1) {
+        uncompressed.write(buffer, 0, count);
+      }
+    }
+    assertTrue(uncompressed.toString("UTF-8").contains("<edmx:Edmx"));
+  }
 }
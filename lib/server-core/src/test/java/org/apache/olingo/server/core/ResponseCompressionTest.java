@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.http.HttpHeader;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataResponse;
+import org.junit.Test;
+
+public class ResponseCompressionTest {
+
+  private final ResponseCompression compression = new ResponseCompression(100, 6);
+
+  @Test
+  public void negotiation() {
+    final ODataResponse response = createResponse("application/json");
+    assertNull(compression.getContentEncoding(null, response));
+    assertNull(compression.getContentEncoding(Collections.singletonList("identity"), response));
+    assertEquals(ResponseCompression.GZIP,
+        compression.getContentEncoding(Collections.singletonList("deflate, gzip"), response));
+    assertEquals(ResponseCompression.DEFLATE,
+        compression.getContentEncoding(Collections.singletonList("gzip;q=0.5, deflate"), response));
+    assertEquals(ResponseCompression.DEFLATE,
+        compression.getContentEncoding(Arrays.asList("gzip; q=0", "*"), response));
+    assertEquals(ResponseCompression.GZIP, compression.getContentEncoding(Collections.singletonList("*"), response));
+    assertNull(compression.getContentEncoding(Collections.singletonList("gzip;q=0"), response));
+  }
+
+  @Test
+  public void notCompressible() {
+    final List<String> gzip = Collections.singletonList("gzip");
+    assertNull(compression.getContentEncoding(gzip, createResponse("image/png")));
+
+    ODataResponse response = createResponse("application/json");
+    response.setHeader(HttpHeader.CONTENT_ENCODING, "gzip");
+    assertNull(compression.getContentEncoding(gzip, response));
+
+    response = createResponse("application/json");
+    response.setStatusCode(HttpStatusCode.NOT_MODIFIED.getStatusCode());
+    assertNull(compression.getContentEncoding(gzip, response));
+
+    response = new ODataResponse();
+    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    assertNull(compression.getContentEncoding(gzip, response));
+  }
+
+  @Test
+  public void smallContentIsNotCompressed() throws Exception {
+    final ByteArrayOutputStream target = new ByteArrayOutputStream();
+    final RecordingListener listener = new RecordingListener();
+    final OutputStream output = compression.compress(target, ResponseCompression.GZIP, listener);
+    output.write(new byte[60]);
+    output.flush();
+    assertEquals(0, target.size());
+    output.write(new byte[40]);
+    output.close();
+
+    assertEquals(100, listener.contentLength);
+    assertNull(listener.contentEncoding);
+    assertEquals(100, target.size());
+  }
+
+  @Test
+  public void gzip() throws Exception {
+    final byte[] content = createContent(10000);
+    final RecordingListener listener = new RecordingListener();
+    final byte[] compressed = compress(content, ResponseCompression.GZIP, listener);
+
+    assertEquals(ResponseCompression.GZIP, listener.contentEncoding);
+    assertEquals(-1, listener.contentLength);
+    assertTrue(compressed.length < content.length);
+    assertArrayEquals(content, IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+  }
+
+  @Test
+  public void deflate() throws Exception {
+    final byte[] content = createContent(10000);
+    final byte[] compressed = compress(content, ResponseCompression.DEFLATE, new RecordingListener());
+
+    assertTrue(compressed.length < content.length);
+    assertArrayEquals(content, IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+  }
+
+  @Test
+  public void flushDoesNotDegradeCompression() throws Exception {
+    final byte[] content = createContent(10000);
+    final ByteArrayOutputStream target = new ByteArrayOutputStream();
+    final OutputStream output = compression.compress(target, ResponseCompression.GZIP, new RecordingListener());
+    for (int offset = 0; offset < content.length; offset += 100) {
+      output.write(content, offset, 100);
+      output.flush();
+    }
+    output.close();
+
+    assertEquals(compress(content, ResponseCompression.GZIP, new RecordingListener()).length, target.size());
+    assertArrayEquals(content,
+        IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(target.toByteArray()))));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidLevel() {
+    new ResponseCompression(0, 10);
+  }
+
+  private byte[] compress(final byte[] content, final String contentEncoding,
+      final ResponseCompression.Listener listener) throws Exception {
+    final ByteArrayOutputStream target = new ByteArrayOutputStream();
+    final OutputStream output = compression.compress(target, contentEncoding, listener);
+    final InputStream input = new ByteArrayInputStream(content);
+    IOUtils.copy(input, output);
+    output.close();
+    return target.toByteArray();
+  }
+
+  private static byte[] createContent(final int length) {
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; builder.length() < length; i++) {
+      builder.append("{\"PropertyInt16\":").append(i % 100).append(",\"PropertyString\":\"Test\"},");
+    }
+    return builder.substring(0, length).getBytes();
+  }
+
+  private static ODataResponse createResponse(final String contentType) {
+    final ODataResponse response = new ODataResponse();
+    response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+    response.setHeader(HttpHeader.CONTENT_TYPE, contentType);
+    response.setContent(new ByteArrayInputStream(new byte[0]));
+    return response;
+  }
+
+  private static class RecordingListener implements ResponseCompression.Listener {
+    private String contentEncoding;
+    private int contentLength = -1;
+
+    @Override
+    public void compressed(final String encoding) {
+      contentEncoding = encoding;
+    }
+
+    @Override
+    public void uncompressed(final int length) {
+      contentLength = length;
+    }
+  }
+}
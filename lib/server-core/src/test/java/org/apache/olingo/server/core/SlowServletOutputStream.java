@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+
+/**
+ * Non-blocking servlet output stream of a slow client: it accepts one write
+ * and is not ready again until {@link #makeReady()} is called.
+ */
+class SlowServletOutputStream extends ServletOutputStream {
+
+  private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+  private WriteListener listener;
+  private boolean ready;
+  private int rounds;
+
+  @Override
+  public synchronized boolean isReady() {
+    return ready;
+  }
+
+  @Override
+  public synchronized void setWriteListener(final WriteListener writeListener) {
+    listener = writeListener;
+  }
+
+  @Override
+  public void write(final int b) throws IOException {
+    write(new byte[] { (byte) b }, 0, 1);
+  }
+
+  @Override
+  public synchronized void write(final byte[] bytes, final int offset, final int length) throws IOException {
+    if (!ready) {
+      throw new IllegalStateException("Write while the output stream is not ready");
+    }
+    written.write(bytes, offset, length);
+    ready = false;
+  }
+
+  /** Lets the client receive the next write and notifies the write listener like a container would. */
+  void makeReady() throws IOException {
+    final WriteListener writeListener;
+    synchronized (this) {
+      ready = true;
+      rounds++;
+      writeListener = listener;
+    }
+    if (writeListener != null) {
+      writeListener.onWritePossible();
+    }
+  }
+
+  synchronized int getSize() {
+    return written.size();
+  }
+
+  synchronized byte[] toByteArray() {
+    return written.toByteArray();
+  }
+
+  synchronized int getRounds() {
+    return rounds;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.async;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileAsyncResponseStoreTest {
+
+  private static final String ID = "0f8fad5b-d9cb-469f-a165-70867728950e";
+
+  private File directory;
+
+  @Before
+  public void setUp() throws IOException {
+    directory = File.createTempFile("olingo-async", "");
+    directory.delete();
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(directory);
+  }
+
+  @Test
+  public void storeAndRetrieve() throws Exception {
+    final FileAsyncResponseStore store = new FileAsyncResponseStore(directory);
+    final byte[] response = "HTTP/1.1 200 OK\r\n\r\n".getBytes("ISO-8859-1");
+    store.store(ID, response, System.currentTimeMillis() + 60000);
+    assertArrayEquals(response, store.retrieve(ID));
+
+    store.remove(ID);
+    assertNull(store.retrieve(ID));
+  }
+
+  @Test
+  public void expiredResponseIsRemoved() throws Exception {
+    final FileAsyncResponseStore store = new FileAsyncResponseStore(directory);
+    final long now = System.currentTimeMillis();
+    store.store(ID, new byte[] { 1, 2, 3 }, now - 1);
+    assertNull(store.retrieve(ID));
+
+    store.removeExpired(now);
+    assertArrayEquals(new String[0], directory.list());
+  }
+
+  @Test
+  public void truncatedResponseIsExpired() throws Exception {
+    final FileAsyncResponseStore store = new FileAsyncResponseStore(directory);
+    FileUtils.writeByteArrayToFile(new File(directory, ID + ".response"), new byte[] { 0, 0, 1 });
+
+    store.removeExpired(System.currentTimeMillis());
+    assertArrayEquals(new String[0], directory.list());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void invalidIdentifier() throws Exception {
+    new FileAsyncResponseStore(directory).retrieve("../other");
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.delta;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.olingo.commons.api.data.DeltaIterator;
+import org.apache.olingo.commons.api.data.DeltaLink;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChangeLogTest {
+
+  private static final String ES = "ESDelta";
+
+  private File file;
+
+  @Before
+  public void setUp() throws IOException {
+    file = File.createTempFile("olingo-changes", ".log");
+    file.delete();
+  }
+
+  @After
+  public void tearDown() {
+    FileUtils.deleteQuietly(file);
+  }
+
+  @Test
+  public void changesSinceToken() throws Exception {
+    final ChangeLog log = new ChangeLog();
+    log.entityChanged(ES, URI.create("ESDelta(1)"));
+    final String token = log.getCurrentToken();
+    log.entityChanged(ES, URI.create("ESDelta(2)"));
+    log.entityChanged(ES, URI.create("ESDelta(1)"));
+    log.entityChanged(ES, URI.create("ESDelta(3)"));
+    log.entityDeleted(ES, URI.create("ESDelta(3)"));
+    log.entityChanged("ESAllPrim", URI.create("ESAllPrim(1)"));
+    log.linkAdded(ES, link("ESDelta(1)", "ESAllPrim(0)"));
+    log.linkAdded(ES, link("ESDelta(2)", "ESAllPrim(0)"));
+    log.linkDeleted(ES, link("ESDelta(2)", "ESAllPrim(0)"));
+
+    final ChangeLog.Changes changes = log.getChangesSince(ES, token);
+    assertEquals(Arrays.asList(URI.create("ESDelta(2)"), URI.create("ESDelta(1)")), changes.getChangedEntityIds());
+    assertEquals(1, changes.getDeletedEntities().size());
+    assertEquals(URI.create("ESDelta(3)"), changes.getDeletedEntities().get(0).getId());
+    assertEquals(Collections.singletonList(link("ESDelta(1)", "ESAllPrim(0)")), changes.getAddedLinks());
+    assertEquals(Collections.singletonList(link("ESDelta(2)", "ESAllPrim(0)")), changes.getDeletedLinks());
+
+    assertEquals(log.getCurrentToken(), changes.getDeltaToken());
+    assertTrue(log.getChangesSince(ES, changes.getDeltaToken()).getChangedEntityIds().isEmpty());
+
+    final DeltaIterator iterator = changes.toDeltaIterator(Collections.<Entity> emptyIterator());
+    assertFalse(iterator.hasNext());
+    assertTrue(iterator.getDeletedEntities().hasNext());
+  }
+
+  @Test
+  public void invalidAndExpiredTokens() throws Exception {
+    final ChangeLog log = new ChangeLog();
+    final String first = log.getCurrentToken();
+    log.entityChanged(ES, URI.create("ESDelta(1)"));
+    final String second = log.getCurrentToken();
+    log.entityChanged(ES, URI.create("ESDelta(1)"));
+    log.entityChanged(ES, URI.create("ESDelta(2)"));
+
+    expectStatus(log, "abc", HttpStatusCode.BAD_REQUEST);
+    // token of another log
+    expectStatus(log, "1.0", HttpStatusCode.GONE);
+
+    log.compact(second);
+    expectStatus(log, first, HttpStatusCode.GONE);
+    assertEquals(2, log.getChangesSince(ES, second).getChangedEntityIds().size());
+  }
+
+  @Test
+  public void persistence() throws Exception {
+    ChangeLog log = new ChangeLog(file);
+    final String token = log.getCurrentToken();
+    log.entityChanged(ES, URI.create("ESDelta(1)"));
+    log.entityChanged(ES, URI.create("ESDelta(1)"));
+    log.compact(token);
+    log.entityDeleted(ES, URI.create("ESDelta(2)"));
+    log.close();
+
+    log = new ChangeLog(file);
+    ChangeLog.Changes changes = log.getChangesSince(ES, token);
+    assertEquals(Collections.singletonList(URI.create("ESDelta(1)")), changes.getChangedEntityIds());
+    assertEquals(1, changes.getDeletedEntities().size());
+    log.close();
+
+    // an incompletely written change is dropped
+    final RandomAccessFile content = new RandomAccessFile(file, "rw");
+    content.setLength(content.length() - 3);
+    content.close();
+    log = new ChangeLog(file);
+    changes = log.getChangesSince(ES, token);
+    assertEquals(1, changes.getChangedEntityIds().size());
+    assertTrue(changes.getDeletedEntities().isEmpty());
+    log.entityChanged(ES, URI.create("ESDelta(3)"));
+    log.close();
+
+    log = new ChangeLog(file);
+    assertEquals(2, log.getChangesSince(ES, token).getChangedEntityIds().size());
+    log.close();
+  }
+
+  private static DeltaLink link(final String source, final String target) {
+    final DeltaLink link = new DeltaLink();
+    link.setSource(URI.create(source));
+    link.setRelationship("NavPropertyETAllPrimOne");
+    link.setTarget(URI.create(target));
+    return link;
+  }
+
+  private static void expectStatus(final ChangeLog log, final String token, final HttpStatusCode status) {
+    try {
+      log.getChangesSince(ES, token);
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(status.getStatusCode(), e.getStatusCode());
+    }
+  }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.expand;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.edm.provider.CsdlAbstractEdmProvider;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainer;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityContainerInfo;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
+import org.apache.olingo.commons.api.edm.provider.CsdlEntityType;
+import org.apache.olingo.commons.api.edm.provider.CsdlNavigationProperty;
+import org.apache.olingo.commons.api.edm.provider.CsdlNavigationPropertyBinding;
+import org.apache.olingo.commons.api.edm.provider.CsdlProperty;
+import org.apache.olingo.commons.api.edm.provider.CsdlPropertyRef;
+import org.apache.olingo.commons.api.edm.provider.CsdlReferentialConstraint;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ExpandItem;
+import org.apache.olingo.server.api.uri.queryoption.ExpandOption;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpandHelperImplTest {
+
+  private static final String NAMESPACE = "Shop";
+  private static final FullQualifiedName CONTAINER = new FullQualifiedName(NAMESPACE, "Container");
+  private static final FullQualifiedName CATEGORY = new FullQualifiedName(NAMESPACE, "Category");
+  private static final FullQualifiedName PRODUCT = new FullQualifiedName(NAMESPACE, "Product");
+
+  private final OData odata = OData.newInstance();
+  private Edm edm;
+  private Map<String, EntityCollection> entitySets;
+  private CountingResolver resolver;
+
+  @Before
+  public void setUp() {
+    edm = odata.createServiceMetadata(new ShopProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+
+    final EntityCollection categories = new EntityCollection();
+    categories.getEntities().add(newEntity("ID", 1));
+    categories.getEntities().add(newEntity("ID", 2));
+    categories.getEntities().add(newEntity("ID", 3));
+    final EntityCollection products = new EntityCollection();
+    products.getEntities().add(newEntity("ID", 10, "CategoryID", 1));
+    products.getEntities().add(newEntity("ID", 11, "CategoryID", 1));
+    products.getEntities().add(newEntity("ID", 12, "CategoryID", 2));
+    entitySets = new HashMap<String, EntityCollection>();
+    entitySets.put("Categories", categories);
+    entitySets.put("Products", products);
+    resolver = new CountingResolver(entitySets);
+  }
+
+  @Test
+  public void collectionWithOptions() throws Exception {
+    final List<Entity> categories = entitySets.get("Categories").getEntities();
+    expand("Categories", categories, "Products($top=1;$count=true)");
+
+    assertEquals(1, resolver.calls);
+    final EntityCollection first = categories.get(0).getNavigationLink("Products").getInlineEntitySet();
+    assertEquals(Integer.valueOf(2), first.getCount());
+    assertEquals(1, first.getEntities().size());
+    assertEquals(10, first.getEntities().get(0).getProperty("ID").getValue());
+    assertEquals(1, categories.get(1).getNavigationLink("Products").getInlineEntitySet().getEntities().size());
+    assertEquals(0, categories.get(2).getNavigationLink("Products").getInlineEntitySet().getEntities().size());
+    // stored entities are not modified
+    assertNull(entitySets.get("Products").getEntities().get(0).getNavigationLink("Category"));
+  }
+
+  @Test
+  public void nestedSingleValued() throws Exception {
+    final List<Entity> products = entitySets.get("Products").getEntities();
+    expand("Products", products, "Category($expand=Products)");
+
+    assertEquals(2, resolver.calls);
+    final Entity category = products.get(2).getNavigationLink("Category").getInlineEntity();
+    assertEquals(2, category.getProperty("ID").getValue());
+    assertEquals(12, category.getNavigationLink("Products").getInlineEntitySet().getEntities().get(0)
+        .getProperty("ID").getValue());
+  }
+
+  @Test
+  public void filterAndOrderBy() throws Exception {
+    entitySets.get("Products").getEntities().add(newEntity("ID", 13, "CategoryID", 1));
+    final List<Entity> categories = entitySets.get("Categories").getEntities();
+    expand("Categories", categories, "Products($filter=ID gt 10;$orderby=ID desc;$count=true;$skip=1)");
+
+    final EntityCollection first = categories.get(0).getNavigationLink("Products").getInlineEntitySet();
+    assertEquals(Integer.valueOf(2), first.getCount());
+    assertEquals(1, first.getEntities().size());
+    assertEquals(11, first.getEntities().get(0).getProperty("ID").getValue());
+    final EntityCollection second = categories.get(1).getNavigationLink("Products").getInlineEntitySet();
+    assertEquals(Integer.valueOf(1), second.getCount());
+    assertEquals(0, second.getEntities().size());
+  }
+
+  @Test
+  public void orderByWithTop() throws Exception {
+    final List<Entity> categories = entitySets.get("Categories").getEntities();
+    expand("Categories", categories, "Products($orderby=ID desc;$top=1)");
+
+    final EntityCollection first = categories.get(0).getNavigationLink("Products").getInlineEntitySet();
+    assertEquals(1, first.getEntities().size());
+    assertEquals(11, first.getEntities().get(0).getProperty("ID").getValue());
+  }
+
+  @Test
+  public void integralKeysOfDifferentTypes() throws Exception {
+    entitySets.get("Products").getEntities().add(newEntity("ID", 13, "CategoryID", 3L));
+    entitySets.get("Products").getEntities().add(newEntity("ID", 14, "CategoryID", (short) 3));
+    final List<Entity> categories = entitySets.get("Categories").getEntities();
+    expand("Categories", categories, "Products");
+
+    assertEquals(2, categories.get(2).getNavigationLink("Products").getInlineEntitySet().getEntities().size());
+    final List<Entity> products = entitySets.get("Products").getEntities();
+    expand("Products", products, "Category");
+    assertEquals(3, products.get(3).getNavigationLink("Category").getInlineEntity().getProperty("ID").getValue());
+  }
+
+  @Test(expected = ODataApplicationException.class)
+  public void unsupportedOption() throws Exception {
+    expand("Categories", entitySets.get("Categories").getEntities(), "Products($search=blue)");
+  }
+
+  private void expand(final String entitySetName, final List<Entity> entities, final String expand)
+      throws Exception {
+    final ExpandOption expandOption = new Parser(edm, odata)
+        .parseUri(entitySetName, "$expand=" + expand, null, null).getExpandOption();
+    odata.createExpandHelper().expand(edm.getEntityContainer().getEntitySet(entitySetName), entities,
+        expandOption, resolver);
+  }
+
+  private static Entity newEntity(final Object... nameValues) {
+    final Entity entity = new Entity();
+    for (int i = 0; i < nameValues.length; i += 2) {
+      entity.addProperty(new Property(null, (String) nameValues[i], ValueType.PRIMITIVE, nameValues[i + 1]));
+    }
+    return entity;
+  }
+
+  private static final class CountingResolver extends InMemoryExpandResolver {
+    private int calls;
+
+    private CountingResolver(final Map<String, EntityCollection> entitySets) {
+      super(entitySets);
+    }
+
+    @Override
+    public List<EntityCollection> resolve(final EdmBindingTarget bindingTarget, final List<Entity> parents,
+        final EdmNavigationProperty navigationProperty, final ExpandItem expandItem)
+        throws ODataApplicationException {
+      calls++;
+      return super.resolve(bindingTarget, parents, navigationProperty, expandItem);
+    }
+  }
+
+  private static final class ShopProvider extends CsdlAbstractEdmProvider {
+
+    @Override
+    public CsdlEntityType getEntityType(final FullQualifiedName entityTypeName) {
+      final CsdlProperty id = new CsdlProperty().setName("ID")
+          .setType(EdmPrimitiveTypeKind.Int32.getFullQualifiedName());
+      final CsdlPropertyRef key = new CsdlPropertyRef().setName("ID");
+      if (CATEGORY.equals(entityTypeName)) {
+        return new CsdlEntityType().setName(CATEGORY.getName())
+            .setKey(Collections.singletonList(key))
+            .setProperties(Collections.singletonList(id))
+            .setNavigationProperties(Collections.singletonList(new CsdlNavigationProperty()
+                .setName("Products").setType(PRODUCT).setCollection(true).setPartner("Category")));
+      } else if (PRODUCT.equals(entityTypeName)) {
+        return new CsdlEntityType().setName(PRODUCT.getName())
+            .setKey(Collections.singletonList(key))
+            .setProperties(Arrays.asList(id, new CsdlProperty().setName("CategoryID")
+                .setType(EdmPrimitiveTypeKind.Int32.getFullQualifiedName())))
+            .setNavigationProperties(Collections.singletonList(new CsdlNavigationProperty()
+                .setName("Category").setType(CATEGORY).setPartner("Products")
+                .setReferentialConstraints(Collections.singletonList(new CsdlReferentialConstraint()
+                    .setProperty("CategoryID").setReferencedProperty("ID")))));
+      }
+      return null;
+    }
+
+    @Override
+    public CsdlEntitySet getEntitySet(final FullQualifiedName entityContainer, final String entitySetName) {
+      if ("Categories".equals(entitySetName)) {
+        return new CsdlEntitySet().setName(entitySetName).setType(CATEGORY)
+            .setNavigationPropertyBindings(Collections.singletonList(
+                new CsdlNavigationPropertyBinding().setPath("Products").setTarget("Products")));
+      } else if ("Products".equals(entitySetName)) {
+        return new CsdlEntitySet().setName(entitySetName).setType(PRODUCT)
+            .setNavigationPropertyBindings(Collections.singletonList(
+                new CsdlNavigationPropertyBinding().setPath("Category").setTarget("Categories")));
+      }
+      return null;
+    }
+
+    @Override
+    public CsdlEntityContainer getEntityContainer() {
+      return new CsdlEntityContainer().setName(CONTAINER.getName())
+          .setEntitySets(Arrays.asList(getEntitySet(CONTAINER, "Categories"), getEntitySet(CONTAINER, "Products")));
+    }
+
+    @Override
+    public CsdlEntityContainerInfo getEntityContainerInfo(final FullQualifiedName entityContainerName) {
+      return entityContainerName == null || CONTAINER.equals(entityContainerName)
+          ? new CsdlEntityContainerInfo().setContainerName(CONTAINER) : null;
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.olingo.server.api.metrics.LatencyHistogram;
+import org.apache.olingo.server.api.metrics.MetricsExporter;
+import org.apache.olingo.server.api.metrics.MetricsSnapshot;
+import org.apache.olingo.server.api.metrics.RequestPhase;
+import org.junit.Test;
+
+public class MetricsCollectorTest {
+
+  @Test
+  public void disabledCollectorRecordsNothing() {
+    final MetricsCollector metrics = new MetricsCollector();
+    final long start = metrics.start();
+    assertEquals(0, start);
+    metrics.stop(RequestPhase.URI_PARSING, start);
+    metrics.requestProcessed(500, start);
+    metrics.addBytesWritten(10);
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    assertSame(output, metrics.countBytes(output));
+
+    final MetricsSnapshot snapshot = metrics.getSnapshot();
+    assertEquals(0, snapshot.getRequestCount());
+    assertEquals(0, snapshot.getBytesWritten());
+    assertEquals(0, snapshot.getLatency(RequestPhase.URI_PARSING).getCount());
+    assertTrue(snapshot.getErrorCounts().isEmpty());
+  }
+
+  @Test
+  public void counters() throws Exception {
+    final MetricsCollector metrics = new MetricsCollector();
+    metrics.setEnabled(true);
+    metrics.requestProcessed(200, metrics.start());
+    metrics.requestProcessed(404, metrics.start());
+    metrics.requestProcessed(404, metrics.start());
+    metrics.requestProcessed(500, metrics.start());
+    metrics.addEntitiesSerialized(3);
+    final OutputStream output = metrics.countBytes(new ByteArrayOutputStream());
+    output.write(new byte[5]);
+    output.write(1);
+
+    MetricsSnapshot snapshot = metrics.getSnapshot();
+    assertEquals(4, snapshot.getRequestCount());
+    assertEquals(Long.valueOf(2), snapshot.getErrorCounts().get(404));
+    assertEquals(Long.valueOf(1), snapshot.getErrorCounts().get(500));
+    assertEquals(3, snapshot.getErrorCount());
+    assertEquals(3, snapshot.getEntitiesSerialized());
+    assertEquals(6, snapshot.getBytesWritten());
+    assertEquals(4, snapshot.getLatency(RequestPhase.REQUEST).getCount());
+
+    metrics.reset();
+    snapshot = metrics.getSnapshot();
+    assertEquals(0, snapshot.getRequestCount());
+    assertEquals(0, snapshot.getErrorCount());
+    assertEquals(0, snapshot.getLatency(RequestPhase.REQUEST).getCount());
+  }
+
+  @Test
+  public void histogram() {
+    assertEquals(0, LatencyHistogram.getBucketIndex(999));
+    assertEquals(1, LatencyHistogram.getBucketIndex(1000));
+    assertEquals(2, LatencyHistogram.getBucketIndex(3999));
+    assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+    for (final long nanos : new long[] { 1, 999, 1000, 5000, TimeUnit.SECONDS.toNanos(1) }) {
+      final int index = LatencyHistogram.getBucketIndex(nanos);
+      assertTrue(nanos < LatencyHistogram.getBucketUpperBound(index));
+      assertTrue(index == 0 || nanos >= LatencyHistogram.getBucketUpperBound(index - 1));
+    }
+
+    final long[] buckets = new long[LatencyHistogram.BUCKET_COUNT];
+    buckets[1] = 90;
+    buckets[10] = 10;
+    final LatencyHistogram histogram = new LatencyHistogram(100, 2000000, 900000, buckets);
+    assertEquals(20000, histogram.getMeanNanos());
+    assertEquals(LatencyHistogram.getBucketUpperBound(1), histogram.getPercentileNanos(50));
+    assertEquals(LatencyHistogram.getBucketUpperBound(1), histogram.getPercentileNanos(90));
+    assertEquals(900000, histogram.getPercentileNanos(99));
+  }
+
+  @Test
+  public void exporter() {
+    final MetricsCollector metrics = new MetricsCollector();
+    metrics.setEnabled(true);
+    final List<MetricsSnapshot> exported = new ArrayList<>();
+    final MetricsExporter exporter = new MetricsExporter() {
+      @Override
+      public void export(final MetricsSnapshot snapshot) {
+        exported.add(snapshot);
+      }
+    };
+    metrics.addExporter(exporter);
+    metrics.addExporter(exporter);
+    metrics.stop(RequestPhase.SERIALIZATION, metrics.start());
+    metrics.export();
+    assertEquals(1, exported.size());
+    assertEquals(1, exported.get(0).getLatency(RequestPhase.SERIALIZATION).getCount());
+
+    metrics.removeExporter(exporter);
+    metrics.export();
+    assertEquals(1, exported.size());
+  }
+  @Test
+  public void boundCollectorIsUsedOnItsThread() throws Exception {
+    final MetricsCollector shared = MetricsCollector.getInstance();
+    final MetricsCollector metrics = new MetricsCollector();
+    final MetricsCollector previous = MetricsCollector.bind(metrics);
+    try {
+      assertSame(metrics, MetricsCollector.getInstance());
+      final MetricsCollector[] other = new MetricsCollector[1];
+      final Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          other[0] = MetricsCollector.getInstance();
+        }
+      });
+      thread.start();
+      thread.join();
+      assertSame(shared, other[0]);
+    } finally {
+      assertSame(metrics, MetricsCollector.bind(previous));
+    }
+    assertSame(shared, MetricsCollector.getInstance());
+  }
+}
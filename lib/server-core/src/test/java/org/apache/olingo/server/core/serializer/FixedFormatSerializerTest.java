@@ -21,6 +21,11 @@ package org.apache.olingo.server.core.serializer;
 import static org.junit.Assert.*;
 
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.olingo.commons.api.data.EntityMediaObject;
@@ -67,6 +72,22 @@ public class FixedFormatSerializerTest {
     assertEquals(mediaObject.getBytes().length, outputStream.toByteArray().length);
   }
   
+  @Test
+  public void binaryRangeFromFile() throws Exception {
+    final File file = File.createTempFile("olingo-media", ".bin");
+    try {
+      Files.write(file.toPath(), "0123456789".getBytes());
+      final EntityMediaObject mediaObject = new EntityMediaObject();
+      mediaObject.setChannel(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+      final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      new FixedFormatSerializerImpl().binaryIntoStreamed(mediaObject, 2, 5, Channels.newChannel(outputStream));
+      assertEquals("23456", outputStream.toString());
+      assertFalse(mediaObject.getChannel().isOpen());
+    } finally {
+      file.delete();
+    }
+  }
+
   @Test
   public void mediaEntityStreamed() throws Exception {
 	  EntityMediaObject mediaObject = new EntityMediaObject();
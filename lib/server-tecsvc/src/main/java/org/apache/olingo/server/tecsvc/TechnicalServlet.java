@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.net.URI;
 import java.util.Collections;
 import java.util.UUID;
+import java.util.zip.Deflater;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -88,6 +89,7 @@ public class TechnicalServlet extends HttpServlet {
       // Register helpers.
       handler.register(new ETagSupport());
       handler.register(new DefaultDebugSupport());
+      handler.setResponseCompression(1024, Deflater.DEFAULT_COMPRESSION);
       // Process the request.
       handler.process(request, response);
     } catch (final RuntimeException e) {
@@ -20,7 +20,6 @@ package org.apache.olingo.server.tecsvc.data;
 
 import java.net.URI;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -47,11 +46,8 @@ import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.EdmEntityType;
 import org.apache.olingo.commons.api.edm.EdmEnumType;
 import org.apache.olingo.commons.api.edm.EdmFunction;
-import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
 import org.apache.olingo.commons.api.edm.EdmNavigationProperty;
 import org.apache.olingo.commons.api.edm.EdmParameter;
-import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
-import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
 import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeKind;
 import org.apache.olingo.commons.api.edm.EdmProperty;
 import org.apache.olingo.commons.api.edm.EdmSingleton;
@@ -79,6 +75,8 @@ public class DataProvider {
   private AtomicLong KEY_STRING = new AtomicLong(0);
 
   private Map<String, EntityCollection> data;
+  /** Key indexes of entity sets and navigation targets, so that entities are found without a full scan. */
+  private final EntityKeyIndex.Cache keyIndexes = new EntityKeyIndex.Cache(1000);
   private final OData odata;
   private final Edm edm;
 
@@ -102,76 +100,16 @@ public class DataProvider {
     return entitySet == null ? null : read(edmEntitySet.getEntityType(), entitySet, keys);
   }
   
-  private Object findPropertyRefValue(Entity entity, EdmKeyPropertyRef refType) {
-    final int INDEX_ERROR_CODE = -1;
-    final String propertyPath = refType.getName();
-    String tmpPropertyName;
-    int lastIndex;
-    int index = propertyPath.indexOf('/');
-    if (index == INDEX_ERROR_CODE) {
-        index  = propertyPath.length();
-    }
-    tmpPropertyName = propertyPath.substring(0, index);
-    //get first property
-    Property prop = entity.getProperty(tmpPropertyName);
-    //get following properties
-    while (index < propertyPath.length()) {
-        lastIndex = ++index;
-        index = propertyPath.indexOf('/', index+1);
-        if (index == INDEX_ERROR_CODE) {
-            index = propertyPath.length();
-        }
-        tmpPropertyName = propertyPath.substring(lastIndex, index);
-        prop = findProperty(tmpPropertyName, prop.asComplex().getValue());
-     }
-    return prop.getValue();
-  }
-  
   public Entity read(final EdmEntityType edmEntityType, final EntityCollection entitySet,
       final List<UriParameter> keys) throws DataProviderException {
-    try {
-      for (final Entity entity : entitySet.getEntities()) {
-        boolean found = true;
-        for (final UriParameter key : keys) {
-          EdmKeyPropertyRef refType = edmEntityType.getKeyPropertyRef(key.getName());
-          Object value =  findPropertyRefValue(entity, refType);
-          
-          final EdmProperty property = refType.getProperty();
-          final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
-          
-          if (key.getExpression() != null && !(key.getExpression() instanceof Literal)) {
-            throw new DataProviderException("Expression in key value is not supported yet!",
-                HttpStatusCode.NOT_IMPLEMENTED);
-          }
-          Object keyValue = null;
-          final String text = key.getAlias() == null ? key.getText() : ((Literal) key.getExpression()).getText();
-          if (Calendar.class.isAssignableFrom(value.getClass())) {
-            keyValue = type.valueOfString(type.fromUriLiteral(text),
-                property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
-                property.isUnicode(), Calendar.class);
-          } else {
-            keyValue = type.valueOfString(type.fromUriLiteral(text),
-                property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
-                property.isUnicode(), value.getClass());
-          }
-          if (!value.equals(keyValue)) {
-            found = false;
-            break;
-          }
-        }
-        if (found) {
-          return entity;
-        }
-      }
-      return null;
-    } catch (final EdmPrimitiveTypeException e) {
-      throw new DataProviderException("Wrong key!", HttpStatusCode.BAD_REQUEST, e);
-    }
+    return keyIndexes.get(edmEntityType, entitySet, keys);
   }
 
   public void delete(final EdmEntitySet edmEntitySet, final Entity entity) throws DataProviderException {
     deleteLinksTo(entity);
-    readAll(edmEntitySet).getEntities().remove(entity);
+    final EntityCollection entitySet = readAll(edmEntitySet);
+    entitySet.getEntities().remove(entity);
+    keyIndexes.removed(entitySet);
   }
 
   public void deleteLinksTo(final Entity to) throws DataProviderException {
@@ -185,6 +123,7 @@ public class DataProvider {
             for (Iterator<Entity> iterator = link.getInlineEntitySet().getEntities().iterator(); iterator.hasNext();) {
               if (to.equals(iterator.next())) {
                 iterator.remove();
+                keyIndexes.removed(link.getInlineEntitySet());
               }
             }
             if (link.getInlineEntitySet().getEntities().isEmpty()) {
@@ -214,6 +153,7 @@ public class DataProvider {
       throw new DataProviderException("Unable to set entity ID!", HttpStatusCode.INTERNAL_SERVER_ERROR, e);
     }
     entities.add(newEntity);
+    keyIndexes.added(entitySet, newEntity);
 
     return newEntity;
   }
@@ -471,6 +411,7 @@ public class DataProvider {
       final Entity targetEntity) {
     if (navigationProperty.isCollection()) {
       DataCreator.setLinks(srcEntity, navigationProperty.getName(), targetEntity);
+      keyIndexes.added(srcEntity.getNavigationLink(navigationProperty.getName()).getInlineEntitySet(), targetEntity);
     } else {
       DataCreator.setLink(srcEntity, navigationProperty.getName(), targetEntity);
     }
@@ -777,12 +718,14 @@ public class DataProvider {
             final Link partnerNavigationLink = targetEntity.getNavigationLink(edmPartnerNavigationProperty.getName());
             if (partnerNavigationLink != null && partnerNavigationLink.getInlineEntitySet() != null) {
               partnerNavigationLink.getInlineEntitySet().getEntities().remove(entity);
+              keyIndexes.removed(partnerNavigationLink.getInlineEntitySet());
             }
           }
         }
 
         // Remove target entity from collection-valued navigation property
         navigationLink.getInlineEntitySet().getEntities().remove(targetEntity);
+        keyIndexes.removed(navigationLink.getInlineEntitySet());
       } else {
         throw new DataProviderException("Entity not found", HttpStatusCode.NOT_FOUND);
       }
@@ -883,9 +826,9 @@ public class DataProvider {
     List<Entity> rootEntity = data.get(edmEntitySet.getName()).getEntities();
     EntityCollection entitySet = data.get(edmEntityType.getName());
     entitySet.getEntities().add(newEntity);
-    
-    
-    
+    keyIndexes.added(entitySet, newEntity);
+
+
     for (Entity entity : rootEntity) {
       if (isRootEntity(entity, keys)){
         String id = entity.getId().toASCIIString() + "/" + navPropertyName + 
@@ -904,6 +847,7 @@ public class DataProvider {
         }
         if (link.getInlineEntitySet() != null) {
           link.getInlineEntitySet().getEntities().add(newEntity);
+          keyIndexes.added(link.getInlineEntitySet(), newEntity);
         } else {
           EntityCollection collection = new EntityCollection();
           collection.getEntities().add(newEntity);
@@ -947,45 +891,6 @@ public class DataProvider {
   
   public Entity readDataFromEntity(final EdmEntityType edmEntityType,
       final List<UriParameter> keys) throws DataProviderException {
-    EntityCollection coll = data.get(edmEntityType.getName());
-    List<Entity> entities = coll.getEntities();
-    try {
-      for (final Entity entity : entities) {
-        boolean found = true;
-        for (final UriParameter key : keys) {
-          EdmKeyPropertyRef refType = edmEntityType.getKeyPropertyRef(key.getName());
-          Object value =  findPropertyRefValue(entity, refType);
-          
-          final EdmProperty property = refType.getProperty();
-          final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
-          
-          if (key.getExpression() != null && !(key.getExpression() instanceof Literal)) {
-            throw new DataProviderException("Expression in key value is not supported yet!",
-                HttpStatusCode.NOT_IMPLEMENTED);
-          }
-          final String text = key.getAlias() == null ? key.getText() : ((Literal) key.getExpression()).getText();
-          Object keyValue = null;
-          if (Calendar.class.isAssignableFrom(value.getClass())) {
-            keyValue = type.valueOfString(type.fromUriLiteral(text),
-                property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
-                property.isUnicode(), Calendar.class);
-          } else {
-            keyValue = type.valueOfString(type.fromUriLiteral(text),
-                property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
-                property.isUnicode(), value.getClass());
-          }
-          if (!value.equals(keyValue)) {
-            found = false;
-            break;
-          }
-        }
-        if (found) {
-          return entity;
-        }
-      }
-      return null;
-    } catch (final EdmPrimitiveTypeException e) {
-      throw new DataProviderException("Wrong key!", HttpStatusCode.BAD_REQUEST, e);
-    }
+    return read(edmEntityType, data.get(edmEntityType.getName()), keys);
   }
 }
@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.tecsvc.data;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.EdmKeyPropertyRef;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveType;
+import org.apache.olingo.commons.api.edm.EdmPrimitiveTypeException;
+import org.apache.olingo.commons.api.edm.EdmProperty;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.uri.UriParameter;
+import org.apache.olingo.server.api.uri.queryoption.expression.Literal;
+import org.apache.olingo.server.tecsvc.data.DataProvider.DataProviderException;
+
+/**
+ * Hash index of the entities of one collection by their (composite) key.
+ * <p>
+ * Entities created or deleted through the {@link DataProvider} are applied to the index.
+ * Changes made directly to the collection are detected by its size, by a different key
+ * of the entity found, or by a key not found, and make the index rebuild itself.
+ * The index does not reference the collection, so that it can be cached by collection
+ * without keeping the collection alive.
+ * </p>
+ */
+class EntityKeyIndex {
+
+  private final List<EdmKeyPropertyRef> keyPropertyRefs;
+  private final Map<List<Object>, Entity> entities = new HashMap<List<Object>, Entity>();
+  private final Class<?>[] valueTypes;
+  private int indexedSize = -1;
+
+  EntityKeyIndex(final EdmEntityType entityType) {
+    keyPropertyRefs = entityType.getKeyPropertyRefs();
+    valueTypes = new Class<?>[keyPropertyRefs.size()];
+  }
+
+  /**
+   * Finds the entity with the given key.
+   * @param entityType the entity type, to resolve key aliases
+   * @param entityCollection the indexed collection
+   * @param keys the key predicates; if not all key properties are given, the first matching entity is returned
+   * @return the entity or <code>null</code>
+   */
+  synchronized Entity get(final EdmEntityType entityType, final EntityCollection entityCollection,
+      final List<UriParameter> keys) throws DataProviderException {
+    final boolean rebuilt = indexedSize != entityCollection.getEntities().size();
+    if (rebuilt) {
+      rebuild(entityCollection);
+    }
+    if (keys.size() < keyPropertyRefs.size()) {
+      final Object[] key = parseKey(entityType, keys);
+      return key == null ? null : scan(entityCollection, key);
+    }
+    Entity entity = lookup(entityType, keys);
+    if (entity == null && !rebuilt) {
+      // The collection could have been changed without changing its size.
+      rebuild(entityCollection);
+      entity = lookup(entityType, keys);
+    }
+    return entity;
+  }
+
+  /** Adds an entity which has just been added to the end of the collection. */
+  synchronized void added(final EntityCollection entityCollection, final Entity entity) {
+    final List<Object> key = getKey(entity);
+    if (indexedSize == entityCollection.getEntities().size() - 1 && key != null) {
+      if (!entities.containsKey(key)) {
+        entities.put(key, entity);
+      }
+      indexedSize++;
+    } else {
+      indexedSize = -1;
+    }
+  }
+
+  /** Notes that an entity has been removed from the collection. */
+  synchronized void removed() {
+    // Another entity with the same key could have been hidden; the index is rebuilt lazily.
+    indexedSize = -1;
+  }
+
+  private Entity lookup(final EdmEntityType entityType, final List<UriParameter> keys)
+      throws DataProviderException {
+    final Object[] key = parseKey(entityType, keys);
+    if (key == null) {
+      return null;
+    }
+    final List<Object> keyList = Arrays.asList(key);
+    final Entity entity = entities.get(keyList);
+    // The key of the indexed entity could have been changed.
+    return entity == null || keyList.equals(getKey(entity)) ? entity : null;
+  }
+
+  private void rebuild(final EntityCollection entityCollection) {
+    entities.clear();
+    for (final Entity entity : entityCollection.getEntities()) {
+      final List<Object> key = getKey(entity);
+      if (key != null && !entities.containsKey(key)) {
+        entities.put(key, entity);
+      }
+    }
+    indexedSize = entityCollection.getEntities().size();
+  }
+
+  private Entity scan(final EntityCollection entityCollection, final Object[] key) {
+    for (final Entity entity : entityCollection.getEntities()) {
+      final List<Object> entityKey = getKey(entity);
+      boolean found = entityKey != null;
+      for (int index = 0; found && index < key.length; index++) {
+        found = key[index] == null || key[index].equals(entityKey.get(index));
+      }
+      if (found) {
+        return entity;
+      }
+    }
+    return null;
+  }
+
+  /** Parses the key predicates once; returns <code>null</code> if no entity can have this key. */
+  private Object[] parseKey(final EdmEntityType entityType, final List<UriParameter> keys)
+      throws DataProviderException {
+    final Object[] key = new Object[keyPropertyRefs.size()];
+    for (final UriParameter parameter : keys) {
+      if (parameter.getExpression() != null && !(parameter.getExpression() instanceof Literal)) {
+        throw new DataProviderException("Expression in key value is not supported yet!",
+            HttpStatusCode.NOT_IMPLEMENTED);
+      }
+      final int index = getKeyIndex(entityType.getKeyPropertyRef(parameter.getName()));
+      if (index < 0 || valueTypes[index] == null) {
+        return null;
+      }
+      final EdmProperty property = keyPropertyRefs.get(index).getProperty();
+      final EdmPrimitiveType type = (EdmPrimitiveType) property.getType();
+      final String text = parameter.getAlias() == null ?
+          parameter.getText() :
+          ((Literal) parameter.getExpression()).getText();
+      try {
+        key[index] = normalize(type.valueOfString(type.fromUriLiteral(text),
+            property.isNullable(), property.getMaxLength(), property.getPrecision(), property.getScale(),
+            property.isUnicode(), valueTypes[index]));
+      } catch (final EdmPrimitiveTypeException e) {
+        throw new DataProviderException("Wrong key!", HttpStatusCode.BAD_REQUEST, e);
+      }
+    }
+    return key;
+  }
+
+  private int getKeyIndex(final EdmKeyPropertyRef keyPropertyRef) {
+    for (int index = 0; keyPropertyRef != null && index < keyPropertyRefs.size(); index++) {
+      if (keyPropertyRefs.get(index).getName().equals(keyPropertyRef.getName())) {
+        return index;
+      }
+    }
+    return -1;
+  }
+
+  private List<Object> getKey(final Entity entity) {
+    final List<Object> key = new ArrayList<Object>(keyPropertyRefs.size());
+    for (int index = 0; index < keyPropertyRefs.size(); index++) {
+      final Object value = getValue(entity, keyPropertyRefs.get(index).getName());
+      if (value == null) {
+        return null;
+      }
+      if (valueTypes[index] == null) {
+        valueTypes[index] = value instanceof Calendar ? Calendar.class : value.getClass();
+      }
+      key.add(normalize(value));
+    }
+    return key;
+  }
+
+  private static Object getValue(final Entity entity, final String propertyPath) {
+    List<Property> properties = entity.getProperties();
+    Object value = null;
+    for (final String name : propertyPath.split("/")) {
+      Property property = null;
+      for (final Property candidate : properties) {
+        if (name.equals(candidate.getName())) {
+          property = candidate;
+          break;
+        }
+      }
+      if (property == null || property.isNull()) {
+        return null;
+      }
+      value = property.getValue();
+      properties = value instanceof ComplexValue ?
+          ((ComplexValue) value).getValue() :
+          Collections.<Property> emptyList();
+    }
+    return value;
+  }
+
+  /** Integral numbers are compared by value, regardless of their Java type. */
+  private static Object normalize(final Object value) {
+    return value instanceof Short || value instanceof Integer || value instanceof Byte ?
+        Long.valueOf(((Number) value).longValue()) :
+        value;
+  }
+
+  /**
+   * Indexes of the most recently used collections, by identity of the collection.
+   * The collections are referenced weakly; the index of a collection which is no longer used elsewhere
+   * is discarded. Small collections are not worth caching an index for.
+   */
+  static class Cache {
+    private static final int MIN_SIZE = 8;
+
+    private final Map<CollectionKey, EntityKeyIndex> indexes;
+    private final ReferenceQueue<EntityCollection> collected = new ReferenceQueue<EntityCollection>();
+
+    Cache(final int maxSize) {
+      indexes = new LinkedHashMap<CollectionKey, EntityKeyIndex>(16, 0.75F, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<CollectionKey, EntityKeyIndex> eldest) {
+          return size() > maxSize;
+        }
+      };
+    }
+
+    /**
+     * Finds the entity with the given key in the given collection.
+     * @see EntityKeyIndex#get(EdmEntityType, EntityCollection, List)
+     */
+    Entity get(final EdmEntityType entityType, final EntityCollection entityCollection,
+        final List<UriParameter> keys) throws DataProviderException {
+      return getIndex(entityType, entityCollection).get(entityType, entityCollection, keys);
+    }
+
+    private synchronized EntityKeyIndex getIndex(final EdmEntityType entityType,
+        final EntityCollection entityCollection) {
+      if (entityCollection.getEntities().size() < MIN_SIZE) {
+        return new EntityKeyIndex(entityType);
+      }
+      removeCollected();
+      EntityKeyIndex index = indexes.get(new CollectionKey(entityCollection, null));
+      if (index == null) {
+        index = new EntityKeyIndex(entityType);
+        indexes.put(new CollectionKey(entityCollection, collected), index);
+      }
+      return index;
+    }
+
+    /** Notes that an entity has been added to the end of the collection. */
+    synchronized void added(final EntityCollection entityCollection, final Entity entity) {
+      final EntityKeyIndex index = indexes.get(new CollectionKey(entityCollection, null));
+      if (index != null) {
+        index.added(entityCollection, entity);
+      }
+    }
+
+    /** Notes that one or more entities have been removed from the collection. */
+    synchronized void removed(final EntityCollection entityCollection) {
+      final EntityKeyIndex index = indexes.get(new CollectionKey(entityCollection, null));
+      if (index != null) {
+        index.removed();
+      }
+    }
+
+    private void removeCollected() {
+      Reference<? extends EntityCollection> reference;
+      while ((reference = collected.poll()) != null) {
+        indexes.remove(reference);
+      }
+    }
+  }
+
+  /**
+   * Weak reference to a collection, compared by identity of the collection;
+   * the equals method of the collection compares all entities.
+   */
+  private static final class CollectionKey extends WeakReference<EntityCollection> {
+    private final int hashCode;
+
+    private CollectionKey(final EntityCollection entityCollection,
+        final ReferenceQueue<EntityCollection> queue) {
+      super(entityCollection, queue);
+      hashCode = System.identityHashCode(entityCollection);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+      if (this == other) {
+        return true;
+      }
+      final EntityCollection entityCollection = get();
+      return entityCollection != null && other instanceof CollectionKey
+          && ((CollectionKey) other).get() == entityCollection;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
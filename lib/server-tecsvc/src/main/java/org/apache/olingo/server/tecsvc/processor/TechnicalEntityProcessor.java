@@ -166,7 +166,6 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     } else {
     	response.setContent(odata.createFixedFormatSerializer().binary(dataProvider.readMedia(entity)));
     }
-    response.setContent(odata.createFixedFormatSerializer().binary(dataProvider.readMedia(entity)));
     response.setStatusCode(HttpStatusCode.OK.getStatusCode());
     response.setHeader(HttpHeader.CONTENT_TYPE, entity.getMediaContentType());
     if (entity.getMediaETag() != null) {
@@ -617,7 +616,8 @@ public class TechnicalEntityProcessor extends TechnicalProcessor
     SearchHandler.applySearchSystemQueryOption(uriInfo.getSearchOption(), entitySet);
     FilterHandler.applyFilterSystemQuery(uriInfo.getFilterOption(), entitySet, uriInfo, serviceMetadata.getEdm());
     CountHandler.applyCountSystemQueryOption(uriInfo.getCountOption(), entitySet);
-    OrderByHandler.applyOrderByOption(uriInfo.getOrderByOption(), entitySet, uriInfo, serviceMetadata.getEdm());
+    OrderByHandler.applyOrderByOption(uriInfo.getOrderByOption(), uriInfo.getSkipOption(), uriInfo.getTopOption(),
+        entitySet, uriInfo, serviceMetadata.getEdm());
     SkipHandler.applySkipSystemQueryHandler(uriInfo.getSkipOption(), entitySet);
     TopHandler.applyTopSystemQueryOption(uriInfo.getTopOption(), entitySet);
 
@@ -18,8 +18,7 @@
  */
 package org.apache.olingo.server.tecsvc.processor.queryoptions.options;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Locale;
 
 import org.apache.olingo.commons.api.data.Entity;
@@ -28,78 +27,52 @@ import org.apache.olingo.commons.api.edm.Edm;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.ODataApplicationException;
 import org.apache.olingo.server.api.uri.UriInfoResource;
-import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
 import org.apache.olingo.server.api.uri.queryoption.OrderByOption;
+import org.apache.olingo.server.api.uri.queryoption.SkipOption;
+import org.apache.olingo.server.api.uri.queryoption.TopOption;
+import org.apache.olingo.server.api.uri.queryoption.expression.Expression;
 import org.apache.olingo.server.api.uri.queryoption.expression.ExpressionVisitException;
+import org.apache.olingo.server.core.apply.EntitySorter;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.expression.ExpressionVisitorImpl;
 import org.apache.olingo.server.tecsvc.processor.queryoptions.expression.operand.TypedOperand;
 
 public class OrderByHandler {
-  public static void applyOrderByOption(final OrderByOption orderByOption, final EntityCollection entitySet,
-      final UriInfoResource uriInfo, final Edm edm) throws ODataApplicationException {
+  private static final int PARALLEL_SORT_THRESHOLD = 10000;
+
+  /**
+   * Orders the entities; if a top option is given, only the entities needed for
+   * the subsequent skip and top options are kept, without ordering all entities.
+   */
+  public static void applyOrderByOption(final OrderByOption orderByOption, final SkipOption skipOption,
+      final TopOption topOption, final EntityCollection entitySet, final UriInfoResource uriInfo, final Edm edm)
+      throws ODataApplicationException {
 
     if (orderByOption == null) {
       return;
     }
 
-    try {
-      applyOrderByOptionInternal(orderByOption, entitySet, uriInfo, edm);
-    } catch (SystemQueryOptionsRuntimeException e) {
-      if (e.getCause() instanceof ODataApplicationException) {
-        // Throw the nested exception, to send the correct HTTP status code in the HTTP response
-        throw (ODataApplicationException) e.getCause();
-      } else {
-        throw new ODataApplicationException("Exception in orderBy evaluation",
-            HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT);
-      }
+    final List<Entity> entities = entitySet.getEntities();
+    int limit = entities.size();
+    if (topOption != null && topOption.getValue() >= 0) {
+      limit = (int) Math.min(limit,
+          (long) topOption.getValue() + (skipOption == null ? 0 : Math.max(skipOption.getValue(), 0)));
     }
-  }
 
-  private static void applyOrderByOptionInternal(final OrderByOption orderByOption, final EntityCollection entitySet,
-      final UriInfoResource uriInfo, final Edm edm) throws ODataApplicationException {
-    Collections.sort(entitySet.getEntities(), new Comparator<Entity>() {
+    final List<Entity> ordered = new EntitySorter(orderByOption.getOrders(), new EntitySorter.KeyEvaluator() {
       @Override
-      @SuppressWarnings("unchecked")
-      public int compare(final Entity e1, final Entity e2) {
-        // Evaluate the first order option for both entities.
-        // If and only if the result of the previous order option is equal to 0
-        // evaluate the next order option until all options are evaluated or they are not equal.
-        int result = 0;
-
-        for (int i = 0; i < orderByOption.getOrders().size() && result == 0; i++) {
-          try {
-            final OrderByItem item = orderByOption.getOrders().get(i);
-            final TypedOperand op1 =
-                item.getExpression().accept(new ExpressionVisitorImpl(e1, uriInfo, edm)).asTypedOperand();
-            final TypedOperand op2 =
-                item.getExpression().accept(new ExpressionVisitorImpl(e2, uriInfo, edm)).asTypedOperand();
-
-            if (op1.isNull() || op2.isNull()) {
-              if (op1.isNull() && op2.isNull()) {
-                result = 0; // null is equals to null
-              } else {
-                result = op1.isNull() ? -1 : 1;
-              }
-            } else {
-              Object o1 = op1.getValue();
-              Object o2 = op2.getValue();
-
-              if (o1.getClass() == o2.getClass() && o1 instanceof Comparable) {
-                result = ((Comparable<Object>) o1).compareTo(o2);
-              } else {
-                result = 0;
-              }
-            }
-
-            result = item.isDescending() ? result * -1 : result;
-          } catch (ODataApplicationException e) {
-            throw new SystemQueryOptionsRuntimeException(e);
-          } catch (ExpressionVisitException e) {
-            throw new SystemQueryOptionsRuntimeException(e);
-          }
+      public Object evaluate(final Expression expression, final Entity entity) throws ODataApplicationException {
+        try {
+          final TypedOperand operand =
+              expression.accept(new ExpressionVisitorImpl(entity, uriInfo, edm)).asTypedOperand();
+          return operand.isNull() ? null : operand.getValue();
+        } catch (final ExpressionVisitException e) {
+          throw new ODataApplicationException("Exception in orderBy evaluation",
+              HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), Locale.ROOT, e);
         }
-        return result;
       }
-    });
+    }).setParallelThreshold(PARALLEL_SORT_THRESHOLD).sort(entities, limit);
+
+    entities.clear();
+    entities.addAll(ordered);
   }
 }
@@ -174,6 +174,34 @@ public class DataProviderTest {
     Assert.assertEquals("x/y", entity.getMediaContentType());
   }
 
+  @Test
+  public void keyIndexFollowsChanges() throws Exception {
+    final DataProvider dataProvider = new DataProvider(oData, edm);
+    for (int i = 0; i < 10; i++) {
+      dataProvider.create(esAllPrim);
+    }
+    final Entity entity = dataProvider.read(esAllPrim, Arrays.asList(mockParameter("PropertyInt16", "5")));
+    Assert.assertEquals((short) 5, entity.getProperty("PropertyInt16").getValue());
+
+    dataProvider.delete(esAllPrim, entity);
+    Assert.assertNull(dataProvider.read(esAllPrim, Arrays.asList(mockParameter("PropertyInt16", "5"))));
+
+    // changes made directly to the data are found as well
+    final Entity added = new Entity().addProperty(DataCreator.createPrimitive("PropertyInt16", (short) 4711));
+    dataProvider.readAll(esAllPrim).getEntities().add(added);
+    Assert.assertSame(added, dataProvider.read(esAllPrim, Arrays.asList(mockParameter("PropertyInt16", "4711"))));
+    Assert.assertNull(dataProvider.read(esAllPrim, Arrays.asList(mockParameter("PropertyInt16", "4712"))));
+
+    // a removal followed by an addition does not change the size of the collection
+    final List<Entity> entities = dataProvider.readAll(esAllPrim).getEntities();
+    entities.remove(added);
+    final Entity replacement = new Entity().addProperty(DataCreator.createPrimitive("PropertyInt16", (short) 4712));
+    entities.add(replacement);
+    Assert.assertSame(replacement,
+        dataProvider.read(esAllPrim, Arrays.asList(mockParameter("PropertyInt16", "4712"))));
+    Assert.assertNull(dataProvider.read(esAllPrim, Arrays.asList(mockParameter("PropertyInt16", "4711"))));
+  }
+
   private static UriParameter mockParameter(final String name, final String text) {
     UriParameter parameter = Mockito.mock(UriParameter.class);
     Mockito.when(parameter.getName()).thenReturn(name);
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.netty.server.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.netty.server.api.ODataNetty;
+import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.processor.Processor;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+
+public class ODataNettyChannelHandlerTest {
+
+  private final Deque<Runnable> tasks = new ArrayDeque<>();
+
+  private final Executor executor = new Executor() {
+    @Override
+    public void execute(final Runnable command) {
+      tasks.add(command);
+    }
+  };
+
+  @Test
+  public void processingIsOffloadedAndResponseIsChunked() {
+    final EmbeddedChannel channel = createChannel();
+
+    channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/odata.svc/$metadata"));
+    assertNull(channel.readOutbound());
+    assertFalse(channel.config().isAutoRead());
+    assertEquals(1, tasks.size());
+
+    tasks.poll().run();
+    channel.runPendingTasks();
+
+    final HttpResponse response = channel.readOutbound();
+    assertEquals(HttpResponseStatus.OK, response.status());
+    assertTrue(HttpUtil.isTransferEncodingChunked(response));
+    final StringBuilder body = new StringBuilder();
+    Object chunk;
+    do {
+      chunk = channel.readOutbound();
+      assertNotNull(chunk);
+      body.append(((HttpContent) chunk).content().toString(StandardCharsets.UTF_8));
+      ((HttpContent) chunk).release();
+    } while (!(chunk instanceof LastHttpContent));
+    assertTrue(body.toString().contains("<edmx:Edmx"));
+    assertTrue(channel.config().isAutoRead());
+    assertTrue(channel.isActive());
+  }
+
+  @Test
+  public void pipelinedRequestWaitsForPreviousResponse() {
+    final EmbeddedChannel channel = createChannel();
+
+    channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/odata.svc/"));
+    channel.writeInbound(new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/odata.svc/$metadata"));
+    channel.writeInbound(LastHttpContent.EMPTY_LAST_CONTENT);
+    assertEquals(1, tasks.size());
+
+    tasks.poll().run();
+    channel.runPendingTasks();
+    assertEquals(1, tasks.size());
+  }
+
+  @Test
+  public void connectionIsClosedWithoutKeepAlive() {
+    final EmbeddedChannel channel = createChannel();
+
+    channel.writeInbound(new DefaultFullHttpRequest(HttpVersion.HTTP_1_0, HttpMethod.GET, "/odata.svc/"));
+    tasks.poll().run();
+    channel.runPendingTasks();
+
+    assertFalse(channel.isActive());
+  }
+
+  private EmbeddedChannel createChannel() {
+    final ODataNetty odata = ODataNetty.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+    final Map<String, String> requestParameters = new HashMap<>();
+    requestParameters.put("contextPath", "/odata.svc");
+    return new EmbeddedChannel(odata.createNettyChannelHandler(
+        metadata, Collections.<Processor> emptyList(), requestParameters, executor));
+  }
+}
@@ -25,39 +25,60 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.verifyNoInteractions;;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.olingo.commons.api.data.ContextURL;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.edm.EdmBindingTarget;
+import org.apache.olingo.commons.api.edm.EdmEntitySet;
 import org.apache.olingo.commons.api.edm.FullQualifiedName;
 import org.apache.olingo.commons.api.edm.constants.ODataServiceVersion;
 import org.apache.olingo.commons.api.edm.provider.CsdlAbstractEdmProvider;
 import org.apache.olingo.commons.api.edm.provider.CsdlEntitySet;
 import org.apache.olingo.commons.api.edmx.EdmxReference;
 import org.apache.olingo.commons.api.ex.ODataException;
+import org.apache.olingo.commons.api.ex.ODataRuntimeException;
 import org.apache.olingo.commons.api.format.ContentType;
 import org.apache.olingo.commons.api.http.HttpHeader;
 import org.apache.olingo.commons.api.http.HttpMethod;
 import org.apache.olingo.commons.api.http.HttpStatusCode;
 import org.apache.olingo.server.api.OData;
 import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.ODataContent;
 import org.apache.olingo.server.api.ODataRequest;
 import org.apache.olingo.server.api.ODataResponse;
 import org.apache.olingo.server.api.ODataServerError;
+import org.apache.olingo.server.api.OlingoExtension;
 import org.apache.olingo.server.api.ServiceMetadata;
+import org.apache.olingo.server.api.async.AsyncRequestSupport;
 import org.apache.olingo.server.api.batch.BatchFacade;
+import org.apache.olingo.server.api.etag.ETagProvider;
+import org.apache.olingo.server.api.etag.ServiceMetadataETagSupport;
+import org.apache.olingo.server.api.metrics.MetricsSnapshot;
+import org.apache.olingo.server.api.metrics.ODataMetrics;
+import org.apache.olingo.server.api.metrics.RequestPhase;
 import org.apache.olingo.server.api.processor.ActionComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.ActionComplexProcessor;
 import org.apache.olingo.server.api.processor.ActionEntityCollectionProcessor;
@@ -71,10 +92,13 @@ import org.apache.olingo.server.api.processor.ComplexProcessor;
 import org.apache.olingo.server.api.processor.CountComplexCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountEntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.CountPrimitiveCollectionProcessor;
+import org.apache.olingo.server.api.processor.DefaultProcessor;
 import org.apache.olingo.server.api.processor.EntityCollectionProcessor;
 import org.apache.olingo.server.api.processor.EntityProcessor;
 import org.apache.olingo.server.api.processor.ErrorProcessor;
 import org.apache.olingo.server.api.processor.MediaEntityProcessor;
+import org.apache.olingo.server.api.processor.MetadataDocumentCache;
+import org.apache.olingo.server.api.processor.MetadataDocumentCache.DocumentKind;
 import org.apache.olingo.server.api.processor.MetadataProcessor;
 import org.apache.olingo.server.api.processor.PrimitiveCollectionProcessor;
 import org.apache.olingo.server.api.processor.PrimitiveProcessor;
@@ -82,14 +106,19 @@ import org.apache.olingo.server.api.processor.PrimitiveValueProcessor;
 import org.apache.olingo.server.api.processor.Processor;
 import org.apache.olingo.server.api.processor.ReferenceCollectionProcessor;
 import org.apache.olingo.server.api.processor.ReferenceProcessor;
+import org.apache.olingo.server.api.processor.RequestScopedProcessor;
 import org.apache.olingo.server.api.processor.ServiceDocumentProcessor;
+import org.apache.olingo.server.api.serializer.EntityCollectionSerializerOptions;
 import org.apache.olingo.server.api.uri.UriInfo;
 import org.apache.olingo.server.core.debug.ServerCoreDebugger;
+import org.apache.olingo.server.tecsvc.data.DataProvider;
 import org.apache.olingo.server.tecsvc.processor.TechnicalActionProcessor;
 import org.apache.olingo.server.tecsvc.provider.ContainerProvider;
 import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
 import org.junit.Test;
 import org.mockito.internal.verification.VerificationModeFactory;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class ODataHandlerImplTest {
 
@@ -201,6 +230,135 @@ public class ODataHandlerImplTest {
     assertNull(response2.getContent());
   }
 
+  @Test
+  public void metadataFromCache() throws Exception {
+    final ServiceMetadataETagSupport eTagSupport = mock(ServiceMetadataETagSupport.class);
+    when(eTagSupport.getMetadataETag()).thenReturn("W/\"1\"");
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList(), eTagSupport);
+    final MetadataDocumentCache cache = new MetadataDocumentCache(4, true);
+    final ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    handler.register(new DefaultProcessor(cache));
+
+    ODataResponse response = handler.process(createMetadataRequest(null, null));
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertNull(response.getHeader(HttpHeader.CONTENT_ENCODING));
+    final String document = IOUtils.toString(response.getContent(), "UTF-8");
+    assertThat(document, containsString("<edmx:Edmx Version=\"4.0\""));
+    assertNotNull(cache.get(DocumentKind.METADATA, "W/\"1\"", ContentType.APPLICATION_XML, BASE_URI));
+
+    response = handler.process(createMetadataRequest(HttpHeader.ACCEPT_ENCODING, "deflate, gzip"));
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals("gzip", response.getHeader(HttpHeader.CONTENT_ENCODING));
+    assertEquals(document, IOUtils.toString(new GZIPInputStream(response.getContent()), "UTF-8"));
+
+    response = handler.process(createMetadataRequest(HttpHeader.ACCEPT_ENCODING, "gzip;q=0"));
+    assertNull(response.getHeader(HttpHeader.CONTENT_ENCODING));
+
+    response = handler.process(createMetadataRequest(HttpHeader.IF_NONE_MATCH, "W/\"1\""));
+    assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+    assertNull(response.getContent());
+
+    when(eTagSupport.getMetadataETag()).thenReturn("W/\"2\"");
+    response = handler.process(createMetadataRequest(HttpHeader.IF_NONE_MATCH, "W/\"1\""));
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertEquals("W/\"2\"", response.getHeader(HttpHeader.ETAG));
+    assertNotNull(cache.get(DocumentKind.METADATA, "W/\"2\"", ContentType.APPLICATION_XML, BASE_URI));
+  }
+
+  @Test
+  public void defaultMetadataCacheIsSharedByHandlers() throws Exception {
+    final ServiceMetadataETagSupport eTagSupport = mock(ServiceMetadataETagSupport.class);
+    when(eTagSupport.getMetadataETag()).thenReturn("W/\"1\"");
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList(), eTagSupport);
+    final MetadataDocumentCache cache = ((ServiceMetadataImpl) metadata).getDocumentCache();
+
+    for (int i = 0; i < 2; i++) {
+      // Handlers are usually created per request.
+      final ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+      final ODataResponse response = handler.process(createMetadataRequest(HttpHeader.ACCEPT_ENCODING, "gzip"));
+      assertNotNull(cache.get(DocumentKind.METADATA, "W/\"1\"", ContentType.APPLICATION_XML, BASE_URI));
+      assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+      assertNull(response.getHeader(HttpHeader.CONTENT_ENCODING));
+      assertNull(response.getHeader(HttpHeader.VARY));
+      assertThat(IOUtils.toString(response.getContent(), "UTF-8"), containsString("<edmx:Edmx Version=\"4.0\""));
+    }
+  }
+
+  @Test
+  public void metricsAreCollected() throws Exception {
+    final ODataMetrics metrics = OData.newInstance().getMetrics();
+    metrics.reset();
+    metrics.setEnabled(true);
+    try {
+      dispatch(HttpMethod.GET, "$metadata", null);
+      dispatch(HttpMethod.GET, "NotExisting", null);
+
+      final OData odata = OData.newInstance();
+      final ServiceMetadata metadata = odata.createServiceMetadata(
+          new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+      final EdmEntitySet entitySet = metadata.getEdm().getEntityContainer().getEntitySet("ESAllPrim");
+      final EntityCollection entities = new DataProvider(odata, metadata.getEdm()).readAll(entitySet);
+      odata.createSerializer(ContentType.JSON).entityCollection(metadata, entitySet.getEntityType(), entities,
+          EntityCollectionSerializerOptions.with()
+              .contextURL(ContextURL.with().entitySet(entitySet).build()).build());
+
+      final MetricsSnapshot snapshot = metrics.getSnapshot();
+      assertEquals(2, snapshot.getRequestCount());
+      assertEquals(Long.valueOf(1), snapshot.getErrorCounts().get(HttpStatusCode.NOT_FOUND.getStatusCode()));
+      assertEquals(2, snapshot.getLatency(RequestPhase.URI_PARSING).getCount());
+      assertEquals(1, snapshot.getLatency(RequestPhase.URI_VALIDATION).getCount());
+      assertEquals(1, snapshot.getLatency(RequestPhase.DISPATCH).getCount());
+      assertEquals(1, snapshot.getLatency(RequestPhase.ERROR_HANDLING).getCount());
+      assertTrue(snapshot.getLatency(RequestPhase.CONTENT_NEGOTIATION).getCount() >= 2);
+      assertEquals(1, snapshot.getLatency(RequestPhase.SERIALIZATION).getCount());
+      assertEquals(entities.getEntities().size(), snapshot.getEntitiesSerialized());
+    } finally {
+      metrics.setEnabled(false);
+      metrics.reset();
+    }
+  }
+
+  @Test
+  public void registeredMetricsAreCollectedPerHandler() throws Exception {
+    final ODataMetrics shared = OData.newInstance().getMetrics();
+    final ODataMetrics metrics = OData.newInstance().createMetrics();
+    shared.reset();
+    shared.setEnabled(true);
+    metrics.setEnabled(true);
+    try {
+      dispatch(HttpMethod.GET, "NotExisting", null, null, null, null, metrics);
+      dispatch(HttpMethod.GET, "$metadata", null);
+
+      MetricsSnapshot snapshot = metrics.getSnapshot();
+      assertEquals(1, snapshot.getRequestCount());
+      assertEquals(Long.valueOf(1), snapshot.getErrorCounts().get(HttpStatusCode.NOT_FOUND.getStatusCode()));
+      assertEquals(1, snapshot.getLatency(RequestPhase.ERROR_HANDLING).getCount());
+
+      snapshot = shared.getSnapshot();
+      assertEquals(1, snapshot.getRequestCount());
+      assertTrue(snapshot.getErrorCounts().isEmpty());
+      assertEquals(0, snapshot.getLatency(RequestPhase.ERROR_HANDLING).getCount());
+    } finally {
+      shared.setEnabled(false);
+      shared.reset();
+    }
+  }
+
+  private ODataRequest createMetadataRequest(final String headerName, final String headerValue) {
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.GET);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("$metadata");
+    if (headerName != null) {
+      request.addHeader(headerName, headerValue);
+    }
+    return request;
+  }
+
   @Test
   public void maxVersionNone() {
     final ODataResponse response = dispatch(HttpMethod.GET, "$metadata", null);
@@ -1125,6 +1283,12 @@ public class ODataHandlerImplTest {
 
   private ODataResponse dispatch(final HttpMethod method, final String path, final String query,
       final String headerName, final String headerValue, final Processor processor) {
+    return dispatch(method, path, query, headerName, headerValue, processor, null);
+  }
+
+  private ODataResponse dispatch(final HttpMethod method, final String path, final String query,
+      final String headerName, final String headerValue, final Processor processor,
+      final OlingoExtension extension) {
     ODataRequest request = new ODataRequest();
     request.setMethod(method);
     request.setRawBaseUri(BASE_URI);
@@ -1152,12 +1316,108 @@ public class ODataHandlerImplTest {
     if (processor != null) {
       handler.register(processor);
     }
+    if (extension != null) {
+      handler.register(extension);
+    }
 
     final ODataResponse response = handler.process(request);
     assertNotNull(response);
     return response;
   }
 
+  @Test
+  public void processorIsInitializedOnce() throws Exception {
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class,
+        withSettings().extraInterfaces(RequestScopedProcessor.class));
+
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    handler.register(processor);
+
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.GET);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("ESAllPrim");
+    handler.process(request);
+    handler.process(request);
+
+    verify(processor).init(odata, metadata);
+    verify((RequestScopedProcessor) processor, times(2)).initRequest(request);
+    verify(processor, times(2)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+  }
+
+  @Test
+  public void processorIsInitializedAgainAfterFailedInit() throws Exception {
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class);
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+    doThrow(new ODataRuntimeException("init failed")).doNothing().when(processor).init(odata, metadata);
+    ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    handler.register(processor);
+
+    ODataRequest request = new ODataRequest();
+    request.setMethod(HttpMethod.GET);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath("ESAllPrim");
+    assertEquals(HttpStatusCode.INTERNAL_SERVER_ERROR.getStatusCode(), handler.process(request).getStatusCode());
+    handler.process(request);
+
+    verify(processor, times(2)).init(odata, metadata);
+    verify(processor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+  }
+
+  @Test
+  public void completionIsAwaited() throws Exception {
+    final CompletableFuture<Void> completion = new CompletableFuture<>();
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        final ODataResponse response = invocation.getArgument(1);
+        response.setCompletion(completion);
+        new Thread() {
+          @Override
+          public void run() {
+            response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+            completion.complete(null);
+          }
+        }.start();
+        return null;
+      }
+    }).when(processor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+
+    final ODataResponse response = dispatch(HttpMethod.GET, "ESAllPrim", processor);
+    assertTrue(completion.isDone());
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+  }
+
+  @Test
+  public void failedCompletionCreatesErrorResponse() throws Exception {
+    final CompletableFuture<Void> completion = new CompletableFuture<>();
+    completion.completeExceptionally(new ODataApplicationException("backend failure",
+        HttpStatusCode.BAD_GATEWAY.getStatusCode(), Locale.ROOT));
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class);
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        ((ODataResponse) invocation.getArgument(1)).setCompletion(completion);
+        return null;
+      }
+    }).when(processor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+
+    final ODataResponse response = dispatch(HttpMethod.GET, "ESAllPrim", processor);
+    assertEquals(HttpStatusCode.BAD_GATEWAY.getStatusCode(), response.getStatusCode());
+    assertThat(IOUtils.toString(response.getContent(), Charset.defaultCharset()),
+        containsString("backend failure"));
+  }
+
   @Test
   public void dispatchEmptyContentWithoutContentType() {
     final String path = "ESAllPrim";
@@ -1184,6 +1444,140 @@ public class ODataHandlerImplTest {
     assertNotNull(response);
   }
   
+  @Test
+  public void respondAsyncReturnsStatusMonitor() throws Exception {
+    final ODataHandlerImpl handler = createAsyncHandler();
+    final ODataResponse accepted =
+        handler.process(createAsyncRequest(HttpMethod.GET, "/ESAllPrim", "respond-async"));
+    assertEquals(HttpStatusCode.ACCEPTED.getStatusCode(), accepted.getStatusCode());
+    assertEquals("respond-async", accepted.getHeader(HttpHeader.PREFERENCE_APPLIED));
+    final String location = accepted.getHeader(HttpHeader.LOCATION);
+    assertThat(location, containsString(BASE_URI + "/$async/"));
+
+    final String monitorPath = location.substring(BASE_URI.length());
+    final ODataResponse result = handler.process(createAsyncRequest(HttpMethod.GET, monitorPath, null));
+    assertEquals(HttpStatusCode.OK.getStatusCode(), result.getStatusCode());
+    assertEquals(ContentType.APPLICATION_HTTP.toContentTypeString(), result.getHeader(HttpHeader.CONTENT_TYPE));
+    final String content = IOUtils.toString(result.getContent(), Charset.forName("UTF-8"));
+    assertThat(content, containsString("HTTP/1.1 200 OK"));
+    assertThat(content, containsString("async result"));
+
+    assertEquals(HttpStatusCode.NO_CONTENT.getStatusCode(),
+        handler.process(createAsyncRequest(HttpMethod.DELETE, monitorPath, null)).getStatusCode());
+    assertEquals(HttpStatusCode.NOT_FOUND.getStatusCode(),
+        handler.process(createAsyncRequest(HttpMethod.GET, monitorPath, null)).getStatusCode());
+    assertEquals(HttpStatusCode.METHOD_NOT_ALLOWED.getStatusCode(),
+        handler.process(createAsyncRequest(HttpMethod.POST, monitorPath, null)).getStatusCode());
+  }
+
+  @Test
+  public void respondAsyncWithWaitReturnsResultDirectly() throws Exception {
+    final ODataResponse response = createAsyncHandler().process(
+        createAsyncRequest(HttpMethod.GET, "/ESAllPrim", "respond-async, wait=10"));
+    assertEquals(HttpStatusCode.OK.getStatusCode(), response.getStatusCode());
+    assertNull(response.getHeader(HttpHeader.LOCATION));
+    assertEquals("async result", IOUtils.toString(response.getContent(), Charset.forName("UTF-8")));
+  }
+
+  @Test
+  public void respondAsyncReportsSerializationFailure() throws Exception {
+    final ODataHandlerImpl handler = createAsyncHandler(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        final ODataResponse response = invocation.getArgument(1);
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setODataContent(new ODataContent() {
+          @Override
+          public void write(final WritableByteChannel channel) {
+            throw new IllegalStateException("serialization failure");
+          }
+
+          @Override
+          public void write(final OutputStream stream) {
+            throw new IllegalStateException("serialization failure");
+          }
+        });
+        return null;
+      }
+    });
+    final ODataResponse accepted =
+        handler.process(createAsyncRequest(HttpMethod.GET, "/ESAllPrim", "respond-async"));
+    final String monitorPath = accepted.getHeader(HttpHeader.LOCATION).substring(BASE_URI.length());
+
+    final ODataResponse result = handler.process(createAsyncRequest(HttpMethod.GET, monitorPath, null));
+    assertEquals(HttpStatusCode.OK.getStatusCode(), result.getStatusCode());
+    assertThat(IOUtils.toString(result.getContent(), Charset.forName("UTF-8")),
+        containsString("HTTP/1.1 500 Internal Server Error"));
+  }
+
+  @Test
+  public void respondAsyncRejectsTooLargeBody() throws Exception {
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+    final ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    final EntityProcessor processor = mock(EntityProcessor.class);
+    handler.register(processor);
+    final AsyncRequestSupport asyncRequestSupport = odata.createAsyncRequestSupport(new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        command.run();
+      }
+    }, null, 60000);
+    asyncRequestSupport.setMaxRequestSize(10);
+    handler.register(asyncRequestSupport);
+
+    final ODataRequest request = createAsyncRequest(HttpMethod.POST, "/ESAllPrim", "respond-async");
+    request.addHeader(HttpHeader.CONTENT_TYPE, ContentType.JSON.toContentTypeString());
+    request.setBody(IOUtils.toInputStream("{\"PropertyInt16\":1}", Charset.forName("UTF-8")));
+    final ODataResponse response = handler.process(request);
+
+    assertEquals(HttpStatusCode.PAYLOAD_TOO_LARGE.getStatusCode(), response.getStatusCode());
+    verifyNoInteractions(processor);
+  }
+
+  private ODataHandlerImpl createAsyncHandler() throws Exception {
+    return createAsyncHandler(new Answer<Void>() {
+      @Override
+      public Void answer(final InvocationOnMock invocation) {
+        final ODataResponse response = invocation.getArgument(1);
+        response.setStatusCode(HttpStatusCode.OK.getStatusCode());
+        response.setContent(new ByteArrayInputStream("async result".getBytes(Charset.forName("UTF-8"))));
+        return null;
+      }
+    });
+  }
+
+  private ODataHandlerImpl createAsyncHandler(final Answer<Void> processing) throws Exception {
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class);
+    doAnswer(processing).when(processor).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+
+    final OData odata = OData.newInstance();
+    final ServiceMetadata metadata = odata.createServiceMetadata(
+        new EdmTechProvider(), Collections.<EdmxReference> emptyList());
+    final ODataHandlerImpl handler = new ODataHandlerImpl(odata, metadata, new ServerCoreDebugger(odata));
+    handler.register(processor);
+    handler.register(odata.createAsyncRequestSupport(new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        command.run();
+      }
+    }, null, 60000));
+    return handler;
+  }
+
+  private ODataRequest createAsyncRequest(final HttpMethod method, final String path, final String prefer) {
+    final ODataRequest request = new ODataRequest();
+    request.setMethod(method);
+    request.setRawBaseUri(BASE_URI);
+    request.setRawODataPath(path);
+    if (prefer != null) {
+      request.addHeader(HttpHeader.PREFER, prefer);
+    }
+    return request;
+  }
+
   private ODataResponse dispatch(final HttpMethod method, final String path, final Processor processor) {
     return dispatch(method, path, null, null, null, processor);
   }
@@ -1369,4 +1763,81 @@ public class ODataHandlerImplTest {
     final ODataResponse response = handler.process(request);
     return response;
   }
+
+  @Test
+  public void dispatchWithProvidedETag() throws Exception {
+    final ETagProvider eTagProvider = mock(ETagProvider.class);
+    when(eTagProvider.getETag(any(EdmBindingTarget.class), any())).thenReturn("W/\"1\"");
+    final EntityProcessor processor = mock(EntityProcessor.class);
+
+    ODataResponse response = dispatch(HttpMethod.GET, "ESAllPrim(0)", null,
+        HttpHeader.IF_NONE_MATCH, "W/\"1\"", processor, eTagProvider);
+    assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+    assertEquals("W/\"1\"", response.getHeader(HttpHeader.ETAG));
+    assertNull(response.getContent());
+    verifyNoInteractions(processor);
+
+    dispatch(HttpMethod.GET, "ESAllPrim(0)", null, HttpHeader.IF_NONE_MATCH, "W/\"0\"", processor, eTagProvider);
+    verify(processor).readEntity(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+
+    dispatch(HttpMethod.GET, "ESAllPrim(0)", null, null, null, processor, eTagProvider);
+    verify(processor, times(2)).readEntity(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    verify(eTagProvider, times(2)).getETag(any(EdmBindingTarget.class), any());
+  }
+
+  @Test
+  public void dispatchWithProvidedETagFailing() throws Exception {
+    final ETagProvider eTagProvider = mock(ETagProvider.class);
+    when(eTagProvider.getETag(any(EdmBindingTarget.class), any())).thenReturn("\"1\"");
+    final PrimitiveProcessor processor = mock(PrimitiveProcessor.class);
+
+    ODataResponse response = dispatch(HttpMethod.PUT, "ESAllPrim(0)/PropertyString", null,
+        HttpHeader.IF_MATCH, "\"0\"", processor, eTagProvider);
+    assertEquals(HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), response.getStatusCode());
+    response = dispatch(HttpMethod.GET, "ESAllPrim(0)/PropertyString", null,
+        HttpHeader.IF_MATCH, "\"0\"", processor, eTagProvider);
+    assertEquals(HttpStatusCode.PRECONDITION_FAILED.getStatusCode(), response.getStatusCode());
+    verifyNoInteractions(processor);
+
+    dispatch(HttpMethod.PUT, "ESAllPrim(0)/PropertyString", null, HttpHeader.IF_MATCH, "\"1\"",
+        processor, eTagProvider);
+    verify(processor).updatePrimitive(any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class),
+        any(ContentType.class), any(ContentType.class));
+  }
+
+  @Test
+  public void dispatchMediaWithProvidedETag() throws Exception {
+    final ETagProvider eTagProvider = mock(ETagProvider.class);
+    when(eTagProvider.getMediaETag(any(EdmBindingTarget.class), any())).thenReturn("\"m1\"");
+    final MediaEntityProcessor processor = mock(MediaEntityProcessor.class);
+
+    final ODataResponse response = dispatch(HttpMethod.GET, "ESMedia(1)/$value", null,
+        HttpHeader.IF_NONE_MATCH, "\"m1\"", processor, eTagProvider);
+    assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+    verifyNoInteractions(processor);
+    verify(eTagProvider, times(0)).getETag(any(EdmBindingTarget.class), any());
+  }
+
+  @Test
+  public void dispatchCollectionWithProvidedETag() throws Exception {
+    final ETagProvider eTagProvider = mock(ETagProvider.class);
+    when(eTagProvider.getCollectionETag(any(EdmEntitySet.class))).thenReturn("W/\"42\"");
+    final EntityCollectionProcessor processor = mock(EntityCollectionProcessor.class);
+
+    final ODataResponse response = dispatch(HttpMethod.GET, "ESAllPrim", null,
+        HttpHeader.IF_NONE_MATCH, "W/\"42\"", processor, eTagProvider);
+    assertEquals(HttpStatusCode.NOT_MODIFIED.getStatusCode(), response.getStatusCode());
+    verifyNoInteractions(processor);
+
+    // Expanded entities and navigation targets are validated by the processor.
+    dispatch(HttpMethod.GET, "ESAllPrim", "$expand=NavPropertyETTwoPrimMany",
+        HttpHeader.IF_NONE_MATCH, "W/\"42\"", processor, eTagProvider);
+    dispatch(HttpMethod.GET, "ESKeyNav(1)/NavPropertyETKeyNavMany", null,
+        HttpHeader.IF_NONE_MATCH, "W/\"42\"", processor, eTagProvider);
+    verify(processor, times(2)).readEntityCollection(
+        any(ODataRequest.class), any(ODataResponse.class), any(UriInfo.class), any(ContentType.class));
+    verify(eTagProvider).getCollectionETag(any(EdmEntitySet.class));
+  }
 }
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.EntityIterator;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.queryoption.ApplyOption;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class ApplyExecutorTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+
+  @Test
+  public void aggregate() throws Exception {
+    final List<Entity> result = apply("aggregate(PropertyInt16 with sum as Sum,PropertyInt16 with average as Avg,"
+        + "PropertyInt16 with min as Min,PropertyInt16 with max as Max,"
+        + "PropertyString with countdistinct as Distinct,$count as Count)", createEntities(5));
+    assertEquals(1, result.size());
+    final Entity entity = result.get(0);
+    assertEquals(10L, entity.getProperty("Sum").getValue());
+    assertEquals(0, new BigDecimal(2).compareTo((BigDecimal) entity.getProperty("Avg").getValue()));
+    assertEquals((short) 0, entity.getProperty("Min").getValue());
+    assertEquals((short) 4, entity.getProperty("Max").getValue());
+    assertEquals("Edm.Int16", entity.getProperty("Max").getType());
+    assertEquals(3L, entity.getProperty("Distinct").getValue());
+    assertEquals(5L, entity.getProperty("Count").getValue());
+  }
+
+  @Test
+  public void aggregateEmpty() throws Exception {
+    final List<Entity> result = apply("aggregate(PropertyInt16 with sum as Sum,PropertyInt16 with max as Max,"
+        + "$count as Count)", new ArrayList<Entity>());
+    assertEquals(1, result.size());
+    assertEquals(0L, result.get(0).getProperty("Sum").getValue());
+    assertNull(result.get(0).getProperty("Max").getValue());
+    assertEquals(0L, result.get(0).getProperty("Count").getValue());
+  }
+
+  @Test
+  public void groupBy() throws Exception {
+    final List<Entity> result = apply("groupby((PropertyString),aggregate(PropertyInt16 with sum as Sum))",
+        createEntities(7));
+    assertEquals(3, result.size());
+    assertEquals(toMap(new Object[] { "s0", 9L, "s1", 5L, "s2", 7L }), sums(result));
+  }
+
+  @Test
+  public void groupByWithoutAggregation() throws Exception {
+    final List<Entity> result = apply("groupby((PropertyString))", createEntities(7));
+    assertEquals(3, result.size());
+    assertEquals(1, result.get(0).getProperties().size());
+    assertEquals("s0", result.get(0).getProperty("PropertyString").getValue());
+  }
+
+  @Test
+  public void groupByWithNestedTransformations() throws Exception {
+    final List<Entity> result = apply("groupby((PropertyString),"
+        + "filter(PropertyInt16 gt 2)/aggregate(PropertyInt16 with sum as Sum))", createEntities(7));
+    assertEquals(toMap(new Object[] { "s0", 9L, "s1", 4L, "s2", 5L }), sums(result));
+  }
+
+  @Test
+  public void parallelGroupBy() throws Exception {
+    final List<Entity> entities = createEntities(10000);
+    final String apply = "groupby((PropertyString),aggregate(PropertyInt16 with sum as Sum,$count as Count))";
+    final ApplyOption option = parse(apply);
+    final EntityCollection collection = new EntityCollection();
+    collection.getEntities().addAll(entities);
+
+    final List<Entity> sequential = new ApplyExecutor().apply(option, collection).getEntities();
+    final List<Entity> parallel =
+        new ApplyExecutor(new ForkJoinPool(4), 100).apply(option, collection).getEntities();
+    assertEquals(sums(sequential), sums(parallel));
+  }
+
+  @Test
+  public void streamedIterator() throws Exception {
+    final List<Entity> entities = createEntities(4);
+    final EntityIterator iterator = new EntityIterator() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < entities.size();
+      }
+
+      @Override
+      public Entity next() {
+        return entities.get(index++);
+      }
+    };
+    final List<Entity> result = new ApplyExecutor().apply(parse("aggregate($count as Count)"), iterator)
+        .getEntities();
+    assertEquals(4L, result.get(0).getProperty("Count").getValue());
+  }
+
+  @Test
+  public void filterComputeOrderByTop() throws Exception {
+    final List<Entity> entities = createEntities(6);
+    final List<Entity> result = apply("filter(PropertyInt16 ge 2)/compute(PropertyInt16 mul 10 as Tenfold)"
+        + "/orderby(Tenfold desc)/top(2)", entities);
+    assertEquals(2, result.size());
+    assertEquals(50L, result.get(0).getProperty("Tenfold").getValue());
+    assertEquals(40L, result.get(1).getProperty("Tenfold").getValue());
+    // The input entities are not changed.
+    assertNull(entities.get(5).getProperty("Tenfold"));
+  }
+
+  @Test
+  public void topCountAndSum() throws Exception {
+    List<Entity> result = apply("topcount(2,PropertyInt16)", createEntities(6));
+    assertEquals(2, result.size());
+    assertEquals((short) 5, result.get(0).getProperty("PropertyInt16").getValue());
+    assertEquals((short) 4, result.get(1).getProperty("PropertyInt16").getValue());
+
+    result = apply("bottomsum(3,PropertyInt16)", createEntities(6));
+    assertEquals(3, result.size());
+  }
+
+  @Test
+  public void concat() throws Exception {
+    final List<Entity> result = apply("concat(aggregate($count as Count),top(1))", createEntities(3));
+    assertEquals(2, result.size());
+    assertEquals(3L, result.get(0).getProperty("Count").getValue());
+    assertEquals((short) 0, result.get(1).getProperty("PropertyInt16").getValue());
+  }
+
+  @Test
+  public void unsupportedTransformation() throws Exception {
+    try {
+      apply("search(abc)", createEntities(1));
+      fail("Expected ODataApplicationException");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.NOT_IMPLEMENTED.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private List<Entity> apply(final String apply, final List<Entity> entities) throws Exception {
+    final EntityCollection collection = new EntityCollection();
+    collection.getEntities().addAll(entities);
+    return new ApplyExecutor().apply(parse(apply), collection).getEntities();
+  }
+
+  private ApplyOption parse(final String apply) throws Exception {
+    return new Parser(edm, odata).parseUri("ESAllPrim", "$apply=" + apply, null, null).getApplyOption();
+  }
+
+  /** Creates entities with PropertyInt16 = i and PropertyString = "s" + (i % 3). */
+  private List<Entity> createEntities(final int count) {
+    List<Entity> entities = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      entities.add(new Entity()
+          .addProperty(new Property("Edm.Int16", "PropertyInt16", ValueType.PRIMITIVE, (short) i))
+          .addProperty(new Property("Edm.String", "PropertyString", ValueType.PRIMITIVE, "s" + (i % 3))));
+    }
+    return entities;
+  }
+
+  private Map<Object, Object> sums(final List<Entity> entities) {
+    Map<Object, Object> sums = new HashMap<>();
+    for (final Entity entity : entities) {
+      sums.put(entity.getProperty("PropertyString").getValue(), entity.getProperty("Sum").getValue());
+    }
+    return sums;
+  }
+
+  private Map<Object, Object> toMap(final Object[] keysAndValues) {
+    Map<Object, Object> map = new HashMap<>();
+    for (int i = 0; i < keysAndValues.length; i += 2) {
+      map.put(keysAndValues[i], keysAndValues[i + 1]);
+    }
+    return map;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.apply;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.uri.queryoption.OrderByItem;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class EntitySorterTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+
+  @Test
+  public void sortIsStableWithNullsFirst() throws Exception {
+    final List<Entity> entities = new ArrayList<>();
+    entities.add(create(2, "a"));
+    entities.add(create(null, "b"));
+    entities.add(create(1, "c"));
+    entities.add(create(2, "d"));
+
+    assertEquals("bcad", strings(new EntitySorter(parse("PropertyInt32")).sort(entities)));
+    assertEquals("adcb", strings(new EntitySorter(parse("PropertyInt32 desc")).sort(entities)));
+    assertEquals("dacb", strings(new EntitySorter(parse("PropertyInt32 desc,PropertyString desc")).sort(entities)));
+    // The input is not changed.
+    assertEquals("abcd", strings(entities));
+  }
+
+  @Test
+  public void topEntitiesEqualFullSort() throws Exception {
+    final Random random = new Random(42);
+    final List<Entity> entities = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      entities.add(create(random.nextInt(100), Integer.toString(i)));
+    }
+    final List<OrderByItem> orders = parse("PropertyInt32 desc");
+    final List<Entity> sorted = new EntitySorter(orders).setParallelThreshold(100).sort(entities);
+    assertEquals(sorted.subList(0, 50), new EntitySorter(orders).sort(entities, 50));
+    assertEquals(sorted, new EntitySorter(orders).sort(entities));
+    assertEquals(0, new EntitySorter(orders).sort(entities, 0).size());
+  }
+
+  private List<OrderByItem> parse(final String orderBy) throws Exception {
+    return new Parser(edm, odata).parseUri("ESAllPrim", "$orderby=" + orderBy, null, null)
+        .getOrderByOption().getOrders();
+  }
+
+  private Entity create(final Integer number, final String string) {
+    return new Entity()
+        .addProperty(new Property("Edm.Int32", "PropertyInt32", ValueType.PRIMITIVE, number))
+        .addProperty(new Property("Edm.String", "PropertyString", ValueType.PRIMITIVE, string));
+  }
+
+  private String strings(final List<Entity> entities) {
+    StringBuilder result = new StringBuilder();
+    for (final Entity entity : entities) {
+      result.append(entity.getProperty("PropertyString").getValue());
+    }
+    return result.toString();
+  }
+}
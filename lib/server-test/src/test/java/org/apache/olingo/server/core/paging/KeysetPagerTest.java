@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.paging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.EntityCollection;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edm.EdmEntityType;
+import org.apache.olingo.commons.api.edm.FullQualifiedName;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.commons.api.http.HttpStatusCode;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.ODataApplicationException;
+import org.apache.olingo.server.api.uri.UriInfo;
+import org.apache.olingo.server.core.apply.EntitySorter;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class KeysetPagerTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+  private static final EdmEntityType ET_ALL_PRIM = edm.getEntityType(new FullQualifiedName("olingo.odata.test1",
+      "ETAllPrim"));
+  private static final String URI = "http://localhost/ESAllPrim";
+
+  @Test
+  public void pagesFollowOrderAndKey() throws Exception {
+    final Random random = new Random(42);
+    final List<Entity> entities = new ArrayList<>();
+    for (short key = 0; key < 100; key++) {
+      entities.add(create(key, random.nextInt(5) == 0 ? null : random.nextInt(10)));
+    }
+    final List<Entity> expected = new EntitySorter(parse("$orderby=PropertyInt32 desc,PropertyInt16")
+        .getOrderByOption().getOrders()).sort(entities);
+
+    final List<Entity> actual = new ArrayList<>();
+    String query = "$orderby=PropertyInt32%20desc";
+    while (query != null) {
+      final UriInfo uriInfo = parse(query);
+      final EntityCollection collection = new EntityCollection();
+      collection.getEntities().addAll(entities);
+      final KeysetPager pager = new KeysetPager(ET_ALL_PRIM, uriInfo.getOrderByOption(), 10);
+      assertEquals(7, pager.applyPaging(collection, uriInfo.getSkipTokenOption(), 7, URI + '?' + query));
+      actual.addAll(collection.getEntities());
+      query = collection.getNext() == null ? null :
+          collection.getNext().toString().substring(URI.length() + 1).replace("%24", "$");
+    }
+    assertEquals(expected, actual);
+  }
+
+  @Test
+  public void pageSize() throws Exception {
+    final KeysetPager pager = new KeysetPager(ET_ALL_PRIM, null, 10);
+    assertEquals(10, pager.getPageSize(null, null));
+    assertEquals(10, pager.getPageSize(null, 100));
+    assertEquals(3, pager.getPageSize(null, 3));
+    final String token = pager.encode(create((short) 1, 2), 3);
+    assertEquals(3, pager.getPageSize(parse("$skiptoken=" + token).getSkipTokenOption(), 5));
+    assertNull(pager.decode(null));
+  }
+
+  @Test
+  public void skipTokenOfOtherOrderIsRejected() throws Exception {
+    final String token = new KeysetPager(ET_ALL_PRIM, null, 10).encode(create((short) 1, 2), 10);
+    final UriInfo uriInfo = parse("$orderby=PropertyInt32&$skiptoken=" + token);
+    try {
+      new KeysetPager(ET_ALL_PRIM, uriInfo.getOrderByOption(), 10).decode(uriInfo.getSkipTokenOption());
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  @Test
+  public void skipTokenOfOtherEntityTypeIsRejected() throws Exception {
+    final String token = new KeysetPager(ET_ALL_PRIM, null, 10).encode(create((short) 1, 2), 10);
+    final EdmEntityType otherType = edm.getEntityType(new FullQualifiedName("olingo.odata.test1", "ETTwoPrim"));
+    assertInvalid(new KeysetPager(otherType, null, 10), token);
+  }
+
+  @Test
+  public void skipTokenWithPageSizeAboveMaximumIsRejected() throws Exception {
+    final String token = new KeysetPager(ET_ALL_PRIM, null, Integer.MAX_VALUE)
+        .encode(create((short) 1, 2), Integer.MAX_VALUE);
+    final KeysetPager pager = new KeysetPager(ET_ALL_PRIM, null, 10);
+    assertInvalid(pager, token);
+    try {
+      pager.applyPaging(new EntityCollection(), parse("$skiptoken=" + token).getSkipTokenOption(), null, URI);
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private void assertInvalid(final KeysetPager pager, final String token) throws Exception {
+    try {
+      pager.decode(parse("$skiptoken=" + token).getSkipTokenOption());
+      fail("Expected exception not thrown.");
+    } catch (final ODataApplicationException e) {
+      assertEquals(HttpStatusCode.BAD_REQUEST.getStatusCode(), e.getStatusCode());
+    }
+  }
+
+  private UriInfo parse(final String query) throws Exception {
+    return new Parser(edm, odata).parseUri("ESAllPrim", query, null, null);
+  }
+
+  private Entity create(final short key, final Integer number) {
+    return new Entity()
+        .addProperty(new Property(null, "PropertyInt16", ValueType.PRIMITIVE, key))
+        .addProperty(new Property(null, "PropertyInt32", ValueType.PRIMITIVE, number));
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.olingo.server.core.search;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.olingo.commons.api.data.ComplexValue;
+import org.apache.olingo.commons.api.data.Entity;
+import org.apache.olingo.commons.api.data.Property;
+import org.apache.olingo.commons.api.data.ValueType;
+import org.apache.olingo.commons.api.edm.Edm;
+import org.apache.olingo.commons.api.edmx.EdmxReference;
+import org.apache.olingo.server.api.OData;
+import org.apache.olingo.server.api.uri.queryoption.SearchOption;
+import org.apache.olingo.server.core.uri.parser.Parser;
+import org.apache.olingo.server.tecsvc.provider.EdmTechProvider;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+  private static final OData odata = OData.newInstance();
+  private static final Edm edm = odata.createServiceMetadata(
+      new EdmTechProvider(), Collections.<EdmxReference> emptyList()).getEdm();
+
+  @Test
+  public void booleanOperators() throws Exception {
+    final SearchIndex<Integer> index = createIndex();
+    assertEquals(keys(1, 2), index.search(parse("red").getSearchExpression()));
+    assertEquals(keys(2), index.search(parse("red AND blue").getSearchExpression()));
+    assertEquals(keys(1, 2, 3), index.search(parse("red OR Blue").getSearchExpression()));
+    assertEquals(keys(1), index.search(parse("red NOT blue").getSearchExpression()));
+    assertEquals(keys(3, 4), index.search(parse("NOT red").getSearchExpression()));
+    assertEquals(keys(), index.search(parse("green").getSearchExpression()));
+  }
+
+  @Test
+  public void phrase() throws Exception {
+    final SearchIndex<Integer> index = createIndex();
+    assertEquals(keys(2), index.search(parse("\"red bicycle\"").getSearchExpression()));
+    assertEquals(keys(), index.search(parse("\"bicycle red\"").getSearchExpression()));
+    // Phrases do not span property values.
+    assertEquals(keys(), index.search(parse("\"car city\"").getSearchExpression()));
+    assertEquals(keys(4), index.search(parse("\"new york\"").getSearchExpression()));
+  }
+
+  @Test
+  public void incrementalMaintenance() throws Exception {
+    final SearchIndex<Integer> index = createIndex();
+    index.put(1, create("yellow car", null));
+    assertEquals(keys(2), index.search(parse("red").getSearchExpression()));
+    assertEquals(keys(1), index.search(parse("yellow").getSearchExpression()));
+
+    index.remove(2);
+    assertEquals(keys(), index.search(parse("red").getSearchExpression()));
+    assertEquals(3, index.size());
+
+    index.put(5, create("red shoes", null));
+    assertEquals(keys(5), index.search(parse("red").getSearchExpression()));
+  }
+
+  private SearchIndex<Integer> createIndex() {
+    final SearchIndex<Integer> index = new SearchIndex<>(Arrays.asList("PropertyString", "Address/City"));
+    index.put(1, create("Red car", "Berlin city"));
+    index.put(2, create("red bicycle, blue bell", null));
+    index.put(3, create("BLUE car", "city"));
+    index.put(4, create(null, "New York"));
+    return index;
+  }
+
+  private Entity create(final String string, final String city) {
+    final Entity entity = new Entity()
+        .addProperty(new Property("Edm.String", "PropertyString", ValueType.PRIMITIVE, string));
+    if (city != null) {
+      ComplexValue address = new ComplexValue();
+      address.getValue().add(new Property("Edm.String", "City", ValueType.PRIMITIVE, city));
+      entity.addProperty(new Property(null, "Address", ValueType.COMPLEX, address));
+    }
+    return entity;
+  }
+
+  private SearchOption parse(final String search) throws Exception {
+    return new Parser(edm, odata).parseUri("ESAllPrim", "$search=" + search, null, null).getSearchOption();
+  }
+
+  private Set<Integer> keys(final Integer... keys) {
+    return new HashSet<>(Arrays.asList(keys));
+  }
+}
@@ -18,10 +18,12 @@
  */
 package org.apache.olingo.server.core.serializer.json;
 
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.apache.commons.io.IOUtils;
@@ -29,6 +31,7 @@ import org.apache.olingo.commons.api.data.ContextURL;
 import org.apache.olingo.commons.api.data.DeletedEntity;
 import org.apache.olingo.commons.api.data.DeletedEntity.Reason;
 import org.apache.olingo.commons.api.data.Delta;
+import org.apache.olingo.commons.api.data.DeltaIterator;
 import org.apache.olingo.commons.api.data.DeltaLink;
 import org.apache.olingo.commons.api.data.Entity;
 import org.apache.olingo.commons.api.data.ContextURL.Suffix;
@@ -726,6 +729,57 @@ public class JsonDeltaSerializerTest {
         .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
         .build()).getContent();
       
-     } 
-  
+     }
+
+  @Test
+  public void streamedDelta() throws Exception {
+    final EdmEntitySet edmEntitySet = entityContainer.getEntitySet("ESDelta");
+    final Iterator<Entity> entities = data.readAll(edmEntitySet).getEntities().subList(0, 2).iterator();
+    final DeletedEntity deletedEntity = new DeletedEntity();
+    deletedEntity.setId(new URI("ESDelta(100)"));
+    deletedEntity.setReason(Reason.deleted);
+    final DeltaLink link = new DeltaLink();
+    link.setRelationship("NavPropertyETAllPrimOne");
+    link.setSource(new URI("ESDelta(100)"));
+    link.setTarget(new URI("ESAllPrim(0)"));
+    DeltaIterator deltaIterator = new DeltaIterator() {
+      @Override
+      public boolean hasNext() {
+        return entities.hasNext();
+      }
+
+      @Override
+      public Entity next() {
+        return entities.next();
+      }
+
+      @Override
+      public Iterator<DeletedEntity> getDeletedEntities() {
+        return Collections.singletonList(deletedEntity).iterator();
+      }
+
+      @Override
+      public Iterator<DeltaLink> getDeletedLinks() {
+        // the delta link is only known after all changes have been read
+        setDeltaLink(URI.create("23042017"));
+        return Collections.singletonList(link).iterator();
+      }
+    };
+    final EntityCollectionSerializerOptions options = EntityCollectionSerializerOptions.with()
+        .contextURL(ContextURL.with().entitySet(edmEntitySet).build())
+        .build();
+    ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+    ser.entityCollectionStreamed(metadata, edmEntitySet.getEntityType(), deltaIterator, options)
+        .getODataContent().write(streamed);
+
+    Delta delta = new Delta();
+    delta.getEntities().addAll(data.readAll(edmEntitySet).getEntities().subList(0, 2));
+    delta.getDeletedEntities().add(deletedEntity);
+    delta.getDeletedLinks().add(link);
+    delta.setDeltaLink(URI.create("23042017"));
+    final String expectedResult = IOUtils.toString(
+        ser.entityCollection(metadata, edmEntitySet.getEntityType(), delta, options).getContent());
+    Assert.assertTrue(expectedResult.endsWith("Link\":\"23042017\"}"));
+    Assert.assertEquals(expectedResult, new String(streamed.toByteArray(), "UTF-8"));
+  }
 }